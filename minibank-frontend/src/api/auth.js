@@ -45,6 +45,7 @@ export function logout() {
 export async function requestRegisterOtp(username, fullName, email, password) {
   return api("/auth/register/request-otp", {
     method: "POST",
+    idempotent: true,
     body: { username, fullName, email, password },
   });
 }
@@ -73,6 +74,7 @@ export async function forgotLookup(email) {
 export async function forgotStart(email, newPassword) {
   return api("/auth/forgot/start", {
     method: "POST",
+    idempotent: true,
     body: { email, newPassword },
   });
 }
@@ -82,6 +84,7 @@ export async function forgotStart(email, newPassword) {
 export async function forgotResendOtp(resetRequestId) {
   return api("/auth/forgot/resend-otp", {
     method: "POST",
+    idempotent: true,
     body: { resetRequestId },
   });
 }
@@ -24,18 +24,56 @@ export function clearToken() {
   localStorage.removeItem("token");
 }
 
-export async function api(path, { method = "GET", body, headers } = {}) {
+function newIdempotencyKey() {
+  if (globalThis.crypto?.randomUUID) return globalThis.crypto.randomUUID();
+  return `${Date.now().toString(16)}-${Math.random().toString(16).slice(2)}`;
+}
+
+const sleep = (ms) => new Promise((r) => setTimeout(r, ms));
+
+// 409 ที่ server ตอบเมื่อคำขอคีย์เดียวกันยังทำไม่เสร็จ (IdempotencyFilter.IN_PROGRESS_CODE)
+const IDEMPOTENCY_IN_PROGRESS = "IDEMPOTENCY_IN_PROGRESS";
+
+async function isInProgress(res) {
+  if (res.status !== 409) return false;
+  try {
+    return (await res.clone().json())?.code === IDEMPOTENCY_IN_PROGRESS;
+  } catch {
+    return false;
+  }
+}
+
+// idempotent: true = ส่ง Idempotency-Key เดิมทุกครั้งที่ลองใหม่ (เน็ตหลุด / คำขอเดิมยังทำไม่เสร็จ) server จะไม่ทำซ้ำ
+// 409 อื่น (username ซ้ำ, ใช้ไปแล้ว ฯลฯ) ลองใหม่ก็ได้ error เดิม จึงไม่ลองซ้ำ
+export async function api(path, { method = "GET", body, headers, idempotent = false } = {}) {
   const token = getToken();
+  const idemKey = idempotent ? newIdempotencyKey() : null;
+  const maxTries = idemKey ? 3 : 1;
 
-  const res = await fetch(API_BASE + path, {
-    method,
-    headers: {
-      "Content-Type": "application/json",
-      ...(token ? { Authorization: `Bearer ${token}` } : {}),
-      ...(headers || {}),
-    },
-    body: body ? JSON.stringify(body) : undefined,
-  });
+  let res;
+  for (let attempt = 1; ; attempt++) {
+    try {
+      res = await fetch(API_BASE + path, {
+        method,
+        headers: {
+          "Content-Type": "application/json",
+          ...(token ? { Authorization: `Bearer ${token}` } : {}),
+          ...(idemKey ? { "Idempotency-Key": idemKey } : {}),
+          ...(headers || {}),
+        },
+        body: body ? JSON.stringify(body) : undefined,
+      });
+    } catch (e) {
+      if (attempt >= maxTries) throw e;
+      await sleep(500 * attempt);
+      continue;
+    }
+    if (idemKey && attempt < maxTries && (await isInProgress(res))) {
+      await sleep(1000 * attempt);
+      continue;
+    }
+    break;
+  }
 
   const text = await res.text();
   let data = null;
@@ -0,0 +1,34 @@
+package com.example.minibank.audit;
+
+// ประเภทเหตุการณ์ใน audit log; code ถูกเขียนลงไฟล์ ห้ามเปลี่ยนค่าเดิม เพิ่มใหม่ใช้เลขถัดไป
+public enum AuditEvent {
+    LOGIN_SUCCEEDED(1),
+    LOGIN_FAILED(2),
+    REGISTERED(3),
+    OTP_SENT(4),
+    OTP_FAILED(5),
+    OTP_LOCKED(6),
+    OTP_THROTTLED(7),
+    PASSWORD_RESET(8);
+
+    private static final AuditEvent[] BY_CODE = new AuditEvent[16];
+
+    static {
+        for (AuditEvent e : values()) BY_CODE[e.code] = e;
+    }
+
+    private final byte code;
+
+    AuditEvent(int code) {
+        this.code = (byte) code;
+    }
+
+    public byte code() {
+        return code;
+    }
+
+    // null = code ที่ reader รุ่นนี้ไม่รู้จัก (ไฟล์จากรุ่นใหม่กว่า)
+    public static AuditEvent fromCode(int code) {
+        return code > 0 && code < BY_CODE.length ? BY_CODE[code] : null;
+    }
+}
@@ -0,0 +1,160 @@
+package com.example.minibank.audit;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.EnumSet;
+import java.util.Locale;
+import java.util.Set;
+
+// ส่งออก audit log เป็น CSV หรือ NDJSON ทาง stdout โดยไม่ต้องเปิดแอป (ไม่ต่อฐานข้อมูล อ่านไฟล์ตรง)
+// java -cp minibank.jar -Dloader.main=com.example.minibank.audit.AuditExport org.springframework.boot.loader.launch.PropertiesLauncher \
+//     ./data/audit --from=2026-01-01 --to=2026-02-01T00:00:00Z --type=LOGIN_FAILED,OTP_LOCKED --subject=alice --format=csv
+// --from / --to รับวันที่ (UTC) หรือ ISO instant; --to ไม่รวมเวลานั้น
+public final class AuditExport {
+
+    private static final String CSV_HEADER = "at,event,subject,ip,detail\n";
+
+    private AuditExport() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path dir = null;
+        Instant from = null;
+        Instant to = null;
+        Set<AuditEvent> types = null;
+        String subject = null;
+        boolean csv = false;
+
+        for (String arg : args) {
+            if (arg.startsWith("--from=")) from = parseInstant(arg.substring(7));
+            else if (arg.startsWith("--to=")) to = parseInstant(arg.substring(5));
+            else if (arg.startsWith("--subject=")) subject = arg.substring(10);
+            else if (arg.startsWith("--type=")) {
+                types = EnumSet.noneOf(AuditEvent.class);
+                for (String t : arg.substring(7).split(",")) types.add(AuditEvent.valueOf(t.trim().toUpperCase(Locale.ROOT)));
+            } else if (arg.startsWith("--format=")) {
+                String format = arg.substring(9).toLowerCase(Locale.ROOT);
+                if (!format.equals("csv") && !format.equals("ndjson")) usage("format ต้องเป็น ndjson หรือ csv");
+                csv = format.equals("csv");
+            } else if (arg.startsWith("--")) usage("ไม่รู้จัก option " + arg);
+            else dir = Path.of(arg);
+        }
+        if (dir == null) usage("ต้องระบุโฟลเดอร์ของ audit log");
+
+        Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 1 << 16);
+        if (csv) out.write(CSV_HEADER);
+
+        Set<AuditEvent> typeFilter = types;
+        String subjectFilter = subject;
+        boolean asCsv = csv;
+        StringBuilder line = new StringBuilder(256);
+        long[] rows = {0};
+        int skipped;
+        try {
+            skipped = new AuditLogReader(dir).read(from, to, r -> {
+                if (typeFilter != null && !typeFilter.contains(r.event())) return;
+                if (subjectFilter != null && !subjectFilter.equals(r.subject())) return;
+                line.setLength(0);
+                if (asCsv) csv(line, r);
+                else ndjson(line, r);
+                try {
+                    out.append(line);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                rows[0]++;
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        out.flush();
+
+        System.err.printf("Exported %d audit records from %s%n", rows[0], dir);
+        if (skipped > 0) System.err.printf("Skipped %d segments with an unknown header%n", skipped);
+    }
+
+    private static Instant parseInstant(String s) {
+        return s.length() == 10 ? LocalDate.parse(s).atStartOfDay(ZoneOffset.UTC).toInstant() : Instant.parse(s);
+    }
+
+    private static void usage(String message) {
+        System.err.println(message);
+        System.err.println("usage: AuditExport <dir> [--from=] [--to=] [--type=A,B] [--subject=] [--format=ndjson|csv]");
+        System.exit(2);
+    }
+
+    // event ที่ reader รุ่นนี้ไม่รู้จักออกเป็น UNKNOWN
+    private static String eventName(AuditRecord r) {
+        return r.event() == null ? "UNKNOWN" : r.event().name();
+    }
+
+    private static void ndjson(StringBuilder sb, AuditRecord r) {
+        sb.append("{\"at\":\"").append(r.at()).append('"');
+        sb.append(",\"event\":\"").append(eventName(r)).append('"');
+        sb.append(",\"subject\":"); jsonString(sb, r.subject());
+        sb.append(",\"ip\":"); jsonString(sb, r.ip());
+        sb.append(",\"detail\":"); jsonString(sb, r.detail());
+        sb.append("}\n");
+    }
+
+    private static void jsonString(StringBuilder sb, String s) {
+        if (s == null) {
+            sb.append("null");
+            return;
+        }
+        sb.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                default -> {
+                    if (c < 0x20) sb.append(String.format("\\u%04x", (int) c));
+                    else sb.append(c);
+                }
+            }
+        }
+        sb.append('"');
+    }
+
+    private static void csv(StringBuilder sb, AuditRecord r) {
+        sb.append(r.at()).append(',');
+        sb.append(eventName(r)).append(',');
+        csvField(sb, r.subject()); sb.append(',');
+        csvField(sb, r.ip()); sb.append(',');
+        csvField(sb, r.detail());
+        sb.append('\n');
+    }
+
+    // RFC 4180: ใส่ "..." เมื่อมี , " หรือขึ้นบรรทัดใหม่
+    private static void csvField(StringBuilder sb, String s) {
+        if (s == null) return;
+        boolean quote = false;
+        for (int i = 0; i < s.length() && !quote; i++) {
+            char c = s.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            sb.append(s);
+            return;
+        }
+        sb.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"') sb.append('"');
+            sb.append(c);
+        }
+        sb.append('"');
+    }
+}
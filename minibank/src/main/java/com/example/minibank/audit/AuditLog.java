@@ -0,0 +1,74 @@
+package com.example.minibank.audit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+
+// audit trail ของเหตุการณ์ด้าน auth (login, OTP, lockout) ลงไฟล์ของ AuditLogWriter ไม่แตะฐานข้อมูล
+// เขียนไม่ได้ = นับใน minibank.audit.dropped แล้วปล่อยให้ request ทำงานต่อ (audit ไม่ควรทำให้ login ล่ม)
+// อ่าน/ส่งออกด้วย AuditExport
+@Slf4j
+@Component
+public class AuditLog {
+
+    private final boolean enabled;
+    private final AuditLogWriter writer;
+
+    private final Counter written;
+    private final Counter dropped;
+
+    public AuditLog(
+            @Value("${app.audit.enabled:true}") boolean enabled,
+            @Value("${app.audit.dir:./data/audit}") String dir,
+            @Value("${app.audit.segment-mb:16}") int segmentMb,
+            @Value("${app.audit.flush-ms:200}") long flushMs,
+            @Value("${app.audit.retention-days:400}") int retentionDays,
+            MeterRegistry meterRegistry
+    ) {
+        this.enabled = enabled;
+        this.writer = new AuditLogWriter(Path.of(dir), segmentMb << 20, flushMs, Duration.ofDays(retentionDays));
+        this.written = Counter.builder("minibank.audit.written").register(meterRegistry);
+        this.dropped = Counter.builder("minibank.audit.dropped").register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) return;
+        writer.start();
+        log.info("Audit log started");
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (enabled) writer.close();
+    }
+
+    // subject = username / email ที่เกี่ยวข้อง, detail = เหตุผลสั้น ๆ; ห้ามส่ง OTP หรือรหัสผ่าน
+    public void record(AuditEvent event, String subject, String detail) {
+        if (!enabled) return;
+        try {
+            writer.append(Instant.now(), event, subject, clientIp(), detail);
+            written.increment();
+        } catch (RuntimeException e) {
+            dropped.increment();
+            log.warn("Audit record {} for {} dropped: {}", event, subject, e.toString());
+        }
+    }
+
+    // IP ของ request ปัจจุบัน (null เมื่อไม่ได้มาจาก HTTP request เช่นงาน background)
+    private static String clientIp() {
+        RequestAttributes attrs = RequestContextHolder.getRequestAttributes();
+        return attrs instanceof ServletRequestAttributes sra ? sra.getRequest().getRemoteAddr() : null;
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.minibank.audit;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+// อ่าน segment ของ AuditLogWriter แบบ offline (หรือระหว่างแอปเขียนอยู่ก็ได้: อ่านถึง record สุดท้ายที่เขียนครบ)
+// segment ที่ header ไม่ตรงถูกข้าม; record ที่ crc ไม่ตรง = ส่วนท้ายที่เขียนค้าง จบ segment นั้น
+public final class AuditLogReader {
+
+    private final Path dir;
+
+    public AuditLogReader(Path dir) {
+        this.dir = dir;
+    }
+
+    // ส่ง record ที่ at อยู่ในช่วง [from, to) ตามลำดับเวลาที่เขียน; from / to เป็น null ได้
+    // คืนจำนวน segment ที่อ่านไม่ได้ (header ผิด)
+    public int read(Instant from, Instant to, Consumer<AuditRecord> consumer) {
+        List<Path> files = segments(dir);
+        int skipped = 0;
+        for (int i = 0; i < files.size(); i++) {
+            long start = startMillis(files.get(i));
+            if (to != null && start >= to.toEpochMilli()) break;
+            // segment ถัดไปเปิดก่อน from = record ทั้ง segment นี้เก่ากว่า from
+            if (from != null && i + 1 < files.size() && startMillis(files.get(i + 1)) < from.toEpochMilli()) continue;
+            if (!readSegment(files.get(i), from, to, consumer)) skipped++;
+        }
+        return skipped;
+    }
+
+    private static boolean readSegment(Path file, Instant from, Instant to, Consumer<AuditRecord> consumer) {
+        MappedByteBuffer buf;
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (buf.limit() < AuditLogWriter.HEADER_BYTES
+                || buf.getInt(0) != AuditLogWriter.MAGIC
+                || buf.getInt(4) != AuditLogWriter.VERSION) {
+            return false;
+        }
+
+        CRC32C crc = new CRC32C();
+        byte[] body = new byte[AuditRecord.MAX_BODY_BYTES];
+        int position = AuditLogWriter.HEADER_BYTES;
+        while (position + 4 <= buf.limit()) {
+            int length = buf.getInt(position);
+            if (length <= 0 || length > body.length || position + 4 + length + 4 > buf.limit()) break;
+
+            buf.get(position + 4, body, 0, length);
+            crc.reset();
+            crc.update(body, 0, length);
+            if ((int) crc.getValue() != buf.getInt(position + 4 + length)) break;
+
+            AuditRecord record = AuditRecord.decode(ByteBuffer.wrap(body, 0, length));
+            if ((from == null || !record.at().isBefore(from)) && (to == null || record.at().isBefore(to))) {
+                consumer.accept(record);
+            }
+            position += 4 + length + 4;
+        }
+        return true;
+    }
+
+    static List<Path> segments(Path dir) {
+        if (!Files.isDirectory(dir)) return List.of();
+        try (Stream<Path> files = Files.list(dir)) {
+            return new ArrayList<>(files
+                    .filter(p -> p.getFileName().toString().startsWith(AuditLogWriter.PREFIX)
+                            && p.getFileName().toString().endsWith(AuditLogWriter.SUFFIX))
+                    .sorted()
+                    .toList());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static long startMillis(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(AuditLogWriter.PREFIX.length(), name.length() - AuditLogWriter.SUFFIX.length()));
+    }
+}
@@ -0,0 +1,277 @@
+package com.example.minibank.audit;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32C;
+
+// เขียน audit record ต่อท้าย segment ที่ map เข้าหน่วยความจำ: audit-<epoch millis ตอนเปิด segment>.log
+// segment: [int MAGIC][int VERSION] ตามด้วย record [int length][body][int crc32c(body)]; length 0 = จบ segment
+// ผู้เรียกไม่รอ fsync: thread audit-flush force ทุก flush-ms ครั้งเดียวต่อรอบ (group commit)
+// เครื่องดับเสียได้ไม่เกิน flush-ms สุดท้าย ส่วนที่เขียนไม่ครบ reader อ่านเป็นจุดจบ
+// segment ถัดไปถูกสร้าง/map ไว้ก่อนบน audit-flush (ไฟล์ .next ที่ reader ไม่อ่าน) ตอน roll แค่ rename แล้วสลับใต้ lock
+@Slf4j
+final class AuditLogWriter implements AutoCloseable {
+
+    static final String PREFIX = "audit-";
+    static final String SUFFIX = ".log";
+    static final int MAGIC = 0x4d424131; // "MBA1"
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 8;
+    static final String SPARE_SUFFIX = ".next";
+
+    private static final long RETENTION_CHECK_MS = TimeUnit.HOURS.toMillis(1);
+
+    private final Path dir;
+    private final int segmentBytes;
+    private final long flushMs;
+    private final Duration retention;
+
+    // ใช้ ReentrantLock แทน synchronized: ผู้เรียกส่วนใหญ่เป็น virtual thread
+    private final ReentrantLock lock = new ReentrantLock();
+    private final CRC32C crc = new CRC32C();
+    private final ByteBuffer scratch = ByteBuffer.allocate(AuditRecord.MAX_BODY_BYTES);
+
+    private record Spare(Path file, MappedByteBuffer buffer) {}
+
+    private volatile MappedByteBuffer segment;
+    private long segmentStartMillis;
+    private volatile boolean dirty;
+
+    // segment ที่เตรียมไว้ (null = audit-flush ยังสร้างไม่เสร็จ roll สร้างเอง)
+    private volatile Spare spare;
+    // segment ที่ roll ออกไปแล้ว รอ audit-flush force ครั้งสุดท้าย
+    private final Queue<MappedByteBuffer> retired = new ConcurrentLinkedQueue<>();
+    private volatile boolean directoryDirty;
+
+    private Thread flusher;
+    private volatile boolean running;
+
+    AuditLogWriter(Path dir, int segmentBytes, long flushMs, Duration retention) {
+        this.dir = dir;
+        this.segmentBytes = segmentBytes;
+        this.flushMs = flushMs;
+        this.retention = retention;
+    }
+
+    // เปิด segment ใหม่ทุกครั้งที่เริ่ม (ไม่ต้องหาจุดต่อท้ายของ segment เดิม)
+    void start() {
+        try {
+            Files.createDirectories(dir);
+            // .next ที่ค้างจากรอบก่อนยังไม่เคยถูกเขียน record (roll rename ก่อนเขียนเสมอ)
+            try (DirectoryStream<Path> leftovers = Files.newDirectoryStream(dir, PREFIX + "*" + SPARE_SUFFIX)) {
+                for (Path file : leftovers) Files.deleteIfExists(file);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        lock.lock();
+        try {
+            roll();
+        } finally {
+            lock.unlock();
+        }
+        prepareSpare();
+        running = true;
+        flusher = new Thread(this::runFlusher, "audit-flush");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    void append(Instant at, AuditEvent event, String subject, String ip, String detail) {
+        long micros = Math.addExact(Math.multiplyExact(at.getEpochSecond(), 1_000_000L), at.getNano() / 1_000);
+        lock.lock();
+        try {
+            if (segment == null) throw new IllegalStateException("Audit log is closed");
+
+            scratch.clear();
+            AuditRecord.encode(scratch, micros, event, subject, ip, detail);
+            scratch.flip();
+            int length = scratch.remaining();
+
+            if (segment.remaining() < 4 + length + 4 + 4) roll();
+
+            crc.reset();
+            crc.update(scratch.duplicate());
+            MappedByteBuffer seg = segment;
+            int position = seg.position();
+            seg.position(position + 4);
+            seg.put(scratch);
+            seg.putInt((int) crc.getValue());
+            // เขียน length ทีหลังสุด: record ที่เขียนไม่ครบจะยังอ่านเป็นจุดจบ
+            seg.putInt(position, length);
+            dirty = true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // force segment ที่ roll ออกไปแล้ว แล้วค่อย segment ปัจจุบัน (เรียกบน audit-flush หรือตอนปิด)
+    void flush() {
+        MappedByteBuffer old;
+        while ((old = retired.poll()) != null) old.force();
+        if (directoryDirty) {
+            directoryDirty = false;
+            forceDirectory();
+        }
+        if (!dirty) return;
+        dirty = false;
+        MappedByteBuffer seg = segment;
+        if (seg != null) seg.force();
+    }
+
+    // สร้าง segment ถัดไปไว้ก่อนนอก lock
+    void prepareSpare() {
+        if (spare != null) return;
+        Spare next = createSpare();
+        lock.lock();
+        try {
+            if (spare == null && segment != null) {
+                spare = next;
+                return;
+            }
+        } finally {
+            lock.unlock();
+        }
+        delete(next.file());
+    }
+
+    // ลบ segment ที่ record สุดท้ายเก่ากว่า retention (segment ถัดไปเปิดก่อน cutoff) ไม่ลบ segment ปัจจุบัน
+    void deleteExpired(Instant now) {
+        long cutoff = now.minus(retention).toEpochMilli();
+        List<Path> files = AuditLogReader.segments(dir);
+        for (int i = 0; i + 1 < files.size(); i++) {
+            if (AuditLogReader.startMillis(files.get(i + 1)) <= cutoff) {
+                try {
+                    Files.deleteIfExists(files.get(i));
+                    log.info("Deleted expired audit segment {}", files.get(i).getFileName());
+                } catch (IOException e) {
+                    log.warn("Failed to delete audit segment {}", files.get(i), e);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        if (flusher != null) {
+            LockSupport.unpark(flusher);
+            try {
+                flusher.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        lock.lock();
+        try {
+            flush();
+            if (segment != null) {
+                segment.force();
+                segment = null;
+            }
+            if (spare != null) {
+                delete(spare.file());
+                spare = null;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // เรียกภายใต้ lock: งานช้า (สร้างไฟล์ / map / force) อยู่บน audit-flush ยกเว้นตอนที่ยังไม่มี spare
+    private void roll() {
+        Spare next = spare;
+        spare = null;
+        if (next == null) next = createSpare();
+
+        // ชื่อไฟล์ต้องเรียงตามเวลาและไม่ซ้ำ แม้ roll สองครั้งใน millisecond เดียวกัน
+        // ตั้งชื่อตอนสลับ ไม่ใช่ตอนสร้าง: reader / retention ถือว่า record ของ segment ก่อนหน้าเก่ากว่าชื่อนี้
+        long start = Math.max(System.currentTimeMillis(), segmentStartMillis + 1);
+        Path file = dir.resolve(String.format("%s%020d%s", PREFIX, start, SUFFIX));
+        try {
+            Files.move(next.file(), file, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            delete(next.file());
+            throw new UncheckedIOException(e);
+        }
+
+        MappedByteBuffer old = segment;
+        if (old != null) {
+            if (old.remaining() >= 4) old.putInt(old.position(), 0);
+            retired.add(old);
+        }
+        segment = next.buffer();
+        segmentStartMillis = start;
+        directoryDirty = true;
+        if (flusher != null) LockSupport.unpark(flusher);
+    }
+
+    private Spare createSpare() {
+        try {
+            Path file = Files.createTempFile(dir, PREFIX, SPARE_SUFFIX);
+            try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                MappedByteBuffer seg = ch.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+                seg.putInt(MAGIC);
+                seg.putInt(VERSION);
+                return new Spare(file, seg);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // ชื่อไฟล์จาก rename ต้องอยู่รอดเครื่องดับเหมือนข้อมูลใน segment
+    private void forceDirectory() {
+        try (FileChannel ch = FileChannel.open(dir, StandardOpenOption.READ)) {
+            ch.force(true);
+        } catch (IOException e) {
+            log.warn("Failed to sync audit directory {}", dir, e);
+        }
+    }
+
+    private static void delete(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Failed to delete audit file {}", file, e);
+        }
+    }
+
+    private void runFlusher() {
+        long nextRetentionCheck = 0;
+        while (running) {
+            // roll ปลุกก่อนครบรอบ: force segment เก่าและเตรียม spare ใหม่ทันที
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(flushMs));
+            if (!running) break;
+            try {
+                flush();
+                prepareSpare();
+                long now = System.currentTimeMillis();
+                if (now >= nextRetentionCheck) {
+                    nextRetentionCheck = now + RETENTION_CHECK_MS;
+                    deleteExpired(Instant.ofEpochMilli(now));
+                }
+            } catch (RuntimeException e) {
+                log.warn("Audit log flush failed", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.minibank.audit;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+// หนึ่งเหตุการณ์ใน audit log; subject = username หรือ email ที่เกี่ยวข้อง, detail = เหตุผลสั้น ๆ (ไม่ใส่ OTP / รหัสผ่าน)
+// body บนดิสก์: [long micros][byte event][string subject][string ip][string detail] โดย string = [short length][UTF-8], -1 = null
+public record AuditRecord(Instant at, AuditEvent event, String subject, String ip, String detail) {
+
+    static final int MAX_STRING_BYTES = 255;
+    static final int MAX_BODY_BYTES = 8 + 1 + 3 * (2 + MAX_STRING_BYTES);
+
+    static void encode(ByteBuffer out, long micros, AuditEvent event, String subject, String ip, String detail) {
+        out.putLong(micros);
+        out.put(event.code());
+        putString(out, subject);
+        putString(out, ip);
+        putString(out, detail);
+    }
+
+    // event = null เมื่อ code ไม่รู้จัก
+    static AuditRecord decode(ByteBuffer in) {
+        long micros = in.getLong();
+        AuditEvent event = AuditEvent.fromCode(in.get());
+        String subject = getString(in);
+        String ip = getString(in);
+        String detail = getString(in);
+        return new AuditRecord(Instant.EPOCH.plus(micros, ChronoUnit.MICROS), event, subject, ip, detail);
+    }
+
+    // ตัดที่ MAX_STRING_BYTES (ตัดกลางตัวอักษรได้ ตอนอ่าน decoder แทนด้วย U+FFFD)
+    private static void putString(ByteBuffer out, String s) {
+        if (s == null) {
+            out.putShort((short) -1);
+            return;
+        }
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        int length = Math.min(bytes.length, MAX_STRING_BYTES);
+        out.putShort((short) length);
+        out.put(bytes, 0, length);
+    }
+
+    private static String getString(ByteBuffer in) {
+        int length = in.getShort();
+        if (length < 0) return null;
+        String s = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+        in.position(in.position() + length);
+        return s;
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.minibank.controller;
+
+import com.example.minibank.dto.UserImportReport;
+import com.example.minibank.service.LedgerRollupService;
+import com.example.minibank.service.UserExistenceIndex;
+import com.example.minibank.service.UserExportService;
+import com.example.minibank.service.UserImportService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin")
+public class AdminController {
+
+    private final UserExistenceIndex userIndex;
+    private final UserExportService userExportService;
+    private final UserImportService userImportService;
+    private final LedgerRollupService ledgerRollupService;
+
+    public AdminController(
+            UserExistenceIndex userIndex,
+            UserExportService userExportService,
+            UserImportService userImportService,
+            LedgerRollupService ledgerRollupService
+    ) {
+        this.userIndex = userIndex;
+        this.userExportService = userExportService;
+        this.userImportService = userImportService;
+        this.ledgerRollupService = ledgerRollupService;
+    }
+
+    @GetMapping("/user-index")
+    public Map<String, Object> userIndexStats() {
+        return userIndex.stats();
+    }
+
+    // ?format=ndjson|csv&afterId=<id สุดท้ายที่ได้รับ> เพื่อเริ่มต่อจากที่ขาด
+    @GetMapping("/users/export")
+    public void exportUsers(
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(defaultValue = "0") long afterId,
+            HttpServletResponse response
+    ) throws IOException {
+        UserExportService.Format f = UserExportService.Format.parse(format);
+
+        response.setContentType(f.contentType);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                "attachment; filename=\"users-after-" + afterId + "." + f.extension + "\"");
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "no-store");
+
+        userExportService.export(f, afterId, response.getOutputStream());
+    }
+
+    // body = ไฟล์ทั้งไฟล์ (Content-Type: application/x-ndjson หรือ text/csv)
+    @PostMapping("/users/import")
+    public UserImportReport importUsers(
+            @RequestParam(defaultValue = "ndjson") String format,
+            HttpServletRequest request
+    ) throws IOException {
+        UserImportService.Format f;
+        try {
+            f = UserImportService.Format.valueOf(format.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new RuntimeException("format ต้องเป็น ndjson หรือ csv");
+        }
+        return userImportService.importUsers(f, request.getInputStream());
+    }
+
+    @PostMapping("/user-index/rebuild")
+    public Map<String, Object> rebuildUserIndex() {
+        boolean started = userIndex.rebuild();
+        if (!started) throw new RuntimeException("กำลัง rebuild อยู่แล้ว");
+        return userIndex.stats();
+    }
+
+    // คำนวณ ledger_monthly_rollups ใหม่จาก journal_postings ทั้งหมด
+    @PostMapping("/ledger/rollups/rebuild")
+    public Map<String, Object> rebuildLedgerRollups() {
+        Map<String, Object> result = ledgerRollupService.rebuildAll();
+        if (result == null) throw new RuntimeException("กำลัง rebuild อยู่แล้ว");
+        return result;
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.minibank.controller;
+
+import com.example.minibank.dto.AccountResponse;
+import com.example.minibank.dto.BatchTransferReport;
+import com.example.minibank.dto.BatchTransferRequest;
+import com.example.minibank.dto.BillPaymentRequest;
+import com.example.minibank.dto.CashRequest;
+import com.example.minibank.dto.DashboardSummary;
+import com.example.minibank.dto.StandingOrderRequest;
+import com.example.minibank.dto.StandingOrderResponse;
+import com.example.minibank.dto.TransactionPage;
+import com.example.minibank.dto.TransactionResponse;
+import com.example.minibank.dto.TransferRequest;
+import com.example.minibank.security.IdempotencyFilter;
+import com.example.minibank.service.BatchTransferService;
+import com.example.minibank.service.LedgerService;
+import com.example.minibank.service.StandingOrderService;
+import jakarta.validation.Valid;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api")
+@CrossOrigin(origins = "http://localhost:5173")
+public class LedgerController {
+
+    private final LedgerService ledgerService;
+    private final BatchTransferService batchTransferService;
+    private final StandingOrderService standingOrderService;
+
+    public LedgerController(LedgerService ledgerService, BatchTransferService batchTransferService,
+                            StandingOrderService standingOrderService) {
+        this.ledgerService = ledgerService;
+        this.batchTransferService = batchTransferService;
+        this.standingOrderService = standingOrderService;
+    }
+
+    @GetMapping("/accounts/me")
+    public AccountResponse myAccount(Authentication authentication) {
+        return ledgerService.myAccount(username(authentication));
+    }
+
+    // ?type=TRANSFER|TOPUP|WITHDRAWAL|BILL_PAYMENT&from=yyyy-MM-dd&to=yyyy-MM-dd&cursor=<nextCursor>&limit=
+    @GetMapping("/transactions")
+    public TransactionPage history(
+            Authentication authentication,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String type,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to
+    ) {
+        return ledgerService.history(username(authentication), cursor, limit, type, from, to);
+    }
+
+    // รายรับ/รายจ่ายเดือนนี้แยกประเภท + ย้อนหลัง N เดือน (อ่านจาก rollup)
+    @GetMapping("/dashboard/summary")
+    public DashboardSummary dashboard(Authentication authentication, @RequestParam(defaultValue = "6") int months) {
+        return ledgerService.dashboard(username(authentication), months);
+    }
+
+    @PostMapping("/transfers")
+    public TransactionResponse transfer(Authentication authentication, @Valid @RequestBody TransferRequest req) {
+        return ledgerService.transfer(username(authentication), req);
+    }
+
+    // โอนหลายปลายทางในคำขอเดียว ได้ผลรายรายการกลับมา (รายการที่ผิดไม่ทำให้รายการอื่นล้ม)
+    // ส่งซ้ำด้วย Idempotency-Key เดิม = ทำต่อจากรายการที่ค้าง / ได้ผลเดิม
+    @PostMapping("/transfers/batch")
+    public BatchTransferReport transferBatch(Authentication authentication,
+                                             @RequestHeader(value = IdempotencyFilter.HEADER, required = false) String idempotencyKey,
+                                             @Valid @RequestBody BatchTransferRequest req) {
+        return batchTransferService.transfer(username(authentication), idempotencyKey, req);
+    }
+
+    @PostMapping("/topups")
+    public TransactionResponse topUp(Authentication authentication, @Valid @RequestBody CashRequest req) {
+        return ledgerService.topUp(username(authentication), req);
+    }
+
+    @PostMapping("/withdrawals")
+    public TransactionResponse withdraw(Authentication authentication, @Valid @RequestBody CashRequest req) {
+        return ledgerService.withdraw(username(authentication), req);
+    }
+
+    @PostMapping("/bill-payments")
+    public TransactionResponse payBill(Authentication authentication, @Valid @RequestBody BillPaymentRequest req) {
+        return ledgerService.payBill(username(authentication), req);
+    }
+
+    // จ่ายบิลล่วงหน้า / จ่ายประจำ (ONCE / WEEKLY / MONTHLY) ระบบตัดเงินเองเมื่อถึงกำหนด
+    @GetMapping("/standing-orders")
+    public List<StandingOrderResponse> standingOrders(Authentication authentication) {
+        return standingOrderService.list(username(authentication));
+    }
+
+    @PostMapping("/standing-orders")
+    public StandingOrderResponse createStandingOrder(Authentication authentication,
+                                                     @Valid @RequestBody StandingOrderRequest req) {
+        return standingOrderService.create(username(authentication), req);
+    }
+
+    @DeleteMapping("/standing-orders/{id}")
+    public Map<String, Object> cancelStandingOrder(Authentication authentication, @PathVariable long id) {
+        standingOrderService.cancel(username(authentication), id);
+        return Map.of("ok", true);
+    }
+
+    private static String username(Authentication authentication) {
+        return authentication == null ? null : authentication.getName();
+    }
+}
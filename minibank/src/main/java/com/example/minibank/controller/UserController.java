@@ -1,12 +1,13 @@
 package com.example.minibank.controller;
 
+import com.example.minibank.dto.UserPage;
 import com.example.minibank.entity.User;
 import com.example.minibank.repository.UserRepository;
+import com.example.minibank.service.UserExistenceIndex;
+import com.example.minibank.service.UserService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.List;
-
 @CrossOrigin(origins = "http://localhost:5173")
 @RestController
 @RequestMapping("/users")
@@ -14,16 +15,24 @@ import java.util.List;
 public class UserController {
 
     private final UserRepository userRepository;
+    private final UserExistenceIndex userIndex;
+    private final UserService userService;
 
-    //  ดึง user ทั้งหมด
+    //  ดึง user ทีละหน้า (ไม่ส่ง passwordHash)
     @GetMapping
-    public List<User> getAllUsers() {
-        return userRepository.findAll();
+    public UserPage getAllUsers(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String usernamePrefix
+    ) {
+        return userService.list(cursor, limit, usernamePrefix);
     }
 
     //  เพิ่ม user ใหม่ (ใช้ทดสอบ backend ก่อน)
     @PostMapping
     public User createUser(@RequestBody User user) {
-        return userRepository.save(user);
+        User saved = userRepository.save(user);
+        userIndex.add(saved.getUsername(), saved.getEmail());
+        return saved;
     }
 }
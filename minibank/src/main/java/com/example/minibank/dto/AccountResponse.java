@@ -0,0 +1,14 @@
+package com.example.minibank.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+
+@Getter
+@AllArgsConstructor
+public class AccountResponse {
+    private String accountNo;
+    private String currency;
+    private BigDecimal balance;
+}
@@ -0,0 +1,33 @@
+package com.example.minibank.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+@Getter
+@AllArgsConstructor
+public class BatchTransferReport {
+    private int total;
+    private int posted;
+    private int rejected;
+    private BigDecimal postedAmount;
+
+    // ยอดคงเหลือหลังโอนครบทั้ง batch
+    private BigDecimal balance;
+    private long elapsedMs;
+
+    // เรียงตามลำดับใน request
+    private List<ItemResult> results;
+
+    @Getter
+    @AllArgsConstructor
+    public static class ItemResult {
+        private int index;
+        private String to;
+        private String status; // POSTED | REJECTED
+        private Long entryId;
+        private String reason;
+    }
+}
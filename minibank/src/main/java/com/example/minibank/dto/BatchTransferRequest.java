@@ -0,0 +1,16 @@
+package com.example.minibank.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+public class BatchTransferRequest {
+
+    // ตรวจทีละรายการใน BatchTransferService: รายการที่ผิดถูกรายงานใน results ไม่ทำให้ทั้ง batch ล้ม
+    @NotEmpty(message = "ไม่มีรายการโอน")
+    private List<TransferRequest> items;
+}
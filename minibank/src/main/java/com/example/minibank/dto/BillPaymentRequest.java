@@ -0,0 +1,28 @@
+package com.example.minibank.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+
+@Getter
+@Setter
+public class BillPaymentRequest {
+
+    @NotBlank(message = "เลือกประเภทบิล")
+    @Size(max = 100)
+    private String bill;
+
+    @NotBlank(message = "เลือกผู้ให้บริการ")
+    @Size(max = 100)
+    private String provider;
+
+    @Size(max = 64)
+    private String ref;
+
+    @NotNull(message = "กรอกจำนวนเงิน")
+    private BigDecimal amount;
+}
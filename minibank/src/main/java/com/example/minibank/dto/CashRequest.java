@@ -0,0 +1,25 @@
+package com.example.minibank.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+
+// ใช้ทั้งเติมเงินและถอนเงิน
+@Getter
+@Setter
+public class CashRequest {
+
+    @NotBlank(message = "เลือกช่องทาง")
+    @Size(max = 255)
+    private String channel;
+
+    @NotNull(message = "กรอกจำนวนเงิน")
+    private BigDecimal amount;
+
+    @Size(max = 255)
+    private String note;
+}
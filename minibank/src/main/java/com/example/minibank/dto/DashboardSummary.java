@@ -0,0 +1,45 @@
+package com.example.minibank.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+@Getter
+@AllArgsConstructor
+public class DashboardSummary {
+    private String accountNo;
+    private String currency;
+    private BigDecimal balance;
+
+    // เดือนปัจจุบัน (yyyy-MM)
+    private String month;
+    private BigDecimal income;
+    private BigDecimal expense;
+    private long incomeCount;
+    private long expenseCount;
+    private List<CategoryTotal> categories;
+
+    // ย้อนหลัง เก่า -> ใหม่ เดือนที่ไม่มีรายการเป็น 0
+    private List<MonthTotal> months;
+
+    @Getter
+    @AllArgsConstructor
+    public static class CategoryTotal {
+        private String category;
+        private BigDecimal income;
+        private BigDecimal expense;
+        private long count;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class MonthTotal {
+        private String month;
+        private BigDecimal income;
+        private BigDecimal expense;
+        private long incomeCount;
+        private long expenseCount;
+    }
+}
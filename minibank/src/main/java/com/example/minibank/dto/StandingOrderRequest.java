@@ -0,0 +1,37 @@
+package com.example.minibank.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+@Getter
+@Setter
+public class StandingOrderRequest {
+
+    @NotBlank(message = "เลือกประเภทบิล")
+    @Size(max = 100)
+    private String bill;
+
+    @NotBlank(message = "เลือกผู้ให้บริการ")
+    @Size(max = 100)
+    private String provider;
+
+    @Size(max = 64)
+    private String ref;
+
+    @NotNull(message = "กรอกจำนวนเงิน")
+    private BigDecimal amount;
+
+    // ONCE / WEEKLY / MONTHLY
+    @NotBlank(message = "เลือกความถี่")
+    private String frequency;
+
+    // งวดแรก (yyyy-MM-dd ตาม app.ledger.zone) MONTHLY จ่ายวันที่เดียวกันทุกเดือน
+    @NotNull(message = "เลือกวันที่จ่าย")
+    private LocalDate due;
+}
@@ -0,0 +1,31 @@
+package com.example.minibank.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+
+@Getter
+@AllArgsConstructor
+public class StandingOrderResponse {
+    private Long id;
+    private String bill;
+    private String provider;
+    private String ref;
+    private BigDecimal amount;
+    private String frequency;
+
+    // งวดถัดไป และเวลาที่ระบบจะตัดเงิน (ยอดไม่พอ = เวลาที่จะลองใหม่)
+    private LocalDate due;
+    private Instant nextRunAt;
+
+    // ACTIVE / RUNNING / DONE / FAILED / CANCELLED
+    private String status;
+
+    // ผลครั้งล่าสุด: PAID / INSUFFICIENT_FUNDS / SKIPPED_INSUFFICIENT_FUNDS / ERROR
+    private String lastStatus;
+    private Long lastEntryId;
+    private Instant lastRunAt;
+}
@@ -0,0 +1,22 @@
+package com.example.minibank.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+@Getter
+@AllArgsConstructor
+public class TransactionResponse {
+    private Long id;
+    private String type;
+    private String counterparty;
+    private String reference;
+    private String note;
+    private BigDecimal amount;
+
+    // ยอดคงเหลือหลังรายการนี้
+    private BigDecimal balance;
+    private Instant createdAt;
+}
@@ -0,0 +1,25 @@
+package com.example.minibank.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+
+@Getter
+@Setter
+public class TransferRequest {
+
+    // เลขบัญชี MiniBank (MB...) หรือบัญชีต่างธนาคาร
+    @NotBlank(message = "กรอกบัญชีปลายทาง")
+    @Size(max = 255)
+    private String to;
+
+    @NotNull(message = "กรอกจำนวนเงิน")
+    private BigDecimal amount;
+
+    @Size(max = 255)
+    private String note;
+}
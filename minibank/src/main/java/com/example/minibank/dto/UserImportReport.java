@@ -0,0 +1,27 @@
+package com.example.minibank.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+@AllArgsConstructor
+public class UserImportReport {
+    private long total;
+    private long inserted;
+    private long rejected;
+    private long elapsedMs;
+    private long rowsPerSecond;
+
+    // แสดงไม่เกิน app.import.max-reported-errors รายการ (rejected คือจำนวนจริง)
+    private List<RowError> errors;
+
+    @Getter
+    @AllArgsConstructor
+    public static class RowError {
+        private long line;
+        private String username;
+        private String reason;
+    }
+}
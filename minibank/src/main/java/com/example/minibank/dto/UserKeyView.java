@@ -0,0 +1,6 @@
+package com.example.minibank.dto;
+
+public interface UserKeyView {
+    String getUsername();
+    String getEmail();
+}
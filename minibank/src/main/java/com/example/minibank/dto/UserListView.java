@@ -0,0 +1,8 @@
+package com.example.minibank.dto;
+
+// แถวของ native query ใน UserRepository (เฉพาะคอลัมน์ที่แสดงในรายการ)
+public interface UserListView {
+    Long getId();
+    String getUsername();
+    String getFullName();
+}
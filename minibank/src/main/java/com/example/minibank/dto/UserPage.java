@@ -0,0 +1,15 @@
+package com.example.minibank.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+@AllArgsConstructor
+public class UserPage {
+    private List<UserResponse> items;
+
+    // ส่งกลับมาเป็น ?cursor= เพื่อดึงหน้าถัดไป, null = หน้าสุดท้าย
+    private String nextCursor;
+}
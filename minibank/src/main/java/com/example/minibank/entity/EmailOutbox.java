@@ -0,0 +1,56 @@
+package com.example.minibank.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "email_outbox")
+public class EmailOutbox {
+
+    public enum Status { PENDING, SENDING, FAILED }
+
+    // เลขน้อย = ส่งก่อน
+    public static final int PRIORITY_OTP = 0;
+    public static final int PRIORITY_NORMAL = 10;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private String toEmail;
+
+    @Column(nullable = false)
+    private String subject;
+
+    @Column(nullable = false, columnDefinition = "text")
+    private String htmlContent;
+
+    @Column(nullable = false)
+    private int priority;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Status status;
+
+    @Column(nullable = false)
+    private int attempts;
+
+    @Column(nullable = false)
+    private Instant nextAttemptAt;
+
+    @Column(nullable = false)
+    private Instant createdAt;
+
+    private Instant lockedAt;
+
+    @Column(length = 1000)
+    private String lastError;
+}
@@ -0,0 +1,54 @@
+package com.example.minibank.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+// อ่าน/เขียนผ่าน IdempotencyKeyRepository (JdbcTemplate) ส่วน entity นี้ไว้ให้ Hibernate validate schema
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(
+        name = "idempotency_keys",
+        uniqueConstraints = @UniqueConstraint(name = "uk_idempotency_keys_scope_key", columnNames = {"scope", "idem_key"})
+)
+public class IdempotencyKey {
+
+    public enum Status { IN_PROGRESS, COMPLETED }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private String scope;
+
+    @Column(name = "idem_key", nullable = false, length = 128)
+    private String key;
+
+    @Column(nullable = false, length = 64)
+    private String requestHash;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Status status;
+
+    private Integer responseStatus;
+
+    private String contentType;
+
+    @Column(columnDefinition = "bytea")
+    private byte[] responseBody;
+
+    private Instant lockedAt;
+
+    @Column(nullable = false)
+    private Instant createdAt;
+
+    @Column(nullable = false)
+    private Instant expiresAt;
+}
@@ -0,0 +1,38 @@
+package com.example.minibank.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "journal_entries")
+public class JournalEntry {
+
+    public enum Type { TRANSFER, TOPUP, WITHDRAWAL, BILL_PAYMENT }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Type type;
+
+    private Long initiatedBy; // users.id
+
+    private String counterparty; // บัญชีปลายทาง / ช่องทาง / ผู้ให้บริการบิล
+
+    @Column(length = 64)
+    private String reference;
+
+    private String note;
+
+    @Column(nullable = false)
+    private Instant createdAt;
+}
@@ -0,0 +1,41 @@
+package com.example.minibank.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "journal_postings")
+public class JournalPosting {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private Long entryId;
+
+    @Column(nullable = false)
+    private Long accountId;
+
+    // ซ้ำกับ journal_entries.type ไว้กรองประวัติจาก index
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private JournalEntry.Type entryType;
+
+    // + เข้าบัญชี, - ออกจากบัญชี (ทุก posting ของ entry เดียวกันรวมได้ 0)
+    @Column(nullable = false)
+    private long amountMinor;
+
+    // null = ลงที่แถวย่อยของ hot account (ไม่มียอดรวม ณ ตอนนั้น)
+    private Long balanceAfterMinor;
+
+    @Column(nullable = false)
+    private Instant createdAt;
+}
@@ -0,0 +1,52 @@
+package com.example.minibank.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "ledger_accounts")
+public class LedgerAccount {
+
+    public enum Type { CUSTOMER, SYSTEM }
+
+    public static final String SYSTEM_CASH = "SYS-CASH";
+    public static final String SYSTEM_BILLERS = "SYS-BILLERS";
+    public static final String SYSTEM_INTERBANK = "SYS-INTERBANK";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, unique = true, length = 20)
+    private String accountNo;
+
+    private Long ownerUserId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Type type;
+
+    @Column(nullable = false, length = 3)
+    private String currency;
+
+    // สตางค์ (1 บาท = 100); แก้ผ่าน LedgerRepository.debit/credit เท่านั้น
+    @Column(nullable = false)
+    private long balanceMinor;
+
+    @Column(nullable = false)
+    private boolean allowNegative;
+
+    // > 1 = hot account: ยอดส่วนหนึ่งอยู่ใน ledger_account_shards (ดู HotAccountRegistry)
+    @Column(nullable = false)
+    private int shardCount;
+
+    @Column(nullable = false)
+    private Instant createdAt;
+}
@@ -7,7 +7,7 @@ import java.time.Instant;
 
 @Getter
 @Setter
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
@@ -15,7 +15,8 @@ import java.time.Instant;
 public class PendingRegistration {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "pending_registrations_id_seq")
+    @SequenceGenerator(name = "pending_registrations_id_seq", sequenceName = "pending_registrations_id_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable=false, unique=true)
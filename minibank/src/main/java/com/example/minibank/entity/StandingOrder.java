@@ -0,0 +1,92 @@
+package com.example.minibank.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+import java.time.LocalDate;
+
+// อ่าน/เขียนผ่าน StandingOrderRepository (JDBC) ; entity มีไว้ให้ Hibernate ตรวจ schema
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "standing_orders")
+public class StandingOrder {
+
+    public enum Frequency {
+        ONCE, WEEKLY, MONTHLY;
+
+        // งวดถัดจาก due (null = ไม่มีงวดถัดไป); MONTHLY ใช้ anchorDay ตัดเป็นวันสุดท้ายของเดือนที่สั้นกว่า
+        public LocalDate next(LocalDate due, int anchorDay) {
+            return switch (this) {
+                case ONCE -> null;
+                case WEEKLY -> due.plusWeeks(1);
+                case MONTHLY -> {
+                    LocalDate month = due.plusMonths(1);
+                    yield month.withDayOfMonth(Math.min(anchorDay, month.lengthOfMonth()));
+                }
+            };
+        }
+    }
+
+    // RUNNING = ตัดเงินผ่าน LedgerEngine อยู่ (process ตายตอนนี้ = ต้องตรวจกับ journal เอง ไม่จ่ายซ้ำอัตโนมัติ)
+    public enum Status { ACTIVE, RUNNING, DONE, FAILED, CANCELLED }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private Long accountId;
+
+    @Column(nullable = false)
+    private Long userId;
+
+    @Column(nullable = false, length = 100)
+    private String bill;
+
+    @Column(nullable = false, length = 100)
+    private String provider;
+
+    @Column(length = 64)
+    private String reference;
+
+    @Column(nullable = false)
+    private long amountMinor;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Frequency frequency;
+
+    @Column(nullable = false)
+    private int anchorDay;
+
+    // งวดที่กำลังจะจ่าย (วันที่ตาม app.ledger.zone)
+    @Column(nullable = false)
+    private LocalDate dueDate;
+
+    // เวลาที่จะลองจ่ายครั้งถัดไป (งวดนี้ หรือ retry ตอนยอดไม่พอ)
+    @Column(nullable = false)
+    private Instant nextRunAt;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Status status;
+
+    // จำนวนครั้งที่ยอดไม่พอในงวดนี้
+    @Column(nullable = false)
+    private int attempts;
+
+    @Column(length = 32)
+    private String lastStatus;
+
+    private Long lastEntryId;
+
+    private Instant lastRunAt;
+
+    @Column(nullable = false)
+    private Instant createdAt;
+}
@@ -0,0 +1,28 @@
+package com.example.minibank.exception;
+
+public class MailDeliveryException extends RuntimeException {
+
+    private final boolean circuitOpen;
+
+    public MailDeliveryException(String message) {
+        this(message, false, null);
+    }
+
+    public MailDeliveryException(String message, Throwable cause) {
+        this(message, false, cause);
+    }
+
+    private MailDeliveryException(String message, boolean circuitOpen, Throwable cause) {
+        super(message, cause);
+        this.circuitOpen = circuitOpen;
+    }
+
+    public static MailDeliveryException circuitOpen() {
+        return new MailDeliveryException("Mail transport circuit is open", true, null);
+    }
+
+    // ไม่ได้ส่งจริงเพราะ circuit เปิดอยู่ (ไม่นับเป็นการลองส่ง)
+    public boolean isCircuitOpen() {
+        return circuitOpen;
+    }
+}
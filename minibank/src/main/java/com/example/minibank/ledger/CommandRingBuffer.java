@@ -0,0 +1,61 @@
+package com.example.minibank.ledger;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// ring buffer หลายผู้ส่ง ผู้รับเดียว (engine thread) ไม่ใช้ lock
+// ผู้ส่ง: tryClaim() ได้ลำดับ -> เขียนลงช่อง -> publish(); ผู้รับอ่านตามลำดับเท่าที่ publish แล้ว แล้ว release() คืนช่อง
+// ลำดับที่ claim แล้วต้อง publish เสมอ (ผู้รับรอตามลำดับ)
+final class CommandRingBuffer {
+
+    private final LedgerCommand[] slots;
+    private final AtomicLongArray published;
+    private final int mask;
+    private final int capacity;
+
+    private final AtomicLong next = new AtomicLong();
+    private volatile long released = -1;
+
+    CommandRingBuffer(int size) {
+        if (Integer.bitCount(size) != 1) throw new IllegalArgumentException("Ring size must be a power of two: " + size);
+        this.capacity = size;
+        this.mask = size - 1;
+        this.slots = new LedgerCommand[size];
+        this.published = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            slots[i] = new LedgerCommand();
+            slots[i].clear();
+            published.set(i, -1);
+        }
+    }
+
+    // -1 = เต็ม (engine ยังไม่ release ช่องของรอบก่อน) ให้ผู้ส่งถอยแล้วลองใหม่เอง
+    long tryClaim() {
+        while (true) {
+            long seq = next.get();
+            if (seq - capacity > released) return -1;
+            if (next.compareAndSet(seq, seq + 1)) return seq;
+        }
+    }
+
+    LedgerCommand get(long seq) {
+        return slots[(int) seq & mask];
+    }
+
+    void publish(long seq) {
+        published.lazySet((int) seq & mask, seq);
+    }
+
+    boolean isPublished(long seq) {
+        return published.get((int) seq & mask) == seq;
+    }
+
+    // ช่องถึง seq ใช้ซ้ำได้แล้ว
+    void release(long seq) {
+        released = seq;
+    }
+
+    boolean isEmpty(long nextToRead) {
+        return next.get() == nextToRead;
+    }
+}
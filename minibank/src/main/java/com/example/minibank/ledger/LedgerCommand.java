@@ -0,0 +1,55 @@
+package com.example.minibank.ledger;
+
+import java.util.concurrent.CompletableFuture;
+
+// ช่องใน ring buffer (จองไว้ล่วงหน้า ใช้ซ้ำ) ผู้ส่งเขียนค่า แล้ว engine thread อ่าน/บันทึก journal/คำนวณยอด
+final class LedgerCommand {
+
+    static final byte OPEN = 1;
+    static final byte POST = 2;
+
+    byte kind;
+    long seq;              // ลำดับใน journal (engine กำหนด)
+
+    // OPEN: เปิดบัญชี debitAccount ด้วยยอดตั้งต้น amount
+    boolean allowNegative;
+
+    // POST: ตัด debitAccount เข้า creditAccount
+    int entryType;
+    long entryId;
+    long initiatedBy;      // -1 = ไม่มี
+    long debitAccount;
+    long creditAccount;
+    long amount;
+    long createdAtMicros;
+    String counterparty;
+    String reference;
+    String note;
+
+    // ผลหลัง apply (POST บันทึกยอดหลังรายการลง journal ด้วย: replay แค่ตั้งยอด ไม่ต้องคำนวณใหม่)
+    LedgerCore.Status status;
+    long debitBalance;
+    long creditBalance;
+
+    CompletableFuture<LedgerCore.Result> done;
+
+    void clear() {
+        kind = 0;
+        seq = 0;
+        allowNegative = false;
+        entryType = 0;
+        entryId = 0;
+        initiatedBy = -1;
+        debitAccount = 0;
+        creditAccount = 0;
+        amount = 0;
+        createdAtMicros = 0;
+        counterparty = null;
+        reference = null;
+        note = null;
+        status = null;
+        debitBalance = 0;
+        creditBalance = 0;
+        done = null;
+    }
+}
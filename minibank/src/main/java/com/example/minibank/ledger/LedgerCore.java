@@ -0,0 +1,398 @@
+package com.example.minibank.ledger;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+// ledger ในหน่วยความจำแบบ thread เดียว: ยอดทุกบัญชีอยู่ใน LongLongHashMap, คำสั่งเข้ามาทาง ring buffer
+// ทุกคำสั่งที่ apply สำเร็จถูกเขียนลง journal และ force ก่อนตอบผู้ส่ง (group commit ทีละ batch)
+// snapshot ทุก ๆ snapshotEvery รายการ เริ่มระบบใหม่ = โหลด snapshot ล่าสุด + replay journal ต่อจากนั้น
+// ไม่รู้จัก Spring / ฐานข้อมูล: ฝั่งนั้นรับ Event ผ่าน Listener ไปเขียนตารางตามหลัง
+public final class LedgerCore implements AutoCloseable {
+
+    public enum Status { OK, INSUFFICIENT_FUNDS, UNKNOWN_ACCOUNT, DUPLICATE_ACCOUNT }
+
+    // sequence = ลำดับใน journal (0 = ไม่ได้บันทึก)
+    public record Result(Status status, long sequence, long debitBalance, long creditBalance) {}
+
+    public record Event(long sequence, int entryType, long entryId, long initiatedBy,
+                        long debitAccount, long creditAccount, long amount, Instant createdAt,
+                        String counterparty, String reference, String note,
+                        long debitBalance, long creditBalance) {}
+
+    // เรียกบน engine thread ตามลำดับ sequence (รวมตอน replay รายการที่ยังไม่ถูก project) ต้องไม่ block
+    public interface Listener {
+        void applied(Event event);
+    }
+
+    // โหลดยอดตั้งต้นตอนยังไม่มี snapshot
+    public interface Bootstrap {
+        void load(AccountSink sink);
+    }
+
+    public interface AccountSink {
+        void account(long accountId, long balance, boolean allowNegative);
+    }
+
+    public record Config(Path dir, int ringSize, int maxBatch, int segmentBytes, boolean fsync,
+                         long snapshotEvery, int expectedAccounts) {}
+
+    private static final int SPINS_BEFORE_PARK = 100;
+
+    private final Config config;
+    private final Listener listener;
+    private final CommandRingBuffer ring;
+    private final MappedJournal journal;
+    private final SnapshotStore snapshots;
+    // เขียน snapshot / ลบ segment เก่า นอก engine thread
+    private final ExecutorService housekeeper;
+
+    private LongLongHashMap balances;
+    private LongLongHashMap flags;
+
+    private Thread thread;
+    private volatile boolean running;
+    private volatile Throwable failure;
+    private volatile long projectedSeq;
+    private volatile long committedSeq;
+    private volatile long snapshotSeq;
+    private volatile boolean snapshotInFlight;
+    private volatile boolean pruneInFlight;
+    private long journalRetainedFrom;
+
+    public LedgerCore(Config config, Listener listener) {
+        this.config = config;
+        this.listener = listener;
+        this.ring = new CommandRingBuffer(config.ringSize());
+        try {
+            Files.createDirectories(config.dir());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        this.journal = new MappedJournal(config.dir(), config.segmentBytes(), config.fsync());
+        this.snapshots = new SnapshotStore(config.dir());
+        this.housekeeper = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "ledger-housekeeping");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    // projectedSeq = รายการสุดท้ายที่ฝั่งฐานข้อมูลเขียนแล้ว: รายการหลังจากนั้นใน journal ถูกส่งให้ listener อีกครั้ง
+    // rebuild = ฐานข้อมูลถูกแก้นอก engine: ทิ้ง snapshot/journal แล้วโหลดยอดจากฐานข้อมูลใหม่ (sequence เริ่มที่ 0)
+    // ไม่มี snapshot = โหลดยอดจากฐานข้อมูล แล้ว replay journal ที่มีอยู่ทับ (journal เก็บยอดหลังรายการ จึงทับได้ตรง)
+    // คืน sequence ล่าสุดหลัง recover
+    public long start(long projectedSeq, boolean rebuild, Bootstrap bootstrap) {
+        SnapshotStore.Snapshot snapshot = null;
+        if (rebuild) {
+            journal.discard(projectedSeq);
+            snapshots.discard();
+            projectedSeq = 0;
+        } else {
+            snapshot = snapshots.loadLatest();
+        }
+
+        if (snapshot == null) {
+            balances = new LongLongHashMap(config.expectedAccounts());
+            flags = new LongLongHashMap(config.expectedAccounts());
+            bootstrap.load((id, balance, allowNegative) -> {
+                balances.put(id, balance);
+                if (allowNegative) flags.put(id, SnapshotStore.FLAG_ALLOW_NEGATIVE);
+            });
+            snapshotSeq = 0;
+        } else {
+            balances = snapshot.balances();
+            flags = snapshot.flags();
+            snapshotSeq = snapshot.seq();
+        }
+
+        long fromSeq = snapshotSeq;
+        long projected = projectedSeq;
+        this.projectedSeq = projected;
+        long last = journal.recover(Math.min(fromSeq, projected), cmd -> {
+            if (cmd.seq > fromSeq) replay(cmd);
+            if (cmd.kind == LedgerCommand.POST && cmd.seq > projected) listener.applied(event(cmd));
+        });
+        if (snapshot == null) {
+            snapshots.write(last, balances, flags);
+            snapshotSeq = last;
+        }
+        journalRetainedFrom = Math.min(snapshots.oldestSeq(), projected);
+        committedSeq = last;
+
+        running = true;
+        thread = new Thread(this::run, "ledger-engine");
+        thread.setDaemon(true);
+        thread.start();
+        return last;
+    }
+
+    // null = ring buffer เต็ม ให้ผู้เรียกถอยแล้วลองใหม่ (ยังไม่มีอะไรถูกบันทึก)
+    public CompletableFuture<Result> open(long accountId, long openingBalance, boolean allowNegative) {
+        long slot = ring.tryClaim();
+        if (slot < 0) return null;
+        LedgerCommand cmd = ring.get(slot);
+        cmd.kind = LedgerCommand.OPEN;
+        cmd.debitAccount = accountId;
+        cmd.amount = openingBalance;
+        cmd.allowNegative = allowNegative;
+        return publish(slot, cmd);
+    }
+
+    // ตัด amount จาก debitAccount เข้า creditAccount; initiatedBy -1 = ไม่มี
+    // null = ring buffer เต็ม
+    public CompletableFuture<Result> post(int entryType, long entryId, long initiatedBy,
+                                          long debitAccount, long creditAccount, long amount, Instant createdAt,
+                                          String counterparty, String reference, String note) {
+        long slot = ring.tryClaim();
+        if (slot < 0) return null;
+        LedgerCommand cmd = ring.get(slot);
+        cmd.kind = LedgerCommand.POST;
+        cmd.entryType = entryType;
+        cmd.entryId = entryId;
+        cmd.initiatedBy = initiatedBy;
+        cmd.debitAccount = debitAccount;
+        cmd.creditAccount = creditAccount;
+        cmd.amount = amount;
+        cmd.createdAtMicros = ChronoUnit.MICROS.between(Instant.EPOCH, createdAt);
+        cmd.counterparty = counterparty;
+        cmd.reference = reference;
+        cmd.note = note;
+        return publish(slot, cmd);
+    }
+
+    private CompletableFuture<Result> publish(long slot, LedgerCommand cmd) {
+        CompletableFuture<Result> done = new CompletableFuture<>();
+        cmd.done = done;
+        ring.publish(slot);
+        return done;
+    }
+
+    // ฝั่งฐานข้อมูลเขียนถึง seq แล้ว: journal ก่อนหน้านั้นลบได้ (ถ้า snapshot ก็ครอบคลุมแล้ว)
+    public void projected(long seq) {
+        if (seq > projectedSeq) projectedSeq = seq;
+    }
+
+    public long projectedSeq() {
+        return projectedSeq;
+    }
+
+    // รายการล่าสุดที่ force ลง journal แล้ว
+    public long committedSeq() {
+        return committedSeq;
+    }
+
+    public long snapshotSeq() {
+        return snapshotSeq;
+    }
+
+    public boolean healthy() {
+        return running && failure == null;
+    }
+
+    // ===== engine thread =====
+
+    private void run() {
+        long next = 0;
+        int idle = 0;
+        while (running || !ring.isEmpty(next)) {
+            if (!ring.isPublished(next)) {
+                if (++idle < SPINS_BEFORE_PARK) Thread.onSpinWait();
+                else LockSupport.parkNanos(50_000);
+                continue;
+            }
+            idle = 0;
+
+            long end = next;
+            MappedJournal.Mark mark = failure == null ? journal.mark() : null;
+            while (end - next < config.maxBatch() && ring.isPublished(end)) {
+                LedgerCommand cmd = ring.get(end);
+                if (failure == null) {
+                    try {
+                        apply(cmd);
+                    } catch (RuntimeException | Error e) {
+                        // journal เขียนไม่ได้: หยุดรับรายการทั้งหมด (ยอดในหน่วยความจำทิ้งไป เริ่มใหม่จาก journal)
+                        failure = e;
+                    }
+                }
+                end++;
+            }
+
+            boolean durable = failure == null;
+            if (durable) {
+                try {
+                    journal.commit();
+                } catch (RuntimeException e) {
+                    failure = e;
+                    durable = false;
+                }
+            }
+
+            IllegalStateException rejected = null;
+            if (!durable) {
+                rejected = new IllegalStateException("Ledger engine stopped; entry was not recorded", failure);
+                // รายการต้น batch ที่ append ไปแล้วต้องไม่โผล่ตอน replay หลังผู้ส่งได้ error (ผู้ส่งจะลองใหม่ = ตัดเงินซ้ำ)
+                if (mark != null) {
+                    try {
+                        journal.truncate(mark);
+                    } catch (RuntimeException e) {
+                        rejected = new IllegalStateException("Ledger engine stopped; entry may have been recorded", failure);
+                    }
+                }
+            }
+
+            for (long s = next; s < end; s++) {
+                LedgerCommand cmd = ring.get(s);
+                CompletableFuture<Result> done = cmd.done;
+                if (!durable) {
+                    done.completeExceptionally(rejected);
+                } else {
+                    if (cmd.status == Status.OK && cmd.kind == LedgerCommand.POST) listener.applied(event(cmd));
+                    done.complete(new Result(cmd.status, cmd.status == Status.OK ? cmd.seq : 0,
+                            cmd.debitBalance, cmd.creditBalance));
+                }
+                cmd.clear();
+            }
+            ring.release(end - 1);
+            next = end;
+            if (durable) committedSeq = journal.lastSeq();
+
+            if (durable) housekeeping();
+        }
+    }
+
+    // คำนวณยอดใหม่ -> เขียน journal -> ค่อยแก้ map (journal เขียนไม่ได้ = ยอดในหน่วยความจำไม่เปลี่ยน)
+    private void apply(LedgerCommand cmd) {
+        if (cmd.kind == LedgerCommand.OPEN) {
+            if (balances.containsKey(cmd.debitAccount)) {
+                cmd.status = Status.DUPLICATE_ACCOUNT;
+                cmd.debitBalance = balances.get(cmd.debitAccount, 0);
+                return;
+            }
+            journal.append(cmd);
+            balances.put(cmd.debitAccount, cmd.amount);
+            if (cmd.allowNegative) flags.put(cmd.debitAccount, SnapshotStore.FLAG_ALLOW_NEGATIVE);
+            cmd.status = Status.OK;
+            cmd.debitBalance = cmd.amount;
+            return;
+        }
+
+        long debit = cmd.debitAccount;
+        long credit = cmd.creditAccount;
+        if (debit == credit || cmd.amount <= 0 || !balances.containsKey(debit) || !balances.containsKey(credit)) {
+            cmd.status = Status.UNKNOWN_ACCOUNT;
+            return;
+        }
+
+        long debitBalance = balances.get(debit, 0) - cmd.amount;
+        if (debitBalance < 0 && (flags.get(debit, 0) & SnapshotStore.FLAG_ALLOW_NEGATIVE) == 0) {
+            cmd.status = Status.INSUFFICIENT_FUNDS;
+            cmd.debitBalance = balances.get(debit, 0);
+            return;
+        }
+        long creditBalance = Math.addExact(balances.get(credit, 0), cmd.amount);
+
+        cmd.debitBalance = debitBalance;
+        cmd.creditBalance = creditBalance;
+        journal.append(cmd);
+        balances.put(debit, debitBalance);
+        balances.put(credit, creditBalance);
+        cmd.status = Status.OK;
+    }
+
+    // replay ตั้งยอดจากค่าที่บันทึกไว้ ไม่คำนวณใหม่
+    private void replay(LedgerCommand cmd) {
+        if (cmd.kind == LedgerCommand.OPEN) {
+            balances.put(cmd.debitAccount, cmd.amount);
+            if (cmd.allowNegative) flags.put(cmd.debitAccount, SnapshotStore.FLAG_ALLOW_NEGATIVE);
+        } else {
+            balances.put(cmd.debitAccount, cmd.debitBalance);
+            balances.put(cmd.creditAccount, cmd.creditBalance);
+        }
+    }
+
+    private void housekeeping() {
+        long last = journal.lastSeq();
+        if (!snapshotInFlight && last - snapshotSeq >= config.snapshotEvery()) {
+            snapshotInFlight = true;
+            // สำเนาบน engine thread (ตรงกับ seq นี้พอดี) แล้วเขียนไฟล์บน thread อื่น
+            LongLongHashMap b = balances.copy();
+            LongLongHashMap f = flags.copy();
+            housekeeper.execute(() -> {
+                try {
+                    snapshots.write(last, b, f);
+                    snapshotSeq = last;
+                } catch (RuntimeException e) {
+                    // snapshot ไม่สำเร็จไม่กระทบความถูกต้อง (journal ยังอยู่ครบ) ลองใหม่รอบหน้า
+                } finally {
+                    snapshotInFlight = false;
+                }
+            });
+        }
+
+        long retain = Math.min(snapshots.oldestSeq(), projectedSeq);
+        if (!pruneInFlight && retain > journalRetainedFrom) {
+            pruneInFlight = true;
+            journalRetainedFrom = retain;
+            // Files.list / ลบไฟล์ช้าได้ตามดิสก์: ไม่ทำบน engine thread
+            housekeeper.execute(() -> {
+                try {
+                    journal.deleteUpTo(retain);
+                } catch (RuntimeException e) {
+                    // ลบไม่ได้ = journal ยาวขึ้นเท่านั้น รอบถัดไปลบรวมกัน
+                } finally {
+                    pruneInFlight = false;
+                }
+            });
+        }
+    }
+
+    private static Event event(LedgerCommand cmd) {
+        return new Event(cmd.seq, cmd.entryType, cmd.entryId, cmd.initiatedBy,
+                cmd.debitAccount, cmd.creditAccount, cmd.amount,
+                Instant.EPOCH.plus(cmd.createdAtMicros, ChronoUnit.MICROS),
+                cmd.counterparty, cmd.reference, cmd.note,
+                cmd.debitBalance, cmd.creditBalance);
+    }
+
+    // รอรายการที่ค้างใน ring buffer จนหมด แล้วเขียน snapshot สุดท้าย (เริ่มใหม่ไม่ต้อง replay)
+    @Override
+    public void close() {
+        close(true);
+    }
+
+    // หยุดเหมือน process ตาย: ไม่เขียน snapshot สุดท้าย (เทสต์การ replay)
+    void crash() {
+        close(false);
+    }
+
+    private void close(boolean finalSnapshot) {
+        running = false;
+        if (thread != null) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        housekeeper.shutdown();
+        try {
+            housekeeper.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (finalSnapshot && failure == null && balances != null && journal.lastSeq() > snapshotSeq) {
+            snapshots.write(journal.lastSeq(), balances, flags);
+            snapshotSeq = journal.lastSeq();
+        }
+        journal.close();
+    }
+}
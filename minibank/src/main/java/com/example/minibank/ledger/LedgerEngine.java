@@ -0,0 +1,220 @@
+package com.example.minibank.ledger;
+
+import com.example.minibank.entity.JournalEntry;
+import com.example.minibank.exception.ServiceBusyException;
+import com.example.minibank.repository.LedgerRepository;
+import com.example.minibank.service.LedgerRollupService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+// ทางเลือกแทนการล็อกแถวใน PostgreSQL ช่วง traffic สูง (app.ledger.engine.enabled=true, ค่าเริ่มต้นปิด)
+// ยอดเงินอยู่ใน LedgerCore (thread เดียว, journal แบบ memory-mapped) ตาราง ledger_* / journal_* กลายเป็น read model ที่ตามหลังเล็กน้อย
+// ทำงานได้ node เดียวเท่านั้น: ห้ามเปิดหลาย instance ชี้ฐานข้อมูลเดียวกัน
+// เปิด/ปิดสลับกับโหมดฐานข้อมูลได้หลังปิดแบบปกติ (projector เขียนครบ); ถ้ามีรายการนอก engine ตอนเริ่ม จะโหลดยอดจากฐานข้อมูลใหม่
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.ledger.engine.enabled", havingValue = "true")
+public class LedgerEngine {
+
+    // balance = ยอดหลังรายการ (ตอน INSUFFICIENT_FUNDS debitBalance = ยอดปัจจุบัน)
+    public record Posted(LedgerCore.Status status, long entryId, Instant createdAt, long debitBalance, long creditBalance) {
+        public boolean ok() {
+            return status == LedgerCore.Status.OK;
+        }
+    }
+
+    private static final String BUSY_MESSAGE = "ระบบมีรายการเข้ามาจำนวนมาก กรุณาลองใหม่อีกครั้ง";
+
+    private final LedgerRepository ledgerRepo;
+    private final TransactionTemplate tx;
+    private final LedgerCore core;
+    private final LedgerReadModelProjector projector;
+    private final int entryIdBlock;
+    private final long submitTimeoutNanos;
+    private final long awaitTimeoutMs;
+
+    // บัญชีที่ส่ง OPEN ให้ core แล้วตั้งแต่เริ่ม process (core อาจรู้จักอยู่แล้วจาก snapshot ก็ได้ ได้ DUPLICATE_ACCOUNT)
+    private final Set<Long> known = ConcurrentHashMap.newKeySet();
+
+    private final Object entryIdLock = new Object();
+    private long[] entryIds = new long[0];
+    private int entryIdPos;
+
+    private final Counter busy;
+
+    public LedgerEngine(
+            LedgerRepository ledgerRepo,
+            LedgerRollupService rollups,
+            PlatformTransactionManager txManager,
+            @Value("${app.ledger.engine.dir:./data/ledger}") String dir,
+            @Value("${app.ledger.engine.ring-size:65536}") int ringSize,
+            @Value("${app.ledger.engine.max-batch:4096}") int maxBatch,
+            @Value("${app.ledger.engine.segment-mb:64}") int segmentMb,
+            @Value("${app.ledger.engine.fsync:true}") boolean fsync,
+            @Value("${app.ledger.engine.snapshot-every:1000000}") long snapshotEvery,
+            @Value("${app.ledger.engine.expected-accounts:100000}") int expectedAccounts,
+            @Value("${app.ledger.engine.entry-id-block:1000}") int entryIdBlock,
+            @Value("${app.ledger.engine.submit-timeout-ms:2000}") long submitTimeoutMs,
+            @Value("${app.ledger.engine.await-timeout-ms:10000}") long awaitTimeoutMs,
+            @Value("${app.ledger.engine.projector.queue-size:262144}") int queueSize,
+            @Value("${app.ledger.engine.projector.batch-size:2000}") int projectorBatchSize,
+            MeterRegistry meterRegistry
+    ) {
+        this.ledgerRepo = ledgerRepo;
+        this.tx = new TransactionTemplate(txManager);
+        this.entryIdBlock = entryIdBlock;
+        this.submitTimeoutNanos = submitTimeoutMs * 1_000_000L;
+        this.awaitTimeoutMs = awaitTimeoutMs;
+
+        this.projector = new LedgerReadModelProjector(ledgerRepo, rollups, tx, queueSize, projectorBatchSize,
+                seq -> core().projected(seq));
+        this.core = new LedgerCore(
+                new LedgerCore.Config(Path.of(dir), ringSize, maxBatch, segmentMb << 20, fsync, snapshotEvery, expectedAccounts),
+                projector::enqueue);
+
+        this.busy = Counter.builder("minibank.ledger.rejected").tag("reason", "engine_busy").register(meterRegistry);
+        Gauge.builder("minibank.ledger.engine.projection.lag", core, c -> c.committedSeq() - c.projectedSeq())
+                .register(meterRegistry);
+        Gauge.builder("minibank.ledger.engine.projection.queued", projector, LedgerReadModelProjector::queued)
+                .register(meterRegistry);
+    }
+
+    // projector สร้างก่อน core (core ต้องใช้ projector เป็น listener)
+    private LedgerCore core() {
+        return core;
+    }
+
+    @PostConstruct
+    public void start() {
+        LedgerRepository.EngineState state = ledgerRepo.findEngineState();
+        long maxEntryId = ledgerRepo.findMaxEntryId();
+        // มี entry ที่ id สูงกว่าที่ engine เคยเขียน = มีรายการผ่านโหมดฐานข้อมูลหลัง engine ปิด: snapshot เก่าใช้ไม่ได้
+        boolean rebuild = maxEntryId > state.lastEntryId();
+
+        projector.start();
+        long last = core.start(state.projectedSeq(), rebuild, sink -> {
+            // engine ไม่ใช้แถวย่อยของ hot account: ย้ายยอดเข้าแถวหลักก่อน (projector เขียนยอดที่แถวหลัก)
+            for (LedgerRepository.HotAccount hot : ledgerRepo.findHotAccounts()) {
+                tx.execute(status -> ledgerRepo.sweepShards(hot.accountId()));
+            }
+            tx.executeWithoutResult(status -> ledgerRepo.scanAccountStates(
+                    a -> sink.account(a.accountId(), a.balanceMinor(), a.allowNegative())));
+            if (rebuild) ledgerRepo.resetEngineState(maxEntryId);
+        });
+        log.info("Ledger engine started at seq {} (projected {}, snapshot {}{})",
+                last, core.projectedSeq(), core.snapshotSeq(), rebuild ? ", loaded from database" : "");
+    }
+
+    @PreDestroy
+    public void stop() {
+        core.close();
+        projector.stop();
+        log.info("Ledger engine stopped at seq {} (projected {})", core.committedSeq(), core.projectedSeq());
+    }
+
+    // ตัด amount จาก debitAccount เข้า creditAccount; รอจน journal force แล้ว
+    public Posted post(JournalEntry.Type type, Long initiatedBy, long debitAccount, long creditAccount,
+                       long amountMinor, String counterparty, String reference, String note) {
+        return await(submit(type, initiatedBy, debitAccount, creditAccount, amountMinor, counterparty, reference, note));
+    }
+
+    // ส่งหลายรายการต่อกันโดยไม่รอทีละรายการ (รายการจากผู้เรียกคนเดียวถูก apply ตามลำดับที่ส่ง)
+    public CompletableFuture<Posted> submit(JournalEntry.Type type, Long initiatedBy, long debitAccount, long creditAccount,
+                                            long amountMinor, String counterparty, String reference, String note) {
+        ensureAccounts(List.of(debitAccount, creditAccount));
+        long entryId = nextEntryId();
+        // journal เก็บเวลาละเอียดถึง micro เท่ากับคอลัมน์ในตาราง
+        Instant now = Instant.now().truncatedTo(ChronoUnit.MICROS);
+        long initiator = initiatedBy == null ? -1 : initiatedBy;
+        // ordinal ของ JournalEntry.Type ถูกเก็บใน journal: เพิ่มประเภทใหม่ต่อท้ายเท่านั้น
+        return claim(() -> core.post(type.ordinal(), entryId, initiator, debitAccount, creditAccount, amountMinor, now,
+                counterparty, reference, note))
+                .thenApply(r -> new Posted(r.status(), entryId, now, r.debitBalance(), r.creditBalance()));
+    }
+
+    // engine ไม่ตอบภายใน await-timeout (เช่น projector ค้างจน engine thread รอคิว): ไม่รู้ว่าบันทึกแล้วหรือยัง ห้ามส่งซ้ำ
+    public Posted await(CompletableFuture<Posted> future) {
+        try {
+            return future.orTimeout(awaitTimeoutMs, TimeUnit.MILLISECONDS).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof TimeoutException) {
+                throw new IllegalStateException("Ledger engine did not confirm the entry in time", e.getCause());
+            }
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            throw e;
+        }
+    }
+
+    // บัญชีที่ core ยังไม่รู้จัก (เปิดหลัง snapshot): ยอดในตารางเป็นค่าจริงเพราะ engine ยังไม่เคยเขียนบัญชีนั้น
+    public void ensureAccounts(Collection<Long> accountIds) {
+        List<Long> missing = null;
+        for (Long id : accountIds) {
+            if (known.contains(id)) continue;
+            if (missing == null) missing = new ArrayList<>();
+            missing.add(id);
+        }
+        if (missing == null) return;
+
+        List<CompletableFuture<LedgerCore.Result>> opened = new ArrayList<>(missing.size());
+        List<Long> ids = new ArrayList<>(missing.size());
+        for (LedgerRepository.AccountState a : ledgerRepo.findAccountStates(missing)) {
+            opened.add(claim(() -> core.open(a.accountId(), a.balanceMinor(), a.allowNegative())));
+            ids.add(a.accountId());
+        }
+        // รอให้ OPEN ถูก apply ก่อน ไม่อย่างนั้น POST จาก thread อื่นที่เห็นว่า known แล้วอาจแซงไปก่อน
+        for (int i = 0; i < opened.size(); i++) {
+            opened.get(i).join();
+            known.add(ids.get(i));
+        }
+    }
+
+    // ring buffer เต็ม: ลองใหม่จนถึง submit-timeout แล้วตอบ 503 (ยังไม่มีอะไรถูกบันทึก ลองใหม่ได้ปลอดภัย)
+    private CompletableFuture<LedgerCore.Result> claim(Supplier<CompletableFuture<LedgerCore.Result>> command) {
+        long deadline = System.nanoTime() + submitTimeoutNanos;
+        while (true) {
+            if (!core.healthy()) throw new IllegalStateException("Ledger engine is not running");
+            CompletableFuture<LedgerCore.Result> f = command.get();
+            if (f != null) return f;
+            if (System.nanoTime() >= deadline) {
+                busy.increment();
+                throw new ServiceBusyException(BUSY_MESSAGE, 1);
+            }
+            LockSupport.parkNanos(100_000);
+        }
+    }
+
+    // จอง id ของ journal_entries ทีละ block (รายการที่ถูกปฏิเสธทำให้ id เว้นช่อง เหมือน sequence ปกติ)
+    private long nextEntryId() {
+        synchronized (entryIdLock) {
+            if (entryIdPos == entryIds.length) {
+                entryIds = ledgerRepo.reserveEntryIds(entryIdBlock);
+                entryIdPos = 0;
+            }
+            return entryIds[entryIdPos++];
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.example.minibank.ledger;
+
+import com.example.minibank.entity.JournalEntry;
+import com.example.minibank.repository.LedgerRepository;
+import com.example.minibank.service.LedgerRollupService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongConsumer;
+
+// เขียนรายการจาก LedgerEngine ลงตาราง (journal_entries / journal_postings / ยอด / rollup) ตามหลังแบบ batch
+// แต่ละ batch เป็น transaction เดียวพร้อม ledger_engine_state.projected_seq: เริ่มใหม่แล้ว replay ต่อจากจุดนั้นได้ไม่ซ้ำ
+// คิวเต็ม = engine thread รอ (ring buffer เต็มตาม ผู้ส่งได้ 503) ไม่ทิ้งรายการ
+@Slf4j
+final class LedgerReadModelProjector {
+
+    private static final long RETRY_BACKOFF_MS = 1000;
+
+    private record RollupGroup(JournalEntry.Type type, Instant at, List<LedgerRepository.Posting> postings) {}
+
+    private final LedgerRepository ledgerRepo;
+    private final LedgerRollupService rollups;
+    private final TransactionTemplate tx;
+    private final BlockingQueue<LedgerCore.Event> queue;
+    private final int batchSize;
+    private final LongConsumer onProjected;
+
+    private final JournalEntry.Type[] types = JournalEntry.Type.values();
+
+    private Thread thread;
+    private volatile boolean running;
+
+    LedgerReadModelProjector(LedgerRepository ledgerRepo, LedgerRollupService rollups, TransactionTemplate tx,
+                             int queueSize, int batchSize, LongConsumer onProjected) {
+        this.ledgerRepo = ledgerRepo;
+        this.rollups = rollups;
+        this.tx = tx;
+        this.queue = new ArrayBlockingQueue<>(queueSize);
+        this.batchSize = batchSize;
+        this.onProjected = onProjected;
+    }
+
+    void start() {
+        running = true;
+        thread = new Thread(this::run, "ledger-projector");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    // เรียกจาก engine thread
+    void enqueue(LedgerCore.Event event) {
+        try {
+            queue.put(event);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while queueing ledger event", e);
+        }
+    }
+
+    int queued() {
+        return queue.size();
+    }
+
+    private void run() {
+        List<LedgerCore.Event> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                LedgerCore.Event first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+            } catch (InterruptedException e) {
+                if (!running) continue;
+                Thread.currentThread().interrupt();
+                return;
+            }
+
+            // เขียนไม่ได้ (ฐานข้อมูลล่ม): ลองใหม่จนกว่าจะได้ รายการยังอยู่ใน journal
+            while (true) {
+                try {
+                    tx.executeWithoutResult(status -> write(batch));
+                    break;
+                } catch (RuntimeException e) {
+                    log.warn("Ledger projection of {} events failed; retrying", batch.size(), e);
+                    if (!sleep(RETRY_BACKOFF_MS)) return;
+                }
+            }
+            onProjected.accept(batch.get(batch.size() - 1).sequence());
+            batch.clear();
+        }
+    }
+
+    private void write(List<LedgerCore.Event> batch) {
+        List<LedgerRepository.EntryRow> entries = new ArrayList<>(batch.size());
+        List<LedgerRepository.PostingRow> postings = new ArrayList<>(batch.size() * 2);
+        Map<Long, Long> balances = new HashMap<>();
+        // rollup รวมต่อ (ประเภท, เดือน) แล้วเขียนครั้งเดียวต่อกลุ่ม
+        Map<String, RollupGroup> rollupGroups = new LinkedHashMap<>();
+        long lastEntryId = 0;
+
+        for (LedgerCore.Event e : batch) {
+            JournalEntry.Type type = types[e.entryType()];
+            Long initiatedBy = e.initiatedBy() < 0 ? null : e.initiatedBy();
+            entries.add(new LedgerRepository.EntryRow(e.entryId(), type, initiatedBy,
+                    e.counterparty(), e.reference(), e.note(), e.createdAt()));
+            postings.add(new LedgerRepository.PostingRow(e.entryId(), type, e.debitAccount(), -e.amount(),
+                    e.debitBalance(), e.createdAt()));
+            postings.add(new LedgerRepository.PostingRow(e.entryId(), type, e.creditAccount(), e.amount(),
+                    e.creditBalance(), e.createdAt()));
+
+            // รายการหลังทับรายการก่อน: เหลือยอดล่าสุดของแต่ละบัญชีใน batch
+            balances.put(e.debitAccount(), e.debitBalance());
+            balances.put(e.creditAccount(), e.creditBalance());
+
+            List<LedgerRepository.Posting> group = rollupGroups
+                    .computeIfAbsent(type.name() + " " + rollups.monthOf(e.createdAt()),
+                            k -> new RollupGroup(type, e.createdAt(), new ArrayList<>()))
+                    .postings();
+            group.add(new LedgerRepository.Posting(e.debitAccount(), -e.amount(), e.debitBalance()));
+            group.add(new LedgerRepository.Posting(e.creditAccount(), e.amount(), e.creditBalance()));
+
+            lastEntryId = Math.max(lastEntryId, e.entryId());
+        }
+
+        ledgerRepo.insertEntryRows(entries);
+        ledgerRepo.insertPostingRows(postings);
+        ledgerRepo.setBalances(balances);
+        for (RollupGroup g : rollupGroups.values()) rollups.record(g.type(), g.at(), g.postings());
+        ledgerRepo.saveEngineState(batch.get(batch.size() - 1).sequence(), lastEntryId);
+    }
+
+    private static boolean sleep(long ms) {
+        try {
+            Thread.sleep(ms);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    // รอเขียนรายการที่ค้างในคิวให้หมดก่อนปิด (เรียกหลัง engine หยุดรับรายการแล้ว)
+    void stop() {
+        running = false;
+        if (thread == null) return;
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(30));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!queue.isEmpty()) log.warn("Ledger projector stopped with {} events queued; they will be replayed from the journal", queue.size());
+    }
+}
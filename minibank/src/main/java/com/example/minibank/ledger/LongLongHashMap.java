@@ -0,0 +1,104 @@
+package com.example.minibank.ledger;
+
+import java.util.Arrays;
+
+// map long -> long แบบ open addressing (linear probing) ไม่มี boxing; key 0 ใช้เป็นช่องว่าง (id บัญชีเริ่มที่ 1)
+// ไม่ thread-safe: ใช้บน engine thread เท่านั้น
+public final class LongLongHashMap {
+
+    @FunctionalInterface
+    public interface Visitor {
+        void visit(long key, long value);
+    }
+
+    private static final long EMPTY = 0;
+
+    private long[] keys;
+    private long[] values;
+    private int mask;
+    private int size;
+    private int resizeAt;
+
+    public LongLongHashMap(int expected) {
+        int capacity = Integer.highestOneBit(Math.max(16, expected * 2 - 1)) << 1;
+        allocate(capacity);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean containsKey(long key) {
+        return indexOf(key) >= 0;
+    }
+
+    public long get(long key, long missing) {
+        int i = indexOf(key);
+        return i < 0 ? missing : values[i];
+    }
+
+    public void put(long key, long value) {
+        if (key == EMPTY) throw new IllegalArgumentException("key 0 is reserved");
+        int i = slot(key);
+        while (keys[i] != EMPTY) {
+            if (keys[i] == key) {
+                values[i] = value;
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        values[i] = value;
+        if (++size >= resizeAt) resize();
+    }
+
+    public void forEach(Visitor visitor) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != EMPTY) visitor.visit(keys[i], values[i]);
+        }
+    }
+
+    // สำเนาสำหรับเขียน snapshot นอก engine thread
+    public LongLongHashMap copy() {
+        LongLongHashMap c = new LongLongHashMap(16);
+        c.keys = Arrays.copyOf(keys, keys.length);
+        c.values = Arrays.copyOf(values, values.length);
+        c.mask = mask;
+        c.size = size;
+        c.resizeAt = resizeAt;
+        return c;
+    }
+
+    private int indexOf(long key) {
+        if (key == EMPTY) return -1;
+        int i = slot(key);
+        while (keys[i] != EMPTY) {
+            if (keys[i] == key) return i;
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+
+    private int slot(long key) {
+        // mix bits (id เรียงกันจะได้ไม่กองอยู่ช่วงเดียว)
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new long[capacity];
+        mask = capacity - 1;
+        resizeAt = capacity / 2;
+    }
+
+    private void resize() {
+        long[] oldKeys = keys;
+        long[] oldValues = values;
+        allocate(keys.length << 1);
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) put(oldKeys[i], oldValues[i]);
+        }
+    }
+}
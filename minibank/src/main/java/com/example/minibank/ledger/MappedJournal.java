@@ -0,0 +1,311 @@
+package com.example.minibank.ledger;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+// journal ของคำสั่งแบบ append-only บนไฟล์ที่ map เข้าหน่วยความจำ แบ่งเป็น segment: journal-<seq แรก>.log
+// record: [int length][body][int crc32c(body)] โดย body เริ่มด้วย seq; length 0 = จบ segment
+// เก็บเฉพาะคำสั่งที่ apply สำเร็จ พร้อมยอดหลังรายการ
+// ใช้บน engine thread เท่านั้น ยกเว้น deleteUpTo (ไม่แตะ segment ปัจจุบัน)
+final class MappedJournal implements AutoCloseable {
+
+    // ท้าย journal ก่อนเริ่ม batch: file = null คือยังไม่มี segment
+    record Mark(long lastSeq, Path file, int position) {}
+
+    private static final String PREFIX = "journal-";
+    private static final String SUFFIX = ".log";
+    private static final int MAX_STRING_BYTES = 1024;
+
+    private final Path dir;
+    private final int segmentBytes;
+    private final boolean fsync;
+    private final CRC32C crc = new CRC32C();
+    private final ByteBuffer scratch = ByteBuffer.allocate(96 + 3 * (2 + MAX_STRING_BYTES));
+
+    private MappedByteBuffer segment;
+    private Path segmentFile;
+    private long lastSeq;
+
+    MappedJournal(Path dir, int segmentBytes, boolean fsync) {
+        this.dir = dir;
+        this.segmentBytes = segmentBytes;
+        this.fsync = fsync;
+    }
+
+    // อ่านทุก record ที่ seq ต่อเนื่องและ crc ถูกต้อง แล้วเตรียมเขียนต่อท้าย record สุดท้ายที่ดี
+    // ส่วนท้ายที่เสีย (เขียนค้างตอนเครื่องดับ) ถูกล้างเป็น 0 เพื่อไม่ให้ถูกอ่านในรอบหน้า
+    long recover(long afterSeq, Consumer<LedgerCommand> consumer) {
+        List<Path> files = segments();
+        LedgerCommand cmd = new LedgerCommand();
+        long expected = -1;
+        Path tailFile = null;
+        int tailPosition = 0;
+
+        for (Path file : files) {
+            MappedByteBuffer buf = map(file, FileChannel.MapMode.READ_ONLY);
+            int position = 0;
+            boolean broken = false;
+            while (position + 4 <= buf.limit()) {
+                int length = buf.getInt(position);
+                if (length <= 0 || position + 4 + length + 4 > buf.limit()) break;
+
+                ByteBuffer body = buf.slice(position + 4, length);
+                crc.reset();
+                crc.update(body.duplicate());
+                if ((int) crc.getValue() != buf.getInt(position + 4 + length)) {
+                    broken = true;
+                    break;
+                }
+
+                cmd.clear();
+                decode(body, cmd);
+                if (expected >= 0 && cmd.seq != expected) {
+                    broken = true;
+                    break;
+                }
+                expected = cmd.seq + 1;
+                if (cmd.seq > afterSeq) consumer.accept(cmd);
+                position += 4 + length + 4;
+            }
+            tailFile = file;
+            tailPosition = position;
+            if (broken) break;
+        }
+
+        lastSeq = expected < 0 ? afterSeq : Math.max(afterSeq, expected - 1);
+
+        // segment หลังจุดที่เสียทิ้งไป (ไม่เคยถูกยืนยันกับผู้ส่ง)
+        if (tailFile != null) {
+            for (Path file : files) {
+                if (file.compareTo(tailFile) > 0) delete(file);
+            }
+            segment = map(tailFile, FileChannel.MapMode.READ_WRITE);
+            segmentFile = tailFile;
+            zero(tailPosition, segment.limit());
+            segment.position(tailPosition);
+        }
+        return lastSeq;
+    }
+
+    // ทิ้ง journal ทั้งหมด (ยอดตั้งต้นจะโหลดจากฐานข้อมูลใหม่) ได้เมื่อทุก POST ถูก project แล้วเท่านั้น
+    void discard(long projectedSeq) {
+        long[] pending = {0};
+        recover(projectedSeq, cmd -> {
+            if (cmd.kind == LedgerCommand.POST) pending[0]++;
+        });
+        if (pending[0] > 0) {
+            throw new IllegalStateException(pending[0] + " journal records after seq " + projectedSeq
+                    + " are not in the database yet");
+        }
+        segment = null;
+        segmentFile = null;
+        lastSeq = 0;
+        for (Path file : segments()) delete(file);
+    }
+
+    Mark mark() {
+        return new Mark(lastSeq, segmentFile, segment == null ? 0 : segment.position());
+    }
+
+    // ตัด record ที่เขียนหลัง mark ทิ้ง (batch ที่ force ไม่สำเร็จ ยังไม่เคยตอบผู้ส่ง) ไม่ให้ถูก replay ตอนเริ่มใหม่
+    // ล้างเป็น 0 ทั้งช่วง: record เก่าที่ค้างอยู่หลัง record ใหม่อาจมี seq ต่อกันพอดีแล้วถูกอ่านเป็นของจริง
+    void truncate(Mark mark) {
+        for (Path file : segments()) {
+            boolean after = mark.file() == null ? firstSeq(file) > mark.lastSeq() : file.compareTo(mark.file()) > 0;
+            if (after) delete(file);
+        }
+        if (mark.file() == null) {
+            segment = null;
+            segmentFile = null;
+        } else {
+            int end = mark.file().equals(segmentFile) ? segment.position() : -1;
+            if (end < 0) {
+                segment = map(mark.file(), FileChannel.MapMode.READ_WRITE);
+                segmentFile = mark.file();
+                end = segment.limit();
+            }
+            zero(mark.position(), end);
+            segment.position(mark.position());
+        }
+        lastSeq = mark.lastSeq();
+    }
+
+    long lastSeq() {
+        return lastSeq;
+    }
+
+    // กำหนด seq ให้คำสั่งแล้วเขียนลง segment (ยังไม่ force)
+    void append(LedgerCommand cmd) {
+        cmd.seq = ++lastSeq;
+
+        scratch.clear();
+        encode(cmd, scratch);
+        scratch.flip();
+        int length = scratch.remaining();
+
+        if (segment == null || segment.remaining() < 4 + length + 4 + 4) roll(cmd.seq);
+
+        crc.reset();
+        crc.update(scratch.duplicate());
+        int position = segment.position();
+        segment.position(position + 4);
+        segment.put(scratch);
+        segment.putInt((int) crc.getValue());
+        // เขียน length ทีหลังสุด: record ที่เขียนไม่ครบจะยังอ่านเป็นจุดจบ
+        segment.putInt(position, length);
+    }
+
+    // group commit: เรียกครั้งเดียวต่อ batch ก่อนตอบผู้ส่ง
+    void commit() {
+        if (fsync && segment != null) segment.force();
+    }
+
+    // ลบ segment ที่ทุก record มี seq <= uptoSeq (ไม่ลบ segment ปัจจุบัน)
+    void deleteUpTo(long uptoSeq) {
+        List<Path> files = segments();
+        for (int i = 0; i + 1 < files.size(); i++) {
+            long nextFirst = firstSeq(files.get(i + 1));
+            if (nextFirst - 1 <= uptoSeq) delete(files.get(i));
+        }
+    }
+
+    private void roll(long firstSeq) {
+        if (segment != null) {
+            if (segment.remaining() >= 4) segment.putInt(segment.position(), 0);
+            segment.force();
+        }
+        Path file = dir.resolve(String.format("%s%020d%s", PREFIX, firstSeq, SUFFIX));
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            segment = ch.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+            segmentFile = file;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void zero(int from, int to) {
+        for (int i = from; i < to; i++) segment.put(i, (byte) 0);
+        segment.force();
+    }
+
+    private List<Path> segments() {
+        try (Stream<Path> files = Files.list(dir)) {
+            return new ArrayList<>(files
+                    .filter(p -> p.getFileName().toString().startsWith(PREFIX) && p.getFileName().toString().endsWith(SUFFIX))
+                    .sorted()
+                    .toList());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static long firstSeq(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+
+    private static MappedByteBuffer map(Path file, FileChannel.MapMode mode) {
+        StandardOpenOption[] options = mode == FileChannel.MapMode.READ_ONLY
+                ? new StandardOpenOption[]{StandardOpenOption.READ}
+                : new StandardOpenOption[]{StandardOpenOption.READ, StandardOpenOption.WRITE};
+        try (FileChannel ch = FileChannel.open(file, options)) {
+            return ch.map(mode, 0, ch.size());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void delete(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // ===== รูปแบบ body =====
+
+    private static void encode(LedgerCommand cmd, ByteBuffer out) {
+        out.putLong(cmd.seq);
+        out.put(cmd.kind);
+        if (cmd.kind == LedgerCommand.OPEN) {
+            out.putLong(cmd.debitAccount);
+            out.putLong(cmd.amount);
+            out.put((byte) (cmd.allowNegative ? 1 : 0));
+            return;
+        }
+        out.putInt(cmd.entryType);
+        out.putLong(cmd.entryId);
+        out.putLong(cmd.initiatedBy);
+        out.putLong(cmd.debitAccount);
+        out.putLong(cmd.creditAccount);
+        out.putLong(cmd.amount);
+        out.putLong(cmd.createdAtMicros);
+        out.putLong(cmd.debitBalance);
+        out.putLong(cmd.creditBalance);
+        putString(out, cmd.counterparty);
+        putString(out, cmd.reference);
+        putString(out, cmd.note);
+    }
+
+    private static void decode(ByteBuffer in, LedgerCommand cmd) {
+        cmd.seq = in.getLong();
+        cmd.kind = in.get();
+        if (cmd.kind == LedgerCommand.OPEN) {
+            cmd.debitAccount = in.getLong();
+            cmd.amount = in.getLong();
+            cmd.allowNegative = in.get() == 1;
+            return;
+        }
+        cmd.entryType = in.getInt();
+        cmd.entryId = in.getLong();
+        cmd.initiatedBy = in.getLong();
+        cmd.debitAccount = in.getLong();
+        cmd.creditAccount = in.getLong();
+        cmd.amount = in.getLong();
+        cmd.createdAtMicros = in.getLong();
+        cmd.debitBalance = in.getLong();
+        cmd.creditBalance = in.getLong();
+        cmd.counterparty = getString(in);
+        cmd.reference = getString(in);
+        cmd.note = getString(in);
+    }
+
+    // ความยาว -1 = null; ตัดที่ MAX_STRING_BYTES (คอลัมน์ในตารางยาวไม่เกิน 255 ตัวอักษรอยู่แล้ว)
+    private static void putString(ByteBuffer out, String s) {
+        if (s == null) {
+            out.putShort((short) -1);
+            return;
+        }
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        int length = Math.min(bytes.length, MAX_STRING_BYTES);
+        out.putShort((short) length);
+        out.put(bytes, 0, length);
+    }
+
+    private static String getString(ByteBuffer in) {
+        int length = in.getShort();
+        if (length < 0) return null;
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void close() {
+        if (segment != null) segment.force();
+    }
+}
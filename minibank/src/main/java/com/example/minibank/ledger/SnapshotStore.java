@@ -0,0 +1,157 @@
+package com.example.minibank.ledger;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+// ยอดทุกบัญชี ณ seq หนึ่งของ journal: snapshot-<seq>.bin = [magic][seq][count]([id][balance][flags])*[crc32c]
+// เขียนลงไฟล์ชั่วคราว -> fsync -> rename จึงไม่มีไฟล์ครึ่ง ๆ; เก็บไว้ KEEP ไฟล์ล่าสุด (ไฟล์ล่าสุดเสีย ใช้ไฟล์ก่อนหน้า)
+final class SnapshotStore {
+
+    record Snapshot(long seq, LongLongHashMap balances, LongLongHashMap flags) {}
+
+    static final long FLAG_ALLOW_NEGATIVE = 1;
+
+    private static final int MAGIC = 0x4d424c31; // "MBL1"
+    private static final String PREFIX = "snapshot-";
+    private static final String SUFFIX = ".bin";
+    private static final int KEEP = 2;
+
+    private final Path dir;
+    private volatile long oldestSeq;
+
+    SnapshotStore(Path dir) {
+        this.dir = dir;
+    }
+
+    // null = ยังไม่เคยมี snapshot ที่อ่านได้
+    Snapshot loadLatest() {
+        List<Path> files = files();
+        oldestSeq = files.isEmpty() ? 0 : seqOf(files.get(0));
+        for (int i = files.size() - 1; i >= 0; i--) {
+            try {
+                return read(files.get(i));
+            } catch (IOException | RuntimeException e) {
+                // ไฟล์เสีย ลองไฟล์ก่อนหน้า (journal ยังเก็บถึง seq ของไฟล์นั้น เพราะลบตาม snapshot ที่เขียนสำเร็จแล้วเท่านั้น)
+            }
+        }
+        return null;
+    }
+
+    void write(long seq, LongLongHashMap balances, LongLongHashMap flags) {
+        Path target = dir.resolve(String.format("%s%020d%s", PREFIX, seq, SUFFIX));
+        Path tmp = dir.resolve(target.getFileName() + ".tmp");
+        try {
+            CRC32C crc = new CRC32C();
+            try (OutputStream file = Files.newOutputStream(tmp);
+                 DataOutputStream out = new DataOutputStream(
+                         new BufferedOutputStream(new CheckedOutputStream(file, crc), 1 << 16))) {
+                out.writeInt(MAGIC);
+                out.writeLong(seq);
+                out.writeInt(balances.size());
+                IOException[] failure = new IOException[1];
+                balances.forEach((id, balance) -> {
+                    if (failure[0] != null) return;
+                    try {
+                        out.writeLong(id);
+                        out.writeLong(balance);
+                        out.writeLong(flags.get(id, 0));
+                    } catch (IOException e) {
+                        failure[0] = e;
+                    }
+                });
+                if (failure[0] != null) throw failure[0];
+                out.flush();
+                out.writeInt((int) crc.getValue());
+            }
+            try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+                ch.force(true);
+            }
+            Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        List<Path> files = files();
+        int kept = 0;
+        for (int i = 0; i < files.size() - KEEP; i++) {
+            try {
+                Files.deleteIfExists(files.get(i));
+            } catch (IOException e) {
+                break; // ลบรอบหน้า
+            }
+            kept = i + 1;
+        }
+        oldestSeq = seqOf(files.get(kept));
+    }
+
+    void discard() {
+        for (Path file : files()) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        oldestSeq = 0;
+    }
+
+    // seq ของ snapshot เก่าสุดที่เก็บไว้ (journal ต้องเก็บตั้งแต่จุดนี้ เผื่อไฟล์ล่าสุดอ่านไม่ได้)
+    long oldestSeq() {
+        return oldestSeq;
+    }
+
+    private static Snapshot read(Path file) throws IOException {
+        CRC32C crc = new CRC32C();
+        try (InputStream in = Files.newInputStream(file);
+             CheckedInputStream checked = new CheckedInputStream(new BufferedInputStream(in, 1 << 16), crc);
+             DataInputStream data = new DataInputStream(checked)) {
+            if (data.readInt() != MAGIC) throw new IOException("Bad snapshot magic: " + file);
+            long seq = data.readLong();
+            int count = data.readInt();
+            LongLongHashMap balances = new LongLongHashMap(count);
+            LongLongHashMap flags = new LongLongHashMap(count);
+            for (int i = 0; i < count; i++) {
+                long id = data.readLong();
+                balances.put(id, data.readLong());
+                long f = data.readLong();
+                if (f != 0) flags.put(id, f);
+            }
+            // crc ของทุกอย่างก่อนถึงตัว crc เอง
+            int expected = (int) crc.getValue();
+            if (data.readInt() != expected) throw new IOException("Bad snapshot checksum: " + file);
+            return new Snapshot(seq, balances, flags);
+        }
+    }
+
+    private List<Path> files() {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files
+                    .filter(p -> p.getFileName().toString().startsWith(PREFIX) && p.getFileName().toString().endsWith(SUFFIX))
+                    .sorted()
+                    .toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static long seqOf(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+}
@@ -0,0 +1,149 @@
+package com.example.minibank.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+// SQL ของ batch_transfers / batch_transfer_items: สถานะรายรายการของการโอนแบบ batch
+// เปลี่ยนสถานะได้จาก PENDING (หรือ SUBMITTED) เท่านั้น: รายการที่จบแล้วไม่ถูกเขียนทับ
+@Repository
+public class BatchTransferRepository {
+
+    public record Batch(long id, String requestHash, Long balanceAfterMinor) {}
+
+    public record ItemRow(int index, String to, Long destAccountId, long amountMinor, String note,
+                          String status, Long entryId, String reason) {}
+
+    public record PostedItem(int index, long entryId) {}
+
+    private final JdbcTemplate jdbc;
+
+    public BatchTransferRepository(JdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    // index: uk_batch_transfers_payer_ref
+    public Batch find(long payerUserId, String batchRef) {
+        List<Batch> rows = jdbc.query("""
+                SELECT id, request_hash, balance_after_minor FROM batch_transfers
+                WHERE payer_user_id = ? AND batch_ref = ?
+                """, (rs, i) -> new Batch(rs.getLong(1), rs.getString(2), rs.getObject(3, Long.class)),
+                payerUserId, batchRef);
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+
+    // null = มี batch ของ ref นี้อยู่แล้ว (คำขอที่มาพร้อมกันสร้างไปก่อน)
+    public Batch create(long payerUserId, String batchRef, String requestHash, Instant now) {
+        List<Long> ids = jdbc.queryForList("""
+                INSERT INTO batch_transfers (payer_user_id, batch_ref, request_hash, created_at)
+                VALUES (?, ?, ?, ?)
+                ON CONFLICT (payer_user_id, batch_ref) DO NOTHING
+                RETURNING id
+                """, Long.class, payerUserId, batchRef, requestHash, Timestamp.from(now));
+        return ids.isEmpty() ? null : new Batch(ids.get(0), requestHash, null);
+    }
+
+    public void insertItems(long batchId, List<ItemRow> items) {
+        jdbc.batchUpdate("""
+                INSERT INTO batch_transfer_items (batch_id, item_index, to_account, dest_account_id, amount_minor,
+                                                  note, status, entry_id, reason)
+                VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)
+                """, items, 1000, (ps, r) -> {
+            ps.setLong(1, batchId);
+            ps.setInt(2, r.index());
+            ps.setString(3, r.to());
+            ps.setObject(4, r.destAccountId(), Types.BIGINT);
+            ps.setLong(5, r.amountMinor());
+            ps.setString(6, r.note());
+            ps.setString(7, r.status());
+            ps.setObject(8, r.entryId(), Types.BIGINT);
+            ps.setString(9, r.reason());
+        });
+    }
+
+    // เรียงตามลำดับใน request; index: PRIMARY KEY (batch_id, item_index)
+    public List<ItemRow> findItems(long batchId) {
+        return jdbc.query("""
+                SELECT item_index, to_account, dest_account_id, amount_minor, note, status, entry_id, reason
+                FROM batch_transfer_items WHERE batch_id = ?
+                ORDER BY item_index
+                """, (rs, i) -> new ItemRow(
+                        rs.getInt(1),
+                        rs.getString(2),
+                        rs.getObject(3, Long.class),
+                        rs.getLong(4),
+                        rs.getString(5),
+                        rs.getString(6),
+                        rs.getObject(7, Long.class),
+                        rs.getString(8)),
+                batchId);
+    }
+
+    // คืนจำนวนรายการที่เปลี่ยนได้จริง; น้อยกว่าที่ส่งมา = มีรายการถูกปิดไปก่อนแล้ว ผู้เรียกต้อง rollback
+    public int markPosted(long batchId, List<PostedItem> items) {
+        int[][] counts = jdbc.batchUpdate("""
+                UPDATE batch_transfer_items SET status = 'POSTED', entry_id = ?, reason = NULL
+                WHERE batch_id = ? AND item_index = ? AND status IN ('PENDING', 'SUBMITTED')
+                """, items, 1000, (ps, r) -> {
+            ps.setLong(1, r.entryId());
+            ps.setLong(2, batchId);
+            ps.setInt(3, r.index());
+        });
+        int n = 0;
+        for (int[] chunk : counts) {
+            for (int c : chunk) n += c;
+        }
+        return n;
+    }
+
+    // REJECTED / PENDING (คืนรายการที่ยังไม่ได้ส่งให้คำขอถัดไปทำต่อ); reason = null ได้
+    public int markStatus(long batchId, Collection<Integer> indexes, String status, String reason) {
+        if (indexes.isEmpty()) return 0;
+        return jdbc.update(con -> {
+            PreparedStatement ps = con.prepareStatement("""
+                    UPDATE batch_transfer_items SET status = ?, reason = ?
+                    WHERE batch_id = ? AND item_index = ANY (?) AND status IN ('PENDING', 'SUBMITTED')
+                    """);
+            ps.setString(1, status);
+            ps.setString(2, reason);
+            ps.setLong(3, batchId);
+            ps.setArray(4, con.createArrayOf("integer", indexes.toArray()));
+            return ps;
+        });
+    }
+
+    // PENDING -> SUBMITTED ก่อนส่งเข้า LedgerEngine; คืนเฉพาะ index ที่เปลี่ยนได้ (ที่เหลือมีคำขออื่นถืออยู่)
+    public List<Integer> markSubmitted(long batchId, Collection<Integer> indexes) {
+        if (indexes.isEmpty()) return List.of();
+        return jdbc.query(con -> {
+            PreparedStatement ps = con.prepareStatement("""
+                    UPDATE batch_transfer_items SET status = 'SUBMITTED'
+                    WHERE batch_id = ? AND item_index = ANY (?) AND status = 'PENDING'
+                    RETURNING item_index
+                    """);
+            ps.setLong(1, batchId);
+            ps.setArray(2, con.createArrayOf("integer", indexes.toArray()));
+            return ps;
+        }, (rs, i) -> rs.getInt(1));
+    }
+
+    public void setBalance(long batchId, long balanceMinor) {
+        jdbc.update("UPDATE batch_transfers SET balance_after_minor = ? WHERE id = ?", balanceMinor, batchId);
+    }
+
+    // รายการของ batch ถูกลบตาม (ON DELETE CASCADE); index: ix_batch_transfers_created_at
+    public int purgeCreatedBefore(Instant before, int limit) {
+        return jdbc.update("""
+                DELETE FROM batch_transfers WHERE id IN (
+                    SELECT id FROM batch_transfers WHERE created_at < ?
+                    LIMIT ? FOR UPDATE SKIP LOCKED
+                )
+                """, Timestamp.from(before), limit);
+    }
+}
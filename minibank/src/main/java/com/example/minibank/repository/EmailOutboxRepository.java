@@ -0,0 +1,59 @@
+package com.example.minibank.repository;
+
+import com.example.minibank.entity.EmailOutbox;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface EmailOutboxRepository extends JpaRepository<EmailOutbox, Long> {
+
+    // ต้องเรียกใน transaction; แถวที่ instance อื่น lock อยู่จะถูกข้าม
+    // index: ix_email_outbox_pending, ix_email_outbox_sending_locked_at
+    @Query(value = """
+            SELECT * FROM email_outbox
+            WHERE (status = 'PENDING' AND next_attempt_at <= :now)
+               OR (status = 'SENDING' AND locked_at < :staleBefore)
+            ORDER BY priority, id
+            LIMIT :limit
+            FOR UPDATE SKIP LOCKED
+            """, nativeQuery = true)
+    List<EmailOutbox> claimBatch(Instant now, Instant staleBefore, int limit);
+
+    @Transactional
+    @Modifying
+    @Query("update EmailOutbox o set o.status = :status, o.nextAttemptAt = :nextAttemptAt, o.lockedAt = null, o.lastError = :lastError where o.id = :id")
+    int reschedule(Long id, EmailOutbox.Status status, Instant nextAttemptAt, String lastError);
+
+    // ล้มเหลวถาวร: ลบเนื้อหา (OTP / ลิงก์ reset) เหลือไว้แค่ผู้รับ หัวข้อ และสาเหตุ
+    @Transactional
+    @Modifying
+    @Query("update EmailOutbox o set o.status = 'FAILED', o.htmlContent = '', o.lockedAt = null, o.lastError = :lastError where o.id = :id")
+    int fail(Long id, String lastError);
+
+    @Transactional
+    @Modifying
+    @Query("update EmailOutbox o set o.status = 'PENDING', o.attempts = o.attempts - 1, o.nextAttemptAt = :nextAttemptAt, o.lockedAt = null where o.id = :id")
+    int postpone(Long id, Instant nextAttemptAt);
+
+    // ลบแถว FAILED ที่สร้างก่อน before ทีละก้อน (ExpiredOtpPurgeJob)
+    // index: ix_email_outbox_failed_created_at
+    @Transactional
+    @Modifying
+    @Query(value = """
+            DELETE FROM email_outbox WHERE id IN (
+                SELECT id FROM email_outbox
+                WHERE status = 'FAILED' AND created_at < :before
+                LIMIT :limit
+                FOR UPDATE SKIP LOCKED
+            )
+            """, nativeQuery = true)
+    int purgeFailed(Instant before, int limit);
+
+    // index: ix_email_outbox_pending_created_at (status = PENDING)
+    @Query("select min(o.createdAt) from EmailOutbox o where o.status = :status")
+    Instant oldestCreatedAt(EmailOutbox.Status status);
+}
@@ -0,0 +1,125 @@
+package com.example.minibank.repository;
+
+import com.example.minibank.entity.IdempotencyKey;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+
+// ทุก method เป็นคำสั่งเดียว (auto-commit) แถว IN_PROGRESS ต้องเห็นได้ทันทีจาก instance อื่น
+// ยกเว้น lockClaim / complete ที่ IdempotencyService.executeInTransaction เรียกใน transaction ของงาน
+@Repository
+public class IdempotencyKeyRepository {
+
+    public record Stored(
+            String requestHash,
+            IdempotencyKey.Status status,
+            Integer responseStatus,
+            String contentType,
+            byte[] responseBody,
+            Instant lockedAt,
+            Instant expiresAt
+    ) {}
+
+    private final JdbcTemplate jdbc;
+
+    public IdempotencyKeyRepository(JdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    // จองคีย์ (แถวใหม่ หรือทับแถวที่หมดอายุแต่ยังไม่ถูก purge) true = ได้เป็นผู้ทำงาน
+    // index: uk_idempotency_keys_scope_key
+    public boolean tryClaim(String scope, String key, String requestHash, Instant now, Instant expiresAt) {
+        return jdbc.update("""
+                INSERT INTO idempotency_keys (scope, idem_key, request_hash, status, locked_at, created_at, expires_at)
+                VALUES (?, ?, ?, 'IN_PROGRESS', ?, ?, ?)
+                ON CONFLICT (scope, idem_key) DO UPDATE
+                SET request_hash = EXCLUDED.request_hash, status = 'IN_PROGRESS',
+                    response_status = NULL, content_type = NULL, response_body = NULL,
+                    locked_at = EXCLUDED.locked_at, created_at = EXCLUDED.created_at, expires_at = EXCLUDED.expires_at
+                WHERE idempotency_keys.expires_at <= EXCLUDED.created_at
+                """,
+                scope, key, requestHash, Timestamp.from(now), Timestamp.from(now), Timestamp.from(expiresAt)) == 1;
+    }
+
+    // index: uk_idempotency_keys_scope_key
+    public Stored find(String scope, String key) {
+        List<Stored> rows = jdbc.query("""
+                SELECT request_hash, status, response_status, content_type, response_body, locked_at, expires_at
+                FROM idempotency_keys WHERE scope = ? AND idem_key = ?
+                """,
+                (rs, i) -> new Stored(
+                        rs.getString(1),
+                        IdempotencyKey.Status.valueOf(rs.getString(2)),
+                        (Integer) rs.getObject(3),
+                        rs.getString(4),
+                        rs.getBytes(5),
+                        toInstant(rs.getTimestamp(6)),
+                        toInstant(rs.getTimestamp(7))),
+                scope, key);
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+
+    // ผู้ทำงานเดิมค้างเกิน lease (instance ตาย) ให้คำขอนี้ทำแทน
+    // ข้ามแถวที่ถูกล็อก (lockClaim): ผู้ทำงานที่ยังถือ transaction อยู่ไม่ได้ตาย แค่ช้า
+    public boolean takeOver(String scope, String key, String requestHash, Instant now, Instant staleBefore) {
+        return jdbc.update("""
+                UPDATE idempotency_keys SET locked_at = ?
+                WHERE id = (
+                    SELECT id FROM idempotency_keys
+                    WHERE scope = ? AND idem_key = ? AND request_hash = ? AND status = 'IN_PROGRESS' AND locked_at < ?
+                    FOR UPDATE SKIP LOCKED
+                )
+                """,
+                Timestamp.from(now), scope, key, requestHash, Timestamp.from(staleBefore)) == 1;
+    }
+
+    // locked_at ย้อนไปก่อน lease ใด ๆ: takeOver ครั้งถัดไปผ่านทันที
+    public void abandon(String scope, String key) {
+        jdbc.update("""
+                UPDATE idempotency_keys SET locked_at = ?
+                WHERE scope = ? AND idem_key = ? AND status = 'IN_PROGRESS'
+                """, Timestamp.from(Instant.EPOCH), scope, key);
+    }
+
+    // ต้องอยู่ใน transaction: ล็อกแถวที่จองไว้จนจบ transaction; false = แถวไม่ใช่ของคำขอนี้แล้ว
+    public boolean lockClaim(String scope, String key, String requestHash) {
+        return !jdbc.queryForList("""
+                SELECT id FROM idempotency_keys
+                WHERE scope = ? AND idem_key = ? AND request_hash = ? AND status = 'IN_PROGRESS'
+                FOR UPDATE
+                """, Long.class, scope, key, requestHash).isEmpty();
+    }
+
+    public void complete(String scope, String key, int responseStatus, String contentType, byte[] body, Instant expiresAt) {
+        jdbc.update("""
+                UPDATE idempotency_keys
+                SET status = 'COMPLETED', response_status = ?, content_type = ?, response_body = ?,
+                    locked_at = NULL, expires_at = ?
+                WHERE scope = ? AND idem_key = ? AND status = 'IN_PROGRESS'
+                """,
+                responseStatus, contentType, body, Timestamp.from(expiresAt), scope, key);
+    }
+
+    // ทำงานไม่สำเร็จแบบที่ลองใหม่ได้ (5xx, exception) ปล่อยคีย์ให้คำขอถัดไปทำใหม่
+    public void release(String scope, String key) {
+        jdbc.update("DELETE FROM idempotency_keys WHERE scope = ? AND idem_key = ? AND status = 'IN_PROGRESS'",
+                scope, key);
+    }
+
+    // index: ix_idempotency_keys_expires_at
+    public int purgeExpired(Instant now, int limit) {
+        return jdbc.update("""
+                DELETE FROM idempotency_keys WHERE id IN (
+                    SELECT id FROM idempotency_keys WHERE expires_at <= ?
+                    LIMIT ? FOR UPDATE SKIP LOCKED
+                )
+                """, Timestamp.from(now), limit);
+    }
+
+    private static Instant toInstant(Timestamp ts) {
+        return ts == null ? null : ts.toInstant();
+    }
+}
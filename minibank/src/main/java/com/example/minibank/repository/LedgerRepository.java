@@ -0,0 +1,403 @@
+package com.example.minibank.repository;
+
+import com.example.minibank.entity.JournalEntry;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+// SQL ของ ledger ที่ต้องใช้ RETURNING / batch ตรง ๆ (Spring Data ทำไม่ได้)
+// ทุก method ต้องเรียกใน transaction ของ LedgerService
+@Repository
+public class LedgerRepository {
+
+    public record CustomerAccount(long accountId, long userId, String accountNo) {}
+
+    public record AccountBalance(long accountId, String accountNo, String currency, long balanceMinor) {}
+
+    // balanceAfterMinor = null เมื่อลงที่แถวย่อยของ hot account
+    public record Posting(long accountId, long amountMinor, Long balanceAfterMinor) {}
+
+    public record NewEntry(long id, String counterparty, String reference, String note) {}
+
+    public record HistoryRow(long postingId, long entryId, String type, long amountMinor, Long balanceAfterMinor,
+                             Instant createdAt, String counterparty, String reference, String note) {}
+
+    public record HotAccount(long accountId, String accountNo, int shardCount, boolean allowNegative) {}
+
+    // ยอดรวม (แถวหลัก + แถวย่อย) สำหรับโหลดเข้า LedgerEngine
+    public record AccountState(long accountId, long balanceMinor, boolean allowNegative) {}
+
+    // แถวที่ LedgerReadModelProjector เขียนตามหลัง engine (ต่างรายการต่างประเภท/เวลา)
+    public record EntryRow(long id, JournalEntry.Type type, Long initiatedBy, String counterparty,
+                           String reference, String note, Instant createdAt) {}
+
+    public record PostingRow(long entryId, JournalEntry.Type type, long accountId, long amountMinor,
+                             long balanceAfterMinor, Instant createdAt) {}
+
+    public record EngineState(long projectedSeq, long lastEntryId) {}
+
+    private final JdbcTemplate jdbc;
+
+    public LedgerRepository(JdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    // index: uk_users_username, ux_ledger_accounts_customer_owner
+    public CustomerAccount findCustomerAccount(String username) {
+        List<CustomerAccount> rows = jdbc.query("""
+                SELECT a.id, a.owner_user_id, a.account_no
+                FROM users u JOIN ledger_accounts a ON a.owner_user_id = u.id AND a.type = 'CUSTOMER'
+                WHERE u.username = ?
+                """, (rs, i) -> new CustomerAccount(rs.getLong(1), rs.getLong(2), rs.getString(3)), username);
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+
+    // เปิดบัญชีให้ user (ถ้ามีอยู่แล้วไม่ทำอะไร) เลขบัญชี = MB + id 10 หลัก
+    public void openCustomerAccount(String username, Instant now) {
+        jdbc.update("""
+                WITH n AS (SELECT nextval(pg_get_serial_sequence('ledger_accounts', 'id')) AS id)
+                INSERT INTO ledger_accounts (id, account_no, owner_user_id, type, currency, balance_minor, allow_negative, created_at)
+                SELECT n.id, 'MB' || lpad(n.id::text, 10, '0'), u.id, 'CUSTOMER', 'THB', 0, FALSE, ?
+                FROM n, users u
+                WHERE u.username = ?
+                ON CONFLICT DO NOTHING
+                """, Timestamp.from(now), username);
+    }
+
+    // index: uk_ledger_accounts_account_no
+    public OptionalLong findAccountIdByNo(String accountNo) {
+        List<Long> ids = jdbc.queryForList("SELECT id FROM ledger_accounts WHERE account_no = ?", Long.class, accountNo);
+        return ids.isEmpty() ? OptionalLong.empty() : OptionalLong.of(ids.get(0));
+    }
+
+    // index: uk_ledger_accounts_account_no
+    public Map<String, Long> findAccountIdsByNo(Collection<String> accountNos) {
+        Map<String, Long> ids = new HashMap<>();
+        if (accountNos.isEmpty()) return ids;
+
+        jdbc.query(con -> {
+            PreparedStatement ps = con.prepareStatement("SELECT account_no, id FROM ledger_accounts WHERE account_no = ANY (?)");
+            ps.setArray(1, con.createArrayOf("varchar", accountNos.toArray()));
+            return ps;
+        }, (RowCallbackHandler) rs -> ids.put(rs.getString(1), rs.getLong(2)));
+        return ids;
+    }
+
+    public long systemAccountId(String accountNo) {
+        return findAccountIdByNo(accountNo)
+                .orElseThrow(() -> new IllegalStateException("Missing system ledger account " + accountNo));
+    }
+
+    // ยอดรวม = แถวหลัก + แถวย่อย (ถ้าเป็น hot account)
+    public AccountBalance findBalance(long accountId) {
+        return jdbc.queryForObject("""
+                SELECT a.id, a.account_no, a.currency,
+                       a.balance_minor + COALESCE((SELECT sum(s.balance_minor) FROM ledger_account_shards s
+                                                   WHERE s.account_id = a.id), 0)
+                FROM ledger_accounts a WHERE a.id = ?
+                """,
+                (rs, i) -> new AccountBalance(rs.getLong(1), rs.getString(2), rs.getString(3), rs.getLong(4)),
+                accountId);
+    }
+
+    // ตัดเงินแบบมีเงื่อนไขใน UPDATE เดียว (ไม่อ่านยอดมาเช็คก่อน) -> ว่าง = ยอดไม่พอ
+    // ถ้ามี transaction อื่นถือ row อยู่ PostgreSQL จะรอแล้วเช็คเงื่อนไขใหม่กับยอดล่าสุด
+    public OptionalLong debit(long accountId, long amountMinor) {
+        List<Long> after = jdbc.queryForList("""
+                UPDATE ledger_accounts
+                SET balance_minor = balance_minor - ?
+                WHERE id = ? AND (allow_negative OR balance_minor >= ?)
+                RETURNING balance_minor
+                """, Long.class, amountMinor, accountId, amountMinor);
+        return after.isEmpty() ? OptionalLong.empty() : OptionalLong.of(after.get(0));
+    }
+
+    public long credit(long accountId, long amountMinor) {
+        return jdbc.queryForObject("""
+                UPDATE ledger_accounts
+                SET balance_minor = balance_minor + ?
+                WHERE id = ?
+                RETURNING balance_minor
+                """, Long.class, amountMinor, accountId);
+    }
+
+    // เพิ่ม/ลดยอดที่แถวย่อยแถวเดียว (ไม่เช็คยอด: ใช้กับ credit หรือบัญชีที่ติดลบได้เท่านั้น)
+    // false = ไม่มีแถวย่อยนี้แล้ว (ลดจำนวน shard ไปแล้ว) ให้ลงแถวหลักแทน
+    public boolean adjustShard(long accountId, int shardNo, long amountMinor) {
+        return jdbc.update(
+                "UPDATE ledger_account_shards SET balance_minor = balance_minor + ? WHERE account_id = ? AND shard_no = ?",
+                amountMinor, accountId, shardNo) == 1;
+    }
+
+    // รวมบัญชีที่เพิ่งลด shard_count เหลือ 1 แต่ยังมีแถวย่อยค้าง (ต้อง sweep ต่อ)
+    public List<HotAccount> findHotAccounts() {
+        return jdbc.query("""
+                SELECT id, account_no, shard_count, allow_negative FROM ledger_accounts a
+                WHERE shard_count > 1 OR EXISTS (SELECT 1 FROM ledger_account_shards s WHERE s.account_id = a.id)
+                """,
+                (rs, i) -> new HotAccount(rs.getLong(1), rs.getString(2), rs.getInt(3), rs.getBoolean(4)));
+    }
+
+    // ตั้งจำนวนแถวย่อย (เฉพาะบัญชีระบบ) คืน false ถ้าไม่พบบัญชี
+    public boolean configureShards(String accountNo, int shardCount) {
+        int updated = jdbc.update(
+                "UPDATE ledger_accounts SET shard_count = ? WHERE account_no = ? AND type = 'SYSTEM'",
+                shardCount, accountNo);
+        if (updated == 0) return false;
+
+        jdbc.update("""
+                INSERT INTO ledger_account_shards (account_id, shard_no, balance_minor)
+                SELECT a.id, g.n, 0
+                FROM ledger_accounts a, generate_series(0, ? - 1) AS g(n)
+                WHERE a.account_no = ? AND a.shard_count > 1
+                ON CONFLICT DO NOTHING
+                """, shardCount, accountNo);
+        return true;
+    }
+
+    // ย้ายยอดจากแถวย่อยกลับเข้าแถวหลัก ข้ามแถวย่อยที่ transaction อื่นถืออยู่ (รอบหน้าค่อยย้าย)
+    // คืนยอดที่ย้าย
+    public long sweepShards(long accountId) {
+        Long moved = jdbc.queryForObject("""
+                WITH moved AS (
+                    UPDATE ledger_account_shards s
+                    SET balance_minor = 0
+                    FROM (SELECT shard_no, balance_minor FROM ledger_account_shards
+                          WHERE account_id = ? AND balance_minor <> 0
+                          FOR UPDATE SKIP LOCKED) p
+                    WHERE s.account_id = ? AND s.shard_no = p.shard_no
+                    RETURNING p.balance_minor AS amount
+                ), total AS (
+                    SELECT COALESCE(sum(amount), 0) AS amount FROM moved
+                ), base AS (
+                    UPDATE ledger_accounts SET balance_minor = balance_minor + (SELECT amount FROM total)
+                    WHERE id = ? AND (SELECT amount FROM total) <> 0
+                )
+                SELECT amount FROM total
+                """, Long.class, accountId, accountId, accountId);
+
+        // แถวย่อยที่เกินจำนวนปัจจุบันและว่างแล้ว ลบทิ้ง
+        jdbc.update("""
+                DELETE FROM ledger_account_shards s
+                USING ledger_accounts a
+                WHERE s.account_id = a.id AND a.id = ? AND s.shard_no >= a.shard_count AND s.balance_minor = 0
+                """, accountId);
+        return moved == null ? 0 : moved;
+    }
+
+    public long insertEntry(JournalEntry.Type type, Long initiatedBy, String counterparty,
+                            String reference, String note, Instant createdAt) {
+        return jdbc.queryForObject("""
+                INSERT INTO journal_entries (type, initiated_by, counterparty, reference, note, created_at)
+                VALUES (?, ?, ?, ?, ?, ?)
+                RETURNING id
+                """, Long.class, type.name(), initiatedBy, counterparty, reference, note, Timestamp.from(createdAt));
+    }
+
+    // จอง id ของ journal_entries ล่วงหน้า ให้ insert entry และ posting หลายรายการเป็น batch ได้โดยไม่ต้อง RETURNING ทีละแถว
+    public long[] reserveEntryIds(int count) {
+        return jdbc.queryForList(
+                "SELECT nextval(pg_get_serial_sequence('journal_entries', 'id')) FROM generate_series(1, ?)",
+                Long.class, count).stream().mapToLong(Long::longValue).toArray();
+    }
+
+    public void insertEntries(JournalEntry.Type type, Long initiatedBy, List<NewEntry> entries, Instant createdAt) {
+        Timestamp ts = Timestamp.from(createdAt);
+        jdbc.batchUpdate("""
+                INSERT INTO journal_entries (id, type, initiated_by, counterparty, reference, note, created_at)
+                VALUES (?, ?, ?, ?, ?, ?, ?)
+                """, entries, entries.size(), (ps, e) -> {
+            ps.setLong(1, e.id());
+            ps.setString(2, type.name());
+            ps.setObject(3, initiatedBy, Types.BIGINT);
+            ps.setString(4, e.counterparty());
+            ps.setString(5, e.reference());
+            ps.setString(6, e.note());
+            ps.setTimestamp(7, ts);
+        });
+    }
+
+    public void insertPostings(long entryId, JournalEntry.Type type, List<Posting> postings, Instant createdAt) {
+        long[] entryIds = new long[postings.size()];
+        Arrays.fill(entryIds, entryId);
+        insertPostings(entryIds, type, postings, createdAt);
+    }
+
+    // entryIds[i] = entry ของ postings.get(i)
+    public void insertPostings(long[] entryIds, JournalEntry.Type type, List<Posting> postings, Instant createdAt) {
+        Timestamp ts = Timestamp.from(createdAt);
+        int[] i = {0};
+        jdbc.batchUpdate("""
+                INSERT INTO journal_postings (entry_id, entry_type, account_id, amount_minor, balance_after_minor, created_at)
+                VALUES (?, ?, ?, ?, ?, ?)
+                """, postings, postings.size(), (ps, p) -> {
+            ps.setLong(1, entryIds[i[0]++]);
+            ps.setString(2, type.name());
+            ps.setLong(3, p.accountId());
+            ps.setLong(4, p.amountMinor());
+            ps.setObject(5, p.balanceAfterMinor(), Types.BIGINT);
+            ps.setTimestamp(6, ts);
+        });
+    }
+
+    // ===== LedgerEngine (app.ledger.engine.enabled=true) =====
+
+    // อ่านทุกบัญชีแบบ stream (ไม่โหลดทั้งหมดเป็น List)
+    public void scanAccountStates(Consumer<AccountState> consumer) {
+        jdbc.query(con -> {
+            PreparedStatement ps = con.prepareStatement("""
+                    SELECT a.id,
+                           a.balance_minor + COALESCE((SELECT sum(s.balance_minor) FROM ledger_account_shards s
+                                                       WHERE s.account_id = a.id), 0),
+                           a.allow_negative
+                    FROM ledger_accounts a
+                    """);
+            ps.setFetchSize(5000);
+            return ps;
+        }, (RowCallbackHandler) rs -> consumer.accept(new AccountState(rs.getLong(1), rs.getLong(2), rs.getBoolean(3))));
+    }
+
+    public List<AccountState> findAccountStates(Collection<Long> accountIds) {
+        if (accountIds.isEmpty()) return List.of();
+        return jdbc.query(con -> {
+            PreparedStatement ps = con.prepareStatement("""
+                    SELECT a.id,
+                           a.balance_minor + COALESCE((SELECT sum(s.balance_minor) FROM ledger_account_shards s
+                                                       WHERE s.account_id = a.id), 0),
+                           a.allow_negative
+                    FROM ledger_accounts a WHERE a.id = ANY (?)
+                    """);
+            ps.setArray(1, con.createArrayOf("bigint", accountIds.toArray()));
+            return ps;
+        }, (rs, i) -> new AccountState(rs.getLong(1), rs.getLong(2), rs.getBoolean(3)));
+    }
+
+    public void insertEntryRows(List<EntryRow> entries) {
+        jdbc.batchUpdate("""
+                INSERT INTO journal_entries (id, type, initiated_by, counterparty, reference, note, created_at)
+                VALUES (?, ?, ?, ?, ?, ?, ?)
+                """, entries, entries.size(), (ps, e) -> {
+            ps.setLong(1, e.id());
+            ps.setString(2, e.type().name());
+            ps.setObject(3, e.initiatedBy(), Types.BIGINT);
+            ps.setString(4, e.counterparty());
+            ps.setString(5, e.reference());
+            ps.setString(6, e.note());
+            ps.setTimestamp(7, Timestamp.from(e.createdAt()));
+        });
+    }
+
+    public void insertPostingRows(List<PostingRow> postings) {
+        jdbc.batchUpdate("""
+                INSERT INTO journal_postings (entry_id, entry_type, account_id, amount_minor, balance_after_minor, created_at)
+                VALUES (?, ?, ?, ?, ?, ?)
+                """, postings, postings.size(), (ps, p) -> {
+            ps.setLong(1, p.entryId());
+            ps.setString(2, p.type().name());
+            ps.setLong(3, p.accountId());
+            ps.setLong(4, p.amountMinor());
+            ps.setLong(5, p.balanceAfterMinor());
+            ps.setTimestamp(6, Timestamp.from(p.createdAt()));
+        });
+    }
+
+    // ตั้งยอดแถวหลักเป็นค่าที่ engine คำนวณแล้ว (engine ไม่ใช้แถวย่อย) เรียงตาม id กัน deadlock
+    public void setBalances(Map<Long, Long> balances) {
+        List<Map.Entry<Long, Long>> rows = new ArrayList<>(new TreeMap<>(balances).entrySet());
+        jdbc.batchUpdate("UPDATE ledger_accounts SET balance_minor = ? WHERE id = ?", rows, rows.size(), (ps, e) -> {
+            ps.setLong(1, e.getValue());
+            ps.setLong(2, e.getKey());
+        });
+    }
+
+    public EngineState findEngineState() {
+        return jdbc.queryForObject("SELECT projected_seq, last_entry_id FROM ledger_engine_state WHERE id = 1",
+                (rs, i) -> new EngineState(rs.getLong(1), rs.getLong(2)));
+    }
+
+    public void saveEngineState(long projectedSeq, long lastEntryId) {
+        jdbc.update("""
+                UPDATE ledger_engine_state
+                SET projected_seq = ?, last_entry_id = GREATEST(last_entry_id, ?)
+                WHERE id = 1
+                """, projectedSeq, lastEntryId);
+    }
+
+    public void resetEngineState(long lastEntryId) {
+        jdbc.update("UPDATE ledger_engine_state SET projected_seq = 0, last_entry_id = ? WHERE id = 1", lastEntryId);
+    }
+
+    public long findMaxEntryId() {
+        Long id = jdbc.queryForObject("SELECT max(id) FROM journal_entries", Long.class);
+        return id == null ? 0 : id;
+    }
+
+    // ใหม่ -> เก่า เริ่มถัดจาก (beforeAt, beforeId) ถ้ามี; ตัดหน้าจาก index ก่อน แล้วค่อย join entry เฉพาะแถวในหน้า
+    // index: ix_journal_postings_account_history / ix_journal_postings_account_type_history (เมื่อกรอง type)
+    public List<HistoryRow> findHistory(long accountId, JournalEntry.Type type, Instant from, Instant to,
+                                        Instant beforeAt, Long beforeId, int limit) {
+        StringBuilder sql = new StringBuilder("""
+                SELECT p.id, p.entry_id, p.entry_type, p.amount_minor, p.balance_after_minor, p.created_at,
+                       e.counterparty, e.reference, e.note
+                FROM (
+                    SELECT id, entry_id, entry_type, amount_minor, balance_after_minor, created_at
+                    FROM journal_postings
+                    WHERE account_id = ?
+                """);
+        List<Object> args = new ArrayList<>();
+        args.add(accountId);
+
+        if (type != null) {
+            sql.append(" AND entry_type = ?");
+            args.add(type.name());
+        }
+        if (from != null) {
+            sql.append(" AND created_at >= ?");
+            args.add(Timestamp.from(from));
+        }
+        if (to != null) {
+            sql.append(" AND created_at < ?");
+            args.add(Timestamp.from(to));
+        }
+        if (beforeAt != null) {
+            sql.append(" AND (created_at, id) < (?, ?)");
+            args.add(Timestamp.from(beforeAt));
+            args.add(beforeId);
+        }
+        sql.append("""
+
+                    ORDER BY created_at DESC, id DESC
+                    LIMIT ?
+                ) p
+                JOIN journal_entries e ON e.id = p.entry_id
+                ORDER BY p.created_at DESC, p.id DESC
+                """);
+        args.add(limit);
+
+        return jdbc.query(sql.toString(), (rs, i) -> new HistoryRow(
+                rs.getLong(1),
+                rs.getLong(2),
+                rs.getString(3),
+                rs.getLong(4),
+                (Long) rs.getObject(5),
+                rs.getTimestamp(6).toInstant(),
+                rs.getString(7),
+                rs.getString(8),
+                rs.getString(9)
+        ), args.toArray());
+    }
+}
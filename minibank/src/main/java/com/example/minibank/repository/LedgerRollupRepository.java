@@ -0,0 +1,112 @@
+package com.example.minibank.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// ledger_monthly_rollups: เฉพาะบัญชีลูกค้า (บัญชีระบบรับทุกรายการ ถ้ารวมยอดด้วยจะกลายเป็นแถวที่แย่ง lock กัน)
+@Repository
+public class LedgerRollupRepository {
+
+    public record MonthRow(LocalDate month, String category, long incomeMinor, long expenseMinor,
+                           int incomeCount, int expenseCount) {}
+
+    private final JdbcTemplate jdbc;
+
+    public LedgerRollupRepository(JdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    // เรียกใน transaction ของ LedgerService หลังอัปเดตยอด; รวมต่อบัญชีก่อน (batch โอนหลายรายการ = 1 แถวต่อบัญชี)
+    // เรียงตาม account id ให้ลำดับ lock ตรงกับตอนอัปเดตยอด
+    // index: ledger_accounts pkey, ledger_monthly_rollups pkey
+    public void add(LocalDate month, String category, List<LedgerRepository.Posting> postings) {
+        Map<Long, long[]> byAccount = new TreeMap<>();
+        for (LedgerRepository.Posting p : postings) {
+            long amount = p.amountMinor();
+            long[] t = byAccount.computeIfAbsent(p.accountId(), id -> new long[4]);
+            if (amount > 0) {
+                t[0] += amount;
+                t[2]++;
+            } else if (amount < 0) {
+                t[1] -= amount;
+                t[3]++;
+            }
+        }
+
+        Date m = Date.valueOf(month);
+        jdbc.batchUpdate("""
+                INSERT INTO ledger_monthly_rollups
+                    (account_id, month, category, income_minor, expense_minor, income_count, expense_count)
+                SELECT id, ?, ?, ?, ?, ?, ? FROM ledger_accounts WHERE id = ? AND type = 'CUSTOMER'
+                ON CONFLICT (account_id, month, category) DO UPDATE SET
+                    income_minor = ledger_monthly_rollups.income_minor + EXCLUDED.income_minor,
+                    expense_minor = ledger_monthly_rollups.expense_minor + EXCLUDED.expense_minor,
+                    income_count = ledger_monthly_rollups.income_count + EXCLUDED.income_count,
+                    expense_count = ledger_monthly_rollups.expense_count + EXCLUDED.expense_count
+                """, List.copyOf(byAccount.entrySet()), byAccount.size(), (ps, e) -> {
+            long[] t = e.getValue();
+            ps.setDate(1, m);
+            ps.setString(2, category);
+            ps.setLong(3, t[0]);
+            ps.setLong(4, t[1]);
+            ps.setInt(5, (int) t[2]);
+            ps.setInt(6, (int) t[3]);
+            ps.setLong(7, e.getKey());
+        });
+    }
+
+    // index: ledger_monthly_rollups pkey (account_id, month, ...)
+    public List<MonthRow> findMonths(long accountId, LocalDate fromMonth, LocalDate toMonth) {
+        return jdbc.query("""
+                SELECT month, category, income_minor, expense_minor, income_count, expense_count
+                FROM ledger_monthly_rollups
+                WHERE account_id = ? AND month BETWEEN ? AND ?
+                ORDER BY month, category
+                """,
+                (rs, i) -> new MonthRow(rs.getDate(1).toLocalDate(), rs.getString(2), rs.getLong(3), rs.getLong(4),
+                        rs.getInt(5), rs.getInt(6)),
+                accountId, Date.valueOf(fromMonth), Date.valueOf(toMonth));
+    }
+
+    // คำนวณใหม่จาก journal_postings ของบัญชีเดียว; ล็อกแถวบัญชีก่อน posting ใหม่จะรอจนเสร็จ (ต้องอยู่ใน transaction)
+    // index: ix_journal_postings_account_history
+    public int rebuild(long accountId, String zone) {
+        jdbc.queryForList("SELECT id FROM ledger_accounts WHERE id = ? FOR UPDATE", Long.class, accountId);
+        jdbc.update("DELETE FROM ledger_monthly_rollups WHERE account_id = ?", accountId);
+        return jdbc.update("""
+                INSERT INTO ledger_monthly_rollups
+                    (account_id, month, category, income_minor, expense_minor, income_count, expense_count)
+                SELECT p.account_id,
+                       date_trunc('month', p.created_at AT TIME ZONE ?)::date,
+                       e.type,
+                       COALESCE(sum(p.amount_minor) FILTER (WHERE p.amount_minor > 0), 0),
+                       COALESCE(-sum(p.amount_minor) FILTER (WHERE p.amount_minor < 0), 0),
+                       count(*) FILTER (WHERE p.amount_minor > 0),
+                       count(*) FILTER (WHERE p.amount_minor < 0)
+                FROM journal_postings p JOIN journal_entries e ON e.id = p.entry_id
+                WHERE p.account_id = ?
+                GROUP BY 1, 2, 3
+                """, zone, accountId);
+    }
+
+    public List<Long> findCustomerAccountIdsAfter(long afterId, int limit) {
+        return jdbc.queryForList(
+                "SELECT id FROM ledger_accounts WHERE type = 'CUSTOMER' AND id > ? ORDER BY id LIMIT ?",
+                Long.class, afterId, limit);
+    }
+
+    // ตารางว่างแต่มีรายการเดินบัญชีแล้ว = เพิ่งเพิ่มตาราง rollup ต้อง backfill
+    public boolean needsBackfill() {
+        return Boolean.TRUE.equals(jdbc.queryForObject("""
+                SELECT NOT EXISTS (SELECT 1 FROM ledger_monthly_rollups)
+                   AND EXISTS (SELECT 1 FROM journal_postings p
+                               JOIN ledger_accounts a ON a.id = p.account_id AND a.type = 'CUSTOMER')
+                """, Boolean.class));
+    }
+}
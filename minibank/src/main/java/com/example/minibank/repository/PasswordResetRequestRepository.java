@@ -2,9 +2,30 @@ package com.example.minibank.repository;
 
 import com.example.minibank.entity.PasswordResetRequest;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
 import java.util.Optional;
 
 public interface PasswordResetRequestRepository extends JpaRepository<PasswordResetRequest, String> {
+    // index: ux_password_reset_requests_email
     Optional<PasswordResetRequest> findByEmail(String email);
-}
\ No newline at end of file
+
+    // ลบทีละก้อน (transaction สั้น ๆ) ข้ามแถวที่ request อื่นกำลัง lock อยู่
+    // index: ix_password_reset_requests_otp_expires_at
+    @Transactional
+    @Modifying
+    @Query(value = """
+            DELETE FROM password_reset_requests WHERE id IN (
+                SELECT id FROM password_reset_requests
+                WHERE otp_expires_at < :now
+                  AND (locked_until IS NULL OR locked_until < :now)
+                  AND (window_start_at IS NULL OR window_start_at < :windowBefore)
+                LIMIT :limit
+                FOR UPDATE SKIP LOCKED
+            )
+            """, nativeQuery = true)
+    int purgeExpired(Instant now, Instant windowBefore, int limit);
+}
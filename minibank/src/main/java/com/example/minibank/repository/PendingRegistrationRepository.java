@@ -1,11 +1,40 @@
 package com.example.minibank.repository;
 
 import com.example.minibank.entity.PendingRegistration;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
 import java.util.Optional;
 
 public interface PendingRegistrationRepository extends JpaRepository<PendingRegistration, Long> {
+    // index: uk_pending_registrations_email
     Optional<PendingRegistration> findByEmail(String email);
+    // index: uk_pending_registrations_username
     Optional<PendingRegistration> findByUsername(String username);
+
+    // SELECT ... FOR UPDATE สำหรับ JpaPendingRegistrationStore.update
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT p FROM PendingRegistration p WHERE p.username = :username")
+    Optional<PendingRegistration> findForUpdateByUsername(String username);
+
+    // ลบทีละก้อน (transaction สั้น ๆ) ข้ามแถวที่ request อื่นกำลัง lock อยู่
+    // index: ix_pending_registrations_expires_at
+    @Transactional
+    @Modifying
+    @Query(value = """
+            DELETE FROM pending_registrations WHERE id IN (
+                SELECT id FROM pending_registrations
+                WHERE expires_at < :now
+                  AND (locked_until IS NULL OR locked_until < :now)
+                  AND (window_start_at IS NULL OR window_start_at < :windowBefore)
+                LIMIT :limit
+                FOR UPDATE SKIP LOCKED
+            )
+            """, nativeQuery = true)
+    int purgeExpired(Instant now, Instant windowBefore, int limit);
 }
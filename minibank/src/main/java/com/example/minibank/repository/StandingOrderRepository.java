@@ -0,0 +1,148 @@
+package com.example.minibank.repository;
+
+import com.example.minibank.entity.StandingOrder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+// SQL ของ standing_orders: อ่านตามช่วงเวลา (keyset บน ix_standing_orders_due) และ claim แบบ FOR UPDATE SKIP LOCKED
+@Repository
+public class StandingOrderRepository {
+
+    public record Due(long id, Instant nextRunAt) {}
+
+    // สถานะหลังจ่าย (หรือพยายามจ่าย) หนึ่งครั้ง
+    public record RunResult(long id, LocalDate dueDate, Instant nextRunAt, StandingOrder.Status status,
+                            int attempts, String lastStatus, Long lastEntryId, Instant lastRunAt) {}
+
+    private static final String COLUMNS = """
+            id, account_id, user_id, bill, provider, reference, amount_minor, frequency, anchor_day,
+            due_date, next_run_at, status, attempts, last_status, last_entry_id, last_run_at, created_at
+            """;
+
+    private static final RowMapper<StandingOrder> MAPPER = (rs, i) -> StandingOrder.builder()
+            .id(rs.getLong(1))
+            .accountId(rs.getLong(2))
+            .userId(rs.getLong(3))
+            .bill(rs.getString(4))
+            .provider(rs.getString(5))
+            .reference(rs.getString(6))
+            .amountMinor(rs.getLong(7))
+            .frequency(StandingOrder.Frequency.valueOf(rs.getString(8)))
+            .anchorDay(rs.getInt(9))
+            .dueDate(rs.getDate(10).toLocalDate())
+            .nextRunAt(rs.getTimestamp(11).toInstant())
+            .status(StandingOrder.Status.valueOf(rs.getString(12)))
+            .attempts(rs.getInt(13))
+            .lastStatus(rs.getString(14))
+            .lastEntryId(rs.getObject(15, Long.class))
+            .lastRunAt(rs.getTimestamp(16) == null ? null : rs.getTimestamp(16).toInstant())
+            .createdAt(rs.getTimestamp(17).toInstant())
+            .build();
+
+    private final JdbcTemplate jdbc;
+
+    public StandingOrderRepository(JdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    public long insert(StandingOrder o) {
+        return jdbc.queryForObject("""
+                INSERT INTO standing_orders (account_id, user_id, bill, provider, reference, amount_minor, frequency,
+                                             anchor_day, due_date, next_run_at, status, attempts, created_at)
+                VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, 0, ?)
+                RETURNING id
+                """, Long.class, o.getAccountId(), o.getUserId(), o.getBill(), o.getProvider(), o.getReference(),
+                o.getAmountMinor(), o.getFrequency().name(), o.getAnchorDay(), Date.valueOf(o.getDueDate()),
+                Timestamp.from(o.getNextRunAt()), o.getStatus().name(), Timestamp.from(o.getCreatedAt()));
+    }
+
+    // index: ix_standing_orders_user
+    public List<StandingOrder> findByUser(long userId, int limit) {
+        return jdbc.query("SELECT " + COLUMNS + " FROM standing_orders WHERE user_id = ? ORDER BY id DESC LIMIT ?",
+                MAPPER, userId, limit);
+    }
+
+    public int countActiveByUser(long userId) {
+        Integer n = jdbc.queryForObject(
+                "SELECT count(*) FROM standing_orders WHERE user_id = ? AND status IN ('ACTIVE', 'RUNNING')",
+                Integer.class, userId);
+        return n == null ? 0 : n;
+    }
+
+    // ยกเลิกได้เฉพาะรายการของตัวเองที่ยัง ACTIVE (RUNNING = กำลังตัดเงินอยู่)
+    public boolean cancel(long id, long userId) {
+        return jdbc.update("UPDATE standing_orders SET status = 'CANCELLED' WHERE id = ? AND user_id = ? AND status = 'ACTIVE'",
+                id, userId) == 1;
+    }
+
+    // รายการ ACTIVE ที่ next_run_at < before เรียงตาม (next_run_at, id) ต่อจาก (afterAt, afterId)
+    // เฉพาะแถวที่ id % partitions = partition (แบ่งกันโหลดระหว่าง instance; partitions = 1 = ทุกแถว)
+    // index: ix_standing_orders_due (อ่านเฉพาะช่วงที่ขอ id อยู่ใน index จึงกรอง partition ได้โดยไม่อ่านแถว)
+    public List<Due> findDue(Instant afterAt, long afterId, Instant before, int limit, int partitions, int partition) {
+        return jdbc.query("""
+                SELECT id, next_run_at FROM standing_orders
+                WHERE status = 'ACTIVE' AND (next_run_at, id) > (?, ?) AND next_run_at < ? AND id % ? = ?
+                ORDER BY next_run_at, id
+                LIMIT ?
+                """, (rs, i) -> new Due(rs.getLong(1), rs.getTimestamp(2).toInstant()),
+                Timestamp.from(afterAt), afterId, Timestamp.from(before), partitions, partition, limit);
+    }
+
+    // ต้องเรียกใน transaction; ตรวจซ้ำว่ายังถึงกำหนด (รายการใน timing wheel อาจเก่าแล้ว) และข้ามแถวที่ node อื่นถืออยู่
+    public List<StandingOrder> lockDue(Collection<Long> ids, Instant now) {
+        if (ids.isEmpty()) return List.of();
+        return jdbc.query(con -> {
+            PreparedStatement ps = con.prepareStatement("SELECT " + COLUMNS + """
+                     FROM standing_orders
+                    WHERE id = ANY (?) AND status = 'ACTIVE' AND next_run_at <= ?
+                    ORDER BY id
+                    FOR UPDATE SKIP LOCKED
+                    """);
+            ps.setArray(1, con.createArrayOf("bigint", ids.toArray()));
+            ps.setTimestamp(2, Timestamp.from(now));
+            return ps;
+        }, MAPPER);
+    }
+
+    public void markRunning(Collection<Long> ids) {
+        if (ids.isEmpty()) return;
+        jdbc.update(con -> {
+            PreparedStatement ps = con.prepareStatement("UPDATE standing_orders SET status = 'RUNNING' WHERE id = ANY (?)");
+            ps.setArray(1, con.createArrayOf("bigint", ids.toArray()));
+            return ps;
+        });
+    }
+
+    public void saveResults(List<RunResult> results) {
+        jdbc.batchUpdate("""
+                UPDATE standing_orders
+                SET due_date = ?, next_run_at = ?, status = ?, attempts = ?, last_status = ?, last_entry_id = ?, last_run_at = ?
+                WHERE id = ?
+                """, results, results.size(), (ps, r) -> {
+            ps.setDate(1, Date.valueOf(r.dueDate()));
+            ps.setTimestamp(2, Timestamp.from(r.nextRunAt()));
+            ps.setString(3, r.status().name());
+            ps.setInt(4, r.attempts());
+            ps.setString(5, r.lastStatus());
+            ps.setObject(6, r.lastEntryId(), Types.BIGINT);
+            ps.setTimestamp(7, Timestamp.from(r.lastRunAt()));
+            ps.setLong(8, r.id());
+        });
+    }
+
+    // index: ix_standing_orders_running
+    public long countRunning() {
+        Long n = jdbc.queryForObject("SELECT count(*) FROM standing_orders WHERE status = 'RUNNING'", Long.class);
+        return n == null ? 0 : n;
+    }
+}
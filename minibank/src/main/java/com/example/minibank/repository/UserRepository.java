@@ -1,14 +1,64 @@
 package com.example.minibank.repository;
 
+import com.example.minibank.dto.UserKeyView;
+import com.example.minibank.dto.UserListView;
+import com.example.minibank.dto.UserResponse;
 import com.example.minibank.entity.User;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface UserRepository extends JpaRepository<User, Long> {
+    // index: uk_users_username
     Optional<User> findByUsername(String username);
+    // index: uk_users_username
     boolean existsByUsername(String username);
 
+    // index: ux_users_email_lower (email ไม่สนตัวพิมพ์)
+    @Query("select u from User u where lower(u.email) = lower(:email)")
     Optional<User> findByEmail(String email);
+    // index: ux_users_email_lower
+    @Query("select case when count(u) > 0 then true else false end from User u where lower(u.email) = lower(:email)")
     boolean existsByEmail(String email);
+
+    // เปลี่ยน hash เฉพาะเมื่อยังเป็นค่าเดิม: ถ้าเปลี่ยนรหัสผ่านไปก่อนแล้วได้ 0 แถว (ไม่เขียนทับ hash ใหม่)
+    // index: users_pkey
+    @Transactional
+    @Modifying
+    @Query("update User u set u.passwordHash = :newHash where u.id = :id and u.passwordHash = :oldHash")
+    int replacePasswordHash(Long id, String oldHash, String newHash);
+
+    // ไม่มี index (NOT LIKE ต้อง scan ทั้งตาราง) เรียกจาก PasswordHashAuditJob ชั่วโมงละครั้ง
+    long countByPasswordHashNotLike(String pattern);
+
+    // keyset pagination: ไล่ตาม primary key ไม่ใช้ OFFSET และไม่โหลด entity (ไม่มี passwordHash)
+    // index: users_pkey
+    @Query("select new com.example.minibank.dto.UserResponse(u.id, u.username, u.fullName) "
+            + "from User u where u.id > :afterId order by u.id")
+    List<UserResponse> findPageAfter(long afterId, Limit limit);
+
+    // keyset ตาม (username, id) ต่อจาก (afterUsername, afterId): prefix ที่มีผู้ใช้น้อยก็อ่านแค่ช่วงของ prefix นั้น
+    // index: ix_users_username_c (เรียงแบบ COLLATE "C" ทั้ง LIKE, row comparison และ ORDER BY)
+    @Query(value = """
+            SELECT u.id AS "id", u.username AS "username", u.full_name AS "fullName"
+            FROM users u
+            WHERE u.username COLLATE "C" LIKE :pattern ESCAPE '\\'
+              AND (u.username COLLATE "C", u.id) > (:afterUsername, :afterId)
+            ORDER BY u.username COLLATE "C", u.id
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<UserListView> findPageByUsernamePrefix(String pattern, String afterUsername, long afterId, int limit);
+
+    // ไม่มี index (อ่านทั้งตารางตอน rebuild UserExistenceIndex)
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "1000"))
+    @Query("select u.username as username, u.email as email from User u")
+    Stream<UserKeyView> streamAllKeys();
 }
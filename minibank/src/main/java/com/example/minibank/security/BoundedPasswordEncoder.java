@@ -0,0 +1,158 @@
+package com.example.minibank.security;
+
+import com.example.minibank.exception.ServiceBusyException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// ย้ายงาน hash รหัสผ่าน (CPU หนัก) ออกจาก request thread ไปรันใน pool ที่จำกัดขนาด
+// รับงานเฉพาะเมื่อคาดว่าจะเสร็จภายใน max-wait (นับงานที่ค้างอยู่ x เวลา hash เฉลี่ย) ไม่งั้น ServiceBusyException (503 + Retry-After)
+// ตัดสินก่อน submit: BCrypt ไม่สนใจ interrupt ถ้ารับแล้วค่อย timeout งานจะยังกิน CPU ต่อทั้งที่ตอบ 503 ไปแล้ว
+public class BoundedPasswordEncoder implements PasswordEncoder {
+
+    private static final String BUSY_MESSAGE = "ระบบกำลังประมวลผลคำขอจำนวนมาก กรุณาลองใหม่อีกครั้ง";
+
+    private final PasswordEncoder delegate;
+    private final ThreadPoolExecutor executor;
+    private final int threads;
+    private final int maxInFlight;
+    private final long maxWaitNanos;
+    private final long retryAfterSeconds;
+
+    // งานที่รับแล้วและยังไม่เสร็จ (รอคิว + กำลัง hash)
+    private final AtomicInteger inFlight = new AtomicInteger();
+    // เวลา hash เฉลี่ย (EWMA, ns); 0 = ยังไม่มีข้อมูล
+    private final AtomicLong avgHashNanos = new AtomicLong();
+
+    private final Timer queueWait;
+    private final Timer encodeTime;
+    private final Timer matchesTime;
+    private final Counter rejected;
+
+    public BoundedPasswordEncoder(
+            PasswordEncoder delegate,
+            int threads,
+            int queueCapacity,
+            Duration maxWait,
+            long retryAfterSeconds,
+            MeterRegistry meterRegistry
+    ) {
+        this.delegate = delegate;
+        this.threads = threads;
+        this.maxInFlight = threads + queueCapacity;
+        this.maxWaitNanos = maxWait.toNanos();
+        this.retryAfterSeconds = retryAfterSeconds;
+
+        AtomicInteger seq = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(
+                threads, threads,
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                r -> {
+                    Thread t = new Thread(r, "pw-hash-" + seq.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy()
+        );
+
+        this.queueWait = Timer.builder("minibank.password.hash.queue-wait").register(meterRegistry);
+        this.encodeTime = Timer.builder("minibank.password.hash.time").tag("op", "encode").register(meterRegistry);
+        this.matchesTime = Timer.builder("minibank.password.hash.time").tag("op", "matches").register(meterRegistry);
+        this.rejected = Counter.builder("minibank.password.hash.rejected").register(meterRegistry);
+        Gauge.builder("minibank.password.hash.queue-depth", executor, e -> e.getQueue().size()).register(meterRegistry);
+        Gauge.builder("minibank.password.hash.active", executor, ThreadPoolExecutor::getActiveCount).register(meterRegistry);
+        Gauge.builder("minibank.password.hash.in-flight", inFlight, AtomicInteger::get).register(meterRegistry);
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return run(encodeTime, () -> delegate.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return run(matchesTime, () -> delegate.matches(rawPassword, encodedPassword));
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private <T> T run(Timer hashTime, Callable<T> task) {
+        if (!admit()) {
+            rejected.increment();
+            throw new ServiceBusyException(BUSY_MESSAGE, retryAfterSeconds);
+        }
+        long submittedAt = System.nanoTime();
+
+        Future<T> future;
+        try {
+            future = executor.submit(() -> {
+                long startedAt = System.nanoTime();
+                queueWait.record(startedAt - submittedAt, TimeUnit.NANOSECONDS);
+                try {
+                    return task.call();
+                } finally {
+                    long took = System.nanoTime() - startedAt;
+                    hashTime.record(took, TimeUnit.NANOSECONDS);
+                    recordHashTime(took);
+                    inFlight.decrementAndGet();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            inFlight.decrementAndGet();
+            rejected.increment();
+            throw new ServiceBusyException(BUSY_MESSAGE, retryAfterSeconds);
+        }
+
+        // รับแล้ว = รอจนเสร็จ (ประเมินแล้วว่าไม่เกิน max-wait) ไม่ทิ้งงานที่ CPU จ่ายไปแล้ว
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceBusyException(BUSY_MESSAGE, retryAfterSeconds);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException re) throw re;
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private boolean admit() {
+        while (true) {
+            int n = inFlight.get();
+            if (n >= limit()) return false;
+            if (inFlight.compareAndSet(n, n + 1)) return true;
+        }
+    }
+
+    // งานที่ n จะเริ่มหลังงานก่อนหน้า n / threads รอบ: รับได้ถ้า (n / threads + 1) x เวลาเฉลี่ย <= max-wait
+    private int limit() {
+        long avg = avgHashNanos.get();
+        if (avg == 0) return maxInFlight;
+        long byWait = threads * Math.max(1, maxWaitNanos / avg);
+        return (int) Math.min(maxInFlight, byWait);
+    }
+
+    private void recordHashTime(long nanos) {
+        avgHashNanos.getAndUpdate(avg -> avg == 0 ? nanos : avg + (nanos - avg) / 8);
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.minibank.security;
+
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+// อ่าน body เก็บไว้ก่อน ให้ filter ดูได้และ controller ยังอ่านซ้ำได้
+// อ่านไม่เกิน maxBytes: ใหญ่กว่านั้น = TooLargeException (filter ตอบ 413) ไม่โหลดทั้งก้อนเข้าหน่วยความจำ
+class CachedBodyRequest extends HttpServletRequestWrapper {
+
+    static final String TOO_LARGE = "{\"message\":\"ข้อมูลที่ส่งมีขนาดใหญ่เกินไป\"}";
+
+    static class TooLargeException extends IOException {
+        TooLargeException(long maxBytes) {
+            super("Request body exceeds " + maxBytes + " bytes");
+        }
+    }
+
+    private final byte[] body;
+
+    CachedBodyRequest(HttpServletRequest request, int maxBytes) throws IOException {
+        super(request);
+        if (request.getContentLengthLong() > maxBytes) throw new TooLargeException(maxBytes);
+        byte[] read = request.getInputStream().readNBytes(maxBytes + 1);
+        if (read.length > maxBytes) throw new TooLargeException(maxBytes);
+        this.body = read;
+    }
+
+    byte[] body() {
+        return body;
+    }
+
+    @Override
+    public ServletInputStream getInputStream() {
+        ByteArrayInputStream in = new ByteArrayInputStream(body);
+        return new ServletInputStream() {
+            @Override
+            public boolean isFinished() {
+                return in.available() == 0;
+            }
+
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setReadListener(ReadListener listener) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public int read() {
+                return in.read();
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) {
+                return in.read(b, off, len);
+            }
+        };
+    }
+
+    @Override
+    public BufferedReader getReader() {
+        String enc = getCharacterEncoding();
+        return new BufferedReader(new InputStreamReader(
+                getInputStream(),
+                enc == null ? StandardCharsets.UTF_8 : Charset.forName(enc)
+        ));
+    }
+}
@@ -0,0 +1,175 @@
+package com.example.minibank.security;
+
+import com.example.minibank.service.IdempotencyService;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+
+// POST ที่มี header Idempotency-Key: ครั้งแรกทำงานจริงแล้วเก็บคำตอบ, ครั้งถัดไปด้วยคีย์เดิมได้คำตอบเดิมโดยไม่ทำซ้ำ
+// อยู่หลัง AuthorizationFilter: คำขอที่ไม่ผ่านสิทธิ์ไม่จองคีย์ และ scope ผูกกับ username ได้
+// แต่ละ path มี IdempotencyService.Mode ของตัวเอง (TRANSACTIONAL = ทำงานและเก็บคำตอบใน transaction เดียวกัน)
+public class IdempotencyFilter extends OncePerRequestFilter {
+
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final int MAX_KEY_LENGTH = 128;
+
+    private static final String INVALID_KEY = "{\"message\":\"Idempotency-Key ไม่ถูกต้อง\"}";
+    private static final String MISMATCH = "{\"message\":\"Idempotency-Key นี้ถูกใช้กับคำขออื่นแล้ว\"}";
+    // code แยกจาก 409 อื่น (username ซ้ำ ฯลฯ): client ลองใหม่ด้วยคีย์เดิมเฉพาะกรณีนี้
+    public static final String IN_PROGRESS_CODE = "IDEMPOTENCY_IN_PROGRESS";
+    private static final String IN_PROGRESS = "{\"code\":\"" + IN_PROGRESS_CODE
+            + "\",\"message\":\"คำขอเดียวกันกำลังดำเนินการ กรุณาลองใหม่อีกครั้ง\"}";
+
+    private final IdempotencyService idempotencyService;
+    private final Map<String, IdempotencyService.Mode> paths;
+    private final int maxRequestBytes;
+
+    public IdempotencyFilter(IdempotencyService idempotencyService, Map<String, IdempotencyService.Mode> paths,
+                             int maxRequestBytes) {
+        this.idempotencyService = idempotencyService;
+        this.paths = paths;
+        this.maxRequestBytes = maxRequestBytes;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !"POST".equals(request.getMethod())
+                || !paths.containsKey(request.getServletPath())
+                || request.getHeader(HEADER) == null;
+    }
+
+    @Override
+    protected void doFilterInternal(
+            HttpServletRequest request,
+            HttpServletResponse response,
+            FilterChain filterChain
+    ) throws ServletException, IOException {
+
+        String key = request.getHeader(HEADER).trim();
+        if (!validKey(key)) {
+            writeJson(response, 400, INVALID_KEY);
+            return;
+        }
+
+        CachedBodyRequest cached;
+        try {
+            cached = new CachedBodyRequest(request, maxRequestBytes);
+        } catch (CachedBodyRequest.TooLargeException e) {
+            writeJson(response, 413, CachedBodyRequest.TOO_LARGE);
+            return;
+        }
+        String scope = scope(request);
+        String requestHash = hash(request, cached.body());
+        IdempotencyService.Mode mode = paths.get(request.getServletPath());
+        IdempotencyService.Decision decision = idempotencyService.begin(scope, key, requestHash, mode);
+
+        switch (decision.outcome()) {
+            case REPLAY -> {
+                IdempotencyService.Response stored = decision.response();
+                response.setStatus(stored.status());
+                response.setHeader(REPLAYED_HEADER, "true");
+                if (stored.contentType() != null) response.setContentType(stored.contentType());
+                if (stored.body() != null) response.getOutputStream().write(stored.body());
+                return;
+            }
+            case MISMATCH -> {
+                writeJson(response, 422, MISMATCH);
+                return;
+            }
+            case IN_PROGRESS -> {
+                response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+                writeJson(response, 409, IN_PROGRESS);
+                return;
+            }
+            case EXECUTE -> { }
+        }
+
+        ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+        if (mode == IdempotencyService.Mode.TRANSACTIONAL) {
+            executeInTransaction(scope, key, requestHash, cached, wrapper, filterChain);
+        } else {
+            boolean completed = false;
+            try {
+                filterChain.doFilter(cached, wrapper);
+                idempotencyService.complete(scope, key, mode, captured(wrapper));
+                completed = true;
+            } finally {
+                if (!completed) idempotencyService.fail(scope, key, mode);
+            }
+        }
+        // ส่งคำตอบหลัง commit เท่านั้น: commit ล้ม client ได้ error ไม่ใช่คำตอบของรายการที่ไม่มีอยู่จริง
+        wrapper.copyBodyToResponse();
+    }
+
+    private void executeInTransaction(String scope, String key, String requestHash, CachedBodyRequest cached,
+                                      ContentCachingResponseWrapper wrapper, FilterChain filterChain)
+            throws ServletException, IOException {
+        try {
+            idempotencyService.executeInTransaction(scope, key, requestHash, () -> {
+                filterChain.doFilter(cached, wrapper);
+                return captured(wrapper);
+            });
+        } catch (ServletException | IOException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new ServletException(e);
+        }
+    }
+
+    private static IdempotencyService.Response captured(ContentCachingResponseWrapper wrapper) {
+        return new IdempotencyService.Response(wrapper.getStatus(), wrapper.getContentType(), wrapper.getContentAsByteArray());
+    }
+
+    // ไม่ได้ login: แยกตาม IP (แบบเดียวกับ RateLimitFilter) ไม่ให้ client คนละรายใช้คีย์ชนกันแล้วได้คำตอบของกันและกัน
+    private static String scope(HttpServletRequest request) {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        String caller = auth == null || !auth.isAuthenticated() || auth instanceof AnonymousAuthenticationToken
+                ? "anon:" + request.getRemoteAddr()
+                : "user:" + auth.getName();
+        return caller + " " + request.getServletPath();
+    }
+
+    // คีย์เดิมแต่ body ต่างกัน = client ใช้คีย์ผิด ไม่ใช่การ retry
+    private static String hash(HttpServletRequest request, byte[] body) {
+        try {
+            MessageDigest sha = MessageDigest.getInstance("SHA-256");
+            sha.update((request.getMethod() + " " + request.getServletPath() + "\n").getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(sha.digest(body));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static boolean validKey(String key) {
+        if (key.isEmpty() || key.length() > MAX_KEY_LENGTH) return false;
+        for (int i = 0; i < key.length(); i++) {
+            char c = key.charAt(i);
+            if (c < 0x21 || c > 0x7e) return false;
+        }
+        return true;
+    }
+
+    private static void writeJson(HttpServletResponse response, int status, String json) throws IOException {
+        response.setStatus(status);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.getOutputStream().write(json.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -1,7 +1,6 @@
 package com.example.minibank.security;
 
 import io.jsonwebtoken.Claims;
-import io.jsonwebtoken.Jws;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -21,9 +20,11 @@ import java.util.List;
 public class JwtAuthFilter extends OncePerRequestFilter {
 
     private final JwtUtil jwtUtil;
+    private final JwtTokenCache tokenCache;
 
-    public JwtAuthFilter(JwtUtil jwtUtil) {
+    public JwtAuthFilter(JwtUtil jwtUtil, JwtTokenCache tokenCache) {
         this.jwtUtil = jwtUtil;
+        this.tokenCache = tokenCache;
     }
 
     @Override
@@ -44,11 +45,20 @@ public class JwtAuthFilter extends OncePerRequestFilter {
             String token = auth.substring(7);
 
             try {
-                Jws<Claims> parsed = jwtUtil.parse(token);
-                Claims claims = parsed.getBody();
+                JwtTokenCache.Entry verified = tokenCache.get(token);
 
-                String username = claims.getSubject();
-                String role = claims.get("role", String.class);
+                if (verified == null) {
+                    Claims claims = jwtUtil.parse(token).getBody();
+                    verified = tokenCache.put(
+                            token,
+                            claims.getSubject(),
+                            claims.get("role", String.class),
+                            claims.getExpiration()
+                    );
+                }
+
+                String username = verified.username();
+                String role = verified.role();
 
                 var authorities = List.of(new SimpleGrantedAuthority("ROLE_" + role));
                 var authentication = new UsernamePasswordAuthenticationToken(username, null, authorities);
@@ -0,0 +1,93 @@
+package com.example.minibank.security;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// เก็บผล verify ของ token ที่ผ่านแล้ว (key = SHA-256 ของ token) จนถึงเวลา exp
+@Component
+public class JwtTokenCache {
+
+    public record Entry(String username, String role, long expiresAtMillis) {}
+
+    // cache เต็ม: ไล่ตัวหมดอายุจาก put ได้ไม่เกินวินาทีละครั้ง (ที่เหลือรอ sweep ตามรอบ)
+    private static final long FULL_SWEEP_INTERVAL_MS = 1_000;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final int maxEntries;
+    private final AtomicLong nextFullSweepAt = new AtomicLong();
+
+    private final Counter hits;
+    private final Counter misses;
+
+    public JwtTokenCache(
+            @Value("${app.jwt.cache.max-entries:10000}") int maxEntries,
+            MeterRegistry meterRegistry
+    ) {
+        this.maxEntries = maxEntries;
+        this.hits = Counter.builder("minibank.jwt.cache.requests").tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("minibank.jwt.cache.requests").tag("result", "miss").register(meterRegistry);
+        Gauge.builder("minibank.jwt.cache.size", entries, Map::size).register(meterRegistry);
+    }
+
+    public Entry get(String token) {
+        String key = digest(token);
+        Entry entry = entries.get(key);
+
+        if (entry != null) {
+            if (entry.expiresAtMillis() > System.currentTimeMillis()) {
+                hits.increment();
+                return entry;
+            }
+            entries.remove(key, entry);
+        }
+
+        misses.increment();
+        return null;
+    }
+
+    public Entry put(String token, String username, String role, Date expiration) {
+        Entry entry = new Entry(username, role, expiration == null ? 0L : expiration.getTime());
+
+        // ไม่มี exp = ไม่ cache (ต้อง verify ใหม่ทุกครั้ง)
+        if (expiration == null) return entry;
+
+        if (entries.size() >= maxEntries) {
+            // token ใหม่จำนวนมากพร้อมกันไม่ต้อง scan ทั้ง map ทุกคำขอ: thread เดียวที่ได้ CAS เป็นคน sweep
+            long now = System.currentTimeMillis();
+            long next = nextFullSweepAt.get();
+            if (now >= next && nextFullSweepAt.compareAndSet(next, now + FULL_SWEEP_INTERVAL_MS)) evictExpired();
+            if (entries.size() >= maxEntries) return entry;
+        }
+
+        entries.put(digest(token), entry);
+        return entry;
+    }
+
+    @Scheduled(fixedDelayString = "${app.jwt.cache.sweep-ms:60000}")
+    public void evictExpired() {
+        long now = System.currentTimeMillis();
+        entries.values().removeIf(e -> e.expiresAtMillis() <= now);
+    }
+
+    private static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().withoutPadding().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
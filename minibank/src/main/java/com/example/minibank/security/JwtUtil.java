@@ -13,6 +13,7 @@ import java.util.Date;
 public class JwtUtil {
 
     private final Key key;
+    private final JwtParser parser;
     private final long expMillis;
 
     public JwtUtil(
@@ -20,6 +21,9 @@ public class JwtUtil {
             @Value("${app.jwt.exp-minutes}") long expMinutes
     ) {
         this.key = Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+        this.parser = Jwts.parserBuilder()
+                .setSigningKey(key)
+                .build();
         this.expMillis = expMinutes * 60_000L;
     }
 
@@ -37,9 +41,6 @@ public class JwtUtil {
     }
 
     public Jws<Claims> parse(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(key)
-                .build()
-                .parseClaimsJws(token);
+        return parser.parseClaimsJws(token);
     }
 }
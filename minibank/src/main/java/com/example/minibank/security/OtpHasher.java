@@ -0,0 +1,71 @@
+package com.example.minibank.security;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Base64;
+
+// hash OTP 6 หลักด้วย HMAC-SHA256 + pepper ฝั่ง server (แทน BCrypt)
+// รูปแบบที่เก็บ: "h1$" + base64url(HMAC(pepper, purpose:subject:otp))
+// hash เก่าที่เป็น BCrypt ยัง verify ได้จนกว่าจะหมดอายุ
+@Component
+public class OtpHasher {
+
+    private static final String V1_PREFIX = "h1$";
+    private static final String ALGORITHM = "HmacSHA256";
+
+    private final SecretKeySpec pepper;
+    private final PasswordEncoder legacyEncoder;
+
+    private final ThreadLocal<Mac> mac = ThreadLocal.withInitial(this::newMac);
+
+    public OtpHasher(
+            @Value("${app.otp.pepper}") String pepper,
+            PasswordEncoder passwordEncoder
+    ) {
+        this.pepper = new SecretKeySpec(pepper.getBytes(StandardCharsets.UTF_8), ALGORITHM);
+        this.legacyEncoder = passwordEncoder;
+    }
+
+    public String hash(String purpose, String subject, String otp) {
+        return V1_PREFIX + Base64.getUrlEncoder().withoutPadding().encodeToString(mac(purpose, subject, otp));
+    }
+
+    public boolean matches(String purpose, String subject, String otp, String storedHash) {
+        if (storedHash == null || otp == null) return false;
+
+        if (storedHash.startsWith(V1_PREFIX)) {
+            byte[] expected;
+            try {
+                expected = Base64.getUrlDecoder().decode(storedHash.substring(V1_PREFIX.length()));
+            } catch (IllegalArgumentException e) {
+                return false;
+            }
+            return MessageDigest.isEqual(expected, mac(purpose, subject, otp));
+        }
+
+        // แถวเก่าที่ยังเป็น BCrypt
+        return legacyEncoder.matches(otp, storedHash);
+    }
+
+    private byte[] mac(String purpose, String subject, String otp) {
+        String message = purpose + ":" + subject + ":" + otp;
+        return mac.get().doFinal(message.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private Mac newMac() {
+        try {
+            Mac m = Mac.getInstance(ALGORITHM);
+            m.init(pepper);
+            return m;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.minibank.security;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+
+// cost ของ BCrypt มาจาก config (app.password.strength) เท่านั้น ทุก replica ต้องได้ค่าเดียวกัน
+// ไม่งั้น login บนแต่ละเครื่องจะ rehash กลับไปกลับมา; ตอน startup วัดเวลาแล้ว log ค่าที่แนะนำสำหรับ target-ms ไว้ปรับ config
+@Slf4j
+@Component
+public class PasswordHashingPolicy {
+
+    public static final String ENCODING_ID = "bcrypt";
+
+    private static final int MIN_STRENGTH = 10;
+    private static final int MAX_STRENGTH = 16;
+    private static final int SAMPLES = 3;
+
+    private final int strength;
+
+    public PasswordHashingPolicy(
+            @Value("${app.password.strength:12}") int strength,
+            @Value("${app.password.target-ms:250}") long targetMs,
+            @Value("${app.password.calibrate:true}") boolean calibrate
+    ) {
+        if (strength < MIN_STRENGTH || strength > MAX_STRENGTH) {
+            throw new IllegalArgumentException("app.password.strength must be between " + MIN_STRENGTH + " and " + MAX_STRENGTH);
+        }
+        this.strength = strength;
+
+        if (!calibrate) {
+            log.info("Password hashing: bcrypt cost {}", strength);
+            return;
+        }
+        long baseMs = measureMillis(MIN_STRENGTH);
+        int suggested = pickStrength(baseMs, targetMs);
+        if (suggested == strength) {
+            log.info("Password hashing: bcrypt cost {} (cost {} took {} ms, budget {} ms)",
+                    strength, MIN_STRENGTH, baseMs, targetMs);
+        } else {
+            log.warn("Password hashing: bcrypt cost {} from config, but cost {} fits the {} ms budget on this machine "
+                    + "(cost {} took {} ms); change app.password.strength on every replica together",
+                    strength, suggested, targetMs, MIN_STRENGTH, baseMs);
+        }
+    }
+
+    public int getStrength() {
+        return strength;
+    }
+
+    // prefix ของ hash ที่ใช้ parameter ปัจจุบัน เช่น {bcrypt}$2a$12$
+    public String currentHashPrefix() {
+        return "{" + ENCODING_ID + "}$2a$" + String.format("%02d", strength) + "$";
+    }
+
+    // cost +1 = เวลาเพิ่มเป็น 2 เท่า จึงวัดแค่ cost ต่ำสุดแล้วประมาณค่าที่เหลือ
+    static int pickStrength(long baseMs, long targetMs) {
+        int s = MIN_STRENGTH;
+        long estimate = Math.max(baseMs, 1);
+        while (s < MAX_STRENGTH && estimate * 2 <= targetMs) {
+            s++;
+            estimate *= 2;
+        }
+        return s;
+    }
+
+    private static long measureMillis(int strength) {
+        BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(strength);
+        encoder.encode("warm-up");
+
+        long[] samples = new long[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            long start = System.nanoTime();
+            encoder.encode("calibration-" + i);
+            samples[i] = (System.nanoTime() - start) / 1_000_000L;
+        }
+        Arrays.sort(samples);
+        return samples[SAMPLES / 2];
+    }
+}
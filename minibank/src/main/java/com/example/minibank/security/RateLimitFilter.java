@@ -0,0 +1,138 @@
+package com.example.minibank.security;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+import tools.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+// จำกัดอัตราคำขอ POST /auth/** ก่อนถึง AuthController (ก่อน BCrypt และ DB)
+// key เป็น IP หรือ username/email จาก JSON body ตาม policy ของแต่ละ endpoint
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private static final String TOO_MANY = "{\"message\":\"ส่งคำขอบ่อยเกินไป กรุณารอสักครู่แล้วลองใหม่\"}";
+
+    private final RateLimiter rateLimiter;
+    private final ObjectMapper objectMapper;
+    private final Map<String, List<RateLimitPolicy>> policiesByPath;
+    private final int maxBodyBytes;
+    private final MeterRegistry meterRegistry;
+
+    public RateLimitFilter(
+            RateLimiter rateLimiter,
+            ObjectMapper objectMapper,
+            List<RateLimitPolicy> policies,
+            int maxBodyBytes,
+            MeterRegistry meterRegistry
+    ) {
+        this.rateLimiter = rateLimiter;
+        this.objectMapper = objectMapper;
+        this.policiesByPath = policies.stream().collect(Collectors.groupingBy(RateLimitPolicy::path));
+        this.maxBodyBytes = maxBodyBytes;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !"POST".equals(request.getMethod())
+                || !policiesByPath.containsKey(request.getServletPath());
+    }
+
+    @Override
+    protected void doFilterInternal(
+            HttpServletRequest request,
+            HttpServletResponse response,
+            FilterChain filterChain
+    ) throws ServletException, IOException {
+
+        List<RateLimitPolicy> policies = policiesByPath.get(request.getServletPath());
+
+        // IP ก่อน: ถูกปฏิเสธแล้วไม่ต้องอ่าน body และไม่ใช้ token ของ username/email
+        long waitNanos = acquire(policies, true, request, null);
+
+        HttpServletRequest req = request;
+        if (waitNanos == 0 && policies.stream().anyMatch(p -> p.keyType() != RateLimitPolicy.KeyType.IP)) {
+            CachedBodyRequest cached;
+            try {
+                cached = new CachedBodyRequest(request, maxBodyBytes);
+            } catch (CachedBodyRequest.TooLargeException e) {
+                writeJson(response, 413, CachedBodyRequest.TOO_LARGE);
+                return;
+            }
+            req = cached;
+            waitNanos = acquire(policies, false, request, readJson(cached.body()));
+        }
+
+        if (waitNanos > 0) {
+            long retryAfter = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + 999_999_999L));
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfter));
+            writeJson(response, 429, TOO_MANY);
+            return;
+        }
+
+        filterChain.doFilter(req, response);
+    }
+
+    // policy ที่ key เป็น IP (ip = true) หรือจาก body (ip = false); คืนเวลารอที่มากที่สุด (0 = ผ่านทั้งหมด)
+    private long acquire(List<RateLimitPolicy> policies, boolean ip, HttpServletRequest request, Map<?, ?> body) {
+        long waitNanos = 0;
+        for (RateLimitPolicy policy : policies) {
+            if ((policy.keyType() == RateLimitPolicy.KeyType.IP) != ip) continue;
+            String key = keyFor(policy, request, body);
+            if (key == null) continue;
+
+            long wait = rateLimiter.tryAcquire(policy, key);
+            if (wait > 0) {
+                Counter.builder("minibank.ratelimit.rejected").tag("policy", policy.id())
+                        .register(meterRegistry).increment();
+                waitNanos = Math.max(waitNanos, wait);
+            }
+        }
+        return waitNanos;
+    }
+
+    private String keyFor(RateLimitPolicy policy, HttpServletRequest request, Map<?, ?> body) {
+        return switch (policy.keyType()) {
+            case IP -> request.getRemoteAddr();
+            case USERNAME -> field(body, "username", false);
+            case EMAIL -> field(body, "email", true);
+        };
+    }
+
+    private static String field(Map<?, ?> body, String name, boolean lowerCase) {
+        if (body == null || !(body.get(name) instanceof String s)) return null;
+        String v = s.trim();
+        if (v.isEmpty()) return null;
+        return lowerCase ? v.toLowerCase(Locale.ROOT) : v;
+    }
+
+    private static void writeJson(HttpServletResponse response, int status, String json) throws IOException {
+        response.setStatus(status);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.getOutputStream().write(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private Map<?, ?> readJson(byte[] bytes) {
+        if (bytes.length == 0) return null;
+        try {
+            return objectMapper.readValue(bytes, Map.class);
+        } catch (RuntimeException e) {
+            // body เสีย ปล่อยให้ controller ตอบ error เอง (ยังโดนจำกัดด้วย IP)
+            return null;
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.minibank.security;
+
+import java.time.Duration;
+
+// นโยบายจำกัดอัตราต่อ endpoint: อนุญาต limit ครั้งต่อ period ต่อ key (IP / username / email)
+public record RateLimitPolicy(String path, KeyType keyType, int limit, Duration period) {
+
+    public enum KeyType { IP, USERNAME, EMAIL }
+
+    public static RateLimitPolicy perIp(String path, int limit, Duration period) {
+        return new RateLimitPolicy(path, KeyType.IP, limit, period);
+    }
+
+    public static RateLimitPolicy perUsername(String path, int limit, Duration period) {
+        return new RateLimitPolicy(path, KeyType.USERNAME, limit, period);
+    }
+
+    public static RateLimitPolicy perEmail(String path, int limit, Duration period) {
+        return new RateLimitPolicy(path, KeyType.EMAIL, limit, period);
+    }
+
+    public String id() {
+        return path + "#" + keyType.name().toLowerCase();
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.minibank.security;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+// token bucket แบบ GCRA: state ต่อ key มีค่าเดียว (theoretical arrival time) อัปเดตด้วย CAS
+// key แยกตาม policy และแต่ละ policy จำกัดจำนวน key ของตัวเอง: client ที่หมุน username/email ไม่กระทบ key ของ IP
+// เต็มแล้วไล่ key ที่ไม่ได้ใช้นานที่สุดออก (LRU) ไม่ปล่อยผ่านทุกคำขอ
+// key ที่ bucket เต็มแล้ว (tat <= now) เทียบเท่ากับ key ใหม่ จึงลบทิ้งได้ตอน sweep
+@Component
+public class RateLimiter {
+
+    // LRU ต่อ policy แบ่งเป็นหลายส่วน lock ละส่วน ให้คำขอพร้อมกันไม่แย่ง lock เดียว
+    private static final int STRIPES = 16;
+
+    private final Map<String, Stripe[]> byPolicy = new ConcurrentHashMap<>();
+    private final int keysPerStripe;
+    private final long origin = System.nanoTime();
+    private final Counter evicted;
+
+    public RateLimiter(
+            @Value("${app.ratelimit.max-keys:100000}") int maxKeys,
+            MeterRegistry meterRegistry
+    ) {
+        this.keysPerStripe = Math.max(1, maxKeys / STRIPES);
+        this.evicted = Counter.builder("minibank.ratelimit.evicted").register(meterRegistry);
+        Gauge.builder("minibank.ratelimit.keys", this, RateLimiter::size).register(meterRegistry);
+    }
+
+    // คืน 0 = ผ่าน, มากกว่า 0 = ต้องรออีกกี่ nanos
+    public long tryAcquire(RateLimitPolicy policy, String keyValue) {
+        long now = now();
+        long period = policy.period().toNanos();
+        long interval = period / policy.limit();
+
+        AtomicLong tat = bucket(policy.id(), keyValue, now);
+
+        while (true) {
+            long current = tat.get();
+            long next = Math.max(current, now) + interval;
+            long ahead = next - now;
+
+            if (ahead > period) return ahead - period;
+            if (tat.compareAndSet(current, next)) return 0;
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.ratelimit.sweep-ms:30000}")
+    public void evictIdle() {
+        long now = now();
+        for (Stripe[] stripes : byPolicy.values()) {
+            for (Stripe stripe : stripes) stripe.removeIdle(now);
+        }
+    }
+
+    private AtomicLong bucket(String policyId, String key, long now) {
+        Stripe[] stripes = byPolicy.computeIfAbsent(policyId, id -> {
+            Stripe[] s = new Stripe[STRIPES];
+            for (int i = 0; i < STRIPES; i++) s[i] = new Stripe(keysPerStripe, evicted);
+            return s;
+        });
+        return stripes[Math.floorMod(key.hashCode(), STRIPES)].get(key, now);
+    }
+
+    private double size() {
+        long n = 0;
+        for (Stripe[] stripes : byPolicy.values()) {
+            for (Stripe stripe : stripes) n += stripe.size();
+        }
+        return n;
+    }
+
+    private long now() {
+        return System.nanoTime() - origin;
+    }
+
+    private static final class Stripe {
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Map<String, AtomicLong> buckets;
+
+        Stripe(int capacity, Counter evicted) {
+            this.buckets = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, AtomicLong> eldest) {
+                    if (size() <= capacity) return false;
+                    evicted.increment();
+                    return true;
+                }
+            };
+        }
+
+        AtomicLong get(String key, long now) {
+            lock.lock();
+            try {
+                return buckets.computeIfAbsent(key, k -> new AtomicLong(now));
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void removeIdle(long now) {
+            lock.lock();
+            try {
+                buckets.values().removeIf(tat -> tat.get() <= now);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        int size() {
+            lock.lock();
+            try {
+                return buckets.size();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
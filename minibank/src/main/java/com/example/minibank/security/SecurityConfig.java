@@ -1,5 +1,8 @@
 package com.example.minibank.security;
 
+import com.example.minibank.service.IdempotencyService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
@@ -7,27 +10,80 @@ import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.access.intercept.AuthorizationFilter;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
+import tools.jackson.databind.ObjectMapper;
 
+import java.time.Duration;
 import java.util.List;
+import java.util.Map;
 
 @Configuration
 public class SecurityConfig {
 
     private final JwtAuthFilter jwtAuthFilter;
+    private final RateLimiter rateLimiter;
+    private final ObjectMapper objectMapper;
+    private final IdempotencyService idempotencyService;
+    private final MeterRegistry meterRegistry;
 
-    public SecurityConfig(JwtAuthFilter jwtAuthFilter) {
+    @Value("${app.ratelimit.enabled:true}")
+    private boolean rateLimitEnabled;
+
+    @Value("${app.ratelimit.max-body-bytes:16384}")
+    private int rateLimitMaxBodyBytes;
+
+    @Value("${app.idempotency.enabled:true}")
+    private boolean idempotencyEnabled;
+
+    @Value("${app.idempotency.max-request-bytes:2097152}")
+    private int idempotencyMaxRequestBytes;
+
+    public SecurityConfig(
+            JwtAuthFilter jwtAuthFilter,
+            RateLimiter rateLimiter,
+            ObjectMapper objectMapper,
+            IdempotencyService idempotencyService,
+            MeterRegistry meterRegistry
+    ) {
         this.jwtAuthFilter = jwtAuthFilter;
+        this.rateLimiter = rateLimiter;
+        this.objectMapper = objectMapper;
+        this.idempotencyService = idempotencyService;
+        this.meterRegistry = meterRegistry;
     }
 
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(
+            @Value("${app.password.pool.threads:0}") int threads,
+            @Value("${app.password.pool.queue-capacity:64}") int queueCapacity,
+            @Value("${app.password.pool.max-wait-ms:3000}") long maxWaitMs,
+            @Value("${app.password.pool.retry-after-seconds:2}") long retryAfterSeconds,
+            PasswordHashingPolicy policy,
+            MeterRegistry meterRegistry
+    ) {
+        // hash ใหม่ขึ้นต้นด้วย {bcrypt}; hash เก่าที่ไม่มี prefix ยัง matches ได้และจะถูก upgrade ตอน login
+        DelegatingPasswordEncoder delegating = new DelegatingPasswordEncoder(
+                PasswordHashingPolicy.ENCODING_ID,
+                Map.of(PasswordHashingPolicy.ENCODING_ID, new BCryptPasswordEncoder(policy.getStrength()))
+        );
+        delegating.setDefaultPasswordEncoderForMatches(new BCryptPasswordEncoder());
+
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        return new BoundedPasswordEncoder(
+                delegating,
+                poolSize,
+                queueCapacity,
+                Duration.ofMillis(maxWaitMs),
+                retryAfterSeconds,
+                meterRegistry
+        );
     }
 
     @Bean
@@ -40,13 +96,52 @@ public class SecurityConfig {
                         .requestMatchers(HttpMethod.OPTIONS, "/**").permitAll()
                         .requestMatchers("/auth/**", "/error").permitAll()
                         .requestMatchers(HttpMethod.GET, "/health").permitAll()
+                        .requestMatchers("/actuator/**").hasRole("ADMIN")
+                        .requestMatchers("/api/admin/**").hasRole("ADMIN")
                         .anyRequest().authenticated()
                 )
-                .addFilterBefore(jwtAuthFilter, UsernamePasswordAuthenticationFilter.class);
+                .addFilterBefore(rateLimitFilter(), UsernamePasswordAuthenticationFilter.class)
+                .addFilterBefore(jwtAuthFilter, UsernamePasswordAuthenticationFilter.class)
+                .addFilterAfter(idempotencyFilter(), AuthorizationFilter.class);
 
         return http.build();
     }
 
+    // ไม่ประกาศเป็น @Bean เพื่อไม่ให้ Boot ลงทะเบียนซ้ำเป็น servlet filter นอก security chain
+    private RateLimitFilter rateLimitFilter() {
+        List<RateLimitPolicy> policies = !rateLimitEnabled ? List.of() : List.of(
+                RateLimitPolicy.perIp("/auth/login", 20, Duration.ofMinutes(1)),
+                RateLimitPolicy.perUsername("/auth/login", 10, Duration.ofMinutes(5)),
+                RateLimitPolicy.perIp("/auth/register", 10, Duration.ofMinutes(1)),
+                RateLimitPolicy.perIp("/auth/register/request-otp", 10, Duration.ofMinutes(1)),
+                RateLimitPolicy.perEmail("/auth/register/request-otp", 5, Duration.ofMinutes(15)),
+                RateLimitPolicy.perIp("/auth/register/verify-otp", 30, Duration.ofMinutes(1)),
+                RateLimitPolicy.perIp("/auth/forgot/lookup", 10, Duration.ofMinutes(1)),
+                RateLimitPolicy.perIp("/auth/forgot/start", 10, Duration.ofMinutes(1)),
+                RateLimitPolicy.perEmail("/auth/forgot/start", 5, Duration.ofMinutes(15)),
+                RateLimitPolicy.perIp("/auth/forgot/resend-otp", 10, Duration.ofMinutes(1)),
+                RateLimitPolicy.perIp("/auth/forgot/confirm", 30, Duration.ofMinutes(1))
+        );
+        return new RateLimitFilter(rateLimiter, objectMapper, policies, rateLimitMaxBodyBytes, meterRegistry);
+    }
+
+    // POST ที่มีผลข้างเคียง (ส่งอีเมล / ย้ายเงิน) ที่ client retry ได้ด้วย Idempotency-Key
+    // ย้ายเงินทีละรายการ: ทำงานและเก็บคำตอบใน transaction เดียวกัน; batch commit ทีละ chunk และทำต่อจากที่ค้างได้
+    private IdempotencyFilter idempotencyFilter() {
+        Map<String, IdempotencyService.Mode> paths = !idempotencyEnabled ? Map.of() : Map.of(
+                "/auth/register/request-otp", IdempotencyService.Mode.RELEASE,
+                "/auth/forgot/start", IdempotencyService.Mode.RELEASE,
+                "/auth/forgot/resend-otp", IdempotencyService.Mode.RELEASE,
+                "/api/transfers", IdempotencyService.Mode.TRANSACTIONAL,
+                "/api/transfers/batch", IdempotencyService.Mode.RESUMABLE,
+                "/api/topups", IdempotencyService.Mode.TRANSACTIONAL,
+                "/api/withdrawals", IdempotencyService.Mode.TRANSACTIONAL,
+                "/api/bill-payments", IdempotencyService.Mode.TRANSACTIONAL,
+                "/api/standing-orders", IdempotencyService.Mode.TRANSACTIONAL
+        );
+        return new IdempotencyFilter(idempotencyService, paths, idempotencyMaxRequestBytes);
+    }
+
     @Bean
 public CorsConfigurationSource corsConfigurationSource() {
     CorsConfiguration cfg = new CorsConfiguration();
@@ -1,9 +1,12 @@
 package com.example.minibank.service;
 
+import com.example.minibank.audit.AuditEvent;
+import com.example.minibank.audit.AuditLog;
 import com.example.minibank.dto.AuthResponse;
 import com.example.minibank.dto.LoginRequest;
 import com.example.minibank.dto.RegisterRequest;
 import com.example.minibank.entity.User;
+import com.example.minibank.exception.ServiceBusyException;
 import com.example.minibank.repository.UserRepository;
 import com.example.minibank.security.JwtUtil;
 import org.springframework.security.crypto.password.PasswordEncoder;
@@ -15,11 +18,21 @@ public class AuthService {
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
     private final JwtUtil jwtUtil;
+    private final UserExistenceIndex userIndex;
+    private final AuditLog auditLog;
 
-    public AuthService(UserRepository userRepository, PasswordEncoder passwordEncoder, JwtUtil jwtUtil) {
+    public AuthService(
+            UserRepository userRepository,
+            PasswordEncoder passwordEncoder,
+            JwtUtil jwtUtil,
+            UserExistenceIndex userIndex,
+            AuditLog auditLog
+    ) {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
         this.jwtUtil = jwtUtil;
+        this.userIndex = userIndex;
+        this.auditLog = auditLog;
     }
 
     public AuthResponse register(RegisterRequest req) {
@@ -33,10 +46,10 @@ public class AuthService {
         if (email.isEmpty()) throw new RuntimeException("กรอก email");
         if (password.trim().isEmpty()) throw new RuntimeException("กรอก password");
 
-        if (userRepository.existsByUsername(username)) {
+        if (userIndex.usernameExists(username)) {
             throw new RuntimeException("มีผู้ใช้ username นี้อยู่แล้ว");
         }
-        if (userRepository.existsByEmail(email)) {
+        if (userIndex.emailExists(email)) {
             throw new RuntimeException("อีเมลนี้ถูกใช้งานแล้ว");
         }
 
@@ -49,6 +62,8 @@ public class AuthService {
                 .build();
 
         User saved = userRepository.save(user);
+        userIndex.add(saved.getUsername(), saved.getEmail());
+        auditLog.record(AuditEvent.REGISTERED, saved.getUsername(), "direct");
 
         String token = jwtUtil.generateToken(saved.getUsername(), saved.getRole());
         return new AuthResponse(token, saved.getUsername(), saved.getRole(), saved.getEmail(), saved.getFullName());
@@ -61,14 +76,32 @@ public class AuthService {
         if (username.isEmpty()) throw new RuntimeException("กรอก username");
         if (password.trim().isEmpty()) throw new RuntimeException("กรอก password");
 
-        User user = userRepository.findByUsername(username)
-                .orElseThrow(() -> new RuntimeException("ไม่พบผู้ใช้"));
+        User user = userRepository.findByUsername(username).orElse(null);
+        if (user == null) {
+            auditLog.record(AuditEvent.LOGIN_FAILED, username, "unknown_user");
+            throw new RuntimeException("ไม่พบผู้ใช้");
+        }
 
         if (!passwordEncoder.matches(password, user.getPasswordHash())) {
+            auditLog.record(AuditEvent.LOGIN_FAILED, username, "bad_password");
             throw new RuntimeException("รหัสผ่านไม่ถูกต้อง");
         }
+        auditLog.record(AuditEvent.LOGIN_SUCCEEDED, username, null);
+
+        rehashIfOutdated(user, password);
 
         String token = jwtUtil.generateToken(user.getUsername(), user.getRole());
         return new AuthResponse(token, user.getUsername(), user.getRole(), user.getEmail(), user.getFullName());
     }
+
+    private void rehashIfOutdated(User user, String password) {
+        if (!passwordEncoder.upgradeEncoding(user.getPasswordHash())) return;
+
+        try {
+            // entity โหลดมาตั้งแต่ต้น login: อัปเดตแบบมีเงื่อนไขแทน save ไม่ให้ทับรหัสผ่านที่เพิ่งเปลี่ยน (0 แถว = ข้าม)
+            userRepository.replacePasswordHash(user.getId(), user.getPasswordHash(), passwordEncoder.encode(password));
+        } catch (ServiceBusyException ignored) {
+            // ระบบยุ่ง -> ข้ามไปก่อน ไว้ rehash ตอน login ครั้งหน้า
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,498 @@
+package com.example.minibank.service;
+
+import com.example.minibank.dto.BatchTransferReport;
+import com.example.minibank.dto.BatchTransferRequest;
+import com.example.minibank.dto.TransferRequest;
+import com.example.minibank.entity.JournalEntry;
+import com.example.minibank.entity.LedgerAccount;
+import com.example.minibank.exception.ServiceBusyException;
+import com.example.minibank.ledger.LedgerCore;
+import com.example.minibank.ledger.LedgerEngine;
+import com.example.minibank.repository.BatchTransferRepository;
+import com.example.minibank.repository.LedgerRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// โอนหลายปลายทางในคำขอเดียว (เช่น จ่ายเงินเดือน)
+// validate แบบขนาน -> หาเลขบัญชีปลายทางด้วย query เดียว -> เก็บ batch และทุกรายการลงตาราง -> บันทึกทีละ chunk (transaction ละ chunk)
+// ใน chunk หนึ่งแต่ละบัญชีถูกอัปเดตยอดครั้งเดียว (ผู้โอนตัดยอดรวม, ปลายทางรับยอดรวมของตัวเอง) แต่ยังเป็น 1 journal entry ต่อรายการ
+// สถานะรายรายการ commit ใน transaction เดียวกับ chunk: ส่งซ้ำด้วย Idempotency-Key เดิมทำต่อเฉพาะรายการที่ค้าง
+// รายการที่จบแล้วได้ผลเดิม จึงไม่โอนซ้ำแม้คำขอก่อนหน้าล้มกลางทาง
+@Slf4j
+@Service
+public class BatchTransferService {
+
+    private static final String PENDING = "PENDING";
+    private static final String SUBMITTED = "SUBMITTED";
+    private static final String POSTED = "POSTED";
+    private static final String REJECTED = "REJECTED";
+    private static final String UNKNOWN = "UNKNOWN";
+    private static final int MAX_CHUNK_RETRIES = 3;
+
+    private record Item(int index, String to, long amountMinor, String note) {}
+
+    private record Validated(List<Item> items, List<BatchTransferReport.ItemResult> rejected) {}
+
+    private record ChunkPosted(long[] entryIds, long payerBalance) {}
+
+    private final LedgerService ledgerService;
+    private final LedgerRepository ledgerRepo;
+    private final BatchTransferRepository batchRepo;
+    private final LedgerRollupService rollups;
+    private final LedgerEngine engine; // null = บันทึกลงตารางทีละ chunk
+    private final TransactionTemplate tx;
+    private final MeterRegistry meterRegistry;
+
+    private final int maxItems;
+    private final int chunkSize;
+    private final int parallelism;
+    private final ExecutorService validators;
+
+    private final Counter postedItems;
+    private final Counter rejectedItems;
+
+    public BatchTransferService(
+            LedgerService ledgerService,
+            LedgerRepository ledgerRepo,
+            BatchTransferRepository batchRepo,
+            LedgerRollupService rollups,
+            ObjectProvider<LedgerEngine> engine,
+            PlatformTransactionManager txManager,
+            @Value("${app.ledger.batch.max-items:5000}") int maxItems,
+            @Value("${app.ledger.batch.chunk-size:500}") int chunkSize,
+            @Value("${app.ledger.batch.threads:0}") int threads,
+            MeterRegistry meterRegistry
+    ) {
+        this.ledgerService = ledgerService;
+        this.ledgerRepo = ledgerRepo;
+        this.batchRepo = batchRepo;
+        this.rollups = rollups;
+        this.engine = engine.getIfAvailable();
+        this.tx = new TransactionTemplate(txManager);
+        this.meterRegistry = meterRegistry;
+        this.maxItems = maxItems;
+        this.chunkSize = chunkSize;
+        this.parallelism = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+
+        AtomicInteger seq = new AtomicInteger();
+        this.validators = Executors.newFixedThreadPool(parallelism, r -> {
+            Thread t = new Thread(r, "batch-transfer-" + seq.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+
+        this.postedItems = Counter.builder("minibank.ledger.batch.items").tag("result", "posted").register(meterRegistry);
+        this.rejectedItems = Counter.builder("minibank.ledger.batch.items").tag("result", "rejected").register(meterRegistry);
+    }
+
+    // batchRef = Idempotency-Key ของคำขอ (null = batch ใหม่เสมอ)
+    public BatchTransferReport transfer(String username, String batchRef, BatchTransferRequest req) {
+        List<TransferRequest> raw = req.getItems();
+        if (raw == null || raw.isEmpty()) throw new RuntimeException("ไม่มีรายการโอน");
+        if (raw.size() > maxItems) throw new RuntimeException("โอนได้ไม่เกิน " + maxItems + " รายการต่อครั้ง");
+
+        long start = System.nanoTime();
+        LedgerRepository.CustomerAccount payer = ledgerService.customerAccount(username);
+        String ref = batchRef == null || batchRef.isBlank() ? UUID.randomUUID().toString() : batchRef.trim();
+        String requestHash = hash(raw);
+
+        BatchTransferRepository.Batch batch = batchRepo.find(payer.userId(), ref);
+        boolean resumed = batch != null;
+        if (batch == null) batch = open(payer, ref, requestHash, raw);
+        if (!batch.requestHash().equals(requestHash)) throw new RuntimeException("Idempotency-Key นี้ถูกใช้กับชุดรายการอื่นแล้ว");
+
+        List<BatchTransferRepository.ItemRow> before = batchRepo.findItems(batch.id());
+        List<BatchTransferRepository.ItemRow> pending = new ArrayList<>();
+        for (BatchTransferRepository.ItemRow item : before) {
+            if (PENDING.equals(item.status())) pending.add(item);
+        }
+
+        if (engine != null) {
+            postViaEngine(payer, batch.id(), pending);
+        } else {
+            for (int from = 0; from < pending.size(); from += chunkSize) {
+                postChunk(payer, batch.id(), pending.subList(from, Math.min(from + chunkSize, pending.size())));
+            }
+        }
+
+        // ผลทั้ง batch จากตาราง รวมรายการที่จบไปแล้วในคำขอก่อนหน้า
+        List<BatchTransferRepository.ItemRow> items = batchRepo.findItems(batch.id());
+        BatchTransferReport.ItemResult[] results = new BatchTransferReport.ItemResult[items.size()];
+        int posted = 0;
+        int rejected = 0;
+        long postedAmount = 0;
+        for (BatchTransferRepository.ItemRow item : items) {
+            String status = SUBMITTED.equals(item.status()) ? UNKNOWN : item.status();
+            String reason = UNKNOWN.equals(status) ? "ไม่ทราบผล กรุณาตรวจสอบประวัติรายการ" : item.reason();
+            results[item.index()] = new BatchTransferReport.ItemResult(item.index(), item.to(), status, item.entryId(), reason);
+            if (POSTED.equals(status)) {
+                posted++;
+                postedAmount += item.amountMinor();
+            } else if (REJECTED.equals(status)) {
+                rejected++;
+            }
+        }
+        postedItems.increment(posted - (resumed ? count(before, POSTED) : 0));
+        rejectedItems.increment(rejected - (resumed ? count(before, REJECTED) : 0));
+
+        long elapsed = System.nanoTime() - start;
+        Timer.builder("minibank.ledger.batch").register(meterRegistry).record(elapsed, TimeUnit.NANOSECONDS);
+        log.info("Batch transfer by {}{}: {} items, {} posted, {} rejected in {} ms", username, resumed ? " (resumed)" : "",
+                results.length, posted, rejected, TimeUnit.NANOSECONDS.toMillis(elapsed));
+
+        // ยอดหลัง chunk สุดท้ายของ batch นี้; ไม่มีรายการที่ถึงขั้นบันทึกเลย = ยอดปัจจุบัน (batch ไม่ได้เปลี่ยนยอด)
+        Long balance = batchRepo.find(payer.userId(), ref).balanceAfterMinor();
+        if (balance == null) balance = ledgerRepo.findBalance(payer.accountId()).balanceMinor();
+        return new BatchTransferReport(
+                results.length,
+                posted,
+                rejected,
+                Money.fromMinor(postedAmount),
+                Money.fromMinor(balance),
+                TimeUnit.NANOSECONDS.toMillis(elapsed),
+                List.of(results)
+        );
+    }
+
+    // validate + หาบัญชีปลายทาง แล้วเก็บ batch พร้อมทุกรายการ (รายการที่ผิดเป็น REJECTED ตั้งแต่แรก)
+    private BatchTransferRepository.Batch open(LedgerRepository.CustomerAccount payer, String ref, String requestHash,
+                                               List<TransferRequest> raw) {
+        BatchTransferReport.ItemResult[] results = new BatchTransferReport.ItemResult[raw.size()];
+        List<Item> valid = validate(raw, payer.accountNo(), results);
+
+        // MB... ในระบบ: หาทีเดียวทั้ง batch, อย่างอื่นเป็นโอนต่างธนาคาร
+        Set<String> internal = new HashSet<>();
+        for (Item item : valid) {
+            if (LedgerService.CUSTOMER_ACCOUNT_NO.matcher(item.to()).matches()) internal.add(item.to());
+        }
+        Map<String, Long> accountIds = ledgerRepo.findAccountIdsByNo(internal);
+        long interbank = ledgerService.systemAccount(LedgerAccount.SYSTEM_INTERBANK);
+
+        BatchTransferRepository.ItemRow[] rows = new BatchTransferRepository.ItemRow[raw.size()];
+        for (Item item : valid) {
+            Long dest = internal.contains(item.to()) ? accountIds.get(item.to()) : Long.valueOf(interbank);
+            rows[item.index()] = dest == null
+                    ? new BatchTransferRepository.ItemRow(item.index(), item.to(), null, item.amountMinor(), item.note(),
+                            REJECTED, null, "ไม่พบบัญชีปลายทาง")
+                    : new BatchTransferRepository.ItemRow(item.index(), item.to(), dest, item.amountMinor(), item.note(),
+                            PENDING, null, null);
+        }
+        for (int i = 0; i < rows.length; i++) {
+            if (rows[i] == null) {
+                rows[i] = new BatchTransferRepository.ItemRow(i, results[i].getTo(), null, 0, null,
+                        REJECTED, null, results[i].getReason());
+            }
+        }
+
+        return tx.execute(status -> {
+            BatchTransferRepository.Batch created = batchRepo.create(payer.userId(), ref, requestHash, Instant.now());
+            if (created == null) return batchRepo.find(payer.userId(), ref);
+            batchRepo.insertItems(created.id(), List.of(rows));
+            return created;
+        });
+    }
+
+    // engine: ส่งทุกรายการต่อกันโดยไม่รอทีละรายการ แล้วค่อยเก็บผล
+    // engine apply ตามลำดับที่ส่ง ยอดไม่พอจึงปฏิเสธเฉพาะรายการนั้น รายการถัดไปที่ยอดน้อยกว่ายังผ่านได้ (เหมือนโหมดตาราง)
+    // รายการเป็น SUBMITTED ก่อนส่ง: ถ้าไม่ได้ผลกลับมา (instance ตาย / รอไม่ไหว) คำขอซ้ำไม่ส่งซ้ำ รายงานเป็น UNKNOWN
+    private void postViaEngine(LedgerRepository.CustomerAccount payer, long batchId,
+                               List<BatchTransferRepository.ItemRow> pending) {
+        if (pending.isEmpty()) return;
+        Set<Long> accounts = new HashSet<>();
+        accounts.add(payer.accountId());
+        List<Integer> indexes = new ArrayList<>(pending.size());
+        for (BatchTransferRepository.ItemRow item : pending) {
+            accounts.add(item.destAccountId());
+            indexes.add(item.index());
+        }
+        engine.ensureAccounts(accounts);
+
+        Set<Integer> claimed = new HashSet<>(batchRepo.markSubmitted(batchId, indexes));
+        List<BatchTransferRepository.ItemRow> items = new ArrayList<>(claimed.size());
+        for (BatchTransferRepository.ItemRow item : pending) {
+            if (claimed.contains(item.index())) items.add(item);
+        }
+
+        List<CompletableFuture<LedgerEngine.Posted>> submitted = new ArrayList<>(items.size());
+        RuntimeException submitFailure = null;
+        for (BatchTransferRepository.ItemRow item : items) {
+            try {
+                submitted.add(engine.submit(JournalEntry.Type.TRANSFER, payer.userId(), payer.accountId(),
+                        item.destAccountId(), item.amountMinor(), item.to(), null, item.note()));
+            } catch (RuntimeException e) {
+                // รายการที่ส่งไปแล้วยังเก็บผลตามปกติ ที่เหลือคืนเป็น PENDING ให้คำขอซ้ำส่งต่อ
+                submitFailure = e;
+                break;
+            }
+        }
+
+        List<BatchTransferRepository.PostedItem> posted = new ArrayList<>();
+        List<Integer> insufficient = new ArrayList<>();
+        List<Integer> failed = new ArrayList<>();
+        Long balance = null;
+        for (int i = 0; i < submitted.size(); i++) {
+            BatchTransferRepository.ItemRow item = items.get(i);
+            LedgerEngine.Posted result;
+            try {
+                result = engine.await(submitted.get(i));
+            } catch (RuntimeException e) {
+                // ไม่รู้ว่า engine บันทึกแล้วหรือยัง: คง SUBMITTED ไว้ ไม่ส่งซ้ำ
+                log.warn("Batch transfer item {} of batch {} has no outcome", item.index(), batchId, e);
+                continue;
+            }
+
+            if (result.ok()) {
+                posted.add(new BatchTransferRepository.PostedItem(item.index(), result.entryId()));
+                balance = result.debitBalance();
+            } else if (result.status() == LedgerCore.Status.INSUFFICIENT_FUNDS) {
+                insufficient.add(item.index());
+                balance = result.debitBalance();
+            } else {
+                failed.add(item.index());
+            }
+        }
+
+        List<Integer> notSubmitted = new ArrayList<>();
+        for (int i = submitted.size(); i < items.size(); i++) notSubmitted.add(items.get(i).index());
+
+        Long finalBalance = balance;
+        tx.executeWithoutResult(status -> {
+            batchRepo.markPosted(batchId, posted);
+            batchRepo.markStatus(batchId, insufficient, REJECTED, "ยอดเงินไม่พอ");
+            batchRepo.markStatus(batchId, failed, REJECTED, "บันทึกรายการไม่สำเร็จ");
+            batchRepo.markStatus(batchId, notSubmitted, PENDING, null);
+            if (finalBalance != null) batchRepo.setBalance(batchId, finalBalance);
+        });
+
+        if (submitFailure != null) {
+            log.warn("Batch {} stopped after {} of {} items", batchId, submitted.size(), items.size(), submitFailure);
+            throw submitFailure instanceof ServiceBusyException busy ? busy
+                    : new ServiceBusyException("บันทึกรายการไม่สำเร็จ กรุณาลองใหม่", 1);
+        }
+    }
+
+    // รายการที่โอนได้ + รายการที่ยอดไม่พอ + สถานะรายการ commit ด้วยกันใน transaction เดียว
+    private void postChunk(LedgerRepository.CustomerAccount payer, long batchId, List<BatchTransferRepository.ItemRow> items) {
+        for (int attempt = 1; attempt <= MAX_CHUNK_RETRIES; attempt++) {
+            // รับรายการตามลำดับเท่าที่ยอดพอ; ยอดเปลี่ยนระหว่างนี้ = ตัดยอดไม่ผ่าน แล้วคิดใหม่ด้วยยอดล่าสุด
+            long available = ledgerRepo.findBalance(payer.accountId()).balanceMinor();
+            List<Integer> accepted = new ArrayList<>(items.size());
+            List<Integer> insufficient = new ArrayList<>();
+            long total = 0;
+            for (int i = 0; i < items.size(); i++) {
+                long amount = items.get(i).amountMinor();
+                if (total + amount <= available) {
+                    accepted.add(i);
+                    total += amount;
+                } else {
+                    insufficient.add(items.get(i).index());
+                }
+            }
+
+            // ยอดล่าสุดไม่พอแม้รายการเดียว: ปฏิเสธทั้ง chunk
+            if (accepted.isEmpty()) {
+                tx.executeWithoutResult(status -> {
+                    batchRepo.markStatus(batchId, insufficient, REJECTED, "ยอดเงินไม่พอ");
+                    batchRepo.setBalance(batchId, available);
+                });
+                return;
+            }
+
+            try {
+                tx.executeWithoutResult(status -> {
+                    ChunkPosted chunk = apply(payer, items, accepted);
+                    List<BatchTransferRepository.PostedItem> posted = new ArrayList<>(accepted.size());
+                    for (int k = 0; k < accepted.size(); k++) {
+                        posted.add(new BatchTransferRepository.PostedItem(items.get(accepted.get(k)).index(), chunk.entryIds()[k]));
+                    }
+                    // คำขออื่นปิดรายการเหล่านี้ไปแล้ว (เช่นปิด idempotency แล้วส่งซ้ำพร้อมกัน): rollback ทั้ง chunk
+                    if (batchRepo.markPosted(batchId, posted) != posted.size()) {
+                        throw new IllegalStateException("Batch " + batchId + " items were settled concurrently");
+                    }
+                    batchRepo.markStatus(batchId, insufficient, REJECTED, "ยอดเงินไม่พอ");
+                    batchRepo.setBalance(batchId, chunk.payerBalance());
+                });
+                return;
+            } catch (LedgerService.InsufficientFundsException e) {
+                continue;
+            } catch (RuntimeException e) {
+                // รายการยังเป็น PENDING: ตอบ 503 ให้ส่งซ้ำด้วยคีย์เดิมแล้วทำต่อจากตรงนี้
+                log.warn("Batch transfer chunk failed for batch {}", batchId, e);
+                throw new ServiceBusyException("บันทึกรายการไม่สำเร็จ กรุณาลองใหม่", 1);
+            }
+        }
+
+        // แพ้การตัดยอดพร้อมกันครบทุกรอบ ไม่ได้แปลว่ายอดไม่พอ: คง PENDING ไว้ให้ส่งซ้ำด้วยคีย์เดิมแล้วทำต่อ
+        log.warn("Batch transfer chunk for batch {} kept losing concurrent debits", batchId);
+        throw new ServiceBusyException("บันทึกรายการไม่สำเร็จ กรุณาลองใหม่", 1);
+    }
+
+    // เรียกใน transaction; คืน entry id ตามลำดับของ accepted และยอดผู้โอนหลังรายการสุดท้าย
+    private ChunkPosted apply(LedgerRepository.CustomerAccount payer, List<BatchTransferRepository.ItemRow> items,
+                              List<Integer> accepted) {
+        Instant now = Instant.now();
+
+        // รวมยอดต่อบัญชี: ผู้โอนตัดครั้งเดียว, ปลายทางแต่ละบัญชีรับครั้งเดียว
+        Map<Long, Long> credits = new HashMap<>();
+        long total = 0;
+        for (int i : accepted) {
+            long amount = items.get(i).amountMinor();
+            credits.merge(items.get(i).destAccountId(), amount, Long::sum);
+            total += amount;
+        }
+        List<LedgerService.Leg> legs = new ArrayList<>(credits.size() + 1);
+        legs.add(new LedgerService.Leg(payer.accountId(), -total));
+        credits.forEach((accountId, amount) -> legs.add(new LedgerService.Leg(accountId, amount)));
+
+        Map<Long, Long> finalBalances = ledgerService.applyLegs(LedgerService.ordered(legs));
+
+        // ยอดหลังแต่ละรายการ: ย้อนจากยอดสุดท้ายกลับไปทีละรายการ (null = hot account)
+        int n = accepted.size();
+        Long[] payerAfter = new Long[n];
+        Long[] destAfter = new Long[n];
+        Map<Long, Long> running = new HashMap<>(finalBalances);
+        for (int k = n - 1; k >= 0; k--) {
+            BatchTransferRepository.ItemRow item = items.get(accepted.get(k));
+            long amount = item.amountMinor();
+            long dest = item.destAccountId();
+
+            Long p = running.get(payer.accountId());
+            payerAfter[k] = p;
+            running.put(payer.accountId(), p + amount);
+
+            Long d = running.get(dest);
+            destAfter[k] = d;
+            if (d != null) running.put(dest, d - amount);
+        }
+
+        long[] entryIds = ledgerRepo.reserveEntryIds(n);
+        List<LedgerRepository.NewEntry> entries = new ArrayList<>(n);
+        List<LedgerRepository.Posting> postings = new ArrayList<>(n * 2);
+        long[] postingEntryIds = new long[n * 2];
+        for (int k = 0; k < n; k++) {
+            BatchTransferRepository.ItemRow item = items.get(accepted.get(k));
+            entries.add(new LedgerRepository.NewEntry(entryIds[k], item.to(), null, item.note()));
+
+            postingEntryIds[2 * k] = entryIds[k];
+            postings.add(new LedgerRepository.Posting(payer.accountId(), -item.amountMinor(), payerAfter[k]));
+            postingEntryIds[2 * k + 1] = entryIds[k];
+            postings.add(new LedgerRepository.Posting(item.destAccountId(), item.amountMinor(), destAfter[k]));
+        }
+
+        ledgerRepo.insertEntries(JournalEntry.Type.TRANSFER, payer.userId(), entries, now);
+        ledgerRepo.insertPostings(postingEntryIds, JournalEntry.Type.TRANSFER, postings, now);
+        rollups.record(JournalEntry.Type.TRANSFER, now, postings);
+        return new ChunkPosted(entryIds, finalBalances.get(payer.accountId()));
+    }
+
+    private static int count(List<BatchTransferRepository.ItemRow> items, String status) {
+        int n = 0;
+        for (BatchTransferRepository.ItemRow item : items) {
+            if (status.equals(item.status())) n++;
+        }
+        return n;
+    }
+
+    // ชุดรายการเดียวกัน = ปลายทาง / จำนวนเงิน / note เดียวกันตามลำดับ
+    private static String hash(List<TransferRequest> raw) {
+        try {
+            MessageDigest sha = MessageDigest.getInstance("SHA-256");
+            for (TransferRequest r : raw) {
+                String line = r == null ? "\n"
+                        : r.getTo() + "\t" + (r.getAmount() == null ? null : r.getAmount().toPlainString()) + "\t" + r.getNote() + "\n";
+                sha.update(line.getBytes(StandardCharsets.UTF_8));
+            }
+            return HexFormat.of().formatHex(sha.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // ===== validate (รันบน validators pool) =====
+
+    private List<Item> validate(List<TransferRequest> raw, String payerAccountNo, BatchTransferReport.ItemResult[] results) {
+        int slice = Math.max(1, (raw.size() + parallelism - 1) / parallelism);
+        List<CompletableFuture<Validated>> parts = new ArrayList<>();
+        for (int from = 0; from < raw.size(); from += slice) {
+            int start = from;
+            int end = Math.min(from + slice, raw.size());
+            parts.add(CompletableFuture.supplyAsync(() -> validate(raw, start, end, payerAccountNo), validators));
+        }
+
+        List<Item> valid = new ArrayList<>(raw.size());
+        for (CompletableFuture<Validated> part : parts) {
+            Validated v = part.join();
+            valid.addAll(v.items());
+            v.rejected().forEach(r -> results[r.getIndex()] = r);
+        }
+        return valid;
+    }
+
+    private static Validated validate(List<TransferRequest> raw, int from, int to, String payerAccountNo) {
+        List<Item> items = new ArrayList<>(to - from);
+        List<BatchTransferReport.ItemResult> rejected = new ArrayList<>();
+
+        for (int i = from; i < to; i++) {
+            TransferRequest r = raw.get(i);
+            String dest = r == null || r.getTo() == null ? "" : r.getTo().trim();
+            String note = r == null || r.getNote() == null ? "" : r.getNote().trim();
+
+            String reason = null;
+            long amount = 0;
+            if (r == null) reason = "รายการว่าง";
+            else if (dest.isEmpty()) reason = "กรอกบัญชีปลายทาง";
+            else if (dest.length() > 255) reason = "บัญชีปลายทางยาวเกินไป";
+            else if (dest.equals(payerAccountNo)) reason = "โอนเข้าบัญชีตัวเองไม่ได้";
+            else if (note.length() > 255) reason = "note ยาวเกินไป";
+            else {
+                try {
+                    amount = Money.toMinor(r.getAmount());
+                } catch (RuntimeException e) {
+                    reason = e.getMessage();
+                }
+            }
+
+            if (reason != null) {
+                rejected.add(rejected(i, dest.isEmpty() ? null : dest, reason));
+            } else {
+                items.add(new Item(i, dest, amount, note.isEmpty() ? null : note));
+            }
+        }
+        return new Validated(items, rejected);
+    }
+
+    private static BatchTransferReport.ItemResult rejected(int index, String to, String reason) {
+        return new BatchTransferReport.ItemResult(index, to, REJECTED, null, reason);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        validators.shutdownNow();
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.minibank.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Bloom filter แบบ thread-safe (set bit ด้วย CAS) ใช้ double hashing จาก hash 64 บิต
+final class BloomFilter {
+
+    private final AtomicLongArray words;
+    private final long numBits;
+    private final int numHashes;
+    private final LongAdder inserted = new LongAdder();
+
+    private BloomFilter(long numBits, int numHashes) {
+        this.words = new AtomicLongArray((int) (numBits >>> 6));
+        this.numBits = numBits;
+        this.numHashes = numHashes;
+    }
+
+    static BloomFilter create(long expectedInsertions, double fpp) {
+        long n = Math.max(1, expectedInsertions);
+        double ln2 = Math.log(2);
+        long bits = (long) Math.ceil(-n * Math.log(fpp) / (ln2 * ln2));
+        bits = Math.max(64, (bits + 63) & ~63L);
+        if (bits > (long) Integer.MAX_VALUE * 64) {
+            throw new IllegalArgumentException("Bloom filter too large: " + bits + " bits");
+        }
+        int hashes = Math.max(1, (int) Math.round((double) bits / n * ln2));
+        return new BloomFilter(bits, hashes);
+    }
+
+    void put(String key) {
+        long h = hash64(key);
+        long h1 = h;
+        long h2 = mix(h ^ 0x9E3779B97F4A7C15L) | 1L;
+
+        for (int i = 0; i < numHashes; i++) {
+            long bit = Math.floorMod(h1 + i * h2, numBits);
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long current = words.get(word);
+            while ((current & mask) == 0 && !words.compareAndSet(word, current, current | mask)) {
+                current = words.get(word);
+            }
+        }
+        inserted.increment();
+    }
+
+    boolean mightContain(String key) {
+        long h = hash64(key);
+        long h1 = h;
+        long h2 = mix(h ^ 0x9E3779B97F4A7C15L) | 1L;
+
+        for (int i = 0; i < numHashes; i++) {
+            long bit = Math.floorMod(h1 + i * h2, numBits);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) return false;
+        }
+        return true;
+    }
+
+    // (1 - e^(-k*n/m))^k จากจำนวนที่ใส่จริง
+    double expectedFpp() {
+        double n = inserted.sum();
+        return Math.pow(1 - Math.exp(-numHashes * n / numBits), numHashes);
+    }
+
+    long insertedCount() {
+        return inserted.sum();
+    }
+
+    long bitSize() {
+        return numBits;
+    }
+
+    int hashCount() {
+        return numHashes;
+    }
+
+    long memoryBytes() {
+        return numBits / 8;
+    }
+
+    private static long hash64(String key) {
+        byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+        long h = 0xCBF29CE484222325L;
+        for (byte b : bytes) {
+            h ^= b;
+            h *= 0x100000001B3L;
+        }
+        return mix(h);
+    }
+
+    // finalizer ของ MurmurHash3 (fmix64)
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB93FE1A85EC5L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.minibank.service;
+
+import com.example.minibank.exception.MailDeliveryException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import tools.jackson.databind.ObjectMapper;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+// ส่งอีเมลผ่าน Brevo ด้วย java.net.http.HttpClient ตัวเดียวทั้งแอป (connection pool + keep-alive, HTTP/2 ถ้า server รองรับ)
+// มี connect/request timeout และ circuit breaker ให้ fail fast ตอน Brevo มีปัญหา
+@Component
+public class BrevoMailTransport implements MailTransport {
+
+    private final URI endpoint;
+    private final String apiKey;
+    private final String from;
+    private final Duration requestTimeout;
+
+    private final HttpClient client;
+    private final CircuitBreaker breaker;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+
+    public BrevoMailTransport(
+            @Value("${brevo.base-url:https://api.brevo.com}") String baseUrl,
+            @Value("${brevo.api.key:${BREVO_API_KEY:}}") String apiKey,
+            @Value("${brevo.from:${BREVO_FROM:}}") String from,
+            @Value("${app.mail.http.connect-timeout-ms:3000}") long connectTimeoutMs,
+            @Value("${app.mail.http.request-timeout-ms:10000}") long requestTimeoutMs,
+            @Value("${app.mail.breaker.failure-threshold:5}") int failureThreshold,
+            @Value("${app.mail.breaker.open-seconds:30}") long openSeconds,
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry
+    ) {
+        this.endpoint = URI.create(baseUrl.replaceAll("/+$", "") + "/v3/smtp/email");
+        this.apiKey = apiKey;
+        this.from = from;
+        this.requestTimeout = Duration.ofMillis(requestTimeoutMs);
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .build();
+        this.breaker = new CircuitBreaker(failureThreshold, Duration.ofSeconds(openSeconds));
+
+        Gauge.builder("minibank.mail.breaker.open", breaker, b -> b.getState() == CircuitBreaker.State.CLOSED ? 0 : 1)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return breaker.allowsRequests();
+    }
+
+    public CircuitBreaker.State breakerState() {
+        return breaker.getState();
+    }
+
+    @Override
+    public CompletableFuture<Void> send(String toEmail, String subject, String html) {
+        if (apiKey == null || apiKey.isBlank()) {
+            return CompletableFuture.failedFuture(new MailDeliveryException("BREVO_API_KEY is not set"));
+        }
+        if (from == null || from.isBlank()) {
+            return CompletableFuture.failedFuture(new MailDeliveryException("BREVO_FROM is not set"));
+        }
+        if (!breaker.tryAcquire()) {
+            return CompletableFuture.failedFuture(MailDeliveryException.circuitOpen());
+        }
+
+        Map<String, Object> body = Map.of(
+                "sender", Map.of("email", from),
+                "to", List.of(Map.of("email", toEmail)),
+                "subject", subject,
+                "htmlContent", html
+        );
+
+        HttpRequest request = HttpRequest.newBuilder(endpoint)
+                .timeout(requestTimeout)
+                .header("api-key", apiKey)
+                .header("Content-Type", "application/json")
+                .header("Accept", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body)))
+                .build();
+
+        long start = System.nanoTime();
+        return client.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                .handle((response, error) -> {
+                    long elapsed = System.nanoTime() - start;
+
+                    if (error != null) {
+                        breaker.onFailure();
+                        record("error", elapsed);
+                        Throwable cause = error instanceof CompletionException && error.getCause() != null
+                                ? error.getCause() : error;
+                        throw new MailDeliveryException("Send email failed (Brevo): " + cause, cause);
+                    }
+
+                    int status = response.statusCode();
+                    if (status >= 200 && status < 300) {
+                        breaker.onSuccess();
+                        record("success", elapsed);
+                        return null;
+                    }
+
+                    // 5xx/429 = ฝั่ง Brevo มีปัญหา นับเข้า breaker; 4xx อื่นเป็นปัญหาของคำขอเอง
+                    if (status >= 500 || status == 429) breaker.onFailure();
+                    else breaker.onSuccess();
+                    record("http_" + status, elapsed);
+                    throw new MailDeliveryException("Send email failed (Brevo). HTTP " + status + ": " + response.body());
+                });
+    }
+
+    private void record(String outcome, long elapsedNanos) {
+        Timer.builder("minibank.mail.send")
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(elapsedNanos, TimeUnit.NANOSECONDS);
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.minibank.service;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+// ล้มเหลวติดกันครบ threshold -> OPEN (ปฏิเสธทันที) เป็นเวลา openDuration
+// จากนั้น HALF_OPEN ปล่อยคำขอทดลอง 1 ครั้ง: สำเร็จ -> CLOSED, ล้มเหลว -> OPEN ใหม่
+public class CircuitBreaker {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final int failureThreshold;
+    private final long openNanos;
+
+    private final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private volatile long openedAt;
+
+    public CircuitBreaker(int failureThreshold, Duration openDuration) {
+        this.failureThreshold = failureThreshold;
+        this.openNanos = openDuration.toNanos();
+    }
+
+    public boolean tryAcquire() {
+        State s = state.get();
+        if (s == State.CLOSED) return true;
+        if (s == State.OPEN && System.nanoTime() - openedAt >= openNanos) {
+            return state.compareAndSet(State.OPEN, State.HALF_OPEN);
+        }
+        return false;
+    }
+
+    // เหมือน tryAcquire แต่ไม่เปลี่ยน state
+    public boolean allowsRequests() {
+        State s = state.get();
+        return s == State.CLOSED || (s == State.OPEN && System.nanoTime() - openedAt >= openNanos);
+    }
+
+    public void onSuccess() {
+        consecutiveFailures.set(0);
+        state.set(State.CLOSED);
+    }
+
+    public void onFailure() {
+        if (state.get() == State.HALF_OPEN || consecutiveFailures.incrementAndGet() >= failureThreshold) {
+            openedAt = System.nanoTime();
+            state.set(State.OPEN);
+        }
+    }
+
+    public State getState() {
+        return state.get();
+    }
+
+    public Duration getOpenDuration() {
+        return Duration.ofNanos(openNanos);
+    }
+}
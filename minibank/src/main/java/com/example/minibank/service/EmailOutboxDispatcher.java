@@ -0,0 +1,191 @@
+package com.example.minibank.service;
+
+import com.example.minibank.entity.EmailOutbox;
+import com.example.minibank.exception.MailDeliveryException;
+import com.example.minibank.repository.EmailOutboxRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// ดึงอีเมลจาก email_outbox ทีละ batch (FOR UPDATE SKIP LOCKED) แล้วส่งแบบ async พร้อมกันทั้ง batch
+// ส่งสำเร็จ = ลบแถว (ไม่เก็บ OTP ไว้), ล้มเหลว = retry แบบ exponential backoff จนครบ max-attempts
+// ล้มเหลวถาวร = FAILED และลบเนื้อหาทิ้ง (แถวถูกลบจริงโดย ExpiredOtpPurgeJob หลัง app.purge.failed-mail-retention-hours)
+@Slf4j
+@Component
+public class EmailOutboxDispatcher {
+
+    private static final Duration MAX_BACKOFF = Duration.ofMinutes(5);
+
+    private final EmailOutboxRepository outboxRepo;
+    private final EmailService emailService;
+    private final MailTransport mailTransport;
+    private final TransactionTemplate tx;
+    private final ExecutorService bookkeeping;
+    private final Duration mailTransportRetryDelay;
+
+    private final int batchSize;
+    private final int maxAttempts;
+    private final Duration lease;
+    private final Duration baseBackoff;
+
+    private final Counter sent;
+    private final Counter retried;
+    private final Counter failed;
+    private final AtomicLong lagMillis = new AtomicLong();
+
+    public EmailOutboxDispatcher(
+            EmailOutboxRepository outboxRepo,
+            EmailService emailService,
+            MailTransport mailTransport,
+            PlatformTransactionManager txManager,
+            @Value("${app.mail.outbox.batch-size:50}") int batchSize,
+            @Value("${app.mail.outbox.bookkeeping-threads:2}") int bookkeepingThreads,
+            @Value("${app.mail.outbox.max-attempts:6}") int maxAttempts,
+            @Value("${app.mail.outbox.lease-seconds:60}") long leaseSeconds,
+            @Value("${app.mail.outbox.backoff-ms:2000}") long backoffMs,
+            @Value("${app.mail.breaker.open-seconds:30}") long breakerOpenSeconds,
+            MeterRegistry meterRegistry
+    ) {
+        this.outboxRepo = outboxRepo;
+        this.emailService = emailService;
+        this.mailTransport = mailTransport;
+        this.mailTransportRetryDelay = Duration.ofSeconds(breakerOpenSeconds);
+        this.tx = new TransactionTemplate(txManager);
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.lease = Duration.ofSeconds(leaseSeconds);
+        this.baseBackoff = Duration.ofMillis(backoffMs);
+
+        AtomicInteger seq = new AtomicInteger();
+        this.bookkeeping = Executors.newFixedThreadPool(bookkeepingThreads, r -> {
+            Thread t = new Thread(r, "mail-outbox-" + seq.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+
+        this.sent = Counter.builder("minibank.mail.outbox.sent").register(meterRegistry);
+        this.retried = Counter.builder("minibank.mail.outbox.retried").register(meterRegistry);
+        this.failed = Counter.builder("minibank.mail.outbox.failed").register(meterRegistry);
+        Gauge.builder("minibank.mail.outbox.lag", lagMillis, AtomicLong::get)
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${app.mail.outbox.poll-ms:500}")
+    public void dispatch() {
+        updateLag();
+
+        // ได้ batch เต็ม = น่าจะยังมีค้าง ดึงต่อเลยไม่ต้องรอรอบถัดไป
+        List<EmailOutbox> batch;
+        do {
+            // circuit เปิดอยู่: ไม่ claim งาน ปล่อยแถวรอใน outbox
+            if (!mailTransport.isAvailable()) return;
+
+            batch = claim();
+            if (batch.isEmpty()) return;
+
+            List<CompletableFuture<Void>> inFlight = new ArrayList<>(batch.size());
+            for (EmailOutbox message : batch) {
+                inFlight.add(emailService.deliver(message)
+                        .handleAsync((ok, error) -> {
+                            complete(message, error);
+                            return null;
+                        }, bookkeeping));
+            }
+            CompletableFuture.allOf(inFlight.toArray(CompletableFuture[]::new)).join();
+        } while (batch.size() == batchSize);
+    }
+
+    private List<EmailOutbox> claim() {
+        Instant now = Instant.now();
+        List<EmailOutbox> claimed = tx.execute(status -> {
+            List<EmailOutbox> rows = outboxRepo.claimBatch(now, now.minus(lease), batchSize);
+            for (EmailOutbox row : rows) {
+                row.setStatus(EmailOutbox.Status.SENDING);
+                row.setLockedAt(now);
+                row.setAttempts(row.getAttempts() + 1);
+            }
+            return rows;
+        });
+        return claimed == null ? List.of() : claimed;
+    }
+
+    private void complete(EmailOutbox message, Throwable error) {
+        try {
+            if (error == null) {
+                outboxRepo.deleteById(message.getId());
+                sent.increment();
+                return;
+            }
+
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+
+            // ไม่ได้ส่งจริงเพราะ circuit เปิด: คืนแถวกลับคิว ไม่นับ attempt
+            if (cause instanceof MailDeliveryException mde && mde.isCircuitOpen()) {
+                outboxRepo.postpone(message.getId(), Instant.now().plus(mailTransportRetryDelay));
+                return;
+            }
+
+            String reason = truncate(String.valueOf(cause.getMessage()));
+
+            if (message.getAttempts() >= maxAttempts) {
+                outboxRepo.fail(message.getId(), reason);
+                failed.increment();
+                log.warn("Email {} to {} failed permanently after {} attempts: {}",
+                        message.getId(), message.getToEmail(), message.getAttempts(), reason);
+                return;
+            }
+
+            Instant next = Instant.now().plus(backoff(message.getAttempts()));
+            outboxRepo.reschedule(message.getId(), EmailOutbox.Status.PENDING, next, reason);
+            retried.increment();
+        } catch (RuntimeException e) {
+            // อัปเดตสถานะไม่สำเร็จ: แถวค้าง SENDING แล้วจะถูก claim ใหม่เมื่อหมด lease
+            log.warn("Could not record outcome of email {}", message.getId(), e);
+        }
+    }
+
+    // base * 2^(attempt-1) สูงสุด 5 นาที +-20% jitter
+    private Duration backoff(int attempt) {
+        long ms = baseBackoff.toMillis() << Math.min(attempt - 1, 16);
+        ms = Math.min(ms, MAX_BACKOFF.toMillis());
+        double jitter = 0.8 + ThreadLocalRandom.current().nextDouble() * 0.4;
+        return Duration.ofMillis((long) (ms * jitter));
+    }
+
+    private void updateLag() {
+        Instant oldest = outboxRepo.oldestCreatedAt(EmailOutbox.Status.PENDING);
+        lagMillis.set(oldest == null ? 0 : Math.max(0, Duration.between(oldest, Instant.now()).toMillis()));
+    }
+
+    private static String truncate(String s) {
+        if (s == null) return null;
+        return s.length() <= 1000 ? s : s.substring(0, 1000);
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        bookkeeping.shutdown();
+        bookkeeping.awaitTermination(10, TimeUnit.SECONDS);
+    }
+}
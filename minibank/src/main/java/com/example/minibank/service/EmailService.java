@@ -1,96 +1,66 @@
 package com.example.minibank.service;
 
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.*;
+import com.example.minibank.entity.EmailOutbox;
+import com.example.minibank.repository.EmailOutboxRepository;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestClientResponseException;
-import org.springframework.web.client.RestTemplate;
 
 import java.time.Duration;
-import java.util.List;
+import java.time.Instant;
+import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 @Service
 public class EmailService {
 
-    private static final Duration OTP_TTL = Duration.ofMinutes(5);
-    private static final String BREVO_URL = "https://api.brevo.com/v3/smtp/email";
+    private static final String OTP_TTL_MINUTES = String.valueOf(Duration.ofMinutes(5).toMinutes());
 
-    @Value("${brevo.api.key:${BREVO_API_KEY:}}")
-    private String apiKey;
+    private final EmailOutboxRepository outboxRepo;
+    private final MailTransport mailTransport;
+    private final EmailTemplates templates;
 
-    @Value("${brevo.from:${BREVO_FROM:}}")
-    private String from;
+    public EmailService(EmailOutboxRepository outboxRepo, MailTransport mailTransport, EmailTemplates templates) {
+        this.outboxRepo = outboxRepo;
+        this.mailTransport = mailTransport;
+        this.templates = templates;
+    }
 
-    private final RestTemplate restTemplate = new RestTemplate();
+    // ไม่ส่งทันที: เขียนลง email_outbox (ใน transaction ของผู้เรียกถ้ามี) แล้ว EmailOutboxDispatcher ส่งทีหลัง
+    public void sendOtp(String toEmailRaw, String otp, EmailTemplates.Type template) {
+        sendOtp(toEmailRaw, otp, template, templates.defaultLocale());
+    }
 
-    public void sendOtp(String toEmailRaw, String otp, String purposeTh) {
+    public void sendOtp(String toEmailRaw, String otp, EmailTemplates.Type template, Locale locale) {
 
         String toEmail = (toEmailRaw == null) ? "" : toEmailRaw.trim();
         if (toEmail.isEmpty()) {
             throw new IllegalArgumentException("Email is required");
         }
 
-        if (apiKey == null || apiKey.isBlank()) {
-            throw new IllegalStateException("BREVO_API_KEY is not set");
-        }
-
-        if (from == null || from.isBlank()) {
-            throw new IllegalStateException("BREVO_FROM is not set");
-        }
-
-        String purpose = (purposeTh == null || purposeTh.trim().isEmpty())
-                ? "การยืนยันตัวตน"
-                : purposeTh.trim();
+        EmailTemplates.Rendered mail = templates.render(template, locale, Map.of(
+                "otp", otp,
+                "ttlMinutes", OTP_TTL_MINUTES
+        ));
 
-        String subject = "MiniBank - รหัส OTP สำหรับ " + purpose;
-
-        String html =
-                "<div style='font-family:Arial,sans-serif'>" +
-                        "<h2>MiniBank</h2>" +
-                        "<p>รหัส OTP สำหรับ <b>" + escapeHtml(purpose) + "</b> คือ</p>" +
-                        "<h1 style='letter-spacing:2px'>" + escapeHtml(otp) + "</h1>" +
-                        "<p>รหัสมีอายุ " + OTP_TTL.toMinutes() + " นาที</p>" +
-                        "<p><b>ห้ามบอกรหัสนี้กับผู้อื่น</b></p>" +
-                        "</div>";
-
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_JSON);
-        headers.set("api-key", apiKey);
-
-        Map<String, Object> sender = Map.of("email", from);
-        Map<String, Object> to = Map.of("email", toEmail);
-
-        Map<String, Object> body = Map.of(
-                "sender", sender,
-                "to", List.of(to),
-                "subject", subject,
-                "htmlContent", html
-        );
+        enqueue(toEmail, mail.subject(), mail.html(), EmailOutbox.PRIORITY_OTP);
+    }
 
-        try {
-            restTemplate.postForEntity(
-                    BREVO_URL,
-                    new HttpEntity<>(body, headers),
-                    String.class
-            );
-        } catch (RestClientResponseException e) {
-            throw new RuntimeException(
-                    "Send email failed (Brevo). HTTP "
-                            + e.getStatusCode().value()
-                            + ": "
-                            + e.getResponseBodyAsString(),
-                    e
-            );
-        }
+    public void enqueue(String toEmail, String subject, String html, int priority) {
+        Instant now = Instant.now();
+        outboxRepo.save(EmailOutbox.builder()
+                .toEmail(toEmail)
+                .subject(subject)
+                .htmlContent(html)
+                .priority(priority)
+                .status(EmailOutbox.Status.PENDING)
+                .attempts(0)
+                .nextAttemptAt(now)
+                .createdAt(now)
+                .build());
     }
 
-    private static String escapeHtml(String s) {
-        if (s == null) return "";
-        return s.replace("&", "&amp;")
-                .replace("<", "&lt;")
-                .replace(">", "&gt;")
-                .replace("\"", "&quot;")
-                .replace("'", "&#39;");
+    // ส่งจริงผ่าน MailTransport (เรียกจาก dispatcher เท่านั้น)
+    public CompletableFuture<Void> deliver(EmailOutbox message) {
+        return mailTransport.send(message.getToEmail(), message.getSubject(), message.getHtmlContent());
     }
-}
\ No newline at end of file
+}
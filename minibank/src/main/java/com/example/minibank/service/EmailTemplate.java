@@ -0,0 +1,77 @@
+package com.example.minibank.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+// template ที่ parse แล้ว: ข้อความคงที่สลับกับช่อง {{name}}
+// render แค่ต่อ literal กับค่าที่ escape แล้วลง StringBuilder ไม่ต้อง parse ซ้ำ
+final class EmailTemplate {
+
+    private final String[] literals;
+    private final String[] slots;
+    private final boolean escapeHtml;
+
+    private EmailTemplate(String[] literals, String[] slots, boolean escapeHtml) {
+        this.literals = literals;
+        this.slots = slots;
+        this.escapeHtml = escapeHtml;
+    }
+
+    static EmailTemplate compile(String source, boolean escapeHtml) {
+        List<String> literals = new ArrayList<>();
+        List<String> slots = new ArrayList<>();
+
+        int pos = 0;
+        while (true) {
+            int open = source.indexOf("{{", pos);
+            if (open < 0) break;
+            int close = source.indexOf("}}", open + 2);
+            if (close < 0) throw new IllegalArgumentException("Unclosed {{ at offset " + open);
+
+            String name = source.substring(open + 2, close).trim();
+            if (name.isEmpty()) throw new IllegalArgumentException("Empty placeholder at offset " + open);
+
+            literals.add(source.substring(pos, open));
+            slots.add(name);
+            pos = close + 2;
+        }
+        literals.add(source.substring(pos));
+
+        return new EmailTemplate(literals.toArray(String[]::new), slots.toArray(String[]::new), escapeHtml);
+    }
+
+    void render(StringBuilder out, Map<String, ?> values) {
+        for (int i = 0; i < slots.length; i++) {
+            out.append(literals[i]);
+            Object value = values.get(slots[i]);
+            if (value == null) throw new IllegalArgumentException("Missing template value: " + slots[i]);
+            if (escapeHtml) escapeHtml(out, value.toString());
+            else out.append(value);
+        }
+        out.append(literals[slots.length]);
+    }
+
+    List<String> slots() {
+        return List.of(slots);
+    }
+
+    // escape ในรอบเดียว: ต่อช่วงที่ไม่ต้อง escape ทีละก้อน
+    static void escapeHtml(StringBuilder out, CharSequence s) {
+        int start = 0;
+        for (int i = 0, n = s.length(); i < n; i++) {
+            String replacement = switch (s.charAt(i)) {
+                case '&' -> "&amp;";
+                case '<' -> "&lt;";
+                case '>' -> "&gt;";
+                case '"' -> "&quot;";
+                case '\'' -> "&#39;";
+                default -> null;
+            };
+            if (replacement == null) continue;
+            out.append(s, start, i).append(replacement);
+            start = i + 1;
+        }
+        out.append(s, start, s.length());
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.minibank.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+// โหลดและ compile template อีเมลทั้งหมดจาก classpath:mail/ ตอน startup แล้ว cache ไว้
+// ชื่อไฟล์: <type>_<locale>.html, บรรทัดแรกเป็น "subject: ..." ที่เหลือเป็น body (HTML)
+@Slf4j
+@Component
+public class EmailTemplates {
+
+    public enum Type {
+        REGISTRATION_OTP("registration-otp"),
+        PASSWORD_RESET_OTP("password-reset-otp");
+
+        private final String fileName;
+
+        Type(String fileName) {
+            this.fileName = fileName;
+        }
+    }
+
+    public record Rendered(String subject, String html) {}
+
+    private record Compiled(EmailTemplate subject, EmailTemplate body) {}
+
+    private static final String LOCATION = "classpath*:mail/*.html";
+    private static final String SUBJECT_PREFIX = "subject:";
+    private static final int MAX_RETAINED_BUFFER = 16 * 1024;
+
+    private final Map<String, Compiled> templates = new HashMap<>();
+    private final Locale defaultLocale;
+
+    private final ThreadLocal<StringBuilder> buffer = ThreadLocal.withInitial(() -> new StringBuilder(2048));
+
+    public EmailTemplates(@Value("${app.mail.default-locale:th}") String defaultLocale) throws IOException {
+        this.defaultLocale = Locale.forLanguageTag(defaultLocale);
+
+        for (Resource resource : new PathMatchingResourcePatternResolver().getResources(LOCATION)) {
+            String file = resource.getFilename();
+            if (file == null) continue;
+            String key = file.substring(0, file.length() - ".html".length());
+            templates.put(key, parse(file, read(resource)));
+        }
+
+        // template ของ locale หลักต้องมีครบทุกชนิด ไม่งั้นไม่ให้แอปขึ้น
+        for (Type type : Type.values()) {
+            if (!templates.containsKey(key(type, this.defaultLocale.getLanguage()))) {
+                throw new IllegalStateException("Missing email template mail/" + key(type, this.defaultLocale.getLanguage()) + ".html");
+            }
+        }
+        log.info("Email templates compiled: {}", templates.keySet());
+    }
+
+    public Rendered render(Type type, Locale locale, Map<String, ?> values) {
+        Compiled t = lookup(type, locale);
+
+        StringBuilder sb = buffer.get();
+        try {
+            sb.setLength(0);
+            t.subject().render(sb, values);
+            String subject = sb.toString();
+
+            sb.setLength(0);
+            t.body().render(sb, values);
+            return new Rendered(subject, sb.toString());
+        } finally {
+            // ไม่เก็บ buffer ใหญ่ ๆ ค้างไว้ใน thread
+            if (sb.capacity() > MAX_RETAINED_BUFFER) buffer.remove();
+        }
+    }
+
+    public Locale defaultLocale() {
+        return defaultLocale;
+    }
+
+    // ลองตาม tag เต็ม (th-TH) -> ภาษา (th) -> locale หลัก
+    private Compiled lookup(Type type, Locale locale) {
+        if (locale != null) {
+            Compiled t = templates.get(key(type, locale.toLanguageTag()));
+            if (t == null) t = templates.get(key(type, locale.getLanguage()));
+            if (t != null) return t;
+        }
+        return templates.get(key(type, defaultLocale.getLanguage()));
+    }
+
+    private static String key(Type type, String locale) {
+        return type.fileName + "_" + locale;
+    }
+
+    private static Compiled parse(String file, String source) {
+        int eol = source.indexOf('\n');
+        String first = (eol < 0 ? source : source.substring(0, eol)).trim();
+        if (!first.regionMatches(true, 0, SUBJECT_PREFIX, 0, SUBJECT_PREFIX.length())) {
+            throw new IllegalStateException("Email template " + file + " must start with \"subject:\"");
+        }
+
+        String subject = first.substring(SUBJECT_PREFIX.length()).trim();
+        String body = eol < 0 ? "" : source.substring(eol + 1).strip();
+        try {
+            return new Compiled(EmailTemplate.compile(subject, false), EmailTemplate.compile(body, true));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalStateException("Invalid email template " + file + ": " + e.getMessage(), e);
+        }
+    }
+
+    private static String read(Resource resource) throws IOException {
+        try (InputStream in = resource.getInputStream()) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
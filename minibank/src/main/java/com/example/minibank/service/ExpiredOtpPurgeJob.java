@@ -0,0 +1,112 @@
+package com.example.minibank.service;
+
+import com.example.minibank.repository.BatchTransferRepository;
+import com.example.minibank.repository.EmailOutboxRepository;
+import com.example.minibank.repository.PasswordResetRequestRepository;
+import com.example.minibank.repository.PendingRegistrationRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+// ลบ pending_registrations / password_reset_requests ที่ OTP หมดอายุ ไม่ถูกล็อก และพ้นหน้าต่างนับการส่งซ้ำแล้ว
+// และ email_outbox ที่ FAILED นานเกิน failed-mail-retention-hours (แถวที่ส่งสำเร็จถูกลบตั้งแต่ตอนส่ง)
+// และ batch_transfers ที่เก่ากว่า batch-transfer-retention-days (รายการบัญชีอยู่ใน journal_entries ไม่ได้ลบตาม)
+// ลบทีละ chunk (transaction ละ chunk) แล้วพักก่อน chunk ถัดไป จะได้ไม่ถือ lock นานหรือแย่ง I/O กับ auth
+@Slf4j
+@Component
+public class ExpiredOtpPurgeJob {
+
+    private final PendingRegistrationRepository pendingRepo;
+    private final PasswordResetRequestRepository resetRepo;
+    private final EmailOutboxRepository outboxRepo;
+    private final BatchTransferRepository batchRepo;
+    private final MeterRegistry meterRegistry;
+
+    private final int chunkSize;
+    private final long pauseMs;
+    private final Duration maxRunTime;
+    private final Duration failedMailRetention;
+    private final Duration batchTransferRetention;
+
+    public ExpiredOtpPurgeJob(
+            PendingRegistrationRepository pendingRepo,
+            PasswordResetRequestRepository resetRepo,
+            EmailOutboxRepository outboxRepo,
+            BatchTransferRepository batchRepo,
+            @Value("${app.purge.chunk-size:500}") int chunkSize,
+            @Value("${app.purge.pause-ms:200}") long pauseMs,
+            @Value("${app.purge.max-run-seconds:60}") long maxRunSeconds,
+            @Value("${app.purge.failed-mail-retention-hours:72}") long failedMailRetentionHours,
+            @Value("${app.purge.batch-transfer-retention-days:30}") long batchTransferRetentionDays,
+            MeterRegistry meterRegistry
+    ) {
+        this.pendingRepo = pendingRepo;
+        this.resetRepo = resetRepo;
+        this.outboxRepo = outboxRepo;
+        this.batchRepo = batchRepo;
+        this.chunkSize = chunkSize;
+        this.pauseMs = pauseMs;
+        this.maxRunTime = Duration.ofSeconds(maxRunSeconds);
+        this.failedMailRetention = Duration.ofHours(failedMailRetentionHours);
+        this.batchTransferRetention = Duration.ofDays(batchTransferRetentionDays);
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Scheduled(
+            initialDelayString = "${app.purge.initial-delay-ms:120000}",
+            fixedDelayString = "${app.purge.interval-ms:600000}"
+    )
+    public void purge() {
+        purge("pending_registrations", OtpRegistrationService.RESEND_WINDOW, pendingRepo::purgeExpired);
+        purge("password_reset_requests", PasswordResetService.RESEND_WINDOW, resetRepo::purgeExpired);
+        purge("email_outbox", failedMailRetention, (now, before, limit) -> outboxRepo.purgeFailed(before, limit));
+        purge("batch_transfers", batchTransferRetention, (now, before, limit) -> batchRepo.purgeCreatedBefore(before, limit));
+    }
+
+    private void purge(String table, Duration resendWindow, PurgeChunk chunk) {
+        long start = System.nanoTime();
+        long deadline = start + maxRunTime.toNanos();
+        long purged = 0;
+        int chunks = 0;
+
+        try {
+            while (true) {
+                Instant now = Instant.now();
+                int deleted = chunk.delete(now, now.minus(resendWindow), chunkSize);
+                purged += deleted;
+                chunks++;
+
+                // ก้อนไม่เต็ม = หมดแล้ว; เกินเวลาก็หยุดไว้ต่อรอบหน้า
+                if (deleted < chunkSize || System.nanoTime() > deadline) break;
+                Thread.sleep(pauseMs);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            log.warn("Purge of {} stopped after {} rows", table, purged, e);
+        }
+
+        long elapsed = System.nanoTime() - start;
+        Counter.builder("minibank.purge.rows").tag("table", table).register(meterRegistry).increment(purged);
+        Timer.builder("minibank.purge.duration").tag("table", table).register(meterRegistry)
+                .record(elapsed, TimeUnit.NANOSECONDS);
+
+        if (purged > 0) {
+            log.info("Purged {} expired rows from {} in {} chunks ({} ms)",
+                    purged, table, chunks, TimeUnit.NANOSECONDS.toMillis(elapsed));
+        }
+    }
+
+    @FunctionalInterface
+    private interface PurgeChunk {
+        int delete(Instant now, Instant windowBefore, int limit);
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.minibank.service;
+
+import com.example.minibank.repository.LedgerRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+// hot account = บัญชีระบบที่รับรายการถี่ (เช่น SYS-BILLERS) แยกยอดเป็น N แถวย่อยใน ledger_account_shards
+// credit สุ่มลงแถวย่อย จึงรับพร้อมกันได้ N รายการ; งานเป็นรอบย้ายยอดแถวย่อยกลับเข้าแถวหลัก
+// ตั้งค่า: app.ledger.hot-accounts=SYS-BILLERS:16,SYS-CASH:16
+@Slf4j
+@Component
+public class HotAccountRegistry {
+
+    private final LedgerRepository ledgerRepo;
+    private final TransactionTemplate tx;
+    private final String config;
+    private final MeterRegistry meterRegistry;
+
+    // อ่านจาก DB (แหล่งจริง) รีเฟรชทุกรอบ sweep; cache เก่าไม่ทำให้ยอดผิด แค่ลงแถวหลักแทน
+    private volatile Map<Long, LedgerRepository.HotAccount> byId = Map.of();
+
+    public HotAccountRegistry(
+            LedgerRepository ledgerRepo,
+            PlatformTransactionManager txManager,
+            @Value("${app.ledger.hot-accounts:}") String config,
+            MeterRegistry meterRegistry
+    ) {
+        this.ledgerRepo = ledgerRepo;
+        this.tx = new TransactionTemplate(txManager);
+        this.config = config;
+        this.meterRegistry = meterRegistry;
+    }
+
+    // null = ไม่ใช่ hot account (หรือกำลังลดเหลือแถวเดียว)
+    public LedgerRepository.HotAccount get(long accountId) {
+        LedgerRepository.HotAccount hot = byId.get(accountId);
+        return hot == null || hot.shardCount() <= 1 ? null : hot;
+    }
+
+    // มีแถวย่อย (รวมบัญชีที่เพิ่งลดเหลือแถวเดียวแต่ยังมีแถวย่อยค้าง) = ยอดในแถวหลักอาจไม่ใช่ยอดทั้งหมด
+    public boolean hasShards(long accountId) {
+        return byId.containsKey(accountId);
+    }
+
+    public int pickShard(LedgerRepository.HotAccount hot) {
+        return ThreadLocalRandom.current().nextInt(hot.shardCount());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void configure() {
+        for (String item : config.split(",")) {
+            String spec = item.trim();
+            if (spec.isEmpty()) continue;
+
+            int colon = spec.lastIndexOf(':');
+            String accountNo = colon < 0 ? spec : spec.substring(0, colon).trim();
+            int shards = colon < 0 ? 1 : Integer.parseInt(spec.substring(colon + 1).trim());
+            if (shards < 1) throw new IllegalStateException("Invalid shard count in app.ledger.hot-accounts: " + spec);
+
+            Boolean ok = tx.execute(status -> ledgerRepo.configureShards(accountNo, shards));
+            if (Boolean.TRUE.equals(ok)) {
+                log.info("Hot ledger account {}: {} shards", accountNo, shards);
+            } else {
+                log.warn("Hot ledger account {} not found or not a system account; ignored", accountNo);
+            }
+        }
+        refresh();
+    }
+
+    @Scheduled(
+            initialDelayString = "${app.ledger.rebalance-ms:5000}",
+            fixedDelayString = "${app.ledger.rebalance-ms:5000}"
+    )
+    public void rebalance() {
+        refresh();
+        for (LedgerRepository.HotAccount hot : byId.values()) {
+            Timer.Sample sample = Timer.start(meterRegistry);
+            try {
+                Long moved = tx.execute(status -> ledgerRepo.sweepShards(hot.accountId()));
+                if (moved != null && moved != 0) {
+                    log.debug("Swept {} minor units into {}", moved, hot.accountNo());
+                }
+            } catch (RuntimeException e) {
+                log.warn("Sweep of hot account {} failed", hot.accountNo(), e);
+            } finally {
+                sample.stop(Timer.builder("minibank.ledger.hot.sweep").tag("account", hot.accountNo()).register(meterRegistry));
+            }
+        }
+    }
+
+    private void refresh() {
+        Map<Long, LedgerRepository.HotAccount> next = new HashMap<>();
+        for (LedgerRepository.HotAccount hot : ledgerRepo.findHotAccounts()) {
+            next.put(hot.accountId(), hot);
+        }
+        byId = Map.copyOf(next);
+    }
+}
@@ -0,0 +1,359 @@
+package com.example.minibank.service;
+
+import com.example.minibank.entity.IdempotencyKey;
+import com.example.minibank.repository.IdempotencyKeyRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+// เก็บผลของคำขอที่มี Idempotency-Key: ด้านหน้าเป็น map ในหน่วยความจำ ด้านหลังเป็นตาราง idempotency_keys
+// คำขอซ้ำที่มาพร้อมกันใน instance เดียวรอ future ของคำขอแรก; ข้าม instance รอด้วยการ poll ตาราง
+// ทางที่ย้ายเงินใช้ executeInTransaction: คำตอบ commit พร้อมรายการบัญชี ไม่ใช่เขียนแยกทีหลัง
+@Slf4j
+@Service
+public class IdempotencyService {
+
+    public enum Outcome { EXECUTE, REPLAY, MISMATCH, IN_PROGRESS }
+
+    // ทำอย่างไรกับคีย์เมื่องานล้มหรือคำตอบเก็บไม่ได้ (5xx / 409 / 429 / ใหญ่เกิน)
+    public enum Mode {
+        // ลบคีย์ คำขอถัดไปทำใหม่ทั้งหมด
+        RELEASE,
+        // executeInTransaction: งานกับคำตอบ commit ด้วยกัน ล้ม = ไม่มีผลข้างเคียงเหลือ
+        TRANSACTIONAL,
+        // งาน commit ทีละส่วนและทำต่อจากที่ค้างได้ (โอนแบบ batch): ไม่ลบคีย์ ให้คำขอเดิมทำต่อได้ทันที
+        RESUMABLE
+    }
+
+    public record Response(int status, String contentType, byte[] body) {}
+
+    @FunctionalInterface
+    public interface Work {
+        Response run() throws Exception;
+    }
+
+    public record Decision(Outcome outcome, Response response) {
+        static final Decision EXECUTE = new Decision(Outcome.EXECUTE, null);
+        static final Decision MISMATCH = new Decision(Outcome.MISMATCH, null);
+        static final Decision IN_PROGRESS = new Decision(Outcome.IN_PROGRESS, null);
+
+        static Decision replay(Response response) {
+            return new Decision(Outcome.REPLAY, response);
+        }
+    }
+
+    // result: ได้ Response เมื่อเก็บผลแล้ว, ได้ null เมื่อผู้ทำงานปล่อยคีย์ (ให้คนที่รออยู่ลองจองเอง)
+    private static final class Slot {
+        final String requestHash;
+        final CompletableFuture<Response> result = new CompletableFuture<>();
+        volatile long evictAtMillis = Long.MAX_VALUE;
+
+        Slot(String requestHash) {
+            this.requestHash = requestHash;
+        }
+    }
+
+    private static final int MAX_CLAIM_ROUNDS = 3;
+
+    private final IdempotencyKeyRepository repo;
+    private final PlatformTransactionManager txManager;
+    private final Map<String, Slot> slots = new ConcurrentHashMap<>();
+
+    private final Duration ttl;
+    private final Duration memoryTtl;
+    private final int memoryMaxEntries;
+    private final Duration lease;
+    private final Duration maxWait;
+    private final long pollMs;
+    private final int maxBodyBytes;
+    private final int memoryMaxBodyBytes;
+    private final int purgeChunkSize;
+    // ledger engine บันทึกรายการนอก transaction ของ DB: งานที่ค้างจึงรู้ไม่ได้ว่าเงินย้ายแล้วหรือยัง
+    private final boolean ledgerEngine;
+
+    private final MeterRegistry meterRegistry;
+
+    public IdempotencyService(
+            IdempotencyKeyRepository repo,
+            PlatformTransactionManager txManager,
+            @Value("${app.idempotency.ttl-hours:24}") long ttlHours,
+            @Value("${app.idempotency.memory-ttl-seconds:600}") long memoryTtlSeconds,
+            @Value("${app.idempotency.memory-max-entries:50000}") int memoryMaxEntries,
+            @Value("${app.idempotency.lease-seconds:60}") long leaseSeconds,
+            @Value("${app.idempotency.max-wait-ms:10000}") long maxWaitMs,
+            @Value("${app.idempotency.poll-ms:100}") long pollMs,
+            @Value("${app.idempotency.max-body-bytes:2097152}") int maxBodyBytes,
+            @Value("${app.idempotency.memory-max-body-bytes:65536}") int memoryMaxBodyBytes,
+            @Value("${app.purge.chunk-size:500}") int purgeChunkSize,
+            @Value("${app.ledger.engine.enabled:false}") boolean ledgerEngine,
+            MeterRegistry meterRegistry
+    ) {
+        this.repo = repo;
+        this.txManager = txManager;
+        this.ttl = Duration.ofHours(ttlHours);
+        this.memoryTtl = Duration.ofSeconds(memoryTtlSeconds);
+        this.memoryMaxEntries = memoryMaxEntries;
+        this.lease = Duration.ofSeconds(leaseSeconds);
+        this.maxWait = Duration.ofMillis(maxWaitMs);
+        this.pollMs = pollMs;
+        this.maxBodyBytes = maxBodyBytes;
+        this.memoryMaxBodyBytes = memoryMaxBodyBytes;
+        this.purgeChunkSize = purgeChunkSize;
+        this.ledgerEngine = ledgerEngine;
+        this.meterRegistry = meterRegistry;
+    }
+
+    public Decision begin(String scope, String key, String requestHash, Mode mode) {
+        Decision decision = decide(slotId(scope, key), scope, key, requestHash, mode);
+        Counter.builder("minibank.idempotency").tag("outcome", decision.outcome().name().toLowerCase())
+                .register(meterRegistry).increment();
+        return decision;
+    }
+
+    private Decision decide(String id, String scope, String key, String requestHash, Mode mode) {
+        long deadline = System.nanoTime() + maxWait.toNanos();
+
+        for (int round = 0; round < MAX_CLAIM_ROUNDS; round++) {
+            Slot mine = new Slot(requestHash);
+            Slot slot = slots.putIfAbsent(id, mine);
+
+            if (slot != null) {
+                if (slot.evictAtMillis <= System.currentTimeMillis()) {
+                    slots.remove(id, slot);
+                    round--;
+                    continue;
+                }
+                if (!slot.requestHash.equals(requestHash)) return Decision.MISMATCH;
+
+                Response stored = await(slot, deadline);
+                if (stored != null) return Decision.replay(stored);
+                if (!slot.result.isDone()) return Decision.IN_PROGRESS;
+                continue; // ผู้ทำงานปล่อยคีย์ ลองจองเอง
+            }
+
+            try {
+                Decision decision = claimDurable(scope, key, requestHash, mode, deadline);
+                if (decision.outcome() == Outcome.REPLAY) {
+                    remember(id, mine, decision.response());
+                } else if (decision.outcome() != Outcome.EXECUTE) {
+                    forget(id, mine);
+                }
+                return decision;
+            } catch (RuntimeException e) {
+                forget(id, mine);
+                throw e;
+            }
+        }
+        return Decision.IN_PROGRESS;
+    }
+
+    private Decision claimDurable(String scope, String key, String requestHash, Mode mode, long deadline) {
+        while (true) {
+            Instant now = Instant.now();
+            if (repo.tryClaim(scope, key, requestHash, now, now.plus(ttl))) return Decision.EXECUTE;
+
+            IdempotencyKeyRepository.Stored row = repo.find(scope, key);
+            if (row != null && row.expiresAt().isAfter(now)) {
+                if (!row.requestHash().equals(requestHash)) return Decision.MISMATCH;
+
+                if (row.status() == IdempotencyKey.Status.COMPLETED) {
+                    return Decision.replay(new Response(row.responseStatus(), row.contentType(), row.responseBody()));
+                }
+
+                // IN_PROGRESS ที่ instance อื่น; ค้างเกิน lease และแถวไม่ถูกล็อก = ผู้ทำงานไม่อยู่แล้ว
+                // ทางที่ย้ายเงิน: งานกับคำตอบ commit ด้วยกัน แถวที่ไม่ถูกล็อกจึงแปลว่ายังไม่มีรายการบัญชี
+                // ยกเว้นเมื่อใช้ ledger engine: ไม่ทำแทนเลย ค้าง IN_PROGRESS (409) จนหมด ttl ดีกว่าตัดเงินซ้ำ
+                if (row.lockedAt() != null && row.lockedAt().isBefore(now.minus(lease))
+                        && !(mode == Mode.TRANSACTIONAL && ledgerEngine)
+                        && repo.takeOver(scope, key, requestHash, now, now.minus(lease))) {
+                    return Decision.EXECUTE;
+                }
+            }
+
+            if (System.nanoTime() >= deadline) return Decision.IN_PROGRESS;
+            sleep(pollMs);
+        }
+    }
+
+    // เก็บผลเฉพาะคำตอบที่ลองใหม่แล้วจะได้ผลเดิม; 5xx / 409 / 429 ปล่อยคีย์ให้ลองใหม่ได้ (ตาม mode)
+    public void complete(String scope, String key, Mode mode, Response response) {
+        if (!storable(response)) {
+            fail(scope, key, mode);
+            return;
+        }
+
+        String id = slotId(scope, key);
+        Slot slot = slots.get(id);
+        try {
+            repo.complete(scope, key, response.status(), response.contentType(), response.body(), Instant.now().plus(ttl));
+        } catch (RuntimeException e) {
+            // แถวค้าง IN_PROGRESS จนหมด lease; คำขอที่รออยู่ใน instance นี้ยังได้ผลจาก memory
+            log.warn("Could not store idempotent response for {}", scope, e);
+        }
+        if (slot != null) remember(id, slot, response);
+    }
+
+    // ทำงานใน transaction เดียวกับรายการบัญชี (LedgerService.post เข้าร่วม transaction นี้) แล้วเก็บคำตอบก่อน commit
+    // commit = มีทั้งรายการและคำตอบ, rollback = ไม่มีทั้งคู่; แถวถูกล็อกตลอดงาน takeOver จึงข้ามไป
+    // คำตอบที่คืนต้องส่งให้ client หลังเมธอดนี้จบเท่านั้น (commit ล้ม = exception)
+    public Response executeInTransaction(String scope, String key, String requestHash, Work work) throws Exception {
+        TransactionStatus tx = txManager.getTransaction(TransactionDefinition.withDefaults());
+        if (!repo.lockClaim(scope, key, requestHash)) {
+            // แถวไม่ใช่ของคำขอนี้แล้ว: ไม่ทำงานและไม่ปล่อยคีย์ของผู้อื่น
+            txManager.rollback(tx);
+            throw new IllegalStateException("Idempotency claim lost for " + scope);
+        }
+
+        Response response;
+        boolean committed = false;
+        try {
+            response = work.run();
+            if (storable(response) && !tx.isRollbackOnly()) {
+                repo.complete(scope, key, response.status(), response.contentType(), response.body(), Instant.now().plus(ttl));
+                txManager.commit(tx);
+                committed = true;
+            } else {
+                txManager.rollback(tx);
+            }
+        } catch (Exception | Error e) {
+            if (!tx.isCompleted()) txManager.rollback(tx);
+            releaseAfterRollback(scope, key);
+            throw e;
+        }
+
+        if (!committed) {
+            // rollback-only = งานข้างในล้มแล้วถูกแปลงเป็น 4xx (เช่นยอดเงินไม่พอ): ไม่มีรายการ commit เก็บคำตอบแยกได้
+            if (storable(response)) complete(scope, key, Mode.TRANSACTIONAL, response);
+            else releaseAfterRollback(scope, key);
+            return response;
+        }
+
+        String id = slotId(scope, key);
+        Slot slot = slots.get(id);
+        if (slot != null) remember(id, slot, response);
+        return response;
+    }
+
+    // DB rollback แล้ว = ไม่มีรายการบัญชี ปล่อยคีย์ได้; ledger engine อาจบันทึกไปแล้ว คงแถว IN_PROGRESS ไว้
+    private void releaseAfterRollback(String scope, String key) {
+        if (!ledgerEngine) {
+            release(scope, key);
+            return;
+        }
+        log.error("Idempotent money request {} failed with the ledger engine enabled; key stays in progress until it expires", scope);
+        String id = slotId(scope, key);
+        Slot slot = slots.get(id);
+        if (slot != null && !slot.result.isDone()) forget(id, slot);
+    }
+
+    private boolean storable(Response response) {
+        int status = response.status();
+        return status < 500 && status != 409 && status != 429 && response.body().length <= maxBodyBytes;
+    }
+
+    // งานล้มก่อนเก็บคำตอบ
+    public void fail(String scope, String key, Mode mode) {
+        if (mode == Mode.RESUMABLE) abandon(scope, key);
+        else release(scope, key);
+    }
+
+    // คงคีย์ไว้ (คำขออื่นที่ใช้คีย์นี้ยังได้ MISMATCH) แต่ให้คำขอเดิมที่ส่งซ้ำ takeOver ได้ทันทีโดยไม่ต้องรอ lease
+    public void abandon(String scope, String key) {
+        String id = slotId(scope, key);
+        try {
+            repo.abandon(scope, key);
+        } finally {
+            Slot slot = slots.get(id);
+            if (slot != null && !slot.result.isDone()) forget(id, slot);
+        }
+    }
+
+    public void release(String scope, String key) {
+        String id = slotId(scope, key);
+        try {
+            repo.release(scope, key);
+        } finally {
+            Slot slot = slots.get(id);
+            if (slot != null && !slot.result.isDone()) forget(id, slot);
+        }
+    }
+
+    private void remember(String id, Slot slot, Response response) {
+        slot.evictAtMillis = System.currentTimeMillis() + memoryTtl.toMillis();
+        slot.result.complete(response);
+        // memory เต็ม หรือคำตอบใหญ่ (เช่นรายงานโอนแบบ batch): ไม่เก็บต่อ คำขอซ้ำครั้งหน้าอ่านจากตาราง
+        if (slots.size() > memoryMaxEntries || response.body().length > memoryMaxBodyBytes) slots.remove(id, slot);
+    }
+
+    private void forget(String id, Slot slot) {
+        slots.remove(id, slot);
+        slot.result.complete(null);
+    }
+
+    private static Response await(Slot slot, long deadline) {
+        long remaining = deadline - System.nanoTime();
+        try {
+            return slot.result.get(Math.max(0, remaining), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            return null;
+        }
+    }
+
+    private static void sleep(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for idempotent request", e);
+        }
+    }
+
+    private static String slotId(String scope, String key) {
+        return scope + '\n' + key;
+    }
+
+    @Scheduled(fixedDelayString = "${app.idempotency.sweep-ms:30000}")
+    public void evictExpired() {
+        long now = System.currentTimeMillis();
+        slots.entrySet().removeIf(e -> e.getValue().evictAtMillis <= now);
+    }
+
+    @Scheduled(
+            initialDelayString = "${app.purge.initial-delay-ms:120000}",
+            fixedDelayString = "${app.purge.interval-ms:600000}"
+    )
+    public void purgeExpired() {
+        long purged = 0;
+        try {
+            int deleted;
+            do {
+                deleted = repo.purgeExpired(Instant.now(), purgeChunkSize);
+                purged += deleted;
+            } while (deleted == purgeChunkSize);
+        } catch (RuntimeException e) {
+            log.warn("Purge of idempotency_keys stopped after {} rows", purged, e);
+        }
+        Counter.builder("minibank.purge.rows").tag("table", "idempotency_keys").register(meterRegistry).increment(purged);
+        if (purged > 0) log.info("Purged {} expired idempotency keys", purged);
+    }
+}
@@ -0,0 +1,227 @@
+package com.example.minibank.service;
+
+import com.example.minibank.entity.PendingRegistration;
+import com.example.minibank.repository.PendingRegistrationRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.UnaryOperator;
+
+// เก็บ pending registration ไว้ในหน่วยความจำ หมดอายุด้วย timer (app.pending.store=memory, ใช้ได้ instance เดียว เช่นตอน dev)
+// เปิด write-behind (app.pending.write-behind=true) เพื่อเขียนลง pending_registrations เป็นรอบ ๆ ไว้กู้คืนหลัง restart
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.pending.store", havingValue = "memory")
+public class InMemoryPendingRegistrationStore implements PendingRegistrationStore {
+
+    private final Map<String, PendingRegistration> byUsername = new ConcurrentHashMap<>();
+    private final Map<String, String> usernameByEmail = new ConcurrentHashMap<>();
+    private final Map<String, ScheduledFuture<?>> expiryTimers = new ConcurrentHashMap<>();
+    private final Set<String> dirty = ConcurrentHashMap.newKeySet();
+
+    private final ScheduledThreadPoolExecutor timer;
+
+    private final PendingRegistrationRepository pendingRepo;
+    private final TransactionTemplate tx;
+    private final boolean writeBehind;
+
+    public InMemoryPendingRegistrationStore(
+            PendingRegistrationRepository pendingRepo,
+            PlatformTransactionManager txManager,
+            @Value("${app.pending.write-behind:false}") boolean writeBehind
+    ) {
+        this.pendingRepo = pendingRepo;
+        this.tx = new TransactionTemplate(txManager);
+        this.writeBehind = writeBehind;
+
+        this.timer = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread t = new Thread(r, "pending-expiry");
+            t.setDaemon(true);
+            return t;
+        });
+        this.timer.setRemoveOnCancelPolicy(true);
+    }
+
+    @Override
+    public Optional<PendingRegistration> findByUsername(String username) {
+        PendingRegistration p = byUsername.get(username);
+        if (p == null || !retainUntil(p).isAfter(Instant.now())) return Optional.empty();
+        return Optional.of(copy(p));
+    }
+
+    // fn รันนอก lock ของ map (ผู้เรียกอาจทำงานหนักใน fn) แล้วค่อย CAS ผลลัพธ์เข้าไป
+    // มีคนแก้ username เดียวกันตัดหน้า = เรียก fn ใหม่กับค่าล่าสุด (fn จึงต้องเรียกซ้ำได้)
+    @Override
+    public PendingRegistration update(String username, UnaryOperator<PendingRegistration> fn) {
+        while (true) {
+            PendingRegistration existing = byUsername.get(username);
+            PendingRegistration current = existing;
+            if (current != null && !retainUntil(current).isAfter(Instant.now())) current = null;
+
+            PendingRegistration next = fn.apply(current == null ? null : copy(current));
+
+            if (next == null) {
+                if (existing != null) {
+                    if (!byUsername.remove(username, existing)) continue;
+                    usernameByEmail.remove(existing.getEmail(), username);
+                }
+                cancelExpiry(username);
+                markDirty(username);
+                return null;
+            }
+
+            claimEmail(username, next.getEmail());
+            boolean swapped = existing == null
+                    ? byUsername.putIfAbsent(username, next) == null
+                    : byUsername.replace(username, existing, next);
+            if (!swapped) continue;
+
+            if (existing != null && !existing.getEmail().equals(next.getEmail())) {
+                usernameByEmail.remove(existing.getEmail(), username);
+            }
+            scheduleExpiry(username, retainUntil(next));
+            markDirty(username);
+            return copy(next);
+        }
+    }
+
+    @Override
+    public void delete(String username) {
+        PendingRegistration removed = byUsername.remove(username);
+        if (removed != null) usernameByEmail.remove(removed.getEmail(), username);
+        cancelExpiry(username);
+        markDirty(username);
+    }
+
+    // email ต้องไม่ซ้ำกับรายการที่ยังไม่หมดอายุของ username อื่น (เหมือน unique constraint ของตาราง)
+    private void claimEmail(String username, String email) {
+        String owner = usernameByEmail.putIfAbsent(email, username);
+        if (owner == null || owner.equals(username)) return;
+
+        PendingRegistration other = byUsername.get(owner);
+        if (other != null && other.getEmail().equals(email) && retainUntil(other).isAfter(Instant.now())) {
+            throw new DataIntegrityViolationException("pending registration email already in use");
+        }
+        usernameByEmail.put(email, username);
+    }
+
+    // เก็บไว้จนกว่า OTP หมดอายุ, ล็อกหมดเวลา และหน้าต่างนับการส่งซ้ำปิด
+    private static Instant retainUntil(PendingRegistration p) {
+        Instant until = p.getExpiresAt();
+        if (p.getLockedUntil() != null && p.getLockedUntil().isAfter(until)) until = p.getLockedUntil();
+        if (p.getWindowStartAt() != null) {
+            Instant windowEnd = p.getWindowStartAt().plus(OtpRegistrationService.RESEND_WINDOW);
+            if (windowEnd.isAfter(until)) until = windowEnd;
+        }
+        return until;
+    }
+
+    private void scheduleExpiry(String username, Instant at) {
+        long delayMs = Math.max(0, Duration.between(Instant.now(), at).toMillis());
+        ScheduledFuture<?> next = timer.schedule(() -> expire(username), delayMs, TimeUnit.MILLISECONDS);
+        ScheduledFuture<?> previous = expiryTimers.put(username, next);
+        if (previous != null) previous.cancel(false);
+    }
+
+    private void cancelExpiry(String username) {
+        ScheduledFuture<?> previous = expiryTimers.remove(username);
+        if (previous != null) previous.cancel(false);
+    }
+
+    private void expire(String username) {
+        PendingRegistration[] removed = new PendingRegistration[1];
+        byUsername.computeIfPresent(username, (key, p) -> {
+            if (retainUntil(p).isAfter(Instant.now())) return p;
+            removed[0] = p;
+            return null;
+        });
+
+        if (removed[0] != null) {
+            usernameByEmail.remove(removed[0].getEmail(), username);
+            expiryTimers.remove(username);
+            markDirty(username);
+        }
+    }
+
+    private static PendingRegistration copy(PendingRegistration p) {
+        return p.toBuilder().build();
+    }
+
+    // ===== write-behind =====
+
+    private void markDirty(String username) {
+        if (writeBehind) dirty.add(username);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void recover() {
+        if (!writeBehind) return;
+
+        Instant now = Instant.now();
+        int loaded = 0;
+        for (PendingRegistration row : pendingRepo.findAll()) {
+            if (!retainUntil(row).isAfter(now)) continue;
+
+            PendingRegistration p = copy(row);
+            p.setId(null);
+            byUsername.put(p.getUsername(), p);
+            usernameByEmail.put(p.getEmail(), p.getUsername());
+            scheduleExpiry(p.getUsername(), retainUntil(p));
+            loaded++;
+        }
+        log.info("Pending registrations recovered from database: {}", loaded);
+    }
+
+    @Scheduled(fixedDelayString = "${app.pending.write-behind-ms:1000}")
+    public void flush() {
+        if (!writeBehind || dirty.isEmpty()) return;
+
+        for (String username : dirty) {
+            dirty.remove(username);
+            PendingRegistration snapshot = byUsername.get(username);
+            try {
+                persist(username, snapshot == null ? null : copy(snapshot));
+            } catch (RuntimeException e) {
+                log.warn("Write-behind failed for pending registration {}", username, e);
+            }
+        }
+    }
+
+    private void persist(String username, PendingRegistration snapshot) {
+        tx.executeWithoutResult(status -> {
+            PendingRegistration row = pendingRepo.findByUsername(username).orElse(null);
+
+            if (snapshot == null) {
+                if (row != null) pendingRepo.delete(row);
+                return;
+            }
+
+            snapshot.setId(row == null ? null : row.getId());
+            pendingRepo.save(snapshot);
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        timer.shutdownNow();
+        flush();
+    }
+}
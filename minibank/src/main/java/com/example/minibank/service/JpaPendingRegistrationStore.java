@@ -0,0 +1,48 @@
+package com.example.minibank.service;
+
+import com.example.minibank.entity.PendingRegistration;
+import com.example.minibank.repository.PendingRegistrationRepository;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+import java.util.function.UnaryOperator;
+
+// ค่าเริ่มต้น: ตาราง pending_registrations ใช้ร่วมกันได้ทุก replica (คำขอส่ง OTP กับยืนยันไม่จำเป็นต้องเข้าเครื่องเดียวกัน)
+@Component
+@ConditionalOnProperty(name = "app.pending.store", havingValue = "jpa", matchIfMissing = true)
+public class JpaPendingRegistrationStore implements PendingRegistrationStore {
+
+    private final PendingRegistrationRepository pendingRepo;
+
+    public JpaPendingRegistrationStore(PendingRegistrationRepository pendingRepo) {
+        this.pendingRepo = pendingRepo;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<PendingRegistration> findByUsername(String username) {
+        return pendingRepo.findByUsername(username);
+    }
+
+    @Override
+    @Transactional
+    public PendingRegistration update(String username, UnaryOperator<PendingRegistration> fn) {
+        // ล็อกแถวไว้จนจบ transaction: นับครั้งที่กรอก OTP ผิดจากหลาย replica พร้อมกันไม่หาย
+        PendingRegistration current = pendingRepo.findForUpdateByUsername(username).orElse(null);
+        PendingRegistration next = fn.apply(current);
+
+        if (next == null) {
+            if (current != null) pendingRepo.delete(current);
+            return null;
+        }
+        return pendingRepo.save(next);
+    }
+
+    @Override
+    @Transactional
+    public void delete(String username) {
+        pendingRepo.findByUsername(username).ifPresent(pendingRepo::delete);
+    }
+}
@@ -0,0 +1,159 @@
+package com.example.minibank.service;
+
+import com.example.minibank.dto.DashboardSummary;
+import com.example.minibank.entity.JournalEntry;
+import com.example.minibank.repository.LedgerRepository;
+import com.example.minibank.repository.LedgerRollupRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// ยอดรายรับ/รายจ่ายรายเดือนของบัญชีลูกค้า: บวกเพิ่มทุก posting (ใน transaction เดียวกัน) แทนการรวมจากประวัติทุกครั้งที่เปิด dashboard
+@Slf4j
+@Service
+public class LedgerRollupService {
+
+    private static final int REBUILD_CHUNK = 500;
+
+    private final LedgerRollupRepository rollupRepo;
+    private final TransactionTemplate tx;
+    private final ZoneId zone;
+    private final boolean backfillOnStart;
+
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+
+    public LedgerRollupService(
+            LedgerRollupRepository rollupRepo,
+            PlatformTransactionManager txManager,
+            @Value("${app.ledger.zone:Asia/Bangkok}") String zone,
+            @Value("${app.ledger.rollup-backfill-on-start:true}") boolean backfillOnStart
+    ) {
+        this.rollupRepo = rollupRepo;
+        this.tx = new TransactionTemplate(txManager);
+        this.zone = ZoneId.of(zone);
+        this.backfillOnStart = backfillOnStart;
+    }
+
+    // ต้องเรียกใน transaction ที่บันทึก postings
+    public void record(JournalEntry.Type type, Instant at, List<LedgerRepository.Posting> postings) {
+        rollupRepo.add(monthOf(at).atDay(1), type.name(), postings);
+    }
+
+    public YearMonth monthOf(Instant at) {
+        return YearMonth.from(at.atZone(zone));
+    }
+
+    // อ่านแค่ rollup ของ N เดือนล่าสุด (PK range) ไม่ขึ้นกับจำนวนรายการในประวัติ
+    DashboardSummary summary(LedgerRepository.AccountBalance balance, int months) {
+        YearMonth current = YearMonth.now(zone);
+        YearMonth first = current.minusMonths(months - 1L);
+
+        Map<YearMonth, long[]> totals = new LinkedHashMap<>();
+        for (YearMonth m = first; !m.isAfter(current); m = m.plusMonths(1)) totals.put(m, new long[4]);
+
+        List<DashboardSummary.CategoryTotal> categories = new ArrayList<>();
+        for (LedgerRollupRepository.MonthRow row : rollupRepo.findMonths(balance.accountId(), first.atDay(1), current.atDay(1))) {
+            YearMonth m = YearMonth.from(row.month());
+            long[] t = totals.get(m);
+            t[0] += row.incomeMinor();
+            t[1] += row.expenseMinor();
+            t[2] += row.incomeCount();
+            t[3] += row.expenseCount();
+
+            if (m.equals(current)) {
+                categories.add(new DashboardSummary.CategoryTotal(
+                        row.category(),
+                        Money.fromMinor(row.incomeMinor()),
+                        Money.fromMinor(row.expenseMinor()),
+                        (long) row.incomeCount() + row.expenseCount()));
+            }
+        }
+
+        List<DashboardSummary.MonthTotal> history = new ArrayList<>(totals.size());
+        totals.forEach((m, t) -> history.add(new DashboardSummary.MonthTotal(
+                m.toString(), Money.fromMinor(t[0]), Money.fromMinor(t[1]), t[2], t[3])));
+
+        long[] now = totals.get(current);
+        return new DashboardSummary(
+                balance.accountNo(),
+                balance.currency(),
+                Money.fromMinor(balance.balanceMinor()),
+                current.toString(),
+                Money.fromMinor(now[0]),
+                Money.fromMinor(now[1]),
+                now[2],
+                now[3],
+                categories,
+                history
+        );
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillOnStartup() {
+        if (!backfillOnStart) return;
+        try {
+            if (!rollupRepo.needsBackfill()) return;
+        } catch (RuntimeException e) {
+            log.warn("Could not check ledger rollups", e);
+            return;
+        }
+
+        // ไม่บล็อกการเปิดรับ request; posting ระหว่างนี้บวก rollup ตามปกติ และ rebuild ต่อบัญชีล็อกแถวบัญชีไว้
+        Thread t = new Thread(() -> {
+            try {
+                rebuildAll();
+            } catch (RuntimeException e) {
+                log.warn("Ledger rollup backfill failed", e);
+            }
+        }, "ledger-rollup-backfill");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    // คำนวณใหม่ทุกบัญชีลูกค้า ทีละบัญชี (transaction ละบัญชี) null = กำลังทำอยู่แล้ว
+    public Map<String, Object> rebuildAll() {
+        if (!rebuilding.compareAndSet(false, true)) return null;
+
+        try {
+            long started = System.currentTimeMillis();
+            long accounts = 0;
+            long rows = 0;
+            long afterId = 0;
+            List<Long> ids;
+            do {
+                ids = rollupRepo.findCustomerAccountIdsAfter(afterId, REBUILD_CHUNK);
+                for (long id : ids) {
+                    Integer n = tx.execute(status -> rollupRepo.rebuild(id, zone.getId()));
+                    rows += n == null ? 0 : n;
+                    accounts++;
+                    afterId = id;
+                }
+            } while (ids.size() == REBUILD_CHUNK);
+
+            long elapsed = System.currentTimeMillis() - started;
+            log.info("Ledger rollups rebuilt: {} accounts, {} rows in {} ms", accounts, rows, elapsed);
+
+            Map<String, Object> body = new LinkedHashMap<>();
+            body.put("accounts", accounts);
+            body.put("rows", rows);
+            body.put("elapsedMs", elapsed);
+            return body;
+        } finally {
+            rebuilding.set(false);
+        }
+    }
+}
@@ -0,0 +1,389 @@
+package com.example.minibank.service;
+
+import com.example.minibank.dto.AccountResponse;
+import com.example.minibank.dto.BillPaymentRequest;
+import com.example.minibank.dto.CashRequest;
+import com.example.minibank.dto.DashboardSummary;
+import com.example.minibank.dto.TransactionPage;
+import com.example.minibank.dto.TransactionResponse;
+import com.example.minibank.dto.TransferRequest;
+import com.example.minibank.entity.JournalEntry;
+import com.example.minibank.entity.LedgerAccount;
+import com.example.minibank.ledger.LedgerCore;
+import com.example.minibank.ledger.LedgerEngine;
+import com.example.minibank.repository.LedgerRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+// โอน / เติมเงิน / ถอนเงิน / จ่ายบิล เป็น journal entry แบบ double-entry
+// ยอดเงินเปลี่ยนด้วย UPDATE แบบมีเงื่อนไข (ไม่ read-modify-write) ใน transaction สั้น ๆ ต่อรายการ
+@Service
+public class LedgerService {
+
+    public record Leg(long accountId, long amountMinor) {}
+
+    // balanceAfter ของ hot account เป็น null
+    public record Posted(long entryId, Instant createdAt, Map<Long, Long> balanceAfter) {}
+
+    static final Pattern CUSTOMER_ACCOUNT_NO = Pattern.compile("^MB\\d{10}$");
+
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final String CURSOR_PREFIX = "t1:";
+
+    private final LedgerRepository ledgerRepo;
+    private final HotAccountRegistry hotAccounts;
+    private final LedgerRollupService rollups;
+    private final LedgerEngine engine; // null = ยอดเงินอยู่ในตาราง (ค่าเริ่มต้น)
+    private final TransactionTemplate tx;
+    private final ZoneId zone;
+    private final MeterRegistry meterRegistry;
+    private final Counter insufficientFunds;
+
+    // id ของบัญชีระบบไม่เปลี่ยน อ่านครั้งเดียว
+    private final Map<String, Long> systemAccounts = new ConcurrentHashMap<>();
+
+    public LedgerService(
+            LedgerRepository ledgerRepo,
+            HotAccountRegistry hotAccounts,
+            LedgerRollupService rollups,
+            ObjectProvider<LedgerEngine> engine,
+            PlatformTransactionManager txManager,
+            @Value("${app.ledger.zone:Asia/Bangkok}") String zone,
+            MeterRegistry meterRegistry
+    ) {
+        this.ledgerRepo = ledgerRepo;
+        this.hotAccounts = hotAccounts;
+        this.rollups = rollups;
+        this.engine = engine.getIfAvailable();
+        this.tx = new TransactionTemplate(txManager);
+        this.zone = ZoneId.of(zone);
+        this.meterRegistry = meterRegistry;
+        this.insufficientFunds = Counter.builder("minibank.ledger.rejected")
+                .tag("reason", "insufficient_funds")
+                .register(meterRegistry);
+    }
+
+    public AccountResponse myAccount(String username) {
+        LedgerRepository.CustomerAccount account = customerAccount(username);
+        LedgerRepository.AccountBalance balance = ledgerRepo.findBalance(account.accountId());
+        return new AccountResponse(balance.accountNo(), balance.currency(), Money.fromMinor(balance.balanceMinor()));
+    }
+
+    // months = จำนวนเดือนย้อนหลังรวมเดือนนี้
+    public DashboardSummary dashboard(String username, int months) {
+        if (months < 1 || months > 24) throw new RuntimeException("months ต้องอยู่ระหว่าง 1 ถึง 24");
+        LedgerRepository.CustomerAccount account = customerAccount(username);
+        return rollups.summary(ledgerRepo.findBalance(account.accountId()), months);
+    }
+
+    // ประวัติรายการ ใหม่ -> เก่า; from/to เป็นวันที่ตาม app.ledger.zone (to รวมทั้งวัน)
+    // หน้าถัดไปเริ่มจากแถวสุดท้ายของหน้าก่อนผ่าน index เสมอ ไม่ใช้ OFFSET
+    public TransactionPage history(String username, String cursor, Integer limitRaw,
+                                   String typeRaw, LocalDate from, LocalDate to) {
+        int limit = limitRaw == null ? DEFAULT_PAGE_SIZE : Math.max(1, Math.min(limitRaw, MAX_PAGE_SIZE));
+        JournalEntry.Type type = parseType(typeRaw);
+        if (from != null && to != null && from.isAfter(to)) throw new RuntimeException("ช่วงวันที่ไม่ถูกต้อง");
+
+        Instant fromAt = from == null ? null : from.atStartOfDay(zone).toInstant();
+        Instant toAt = to == null ? null : to.plusDays(1).atStartOfDay(zone).toInstant();
+
+        Instant beforeAt = null;
+        Long beforeId = null;
+        if (cursor != null && !cursor.isBlank()) {
+            long[] c = decodeCursor(cursor);
+            beforeAt = Instant.EPOCH.plus(c[0], ChronoUnit.MICROS);
+            beforeId = c[1];
+        }
+
+        LedgerRepository.CustomerAccount account = customerAccount(username);
+
+        // ดึงเกินมา 1 แถวเพื่อรู้ว่ายังมีหน้าถัดไปไหม
+        List<LedgerRepository.HistoryRow> rows = ledgerRepo.findHistory(
+                account.accountId(), type, fromAt, toAt, beforeAt, beforeId, limit + 1);
+
+        boolean more = rows.size() > limit;
+        List<TransactionResponse> items = new ArrayList<>(Math.min(rows.size(), limit));
+        for (LedgerRepository.HistoryRow row : more ? rows.subList(0, limit) : rows) {
+            items.add(new TransactionResponse(
+                    row.entryId(),
+                    row.type(),
+                    row.counterparty(),
+                    row.reference(),
+                    row.note(),
+                    Money.fromMinor(row.amountMinor()),
+                    row.balanceAfterMinor() == null ? null : Money.fromMinor(row.balanceAfterMinor()),
+                    row.createdAt()
+            ));
+        }
+
+        if (!more) return new TransactionPage(items, null);
+        LedgerRepository.HistoryRow last = rows.get(limit - 1);
+        return new TransactionPage(items, encodeCursor(last.createdAt(), last.postingId()));
+    }
+
+    public TransactionResponse transfer(String username, TransferRequest req) {
+        LedgerRepository.CustomerAccount from = customerAccount(username);
+        long amount = Money.toMinor(req.getAmount());
+        String to = safe(req.getTo());
+        if (to.isEmpty()) throw new RuntimeException("กรอกบัญชีปลายทาง");
+        if (to.equals(from.accountNo())) throw new RuntimeException("โอนเข้าบัญชีตัวเองไม่ได้");
+
+        // MB... = บัญชีในระบบ, อย่างอื่นถือเป็นโอนต่างธนาคาร (พักไว้ที่ SYS-INTERBANK)
+        long toAccountId;
+        if (CUSTOMER_ACCOUNT_NO.matcher(to).matches()) {
+            OptionalLong id = ledgerRepo.findAccountIdByNo(to);
+            if (id.isEmpty()) throw new RuntimeException("ไม่พบบัญชีปลายทาง");
+            toAccountId = id.getAsLong();
+        } else {
+            toAccountId = systemAccount(LedgerAccount.SYSTEM_INTERBANK);
+        }
+
+        return postForCustomer(from, JournalEntry.Type.TRANSFER, -amount, toAccountId, to, null, req.getNote());
+    }
+
+    public TransactionResponse topUp(String username, CashRequest req) {
+        LedgerRepository.CustomerAccount account = customerAccount(username);
+        long amount = Money.toMinor(req.getAmount());
+        return postForCustomer(account, JournalEntry.Type.TOPUP, amount,
+                systemAccount(LedgerAccount.SYSTEM_CASH), safe(req.getChannel()), null, req.getNote());
+    }
+
+    public TransactionResponse withdraw(String username, CashRequest req) {
+        LedgerRepository.CustomerAccount account = customerAccount(username);
+        long amount = Money.toMinor(req.getAmount());
+        return postForCustomer(account, JournalEntry.Type.WITHDRAWAL, -amount,
+                systemAccount(LedgerAccount.SYSTEM_CASH), safe(req.getChannel()), null, req.getNote());
+    }
+
+    public TransactionResponse payBill(String username, BillPaymentRequest req) {
+        LedgerRepository.CustomerAccount account = customerAccount(username);
+        long amount = Money.toMinor(req.getAmount());
+        String counterparty = safe(req.getProvider()) + " - " + safe(req.getBill());
+        return postForCustomer(account, JournalEntry.Type.BILL_PAYMENT, -amount,
+                systemAccount(LedgerAccount.SYSTEM_BILLERS), counterparty, emptyToNull(req.getRef()), null);
+    }
+
+    // customerAmount: + เข้าบัญชีลูกค้า, - ออกจากบัญชีลูกค้า; อีกฝั่งเป็น counterAccountId
+    private TransactionResponse postForCustomer(
+            LedgerRepository.CustomerAccount customer,
+            JournalEntry.Type type,
+            long customerAmount,
+            long counterAccountId,
+            String counterparty,
+            String reference,
+            String note
+    ) {
+        if (engine != null) return postViaEngine(customer, type, customerAmount, counterAccountId, counterparty, reference, note);
+
+        Posted posted = post(type, customer.userId(),
+                List.of(new Leg(customer.accountId(), customerAmount), new Leg(counterAccountId, -customerAmount)),
+                counterparty, reference, emptyToNull(note));
+
+        return new TransactionResponse(
+                posted.entryId(),
+                type.name(),
+                counterparty,
+                reference,
+                emptyToNull(note),
+                Money.fromMinor(Math.abs(customerAmount)),
+                Money.fromMinor(posted.balanceAfter().get(customer.accountId())),
+                posted.createdAt()
+        );
+    }
+
+    // รายการลูกค้ามีสองขาเสมอ: เงินออกจากลูกค้า = ตัดลูกค้าเข้าบัญชีคู่, เงินเข้า = ตัดบัญชีคู่เข้าลูกค้า
+    private TransactionResponse postViaEngine(
+            LedgerRepository.CustomerAccount customer,
+            JournalEntry.Type type,
+            long customerAmount,
+            long counterAccountId,
+            String counterparty,
+            String reference,
+            String note
+    ) {
+        boolean outgoing = customerAmount < 0;
+        long amount = Math.abs(customerAmount);
+
+        Timer.Sample sample = Timer.start(meterRegistry);
+        LedgerEngine.Posted posted = engine.post(type, customer.userId(),
+                outgoing ? customer.accountId() : counterAccountId,
+                outgoing ? counterAccountId : customer.accountId(),
+                amount, counterparty, reference, emptyToNull(note));
+        sample.stop(Timer.builder("minibank.ledger.post").tag("type", type.name()).register(meterRegistry));
+
+        if (posted.status() == LedgerCore.Status.INSUFFICIENT_FUNDS) {
+            insufficientFunds.increment();
+            throw new InsufficientFundsException();
+        }
+        if (!posted.ok()) throw new IllegalStateException("Ledger engine rejected entry: " + posted.status());
+
+        return new TransactionResponse(
+                posted.entryId(),
+                type.name(),
+                counterparty,
+                reference,
+                emptyToNull(note),
+                Money.fromMinor(amount),
+                Money.fromMinor(outgoing ? posted.debitBalance() : posted.creditBalance()),
+                posted.createdAt()
+        );
+    }
+
+    // บันทึก entry หนึ่งรายการ: legs ต้องรวมกันได้ 0 และไม่มีบัญชีซ้ำ
+    // อัปเดตบัญชีเรียงตาม id เสมอ เพื่อไม่ให้สอง transaction ล็อกสลับลำดับกันจน deadlock
+    public Posted post(JournalEntry.Type type, Long initiatedBy, List<Leg> legs,
+                       String counterparty, String reference, String note) {
+        List<Leg> ordered = ordered(legs);
+
+        Timer.Sample sample = Timer.start(meterRegistry);
+        Posted posted = tx.execute(status -> {
+            Instant now = Instant.now();
+            Map<Long, Long> balances = applyLegs(ordered);
+            List<LedgerRepository.Posting> postings = new ArrayList<>(ordered.size());
+            for (Leg leg : ordered) {
+                postings.add(new LedgerRepository.Posting(leg.accountId(), leg.amountMinor(), balances.get(leg.accountId())));
+            }
+
+            long entryId = ledgerRepo.insertEntry(type, initiatedBy, counterparty, reference, note, now);
+            ledgerRepo.insertPostings(entryId, type, postings, now);
+            rollups.record(type, now, postings);
+            return new Posted(entryId, now, balances);
+        });
+        sample.stop(Timer.builder("minibank.ledger.post").tag("type", type.name()).register(meterRegistry));
+        return posted;
+    }
+
+    // legs ต้องรวมกันได้ 0 และไม่มีบัญชีซ้ำ; คืนรายการเรียงตาม account id
+    static List<Leg> ordered(List<Leg> legs) {
+        long sum = 0;
+        for (Leg leg : legs) sum = Math.addExact(sum, leg.amountMinor());
+        if (sum != 0) throw new IllegalArgumentException("Journal entry is not balanced: " + sum);
+
+        List<Leg> ordered = new ArrayList<>(legs);
+        ordered.sort(Comparator.comparingLong(Leg::accountId));
+        for (int i = 1; i < ordered.size(); i++) {
+            if (ordered.get(i).accountId() == ordered.get(i - 1).accountId()) {
+                throw new IllegalArgumentException("Duplicate account in journal entry: " + ordered.get(i).accountId());
+            }
+        }
+        return ordered;
+    }
+
+    // อัปเดตยอดทีละบัญชีตามลำดับที่ส่งมา (ต้องเรียงตาม id แล้ว) ใน transaction ของผู้เรียก
+    // คืนยอดหลังรายการต่อบัญชี (null = hot account)
+    Map<Long, Long> applyLegs(List<Leg> ordered) {
+        Map<Long, Long> balances = new HashMap<>(); // value null ได้
+        for (Leg leg : ordered) {
+            Long after;
+            LedgerRepository.HotAccount hot = hotAccounts.get(leg.accountId());
+            if (hot != null && (leg.amountMinor() > 0 || hot.allowNegative())
+                    && ledgerRepo.adjustShard(leg.accountId(), hotAccounts.pickShard(hot), leg.amountMinor())) {
+                // hot account: ลงแถวย่อยแบบสุ่ม ไม่แย่ง lock แถวเดียวกับรายการอื่น
+                after = null;
+            } else if (leg.amountMinor() < 0) {
+                // ตัดจากแถวหลักเท่านั้น (hot account ที่ห้ามติดลบ เช็คกับแถวหลัก)
+                OptionalLong debited = ledgerRepo.debit(leg.accountId(), -leg.amountMinor());
+                if (debited.isEmpty() && hotAccounts.hasShards(leg.accountId())
+                        && ledgerRepo.sweepShards(leg.accountId()) != 0) {
+                    // แถวหลักไม่พอแต่มียอดเข้าค้างในแถวย่อย: ย้ายเข้าแถวหลักใน transaction นี้แล้วลองอีกครั้ง
+                    // (ไม่รวม sum ของแถวย่อยในเงื่อนไข UPDATE: sweep ที่ commit พร้อมกันจะทำให้นับยอดซ้ำ)
+                    debited = ledgerRepo.debit(leg.accountId(), -leg.amountMinor());
+                }
+                if (debited.isEmpty()) {
+                    insufficientFunds.increment();
+                    throw new InsufficientFundsException();
+                }
+                after = debited.getAsLong();
+            } else {
+                after = ledgerRepo.credit(leg.accountId(), leg.amountMinor());
+            }
+            // ยอดแถวหลักของ hot account ไม่ใช่ยอดรวม
+            if (hot != null) after = null;
+            balances.put(leg.accountId(), after);
+        }
+        return balances;
+    }
+
+    static final class InsufficientFundsException extends RuntimeException {
+        InsufficientFundsException() {
+            super("ยอดเงินไม่พอ");
+        }
+    }
+
+    // เปิดบัญชีให้อัตโนมัติครั้งแรกที่ใช้งาน
+    LedgerRepository.CustomerAccount customerAccount(String username) {
+        if (username == null || username.trim().isEmpty()) throw new RuntimeException("กรุณาเข้าสู่ระบบ");
+
+        LedgerRepository.CustomerAccount account = ledgerRepo.findCustomerAccount(username);
+        if (account != null) return account;
+
+        ledgerRepo.openCustomerAccount(username, Instant.now());
+        account = ledgerRepo.findCustomerAccount(username);
+        if (account == null) throw new RuntimeException("ไม่พบผู้ใช้");
+        return account;
+    }
+
+    private static JournalEntry.Type parseType(String raw) {
+        if (raw == null || raw.isBlank()) return null;
+        try {
+            return JournalEntry.Type.valueOf(raw.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new RuntimeException("type ต้องเป็น TRANSFER, TOPUP, WITHDRAWAL หรือ BILL_PAYMENT");
+        }
+    }
+
+    // cursor = base64url("t1:" + created_at (micros) + ":" + posting id) ของแถวสุดท้ายในหน้า
+    private static String encodeCursor(Instant createdAt, long postingId) {
+        long micros = ChronoUnit.MICROS.between(Instant.EPOCH, createdAt);
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((CURSOR_PREFIX + micros + ":" + postingId).getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static long[] decodeCursor(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor.trim()), StandardCharsets.US_ASCII);
+            if (!raw.startsWith(CURSOR_PREFIX)) throw new IllegalArgumentException();
+            String[] parts = raw.substring(CURSOR_PREFIX.length()).split(":", 2);
+            if (parts.length != 2) throw new IllegalArgumentException();
+            return new long[]{Long.parseLong(parts[0]), Long.parseLong(parts[1])};
+        } catch (IllegalArgumentException e) {
+            throw new RuntimeException("cursor ไม่ถูกต้อง");
+        }
+    }
+
+    long systemAccount(String accountNo) {
+        return systemAccounts.computeIfAbsent(accountNo, ledgerRepo::systemAccountId);
+    }
+
+    private static String safe(String s) {
+        return s == null ? "" : s.trim();
+    }
+
+    private static String emptyToNull(String s) {
+        String v = safe(s);
+        return v.isEmpty() ? null : v;
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.minibank.service;
+
+import java.util.concurrent.CompletableFuture;
+
+public interface MailTransport {
+
+    // ไม่ block: future ล้มเหลวด้วย MailDeliveryException เมื่อส่งไม่สำเร็จ
+    CompletableFuture<Void> send(String toEmail, String subject, String html);
+
+    // false = circuit เปิดอยู่ ไม่ควรดึงงานมาส่งตอนนี้
+    boolean isAvailable();
+}
@@ -0,0 +1,35 @@
+package com.example.minibank.service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+// แปลงจำนวนเงินบาท (ทศนิยมไม่เกิน 2 ตำแหน่ง) <-> สตางค์แบบ long
+public final class Money {
+
+    public static final int SCALE = 2;
+
+    // ต่อรายการไม่เกิน 10 ล้านบาท (กัน overflow ตอนรวมยอด)
+    public static final long MAX_AMOUNT_MINOR = 10_000_000_00L;
+
+    private Money() {
+    }
+
+    public static long toMinor(BigDecimal amount) {
+        if (amount == null) throw new RuntimeException("กรอกจำนวนเงิน");
+        if (amount.stripTrailingZeros().scale() > SCALE) throw new RuntimeException("จำนวนเงินทศนิยมได้ไม่เกิน 2 ตำแหน่ง");
+        if (amount.signum() <= 0) throw new RuntimeException("จำนวนเงินต้องมากกว่า 0");
+
+        long minor;
+        try {
+            minor = amount.movePointRight(SCALE).longValueExact();
+        } catch (ArithmeticException e) {
+            throw new RuntimeException("จำนวนเงินเกินกำหนด");
+        }
+        if (minor > MAX_AMOUNT_MINOR) throw new RuntimeException("จำนวนเงินเกินกำหนด");
+        return minor;
+    }
+
+    public static BigDecimal fromMinor(long minor) {
+        return BigDecimal.valueOf(minor, SCALE).setScale(SCALE, RoundingMode.UNNECESSARY);
+    }
+}
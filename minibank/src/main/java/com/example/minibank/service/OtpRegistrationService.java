@@ -1,15 +1,19 @@
 package com.example.minibank.service;
 
+import com.example.minibank.audit.AuditEvent;
+import com.example.minibank.audit.AuditLog;
 import com.example.minibank.dto.AuthResponse;
 import com.example.minibank.dto.RegisterOtpRequest;
 import com.example.minibank.dto.VerifyOtpRequest;
 import com.example.minibank.entity.PendingRegistration;
 import com.example.minibank.entity.User;
-import com.example.minibank.repository.PendingRegistrationRepository;
 import com.example.minibank.repository.UserRepository;
 import com.example.minibank.security.JwtUtil;
+import com.example.minibank.security.OtpHasher;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.security.SecureRandom;
 import java.time.Duration;
@@ -21,31 +25,45 @@ public class OtpRegistrationService {
     private static final Duration OTP_TTL = Duration.ofMinutes(5);
     private static final int MAX_ATTEMPTS = 5;
 
-    private static final Duration RESEND_WINDOW = Duration.ofMinutes(15);
+    static final Duration RESEND_WINDOW = Duration.ofMinutes(15);
     private static final int MAX_RESEND = 5;
 
-    private final PendingRegistrationRepository pendingRepo;
+    private static final String OTP_PURPOSE = "register";
+
+    private final PendingRegistrationStore pendingStore;
     private final UserRepository userRepo;
+    private final UserExistenceIndex userIndex;
     private final PasswordEncoder passwordEncoder;
+    private final OtpHasher otpHasher;
     private final JwtUtil jwtUtil;
 
     
     private final EmailService emailService;
+    private final TransactionTemplate tx;
+    private final AuditLog auditLog;
 
     private final SecureRandom random = new SecureRandom();
 
     public OtpRegistrationService(
-            PendingRegistrationRepository pendingRepo,
+            PendingRegistrationStore pendingStore,
             UserRepository userRepo,
+            UserExistenceIndex userIndex,
             PasswordEncoder passwordEncoder,
+            OtpHasher otpHasher,
             JwtUtil jwtUtil,
-            EmailService emailService
+            EmailService emailService,
+            PlatformTransactionManager txManager,
+            AuditLog auditLog
     ) {
-        this.pendingRepo = pendingRepo;
+        this.pendingStore = pendingStore;
         this.userRepo = userRepo;
+        this.userIndex = userIndex;
         this.passwordEncoder = passwordEncoder;
+        this.otpHasher = otpHasher;
         this.jwtUtil = jwtUtil;
         this.emailService = emailService;
+        this.tx = new TransactionTemplate(txManager);
+        this.auditLog = auditLog;
     }
 
     public void requestOtp(RegisterOtpRequest req) {
@@ -59,63 +77,50 @@ public class OtpRegistrationService {
         if (email.isEmpty()) throw new RuntimeException("กรอก email");
         if (password.trim().isEmpty()) throw new RuntimeException("กรอก password");
 
-        if (userRepo.existsByUsername(username)) throw new RuntimeException("username ซ้ำ");
-        if (userRepo.existsByEmail(email)) throw new RuntimeException("email ถูกใช้งานแล้ว");
-
-        Instant now = Instant.now();
-
-        PendingRegistration pending = pendingRepo.findByUsername(username).orElse(null);
-
-        if (pending != null) {
-            if (pending.getLockedUntil() != null && pending.getLockedUntil().isAfter(now)) {
-                throw new RuntimeException("ถูกล็อกชั่วคราว กรุณารอแล้วลองใหม่");
-            }
-
-            if (pending.getWindowStartAt() == null
-                    || pending.getWindowStartAt().plus(RESEND_WINDOW).isBefore(now)) {
-                pending.setWindowStartAt(now);
-                pending.setResendCount(0);
-            }
-
-            if (pending.getResendCount() >= MAX_RESEND) {
-                throw new RuntimeException("ส่ง OTP บ่อยเกินไป (เกิน 5 ครั้งใน 15 นาที)");
-            }
-
-            pending.setFullName(fullName);
-            pending.setEmail(email);
-            pending.setPasswordHash(passwordEncoder.encode(password));
+        if (userIndex.usernameExists(username)) throw new RuntimeException("username ซ้ำ");
+        if (userIndex.emailExists(email)) throw new RuntimeException("email ถูกใช้งานแล้ว");
 
-            String otp = genOtp6();
-            pending.setOtpHash(passwordEncoder.encode(otp));
-            pending.setExpiresAt(now.plus(OTP_TTL));
-            pending.setAttempts(0);
-            pending.setLockedUntil(null);
-            pending.setResendCount(pending.getResendCount() + 1);
-
-            pendingRepo.save(pending);
-
-            //  เรียก Resend
-            emailService.sendOtp(email, otp, "การสมัครสมาชิก");
-            return;
-        }
+        // เช็คก่อน hash รหัสผ่าน จะได้ไม่เสีย BCrypt กับคำขอที่ถูกล็อก/ส่งถี่เกิน
+        pendingStore.findByUsername(username).ifPresent(p -> checkResendAllowed(p, Instant.now()));
 
+        String passwordHash = passwordEncoder.encode(password);
         String otp = genOtp6();
-        PendingRegistration created = PendingRegistration.builder()
-                .username(username)
-                .fullName(fullName)
-                .email(email)
-                .passwordHash(passwordEncoder.encode(password))
-                .otpHash(passwordEncoder.encode(otp))
-                .expiresAt(now.plus(OTP_TTL))
-                .attempts(0)
-                .resendCount(1)
-                .windowStartAt(now)
-                .build();
-
-        pendingRepo.save(created);
-
-       
-        emailService.sendOtp(email, otp, "การสมัครสมาชิก");
+        String otpHash = otpHasher.hash(OTP_PURPOSE, username, otp);
+
+        // OTP ใหม่ (และจำนวนครั้งที่ส่ง) กับอีเมลใน outbox commit พร้อมกัน
+        tx.executeWithoutResult(status -> {
+            pendingStore.update(username, pending -> {
+                Instant now = Instant.now();
+
+                if (pending == null) {
+                    return PendingRegistration.builder()
+                            .username(username)
+                            .fullName(fullName)
+                            .email(email)
+                            .passwordHash(passwordHash)
+                            .otpHash(otpHash)
+                            .expiresAt(now.plus(OTP_TTL))
+                            .attempts(0)
+                            .resendCount(1)
+                            .windowStartAt(now)
+                            .build();
+                }
+
+                checkResendAllowed(pending, now);
+
+                pending.setFullName(fullName);
+                pending.setEmail(email);
+                pending.setPasswordHash(passwordHash);
+                pending.setOtpHash(otpHash);
+                pending.setExpiresAt(now.plus(OTP_TTL));
+                pending.setAttempts(0);
+                pending.setLockedUntil(null);
+                pending.setResendCount(pending.getResendCount() + 1);
+                return pending;
+            });
+            emailService.sendOtp(email, otp, EmailTemplates.Type.REGISTRATION_OTP);
+        });
+        auditLog.record(AuditEvent.OTP_SENT, username, "register");
     }
 
     public AuthResponse verifyOtp(VerifyOtpRequest req) {
@@ -127,37 +132,74 @@ public class OtpRegistrationService {
         if (email.isEmpty()) throw new RuntimeException("กรอก email");
         if (otp.isEmpty()) throw new RuntimeException("กรอก OTP");
 
-        PendingRegistration pending = pendingRepo.findByUsername(username)
-                .orElseThrow(() -> new RuntimeException("ไม่พบรายการสมัครที่รอ OTP"));
+        // นับจำนวนครั้งที่ผิดแบบ atomic; error ที่ต้องบันทึกสถานะก่อน throw เก็บไว้ใน failure
+        String[] failure = new String[1];
+        // เหตุการณ์สำหรับ audit: บันทึกหลัง update เสร็จ (lambda อาจถูกเรียกซ้ำ)
+        AuditEvent[] event = new AuditEvent[1];
+        String[] reason = new String[1];
+
+        PendingRegistration pending = pendingStore.update(username, p -> {
+            failure[0] = null;
+            event[0] = null;
+            reason[0] = null;
+
+            if (p == null) {
+                failure[0] = "ไม่พบรายการสมัครที่รอ OTP";
+                event[0] = AuditEvent.OTP_FAILED;
+                reason[0] = "register:no_pending";
+                return null;
+            }
 
-        if (!pending.getEmail().equals(email)) throw new RuntimeException("email ไม่ตรงกับที่สมัครไว้");
+            if (!p.getEmail().equals(email)) {
+                failure[0] = "email ไม่ตรงกับที่สมัครไว้";
+                event[0] = AuditEvent.OTP_FAILED;
+                reason[0] = "register:email_mismatch";
+                return p;
+            }
 
-        Instant now = Instant.now();
+            Instant now = Instant.now();
 
-        if (pending.getLockedUntil() != null && pending.getLockedUntil().isAfter(now)) {
-            throw new RuntimeException("ถูกล็อกชั่วคราว กรุณารอแล้วลองใหม่");
-        }
+            if (p.getLockedUntil() != null && p.getLockedUntil().isAfter(now)) {
+                failure[0] = "ถูกล็อกชั่วคราว กรุณารอแล้วลองใหม่";
+                event[0] = AuditEvent.OTP_FAILED;
+                reason[0] = "register:locked";
+                return p;
+            }
 
-        if (pending.getExpiresAt().isBefore(now)) {
-            throw new RuntimeException("OTP หมดอายุ กรุณากดส่งใหม่");
-        }
+            if (p.getExpiresAt().isBefore(now)) {
+                failure[0] = "OTP หมดอายุ กรุณากดส่งใหม่";
+                event[0] = AuditEvent.OTP_FAILED;
+                reason[0] = "register:expired";
+                return p;
+            }
 
-        if (pending.getAttempts() >= MAX_ATTEMPTS) {
-            pending.setLockedUntil(pending.getExpiresAt());
-            pendingRepo.save(pending);
-            throw new RuntimeException("กรอก OTP ผิดเกินกำหนด กรุณากดส่งใหม่");
-        }
+            if (p.getAttempts() >= MAX_ATTEMPTS) {
+                p.setLockedUntil(p.getExpiresAt());
+                failure[0] = "กรอก OTP ผิดเกินกำหนด กรุณากดส่งใหม่";
+                event[0] = AuditEvent.OTP_LOCKED;
+                reason[0] = "register:too_many";
+                return p;
+            }
+
+            boolean ok = otpHasher.matches(OTP_PURPOSE, p.getUsername(), otp, p.getOtpHash());
+            if (!ok) {
+                p.setAttempts(p.getAttempts() + 1);
+                boolean locked = p.getAttempts() >= MAX_ATTEMPTS;
+                if (locked) p.setLockedUntil(p.getExpiresAt());
+                failure[0] = "OTP ไม่ถูกต้อง";
+                event[0] = locked ? AuditEvent.OTP_LOCKED : AuditEvent.OTP_FAILED;
+                reason[0] = "register:wrong";
+            }
+            return p;
+        });
 
-        boolean ok = passwordEncoder.matches(otp, pending.getOtpHash());
-        if (!ok) {
-            pending.setAttempts(pending.getAttempts() + 1);
-            if (pending.getAttempts() >= MAX_ATTEMPTS) pending.setLockedUntil(pending.getExpiresAt());
-            pendingRepo.save(pending);
-            throw new RuntimeException("OTP ไม่ถูกต้อง");
+        if (failure[0] != null) {
+            auditLog.record(event[0], username, reason[0]);
+            throw new RuntimeException(failure[0]);
         }
 
-        if (userRepo.existsByUsername(pending.getUsername())) throw new RuntimeException("username ซ้ำ");
-        if (userRepo.existsByEmail(pending.getEmail())) throw new RuntimeException("email ถูกใช้งานแล้ว");
+        if (userIndex.usernameExists(pending.getUsername())) throw new RuntimeException("username ซ้ำ");
+        if (userIndex.emailExists(pending.getEmail())) throw new RuntimeException("email ถูกใช้งานแล้ว");
 
         User user = User.builder()
                 .username(pending.getUsername())
@@ -168,12 +210,32 @@ public class OtpRegistrationService {
                 .build();
 
         User saved = userRepo.save(user);
-        pendingRepo.delete(pending);
+        userIndex.add(saved.getUsername(), saved.getEmail());
+        pendingStore.delete(pending.getUsername());
+        auditLog.record(AuditEvent.REGISTERED, saved.getUsername(), "otp");
 
         String token = jwtUtil.generateToken(saved.getUsername(), saved.getRole());
         return new AuthResponse(token, saved.getUsername(), saved.getRole(), saved.getEmail(), saved.getFullName());
     }
 
+    private void checkResendAllowed(PendingRegistration pending, Instant now) {
+        if (pending.getLockedUntil() != null && pending.getLockedUntil().isAfter(now)) {
+            auditLog.record(AuditEvent.OTP_THROTTLED, pending.getUsername(), "register:locked");
+            throw new RuntimeException("ถูกล็อกชั่วคราว กรุณารอแล้วลองใหม่");
+        }
+
+        if (pending.getWindowStartAt() == null
+                || pending.getWindowStartAt().plus(RESEND_WINDOW).isBefore(now)) {
+            pending.setWindowStartAt(now);
+            pending.setResendCount(0);
+        }
+
+        if (pending.getResendCount() >= MAX_RESEND) {
+            auditLog.record(AuditEvent.OTP_THROTTLED, pending.getUsername(), "register:window");
+            throw new RuntimeException("ส่ง OTP บ่อยเกินไป (เกิน 5 ครั้งใน 15 นาที)");
+        }
+    }
+
     private String safe(String s) {
         return s == null ? "" : s.trim();
     }
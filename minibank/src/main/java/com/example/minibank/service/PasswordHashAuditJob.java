@@ -0,0 +1,37 @@
+package com.example.minibank.service;
+
+import com.example.minibank.repository.UserRepository;
+import com.example.minibank.security.PasswordHashingPolicy;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// รายงานจำนวน user ที่ password hash ยังไม่ใช่ parameter ปัจจุบัน (จะถูก rehash ตอน login)
+@Slf4j
+@Component
+public class PasswordHashAuditJob {
+
+    private final UserRepository userRepository;
+    private final PasswordHashingPolicy policy;
+    private final AtomicLong outdated = new AtomicLong(-1);
+
+    public PasswordHashAuditJob(UserRepository userRepository, PasswordHashingPolicy policy, MeterRegistry meterRegistry) {
+        this.userRepository = userRepository;
+        this.policy = policy;
+        Gauge.builder("minibank.password.hash.outdated-users", outdated, AtomicLong::get).register(meterRegistry);
+    }
+
+    @Scheduled(
+            initialDelayString = "${app.password.outdated-report-initial-ms:60000}",
+            fixedDelayString = "${app.password.outdated-report-ms:3600000}"
+    )
+    public void report() {
+        long count = userRepository.countByPasswordHashNotLike(policy.currentHashPrefix() + "%");
+        outdated.set(count);
+        log.info("Password hashing: {} users not on bcrypt cost {}", count, policy.getStrength());
+    }
+}
@@ -1,13 +1,18 @@
 package com.example.minibank.service;
 
+import com.example.minibank.audit.AuditEvent;
+import com.example.minibank.audit.AuditLog;
 import com.example.minibank.dto.AuthResponse;
 import com.example.minibank.entity.PasswordResetRequest;
 import com.example.minibank.entity.User;
 import com.example.minibank.repository.PasswordResetRequestRepository;
 import com.example.minibank.repository.UserRepository;
 import com.example.minibank.security.JwtUtil;
+import com.example.minibank.security.OtpHasher;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.security.SecureRandom;
 import java.time.Duration;
@@ -21,34 +26,46 @@ public class PasswordResetService {
     private static final Duration OTP_TTL = Duration.ofMinutes(5);
     private static final int MAX_ATTEMPTS = 5;
 
-    private static final Duration RESEND_WINDOW = Duration.ofMinutes(15);
+    static final Duration RESEND_WINDOW = Duration.ofMinutes(15);
     private static final int MAX_RESEND = 5;
 
     private static final Duration RESEND_COOLDOWN = Duration.ofSeconds(60);
 
+    private static final String OTP_PURPOSE = "reset";
+
     private final UserRepository userRepo;
     private final PasswordResetRequestRepository resetRepo;
     private final PasswordEncoder passwordEncoder;
+    private final OtpHasher otpHasher;
 
    
     private final EmailService emailService;
 
     private final JwtUtil jwtUtil;
 
+    private final TransactionTemplate tx;
+    private final AuditLog auditLog;
+
     private final SecureRandom random = new SecureRandom();
 
     public PasswordResetService(
             UserRepository userRepo,
             PasswordResetRequestRepository resetRepo,
             PasswordEncoder passwordEncoder,
+            OtpHasher otpHasher,
             EmailService emailService,
-            JwtUtil jwtUtil
+            JwtUtil jwtUtil,
+            PlatformTransactionManager txManager,
+            AuditLog auditLog
     ) {
         this.userRepo = userRepo;
         this.resetRepo = resetRepo;
         this.passwordEncoder = passwordEncoder;
+        this.otpHasher = otpHasher;
         this.emailService = emailService;
         this.jwtUtil = jwtUtil;
+        this.tx = new TransactionTemplate(txManager);
+        this.auditLog = auditLog;
     }
 
     public Map<String, Object> lookupByEmail(String emailRaw) {
@@ -87,6 +104,7 @@ public class PasswordResetService {
         }
 
         if (rr.getLockedUntil() != null && rr.getLockedUntil().isAfter(now)) {
+            auditLog.record(AuditEvent.OTP_THROTTLED, rr.getUsername(), "reset:locked");
             throw new RuntimeException("ถูกล็อกชั่วคราว กรุณารอแล้วลองใหม่");
         }
 
@@ -96,18 +114,20 @@ public class PasswordResetService {
         }
 
         if (rr.getResendCount() >= MAX_RESEND) {
+            auditLog.record(AuditEvent.OTP_THROTTLED, rr.getUsername(), "reset:window");
             throw new RuntimeException("ส่ง OTP บ่อยเกินไป (เกิน 5 ครั้งใน 15 นาที)");
         }
 
         if (rr.getLastSentAt() != null && rr.getLastSentAt().plus(RESEND_COOLDOWN).isAfter(now)) {
             long waitSec = Duration.between(now, rr.getLastSentAt().plus(RESEND_COOLDOWN)).getSeconds();
+            auditLog.record(AuditEvent.OTP_THROTTLED, rr.getUsername(), "reset:cooldown");
             throw new RuntimeException("กรุณารออีก " + waitSec + " วินาที แล้วค่อยส่ง OTP ใหม่");
         }
 
         rr.setNewPasswordHash(passwordEncoder.encode(pw));
 
         String otp = genOtp6();
-        rr.setOtpHash(passwordEncoder.encode(otp));
+        rr.setOtpHash(otpHasher.hash(OTP_PURPOSE, rr.getId(), otp));
         rr.setOtpExpiresAt(now.plus(OTP_TTL));
 
         rr.setAttempts(0);
@@ -116,10 +136,13 @@ public class PasswordResetService {
         rr.setResendCount(rr.getResendCount() + 1);
         rr.setLastSentAt(now);
 
-        resetRepo.save(rr);
-
-       
-        emailService.sendOtp(email, otp, "การเปลี่ยนรหัสผ่าน");
+        // แถว reset กับอีเมลใน outbox commit พร้อมกัน
+        PasswordResetRequest toSave = rr;
+        tx.executeWithoutResult(status -> {
+            resetRepo.save(toSave);
+            emailService.sendOtp(email, otp, EmailTemplates.Type.PASSWORD_RESET_OTP);
+        });
+        auditLog.record(AuditEvent.OTP_SENT, rr.getUsername(), "reset");
 
         return Map.of(
                 "ok", true,
@@ -138,11 +161,13 @@ public class PasswordResetService {
         Instant now = Instant.now();
 
         if (rr.getLockedUntil() != null && rr.getLockedUntil().isAfter(now)) {
+            auditLog.record(AuditEvent.OTP_THROTTLED, rr.getUsername(), "reset:locked");
             throw new RuntimeException("ถูกล็อกชั่วคราว กรุณารอแล้วลองใหม่");
         }
 
         if (rr.getLastSentAt() != null && rr.getLastSentAt().plus(RESEND_COOLDOWN).isAfter(now)) {
             long waitSec = Duration.between(now, rr.getLastSentAt().plus(RESEND_COOLDOWN)).getSeconds();
+            auditLog.record(AuditEvent.OTP_THROTTLED, rr.getUsername(), "reset:cooldown");
             throw new RuntimeException("กรุณารออีก " + waitSec + " วินาที แล้วค่อยส่ง OTP ใหม่");
         }
 
@@ -152,11 +177,12 @@ public class PasswordResetService {
         }
 
         if (rr.getResendCount() >= MAX_RESEND) {
+            auditLog.record(AuditEvent.OTP_THROTTLED, rr.getUsername(), "reset:window");
             throw new RuntimeException("ส่ง OTP บ่อยเกินไป (เกิน 5 ครั้งใน 15 นาที)");
         }
 
         String otp = genOtp6();
-        rr.setOtpHash(passwordEncoder.encode(otp));
+        rr.setOtpHash(otpHasher.hash(OTP_PURPOSE, rr.getId(), otp));
         rr.setOtpExpiresAt(now.plus(OTP_TTL));
         rr.setAttempts(0);
         rr.setLockedUntil(null);
@@ -164,10 +190,11 @@ public class PasswordResetService {
         rr.setResendCount(rr.getResendCount() + 1);
         rr.setLastSentAt(now);
 
-        resetRepo.save(rr);
-
-        
-        emailService.sendOtp(rr.getEmail(), otp, "การเปลี่ยนรหัสผ่าน");
+        tx.executeWithoutResult(status -> {
+            resetRepo.save(rr);
+            emailService.sendOtp(rr.getEmail(), otp, EmailTemplates.Type.PASSWORD_RESET_OTP);
+        });
+        auditLog.record(AuditEvent.OTP_SENT, rr.getUsername(), "reset");
         return Map.of("ok", true, "message", "ส่ง OTP ใหม่แล้ว");
     }
 
@@ -184,24 +211,29 @@ public class PasswordResetService {
         Instant now = Instant.now();
 
         if (rr.getLockedUntil() != null && rr.getLockedUntil().isAfter(now)) {
+            auditLog.record(AuditEvent.OTP_FAILED, rr.getUsername(), "reset:locked");
             throw new RuntimeException("ถูกล็อกชั่วคราว กรุณารอแล้วลองใหม่");
         }
 
         if (rr.getOtpExpiresAt() == null || rr.getOtpExpiresAt().isBefore(now)) {
+            auditLog.record(AuditEvent.OTP_FAILED, rr.getUsername(), "reset:expired");
             throw new RuntimeException("OTP หมดอายุ กรุณากดส่งใหม่");
         }
 
         if (rr.getAttempts() >= MAX_ATTEMPTS) {
             rr.setLockedUntil(rr.getOtpExpiresAt());
             resetRepo.save(rr);
+            auditLog.record(AuditEvent.OTP_LOCKED, rr.getUsername(), "reset:too_many");
             throw new RuntimeException("กรอก OTP ผิดเกินกำหนด กรุณากดส่งใหม่");
         }
 
-        boolean ok = passwordEncoder.matches(otp, rr.getOtpHash());
+        boolean ok = otpHasher.matches(OTP_PURPOSE, rr.getId(), otp, rr.getOtpHash());
         if (!ok) {
             rr.setAttempts(rr.getAttempts() + 1);
-            if (rr.getAttempts() >= MAX_ATTEMPTS) rr.setLockedUntil(rr.getOtpExpiresAt());
+            boolean locked = rr.getAttempts() >= MAX_ATTEMPTS;
+            if (locked) rr.setLockedUntil(rr.getOtpExpiresAt());
             resetRepo.save(rr);
+            auditLog.record(locked ? AuditEvent.OTP_LOCKED : AuditEvent.OTP_FAILED, rr.getUsername(), "reset:wrong");
             throw new RuntimeException("OTP ไม่ถูกต้อง");
         }
 
@@ -212,6 +244,7 @@ public class PasswordResetService {
         userRepo.save(user);
 
         resetRepo.delete(rr);
+        auditLog.record(AuditEvent.PASSWORD_RESET, user.getUsername(), null);
 
         String token = jwtUtil.generateToken(user.getUsername(), user.getRole());
         return new AuthResponse(token, user.getUsername(), user.getRole(), user.getEmail(), user.getFullName());
@@ -0,0 +1,19 @@
+package com.example.minibank.service;
+
+import com.example.minibank.entity.PendingRegistration;
+
+import java.util.Optional;
+import java.util.function.UnaryOperator;
+
+// ที่เก็บรายการสมัครที่รอ OTP (อายุสั้น) แยกจาก JPA repository
+// ค่าที่คืนออกไปเป็น copy เสมอ การแก้ไขต้องทำผ่าน update เท่านั้น
+public interface PendingRegistrationStore {
+
+    Optional<PendingRegistration> findByUsername(String username);
+
+    // อัปเดตแบบ atomic ต่อ username: fn ได้ค่าปัจจุบัน (หรือ null ถ้าไม่มี) แล้วคืนค่าใหม่ (null = ลบ)
+    // ถ้า fn throw จะไม่มีการเปลี่ยนแปลง
+    PendingRegistration update(String username, UnaryOperator<PendingRegistration> fn);
+
+    void delete(String username);
+}
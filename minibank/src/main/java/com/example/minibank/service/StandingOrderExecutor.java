@@ -0,0 +1,318 @@
+package com.example.minibank.service;
+
+import com.example.minibank.entity.JournalEntry;
+import com.example.minibank.entity.LedgerAccount;
+import com.example.minibank.entity.StandingOrder;
+import com.example.minibank.exception.ServiceBusyException;
+import com.example.minibank.ledger.LedgerCore;
+import com.example.minibank.ledger.LedgerEngine;
+import com.example.minibank.repository.LedgerRepository;
+import com.example.minibank.repository.StandingOrderRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+// จ่ายบิลตาม standing order ที่ถึงกำหนดทีละ chunk (id จาก timing wheel ของ StandingOrderScheduler)
+// โหมดตาราง: chunk ละ transaction เดียว (ตัดผู้จ่ายครั้งเดียวต่อบัญชี, เข้า SYS-BILLERS ครั้งเดียว) พร้อมเลื่อนงวดถัดไป = จ่ายครั้งเดียวแน่นอน
+// โหมด engine: ทำเครื่องหมาย RUNNING ก่อนส่งเข้า LedgerEngine แล้วค่อยบันทึกผล (process ตายระหว่างนั้น = ไม่จ่ายซ้ำ ต้องตรวจเอง)
+// ส่งแล้วแต่ไม่รู้ผล (engine ล้ม / รอเกินเวลา) ก็คง RUNNING เหมือนกัน; คืน ACTIVE เฉพาะรายการที่ยังไม่ได้ส่ง
+// ยอดไม่พอ: ลองใหม่ทุก retry-minutes จนครบ max-attempts แล้วข้ามงวดนั้น
+@Slf4j
+@Component
+public class StandingOrderExecutor {
+
+    static final String PAID = "PAID";
+    static final String INSUFFICIENT_FUNDS = "INSUFFICIENT_FUNDS";
+    static final String SKIPPED = "SKIPPED_INSUFFICIENT_FUNDS";
+    static final String ERROR = "ERROR";
+
+    private static final int MAX_CHUNK_RETRIES = 3;
+    private static final Duration BUSY_RETRY = Duration.ofMinutes(1);
+
+    private final StandingOrderRepository orderRepo;
+    private final LedgerRepository ledgerRepo;
+    private final LedgerService ledgerService;
+    private final LedgerRollupService rollups;
+    private final LedgerEngine engine; // null = บันทึกลงตาราง
+    private final TransactionTemplate tx;
+    private final ZoneId zone;
+    private final LocalTime runTime;
+    private final int maxAttempts;
+    private final Duration retryDelay;
+
+    private final Counter paid;
+    private final Counter insufficient;
+    private final Counter skipped;
+    private final Counter unknown;
+
+    public StandingOrderExecutor(
+            StandingOrderRepository orderRepo,
+            LedgerRepository ledgerRepo,
+            LedgerService ledgerService,
+            LedgerRollupService rollups,
+            ObjectProvider<LedgerEngine> engine,
+            PlatformTransactionManager txManager,
+            @Value("${app.ledger.zone:Asia/Bangkok}") String zone,
+            @Value("${app.standing-orders.run-time:06:00}") String runTime,
+            @Value("${app.standing-orders.max-attempts:3}") int maxAttempts,
+            @Value("${app.standing-orders.retry-minutes:60}") long retryMinutes,
+            MeterRegistry meterRegistry
+    ) {
+        this.orderRepo = orderRepo;
+        this.ledgerRepo = ledgerRepo;
+        this.ledgerService = ledgerService;
+        this.rollups = rollups;
+        this.engine = engine.getIfAvailable();
+        this.tx = new TransactionTemplate(txManager);
+        this.zone = ZoneId.of(zone);
+        this.runTime = LocalTime.parse(runTime);
+        this.maxAttempts = maxAttempts;
+        this.retryDelay = Duration.ofMinutes(retryMinutes);
+
+        this.paid = Counter.builder("minibank.standing_orders.runs").tag("result", "paid").register(meterRegistry);
+        this.insufficient = Counter.builder("minibank.standing_orders.runs").tag("result", "insufficient_funds").register(meterRegistry);
+        this.skipped = Counter.builder("minibank.standing_orders.runs").tag("result", "skipped").register(meterRegistry);
+        this.unknown = Counter.builder("minibank.standing_orders.runs").tag("result", "unknown").register(meterRegistry);
+    }
+
+    // เวลาที่จะจ่ายงวด dueDate
+    public Instant runAt(LocalDate dueDate) {
+        return dueDate.atTime(runTime).atZone(zone).toInstant();
+    }
+
+    // จ่ายรายการที่ยังถึงกำหนดจริงใน ids; คืนรายการที่ยัง ACTIVE พร้อม next_run_at ใหม่ (ให้ scheduler ใส่ wheel ต่อ)
+    public List<StandingOrderRepository.Due> run(List<Long> ids) {
+        List<StandingOrderRepository.RunResult> results = engine != null ? runViaEngine(ids) : runInTable(ids);
+
+        List<StandingOrderRepository.Due> next = new ArrayList<>(results.size());
+        for (StandingOrderRepository.RunResult r : results) {
+            if (PAID.equals(r.lastStatus())) paid.increment();
+            else if (INSUFFICIENT_FUNDS.equals(r.lastStatus())) insufficient.increment();
+            else if (SKIPPED.equals(r.lastStatus())) skipped.increment();
+            if (r.status() == StandingOrder.Status.ACTIVE) next.add(new StandingOrderRepository.Due(r.id(), r.nextRunAt()));
+        }
+        return next;
+    }
+
+    // ===== โหมดตาราง =====
+
+    private List<StandingOrderRepository.RunResult> runInTable(List<Long> ids) {
+        for (int attempt = 1; attempt <= MAX_CHUNK_RETRIES; attempt++) {
+            try {
+                return tx.execute(status -> applyChunk(ids, Instant.now()));
+            } catch (LedgerService.InsufficientFundsException e) {
+                // ยอดเปลี่ยนระหว่างอ่านกับตัดเงิน: ทั้ง chunk rollback แล้วคิดใหม่ด้วยยอดล่าสุด
+            }
+        }
+        throw new IllegalStateException("Standing order chunk kept failing on changing balances");
+    }
+
+    // เรียกใน transaction
+    private List<StandingOrderRepository.RunResult> applyChunk(List<Long> ids, Instant now) {
+        List<StandingOrder> orders = orderRepo.lockDue(ids, now);
+        if (orders.isEmpty()) return List.of();
+
+        Set<Long> payers = new LinkedHashSet<>();
+        for (StandingOrder o : orders) payers.add(o.getAccountId());
+        Map<Long, Long> available = new HashMap<>();
+        for (LedgerRepository.AccountState a : ledgerRepo.findAccountStates(payers)) {
+            available.put(a.accountId(), a.allowNegative() ? Long.MAX_VALUE : a.balanceMinor());
+        }
+
+        // รับตามลำดับ id เท่าที่ยอดพอ; ตัดผู้จ่ายแต่ละบัญชีครั้งเดียวด้วยยอดรวม
+        List<StandingOrder> accepted = new ArrayList<>(orders.size());
+        Map<Long, Long> debits = new LinkedHashMap<>();
+        long total = 0;
+        for (StandingOrder o : orders) {
+            long left = available.getOrDefault(o.getAccountId(), 0L);
+            if (left < o.getAmountMinor()) continue;
+            available.put(o.getAccountId(), left - o.getAmountMinor());
+            debits.merge(o.getAccountId(), o.getAmountMinor(), Long::sum);
+            accepted.add(o);
+            total += o.getAmountMinor();
+        }
+
+        Map<Long, Long> entryIds = new HashMap<>();
+        if (!accepted.isEmpty()) {
+            long billers = ledgerService.systemAccount(LedgerAccount.SYSTEM_BILLERS);
+            List<LedgerService.Leg> legs = new ArrayList<>(debits.size() + 1);
+            debits.forEach((accountId, amount) -> legs.add(new LedgerService.Leg(accountId, -amount)));
+            legs.add(new LedgerService.Leg(billers, total));
+            Map<Long, Long> finalBalances = ledgerService.applyLegs(LedgerService.ordered(legs));
+
+            // ยอดหลังแต่ละรายการ: ย้อนจากยอดสุดท้ายกลับไปทีละรายการ (null = hot account)
+            int n = accepted.size();
+            Long[] payerAfter = new Long[n];
+            Long[] billersAfter = new Long[n];
+            Map<Long, Long> running = new HashMap<>(finalBalances);
+            for (int k = n - 1; k >= 0; k--) {
+                StandingOrder o = accepted.get(k);
+                Long p = running.get(o.getAccountId());
+                payerAfter[k] = p;
+                if (p != null) running.put(o.getAccountId(), p + o.getAmountMinor());
+                Long b = running.get(billers);
+                billersAfter[k] = b;
+                if (b != null) running.put(billers, b - o.getAmountMinor());
+            }
+
+            long[] reserved = ledgerRepo.reserveEntryIds(n);
+            List<LedgerRepository.EntryRow> entries = new ArrayList<>(n);
+            List<LedgerRepository.Posting> postings = new ArrayList<>(n * 2);
+            long[] postingEntryIds = new long[n * 2];
+            for (int k = 0; k < n; k++) {
+                StandingOrder o = accepted.get(k);
+                entries.add(new LedgerRepository.EntryRow(reserved[k], JournalEntry.Type.BILL_PAYMENT, o.getUserId(),
+                        counterparty(o), o.getReference(), note(o), now));
+                postingEntryIds[2 * k] = reserved[k];
+                postings.add(new LedgerRepository.Posting(o.getAccountId(), -o.getAmountMinor(), payerAfter[k]));
+                postingEntryIds[2 * k + 1] = reserved[k];
+                postings.add(new LedgerRepository.Posting(billers, o.getAmountMinor(), billersAfter[k]));
+                entryIds.put(o.getId(), reserved[k]);
+            }
+
+            ledgerRepo.insertEntryRows(entries);
+            ledgerRepo.insertPostings(postingEntryIds, JournalEntry.Type.BILL_PAYMENT, postings, now);
+            rollups.record(JournalEntry.Type.BILL_PAYMENT, now, postings);
+        }
+
+        List<StandingOrderRepository.RunResult> results = new ArrayList<>(orders.size());
+        for (StandingOrder o : orders) {
+            Long entryId = entryIds.get(o.getId());
+            results.add(entryId != null ? paid(o, entryId, now) : insufficientFunds(o, now));
+        }
+        orderRepo.saveResults(results);
+        return results;
+    }
+
+    // ===== โหมด engine =====
+
+    private List<StandingOrderRepository.RunResult> runViaEngine(List<Long> ids) {
+        Instant claimedAt = Instant.now();
+        List<StandingOrder> orders = tx.execute(status -> {
+            List<StandingOrder> rows = orderRepo.lockDue(ids, claimedAt);
+            orderRepo.markRunning(rows.stream().map(StandingOrder::getId).toList());
+            return rows;
+        });
+        if (orders == null || orders.isEmpty()) return List.of();
+
+        List<StandingOrderRepository.RunResult> results = new ArrayList<>(orders.size());
+        long billers;
+        try {
+            billers = ledgerService.systemAccount(LedgerAccount.SYSTEM_BILLERS);
+            Set<Long> accounts = new LinkedHashSet<>();
+            for (StandingOrder o : orders) accounts.add(o.getAccountId());
+            accounts.add(billers);
+            engine.ensureAccounts(accounts);
+        } catch (RuntimeException e) {
+            // ยังไม่ได้ส่งเข้า engine: คืนสถานะ ACTIVE ให้ลองใหม่
+            log.warn("Standing order chunk of {} could not be submitted", orders.size(), e);
+            Instant now = Instant.now();
+            for (StandingOrder o : orders) results.add(retryLater(o, now, now.plus(BUSY_RETRY)));
+            tx.executeWithoutResult(status -> orderRepo.saveResults(results));
+            return results;
+        }
+
+        // ส่งทั้ง chunk ต่อกันโดยไม่รอทีละรายการ แล้วค่อยเก็บผล; ส่งไม่ได้ = หยุดส่ง (engine เต็มหรือล้ม)
+        List<CompletableFuture<LedgerEngine.Posted>> pending = new ArrayList<>(orders.size());
+        for (StandingOrder o : orders) {
+            try {
+                pending.add(engine.submit(JournalEntry.Type.BILL_PAYMENT, o.getUserId(), o.getAccountId(), billers,
+                        o.getAmountMinor(), counterparty(o), o.getReference(), note(o)));
+            } catch (RuntimeException e) {
+                if (!(e instanceof ServiceBusyException)) {
+                    log.warn("Standing order {} could not be submitted to ledger engine", o.getId(), e);
+                }
+                break;
+            }
+        }
+
+        Instant now = Instant.now();
+        for (int i = 0; i < orders.size(); i++) {
+            StandingOrder o = orders.get(i);
+            if (i >= pending.size()) {
+                results.add(retryLater(o, now, now.plus(BUSY_RETRY)));
+                continue;
+            }
+            LedgerEngine.Posted posted;
+            try {
+                posted = engine.await(pending.get(i));
+            } catch (RuntimeException e) {
+                // อาจตัดเงินไปแล้ว: คง RUNNING ไว้ไม่ให้ scheduler จ่ายซ้ำ ต้องตรวจกับ journal (note = standing order #id)
+                unknown.increment();
+                log.error("Standing order {} has no outcome from ledger engine; left RUNNING for reconciliation",
+                        o.getId(), e);
+                continue;
+            }
+            if (posted.ok()) results.add(paid(o, posted.entryId(), now));
+            else if (posted.status() == LedgerCore.Status.INSUFFICIENT_FUNDS) results.add(insufficientFunds(o, now));
+            else results.add(retryLater(o, now, now.plus(retryDelay)));
+        }
+
+        if (!results.isEmpty()) tx.executeWithoutResult(status -> orderRepo.saveResults(results));
+        return results;
+    }
+
+    // ===== สถานะถัดไป =====
+
+    private StandingOrderRepository.RunResult paid(StandingOrder o, long entryId, Instant now) {
+        LocalDate next = o.getFrequency().next(o.getDueDate(), o.getAnchorDay());
+        if (next == null) {
+            return new StandingOrderRepository.RunResult(o.getId(), o.getDueDate(), o.getNextRunAt(),
+                    StandingOrder.Status.DONE, 0, PAID, entryId, now);
+        }
+        // งวดถัดไปอาจเลยมาแล้ว (ระบบปิดไปนาน) -> scheduler ส่งกลับมาจ่ายต่อทันที ทีละงวด
+        return new StandingOrderRepository.RunResult(o.getId(), next, runAt(next),
+                StandingOrder.Status.ACTIVE, 0, PAID, entryId, now);
+    }
+
+    private StandingOrderRepository.RunResult insufficientFunds(StandingOrder o, Instant now) {
+        int attempts = o.getAttempts() + 1;
+        if (attempts < maxAttempts) {
+            return new StandingOrderRepository.RunResult(o.getId(), o.getDueDate(), now.plus(retryDelay),
+                    StandingOrder.Status.ACTIVE, attempts, INSUFFICIENT_FUNDS, o.getLastEntryId(), now);
+        }
+        log.info("Standing order {} skipped due date {} after {} attempts with insufficient funds",
+                o.getId(), o.getDueDate(), attempts);
+        LocalDate next = o.getFrequency().next(o.getDueDate(), o.getAnchorDay());
+        if (next == null) {
+            return new StandingOrderRepository.RunResult(o.getId(), o.getDueDate(), o.getNextRunAt(),
+                    StandingOrder.Status.FAILED, attempts, SKIPPED, o.getLastEntryId(), now);
+        }
+        return new StandingOrderRepository.RunResult(o.getId(), next, runAt(next),
+                StandingOrder.Status.ACTIVE, 0, SKIPPED, o.getLastEntryId(), now);
+    }
+
+    // ไม่ได้ตัดเงิน: งวดเดิม ลองใหม่ที่ retryAt (ไม่นับเป็นครั้งที่ยอดไม่พอ)
+    private static StandingOrderRepository.RunResult retryLater(StandingOrder o, Instant now, Instant retryAt) {
+        return new StandingOrderRepository.RunResult(o.getId(), o.getDueDate(), retryAt,
+                StandingOrder.Status.ACTIVE, o.getAttempts(), ERROR, o.getLastEntryId(), now);
+    }
+
+    // เหมือน LedgerService.payBill
+    private static String counterparty(StandingOrder o) {
+        return o.getProvider() + " - " + o.getBill();
+    }
+
+    private static String note(StandingOrder o) {
+        return "standing order #" + o.getId();
+    }
+}
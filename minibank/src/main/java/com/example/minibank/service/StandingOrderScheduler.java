@@ -0,0 +1,270 @@
+package com.example.minibank.service;
+
+import com.example.minibank.repository.StandingOrderRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// ตัวตั้งเวลาของ standing order: ไม่ poll ทั้งตารางทุกนาที
+// โหลดเฉพาะรายการที่ถึงกำหนดภายใน window-minutes ข้างหน้า (keyset บน ix_standing_orders_due) เข้า TimingWheel
+// thread เดียวเดิน wheel ทุก 1 วินาที รายการที่ถึงเวลาถูกรวมเป็น chunk ส่งให้ StandingOrderExecutor บน worker pool
+// คิวของ pool จำกัดที่ queue-chunks: เต็มแล้ว thread ของ wheel จ่าย chunk เอง (โหลดหน้าถัดไปช้าลงตาม ไม่กองในหน่วยความจำ)
+// ตอนเริ่ม: โหลดรายการที่เลยกำหนดไปแล้วทั้งหมดด้วย (จ่ายย้อนหลังหลังระบบปิดไป); sweep-minutes: เก็บรายการค้างที่หลุดจาก wheel
+// หลาย instance ได้: executor claim แถวด้วย FOR UPDATE SKIP LOCKED และตรวจ next_run_at ซ้ำ
+// แต่ละ instance โหลดเฉพาะ partition ของตัวเอง (id % partitions); sweep อ่านทุก partition แทน instance ที่ล่มอยู่
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.standing-orders.enabled", havingValue = "true", matchIfMissing = true)
+public class StandingOrderScheduler {
+
+    private static final long TICK_MS = 1000;
+    // 3 ชั้น x 64 ช่อง ที่ tick 1 วินาที = รับได้ไกลสุด ~3 วัน
+    private static final int WHEEL_BITS = 6;
+    private static final int WHEEL_LEVELS = 3;
+    // รายการที่เลยกำหนดเกินนี้แล้วยังไม่ถูกจ่าย = หลุดจาก wheel (chunk ล้ม / แก้จาก node อื่น) ให้ sweep เก็บ
+    private static final long SWEEP_GRACE_MS = TimeUnit.MINUTES.toMillis(2);
+    private static final long FAILED_CHUNK_RETRY_MS = TimeUnit.MINUTES.toMillis(1);
+
+    private final StandingOrderRepository orderRepo;
+    private final StandingOrderExecutor executor;
+    private final long windowMs;
+    private final long sweepMs;
+    private final int batchSize;
+    private final int loadPageSize;
+    private final int partitions;
+    private final int partition;
+    private final ThreadPoolExecutor workers;
+
+    // schedule() จาก thread อื่น ส่งผ่านคิวนี้ (wheel ใช้บน scheduler thread เท่านั้น)
+    private final Queue<StandingOrderRepository.Due> incoming = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger wheelSize = new AtomicInteger();
+    // id ที่อยู่ใน chunk ที่ส่งไปแล้วแต่ยังไม่จบ: dispatch / sweep ไม่ส่งซ้ำ
+    private final Set<Long> inFlight = ConcurrentHashMap.newKeySet();
+
+    // รายการที่ next_run_at < loadedUntil อยู่ใน wheel แล้ว (หรือกำลังถูกโหลด)
+    private volatile long loadedUntil = Long.MIN_VALUE;
+
+    private final Counter loaded;
+    private final Counter failedChunks;
+
+    private Thread thread;
+    private volatile boolean running;
+
+    public StandingOrderScheduler(
+            StandingOrderRepository orderRepo,
+            StandingOrderExecutor executor,
+            @Value("${app.standing-orders.window-minutes:60}") long windowMinutes,
+            @Value("${app.standing-orders.sweep-minutes:5}") long sweepMinutes,
+            @Value("${app.standing-orders.batch-size:500}") int batchSize,
+            @Value("${app.standing-orders.load-page-size:10000}") int loadPageSize,
+            @Value("${app.standing-orders.threads:2}") int threads,
+            @Value("${app.standing-orders.queue-chunks:4}") int queueChunks,
+            @Value("${app.standing-orders.partitions:1}") int partitions,
+            @Value("${app.standing-orders.partition:0}") int partition,
+            MeterRegistry meterRegistry
+    ) {
+        this.orderRepo = orderRepo;
+        this.executor = executor;
+        this.windowMs = TimeUnit.MINUTES.toMillis(windowMinutes);
+        this.sweepMs = TimeUnit.MINUTES.toMillis(sweepMinutes);
+        this.batchSize = batchSize;
+        this.loadPageSize = loadPageSize;
+        this.partitions = partitions;
+        this.partition = partition;
+
+        long spanMs = new TimingWheel(TICK_MS, WHEEL_BITS, WHEEL_LEVELS, 0).spanMillis();
+        if (windowMs <= 0 || windowMs * 2 > spanMs) {
+            throw new IllegalArgumentException("app.standing-orders.window-minutes must be between 1 and "
+                    + TimeUnit.MILLISECONDS.toMinutes(spanMs / 2));
+        }
+        if (partitions < 1 || partition < 0 || partition >= partitions) {
+            throw new IllegalArgumentException("app.standing-orders.partition must be between 0 and partitions - 1");
+        }
+
+        AtomicInteger seq = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueChunks), r -> {
+            Thread t = new Thread(r, "standing-order-" + seq.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }, new ThreadPoolExecutor.CallerRunsPolicy());
+
+        this.loaded = Counter.builder("minibank.standing_orders.loaded").register(meterRegistry);
+        this.failedChunks = Counter.builder("minibank.standing_orders.failed_chunks").register(meterRegistry);
+        Gauge.builder("minibank.standing_orders.wheel.size", wheelSize, AtomicInteger::get).register(meterRegistry);
+        Gauge.builder("minibank.standing_orders.in_flight", inFlight, Set::size).register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        long stuck = orderRepo.countRunning();
+        if (stuck > 0) {
+            // ส่งเข้า LedgerEngine แล้วแต่ไม่รู้ผล: ไม่จ่ายซ้ำอัตโนมัติ ให้ตรวจกับ journal (note = standing order #id) แล้วแก้สถานะเอง
+            log.warn("{} standing orders are stuck in RUNNING from a previous run; they need manual reconciliation", stuck);
+        }
+        running = true;
+        thread = new Thread(this::run, "standing-order-wheel");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (thread != null) {
+            thread.interrupt();
+            try {
+                thread.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        workers.shutdown();
+        try {
+            if (!workers.awaitTermination(30, TimeUnit.SECONDS)) workers.shutdownNow();
+        } catch (InterruptedException e) {
+            workers.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // เรียกหลัง commit เมื่อสร้าง/เลื่อนรายการ: ถ้าอยู่ในช่วงที่โหลดแล้ว ต้องใส่ wheel เอง (loader จะไม่เห็น)
+    // ใส่ซ้ำได้ไม่เป็นไร executor ตรวจ next_run_at กับแถวจริงก่อนจ่าย
+    public void schedule(long id, Instant nextRunAt) {
+        if (nextRunAt.toEpochMilli() < loadedUntil) incoming.add(new StandingOrderRepository.Due(id, nextRunAt));
+    }
+
+    private void run() {
+        TimingWheel wheel = new TimingWheel(TICK_MS, WHEEL_BITS, WHEEL_LEVELS, System.currentTimeMillis());
+        List<Long> due = new ArrayList<>();
+        // รอบแรก load อ่านรายการที่เลยกำหนดทั้งหมดอยู่แล้ว
+        long nextSweep = System.currentTimeMillis() + sweepMs;
+
+        while (running) {
+            long now = System.currentTimeMillis();
+            try {
+                // ครึ่ง window ก่อนถึงขอบ โหลดช่วงถัดไป (รอบแรก: ทุกรายการที่เลยกำหนดแล้วด้วย)
+                if (now + windowMs / 2 >= loadedUntil) load(wheel, now, due);
+                if (now >= nextSweep) {
+                    nextSweep = now + sweepMs;
+                    sweep(wheel, now, due);
+                }
+            } catch (RuntimeException e) {
+                log.warn("Loading standing orders failed; retrying on the next tick", e);
+            }
+
+            StandingOrderRepository.Due d;
+            while ((d = incoming.poll()) != null) wheel.schedule(d.id(), d.nextRunAt().toEpochMilli(), due::add);
+            wheel.advance(now, due::add);
+            wheelSize.set(wheel.size());
+            dispatch(due);
+
+            try {
+                Thread.sleep(TICK_MS - System.currentTimeMillis() % TICK_MS);
+            } catch (InterruptedException e) {
+                if (!running) break;
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    // [loadedUntil, now + window) ทีละหน้าตาม (next_run_at, id); ขยาย loadedUntil ก่อนอ่าน
+    // รายการที่ commit ระหว่างอ่านจึงถูกเห็นโดย query หรือ schedule() อย่างน้อยทางหนึ่ง
+    private void load(TimingWheel wheel, long now, List<Long> due) {
+        long from = loadedUntil;
+        long until = now + windowMs;
+        loadedUntil = until;
+
+        Instant afterAt = from == Long.MIN_VALUE ? Instant.EPOCH : Instant.ofEpochMilli(from);
+        int count;
+        try {
+            count = scan(wheel, afterAt, Instant.ofEpochMilli(until), partitions, partition, due);
+        } catch (RuntimeException e) {
+            // อ่านใหม่ทั้งช่วงรอบหน้า (รายการที่ใส่ wheel ไปแล้วซ้ำได้)
+            loadedUntil = from;
+            throw e;
+        }
+        log.debug("Loaded {} standing orders due before {}", count, Instant.ofEpochMilli(until));
+    }
+
+    // รายการที่เลยกำหนดเกิน grace แต่ยังไม่ถูกจ่าย (chunk ล้ม, ระบบยุ่ง, instance เจ้าของ partition ล่ม) ใส่กลับเข้า wheel
+    // ทำทุกรอบแม้มี chunk ค้างอยู่: รายการที่ยังอยู่ใน chunk ถูกกรองทิ้งตอน dispatch
+    private void sweep(TimingWheel wheel, long now, List<Long> due) {
+        int count = scan(wheel, Instant.EPOCH, Instant.ofEpochMilli(now - SWEEP_GRACE_MS), 1, 0, due);
+        if (count > 0) log.info("Picked up {} overdue standing orders", count);
+    }
+
+    private int scan(TimingWheel wheel, Instant afterAt, Instant before, int partitions, int partition, List<Long> due) {
+        int count = 0;
+        long afterId = -1;
+        while (true) {
+            List<StandingOrderRepository.Due> page = orderRepo.findDue(afterAt, afterId, before, loadPageSize,
+                    partitions, partition);
+            for (StandingOrderRepository.Due d : page) wheel.schedule(d.id(), d.nextRunAt().toEpochMilli(), due::add);
+            count += page.size();
+            // ส่งรายการที่ถึงกำหนดแล้วออกไประหว่างโหลด ไม่ต้องรอโหลดครบ (ตอนจ่ายย้อนหลังจำนวนมาก)
+            dispatch(due);
+            if (page.size() < loadPageSize) break;
+            StandingOrderRepository.Due last = page.get(page.size() - 1);
+            afterAt = last.nextRunAt();
+            afterId = last.id();
+        }
+        loaded.increment(count);
+        return count;
+    }
+
+    // คิวเต็ม = จ่าย chunk บน thread นี้เอง (CallerRunsPolicy) จำนวน chunk ที่ค้างจึงไม่เกิน threads + queue-chunks + 1
+    private void dispatch(List<Long> due) {
+        List<Long> chunk = new ArrayList<>(batchSize);
+        for (Long id : due) {
+            if (!inFlight.add(id)) continue;
+            chunk.add(id);
+            if (chunk.size() == batchSize) {
+                submit(chunk);
+                chunk = new ArrayList<>(batchSize);
+            }
+        }
+        if (!chunk.isEmpty()) submit(chunk);
+        due.clear();
+    }
+
+    private void submit(List<Long> chunk) {
+        workers.execute(() -> execute(chunk));
+    }
+
+    int inFlight() {
+        return inFlight.size();
+    }
+
+    private void execute(List<Long> chunk) {
+        try {
+            for (StandingOrderRepository.Due next : executor.run(chunk)) schedule(next.id(), next.nextRunAt());
+        } catch (RuntimeException e) {
+            failedChunks.increment();
+            log.warn("Standing order chunk of {} failed; retrying in {} ms", chunk.size(), FAILED_CHUNK_RETRY_MS, e);
+            Instant retryAt = Instant.now().plusMillis(FAILED_CHUNK_RETRY_MS);
+            for (Long id : chunk) schedule(id, retryAt);
+        } finally {
+            inFlight.removeAll(chunk);
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.minibank.service;
+
+import com.example.minibank.dto.StandingOrderRequest;
+import com.example.minibank.dto.StandingOrderResponse;
+import com.example.minibank.entity.StandingOrder;
+import com.example.minibank.repository.LedgerRepository;
+import com.example.minibank.repository.StandingOrderRepository;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Locale;
+
+// ตั้งจ่ายบิลล่วงหน้า / จ่ายประจำของลูกค้า (ตัดเงินจริงโดย StandingOrderScheduler + StandingOrderExecutor)
+@Service
+public class StandingOrderService {
+
+    private static final int LIST_LIMIT = 100;
+
+    private final StandingOrderRepository orderRepo;
+    private final LedgerService ledgerService;
+    private final StandingOrderExecutor executor;
+    private final StandingOrderScheduler scheduler; // null = ปิด app.standing-orders.enabled (บันทึกได้ แต่ไม่ตัดเงิน)
+    private final ZoneId zone;
+    private final int maxPerUser;
+
+    public StandingOrderService(
+            StandingOrderRepository orderRepo,
+            LedgerService ledgerService,
+            StandingOrderExecutor executor,
+            ObjectProvider<StandingOrderScheduler> scheduler,
+            @Value("${app.ledger.zone:Asia/Bangkok}") String zone,
+            @Value("${app.standing-orders.max-per-user:50}") int maxPerUser
+    ) {
+        this.orderRepo = orderRepo;
+        this.ledgerService = ledgerService;
+        this.executor = executor;
+        this.scheduler = scheduler.getIfAvailable();
+        this.zone = ZoneId.of(zone);
+        this.maxPerUser = maxPerUser;
+    }
+
+    public StandingOrderResponse create(String username, StandingOrderRequest req) {
+        LedgerRepository.CustomerAccount account = ledgerService.customerAccount(username);
+        long amount = Money.toMinor(req.getAmount());
+        StandingOrder.Frequency frequency = parseFrequency(req.getFrequency());
+
+        LocalDate due = req.getDue();
+        if (due == null) throw new RuntimeException("เลือกวันที่จ่าย");
+        LocalDate today = LocalDate.now(zone);
+        if (due.isBefore(today)) throw new RuntimeException("วันที่จ่ายต้องไม่ย้อนหลัง");
+        if (due.isAfter(today.plusYears(1))) throw new RuntimeException("ตั้งล่วงหน้าได้ไม่เกิน 1 ปี");
+
+        if (orderRepo.countActiveByUser(account.userId()) >= maxPerUser) {
+            throw new RuntimeException("ตั้งจ่ายอัตโนมัติได้ไม่เกิน " + maxPerUser + " รายการ");
+        }
+
+        Instant now = Instant.now();
+        // งวดวันนี้ที่เลยเวลาตัดเงินแล้ว = จ่ายรอบถัดไปของ scheduler ทันที
+        StandingOrder order = StandingOrder.builder()
+                .accountId(account.accountId())
+                .userId(account.userId())
+                .bill(safe(req.getBill()))
+                .provider(safe(req.getProvider()))
+                .reference(emptyToNull(req.getRef()))
+                .amountMinor(amount)
+                .frequency(frequency)
+                .anchorDay(due.getDayOfMonth())
+                .dueDate(due)
+                .nextRunAt(executor.runAt(due))
+                .status(StandingOrder.Status.ACTIVE)
+                .createdAt(now)
+                .build();
+        order.setId(orderRepo.insert(order));
+
+        if (scheduler != null) scheduler.schedule(order.getId(), order.getNextRunAt());
+        return toResponse(order);
+    }
+
+    // ใหม่ -> เก่า
+    public List<StandingOrderResponse> list(String username) {
+        LedgerRepository.CustomerAccount account = ledgerService.customerAccount(username);
+        return orderRepo.findByUser(account.userId(), LIST_LIMIT).stream().map(StandingOrderService::toResponse).toList();
+    }
+
+    public void cancel(String username, long id) {
+        LedgerRepository.CustomerAccount account = ledgerService.customerAccount(username);
+        if (!orderRepo.cancel(id, account.userId())) throw new RuntimeException("ไม่พบรายการ หรือรายการนี้ยกเลิกไม่ได้แล้ว");
+    }
+
+    private static StandingOrder.Frequency parseFrequency(String raw) {
+        try {
+            return StandingOrder.Frequency.valueOf(safe(raw).toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new RuntimeException("frequency ต้องเป็น ONCE, WEEKLY หรือ MONTHLY");
+        }
+    }
+
+    private static StandingOrderResponse toResponse(StandingOrder o) {
+        return new StandingOrderResponse(
+                o.getId(),
+                o.getBill(),
+                o.getProvider(),
+                o.getReference(),
+                Money.fromMinor(o.getAmountMinor()),
+                o.getFrequency().name(),
+                o.getDueDate(),
+                o.getNextRunAt(),
+                o.getStatus().name(),
+                o.getLastStatus(),
+                o.getLastEntryId(),
+                o.getLastRunAt()
+        );
+    }
+
+    private static String safe(String s) {
+        return s == null ? "" : s.trim();
+    }
+
+    private static String emptyToNull(String s) {
+        String v = safe(s);
+        return v.isEmpty() ? null : v;
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.minibank.service;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+// hierarchical timing wheel ของ id (long) ที่ถึงกำหนด ณ เวลาหนึ่ง: schedule / expire เป็น O(1) ต่อรายการ
+// ชั้น 0 มี 2^bits ช่อง ช่องละ 1 tick, ชั้น L ช่องละ 2^(bits*L) tick; รายการเลื่อนลงชั้นล่างเมื่อ tick เดินถึงช่องของมัน
+// ระยะไกลสุดที่รับได้ = span(); ไม่ thread-safe (ใช้บน thread ของ StandingOrderScheduler เท่านั้น)
+final class TimingWheel {
+
+    // รายการในช่องเดียวกันเก็บเป็น array คู่ (id, tick ที่ถึงกำหนด) ไม่สร้าง object ต่อรายการ
+    private static final class Slot {
+        long[] ids = new long[8];
+        long[] ticks = new long[8];
+        int size;
+
+        void add(long id, long tick) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                ticks = Arrays.copyOf(ticks, size * 2);
+            }
+            ids[size] = id;
+            ticks[size] = tick;
+            size++;
+        }
+    }
+
+    private final long tickMillis;
+    private final int bits;
+    private final int mask;
+    private final Slot[][] levels;
+    private final long spanTicks;
+
+    private long currentTick;
+    private int size;
+
+    TimingWheel(long tickMillis, int bits, int levels, long startMillis) {
+        if (bits * levels >= 62) throw new IllegalArgumentException("Timing wheel too large");
+        this.tickMillis = tickMillis;
+        this.bits = bits;
+        this.mask = (1 << bits) - 1;
+        this.levels = new Slot[levels][1 << bits];
+        this.spanTicks = 1L << (bits * levels);
+        this.currentTick = startMillis / tickMillis;
+    }
+
+    // เวลาที่ไกลสุดจาก tick ปัจจุบันที่ schedule ได้
+    long spanMillis() {
+        return (spanTicks - 1) * tickMillis;
+    }
+
+    long currentMillis() {
+        return currentTick * tickMillis;
+    }
+
+    int size() {
+        return size;
+    }
+
+    // ถึงกำหนดแล้ว (dueMillis <= เวลาปัจจุบันของ wheel) = ส่งให้ expired ทันที
+    void schedule(long id, long dueMillis, LongConsumer expired) {
+        long tick = Math.floorDiv(dueMillis, tickMillis);
+        if (tick - currentTick >= spanTicks) {
+            throw new IllegalArgumentException("Due time is beyond the timing wheel span: " + dueMillis);
+        }
+        place(id, tick, expired);
+    }
+
+    // เดิน tick ทีละช่องจนถึง nowMillis ส่ง id ที่ถึงกำหนดให้ expired; คืนจำนวนที่ expire
+    int advance(long nowMillis, LongConsumer expired) {
+        long target = Math.floorDiv(nowMillis, tickMillis);
+        int before = size;
+        while (currentTick < target) {
+            currentTick++;
+            // ชั้นบนก่อน: รายการที่เลื่อนลงมาอาจตกช่องที่ชั้นล่างกำลังจะเทในรอบเดียวกัน
+            for (int level = levels.length - 1; level >= 1; level--) {
+                if ((currentTick & ((1L << (bits * level)) - 1)) == 0) cascade(level, expired);
+            }
+            Slot slot = levels[0][(int) (currentTick & mask)];
+            if (slot != null && slot.size > 0) {
+                int n = slot.size;
+                slot.size = 0;
+                size -= n;
+                for (int i = 0; i < n; i++) expired.accept(slot.ids[i]);
+            }
+        }
+        return before - size;
+    }
+
+    // ย้ายรายการในช่องปัจจุบันของชั้นนี้ลงชั้นล่าง (หรือ expire ถ้าถึง tick แล้ว)
+    private void cascade(int level, LongConsumer expired) {
+        Slot slot = levels[level][(int) ((currentTick >>> (bits * level)) & mask)];
+        if (slot == null || slot.size == 0) return;
+        int n = slot.size;
+        long[] ids = slot.ids;
+        long[] ticks = slot.ticks;
+        // เปลี่ยนเป็น array ใหม่ก่อน re-place เผื่อรายการกลับมาลงช่องเดิม
+        slot.ids = new long[Math.max(8, n / 2)];
+        slot.ticks = new long[slot.ids.length];
+        slot.size = 0;
+        size -= n;
+        for (int i = 0; i < n; i++) place(ids[i], ticks[i], expired);
+    }
+
+    private void place(long id, long tick, LongConsumer expired) {
+        long delta = tick - currentTick;
+        if (delta <= 0) {
+            expired.accept(id);
+            return;
+        }
+        int level = 0;
+        while (level < levels.length - 1 && delta >= (1L << (bits * (level + 1)))) level++;
+        int index = (int) ((tick >>> (bits * level)) & mask);
+        Slot slot = levels[level][index];
+        if (slot == null) slot = levels[level][index] = new Slot();
+        slot.add(id, tick);
+        size++;
+    }
+}
@@ -0,0 +1,205 @@
+package com.example.minibank.service;
+
+import com.example.minibank.dto.UserKeyView;
+import com.example.minibank.repository.UserRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+// ตัวกรองก่อนถาม DB ว่า username/email มีอยู่แล้วหรือไม่
+// filter ตอบ "ไม่มี" = ไม่มีแน่นอน ไม่ต้อง query; ตอบ "อาจมี" ค่อยถาม Postgres
+@Slf4j
+@Component
+public class UserExistenceIndex {
+
+    private record Filters(BloomFilter usernames, BloomFilter emails) {}
+
+    private final UserRepository userRepository;
+    private final TransactionTemplate readOnlyTx;
+    private final long expectedInsertions;
+    private final double fpp;
+
+    private volatile Filters current;
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+
+    // add() ระหว่าง rebuild ถูกเก็บไว้ที่นี่แล้วใส่ filter ใหม่ตอนสลับ (ใต้ swapLock ทั้งคู่ จึงไม่มีรายการหลุดช่วงสลับ)
+    private final ReentrantLock swapLock = new ReentrantLock();
+    private List<String[]> pendingAdds;
+
+    private final Counter skipped;
+    private final Counter dbChecks;
+    private final Counter falsePositives;
+
+    public UserExistenceIndex(
+            UserRepository userRepository,
+            PlatformTransactionManager txManager,
+            @Value("${app.user-index.expected-insertions:1000000}") long expectedInsertions,
+            @Value("${app.user-index.fpp:0.01}") double fpp,
+            MeterRegistry meterRegistry
+    ) {
+        this.userRepository = userRepository;
+        this.readOnlyTx = new TransactionTemplate(txManager);
+        this.readOnlyTx.setReadOnly(true);
+        this.expectedInsertions = expectedInsertions;
+        this.fpp = fpp;
+
+        this.skipped = Counter.builder("minibank.user-index.lookups").tag("result", "negative").register(meterRegistry);
+        this.dbChecks = Counter.builder("minibank.user-index.lookups").tag("result", "maybe").register(meterRegistry);
+        this.falsePositives = Counter.builder("minibank.user-index.lookups").tag("result", "false-positive").register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        try {
+            rebuild();
+        } catch (RuntimeException e) {
+            // โหลดไม่สำเร็จ -> ทุก lookup ไปถาม DB ตามเดิม
+            log.warn("User index load failed, falling back to database lookups", e);
+        }
+    }
+
+    public boolean usernameExists(String username) {
+        Filters f = current;
+        if (f != null && !f.usernames().mightContain(usernameKey(username))) {
+            skipped.increment();
+            return false;
+        }
+
+        boolean exists = userRepository.existsByUsername(username);
+        if (f != null) {
+            dbChecks.increment();
+            if (!exists) falsePositives.increment();
+        }
+        return exists;
+    }
+
+    public boolean emailExists(String email) {
+        Filters f = current;
+        if (f != null && !f.emails().mightContain(emailKey(email))) {
+            skipped.increment();
+            return false;
+        }
+
+        boolean exists = userRepository.existsByEmail(email);
+        if (f != null) {
+            dbChecks.increment();
+            if (!exists) falsePositives.increment();
+        }
+        return exists;
+    }
+
+    // เรียกหลัง insert user สำเร็จแล้ว
+    public void add(String username, String email) {
+        swapLock.lock();
+        try {
+            put(current, username, email);
+            if (pendingAdds != null) pendingAdds.add(new String[]{username, email});
+        } finally {
+            swapLock.unlock();
+        }
+    }
+
+    public boolean rebuild() {
+        if (!rebuilding.compareAndSet(false, true)) return false;
+
+        try {
+            long started = System.currentTimeMillis();
+            long size = Math.max(expectedInsertions, userRepository.count() * 2);
+            Filters next = new Filters(BloomFilter.create(size, fpp), BloomFilter.create(size, fpp));
+
+            // เริ่มเก็บ add ก่อน stream เพื่อให้ user ที่ insert ระหว่าง rebuild ไม่หลุด
+            swapLock.lock();
+            try {
+                pendingAdds = new ArrayList<>();
+            } finally {
+                swapLock.unlock();
+            }
+            readOnlyTx.executeWithoutResult(status -> {
+                try (Stream<UserKeyView> keys = userRepository.streamAllKeys()) {
+                    keys.forEach(k -> put(next, k.getUsername(), k.getEmail()));
+                }
+            });
+
+            swapLock.lock();
+            try {
+                for (String[] added : pendingAdds) put(next, added[0], added[1]);
+                current = next;
+                pendingAdds = null;
+            } finally {
+                swapLock.unlock();
+            }
+            log.info("User index rebuilt: {} users in {} ms", next.usernames().insertedCount(),
+                    System.currentTimeMillis() - started);
+            return true;
+        } finally {
+            swapLock.lock();
+            try {
+                pendingAdds = null;
+            } finally {
+                swapLock.unlock();
+            }
+            rebuilding.set(false);
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Filters f = current;
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("ready", f != null);
+        body.put("rebuilding", rebuilding.get());
+        if (f != null) {
+            body.put("usernames", describe(f.usernames()));
+            body.put("emails", describe(f.emails()));
+        }
+
+        double checks = dbChecks.count();
+        double negatives = skipped.count();
+        body.put("negativeLookups", (long) negatives);
+        body.put("dbLookups", (long) checks);
+        body.put("falsePositives", (long) falsePositives.count());
+        // อัตรา false positive ที่วัดได้จริง = ตอบ "อาจมี" แต่ DB ตอบว่าไม่มี / lookup ที่ไม่มีจริงทั้งหมด
+        double actualNegatives = negatives + falsePositives.count();
+        body.put("observedFpp", actualNegatives == 0 ? 0.0 : falsePositives.count() / actualNegatives);
+        return body;
+    }
+
+    private static Map<String, Object> describe(BloomFilter filter) {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("entries", filter.insertedCount());
+        m.put("bits", filter.bitSize());
+        m.put("hashes", filter.hashCount());
+        m.put("memoryBytes", filter.memoryBytes());
+        m.put("expectedFpp", filter.expectedFpp());
+        return m;
+    }
+
+    private static void put(Filters f, String username, String email) {
+        if (f == null) return;
+        if (username != null) f.usernames().put(usernameKey(username));
+        if (email != null) f.emails().put(emailKey(email));
+    }
+
+    private static String usernameKey(String username) {
+        return username.trim();
+    }
+
+    // ใช้ตัวพิมพ์เล็กเสมอ: เป็น superset ของการเทียบแบบตรงตัว จึงไม่มี false negative
+    private static String emailKey(String email) {
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,183 @@
+package com.example.minibank.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.Locale;
+
+// export ตาราง users ทั้งหมดแบบ stream จาก JDBC cursor (fetch size) ตรงลง response
+// heap คงที่ไม่ว่าจะกี่แถว; client ที่อ่านช้าจะทำให้ write block (backpressure ผ่าน TCP)
+@Slf4j
+@Service
+public class UserExportService {
+
+    public enum Format {
+        NDJSON("application/x-ndjson", "ndjson"),
+        CSV("text/csv", "csv");
+
+        public final String contentType;
+        public final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public static Format parse(String raw) {
+            try {
+                return valueOf(raw.trim().toUpperCase(Locale.ROOT));
+            } catch (RuntimeException e) {
+                throw new RuntimeException("format ต้องเป็น ndjson หรือ csv");
+            }
+        }
+    }
+
+    private static final String SQL =
+            "SELECT id, username, email, full_name, role FROM users WHERE id > ? ORDER BY id";
+    private static final String CSV_HEADER = "id,username,email,full_name,role\n";
+    private static final int WRITE_BUFFER = 64 * 1024;
+
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate readOnlyTx;
+    private final int fetchSize;
+    private final int flushEvery;
+    private final Counter exportedRows;
+
+    public UserExportService(
+            JdbcTemplate jdbc,
+            PlatformTransactionManager txManager,
+            @Value("${app.export.fetch-size:2000}") int fetchSize,
+            @Value("${app.export.flush-every:5000}") int flushEvery,
+            MeterRegistry meterRegistry
+    ) {
+        this.jdbc = jdbc;
+        this.readOnlyTx = new TransactionTemplate(txManager);
+        this.readOnlyTx.setReadOnly(true);
+        this.fetchSize = fetchSize;
+        this.flushEvery = flushEvery;
+        this.exportedRows = Counter.builder("minibank.export.users.rows").register(meterRegistry);
+    }
+
+    // คืน id สุดท้ายที่เขียนออกไป (เริ่มต่อได้ด้วย afterId)
+    public long export(Format format, long afterId, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), WRITE_BUFFER);
+        StringBuilder line = new StringBuilder(256);
+        long[] state = {afterId, 0}; // lastId, rows
+
+        if (format == Format.CSV && afterId == 0) writer.write(CSV_HEADER);
+
+        try {
+            // PostgreSQL ใช้ cursor (fetch ทีละ fetchSize) เฉพาะตอน autocommit ปิด = ต้องอยู่ใน transaction
+            readOnlyTx.executeWithoutResult(status -> jdbc.query(con -> {
+                PreparedStatement ps = con.prepareStatement(SQL, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                ps.setFetchSize(fetchSize);
+                ps.setLong(1, afterId);
+                return ps;
+            }, rs -> {
+                long id = rs.getLong(1);
+                line.setLength(0);
+                if (format == Format.NDJSON) {
+                    ndjson(line, id, rs.getString(2), rs.getString(3), rs.getString(4), rs.getString(5));
+                } else {
+                    csv(line, id, rs.getString(2), rs.getString(3), rs.getString(4), rs.getString(5));
+                }
+
+                try {
+                    writer.append(line);
+                    state[0] = id;
+                    // flush เป็นระยะให้ข้อมูลไหลไปถึง client ไม่ค้างใน buffer
+                    if (++state[1] % flushEvery == 0) writer.flush();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }));
+            writer.flush();
+        } catch (UncheckedIOException e) {
+            // client ตัดการเชื่อมต่อกลางทาง
+            log.info("User export aborted after {} rows (last id {})", state[1], state[0]);
+            throw e.getCause();
+        } finally {
+            exportedRows.increment(state[1]);
+        }
+
+        log.info("User export finished: {} rows as {} (after id {}, last id {})", state[1], format, afterId, state[0]);
+        return state[0];
+    }
+
+    private static void ndjson(StringBuilder sb, long id, String username, String email, String fullName, String role) {
+        sb.append("{\"id\":").append(id);
+        sb.append(",\"username\":"); jsonString(sb, username);
+        sb.append(",\"email\":"); jsonString(sb, email);
+        sb.append(",\"fullName\":"); jsonString(sb, fullName);
+        sb.append(",\"role\":"); jsonString(sb, role);
+        sb.append("}\n");
+    }
+
+    private static void jsonString(StringBuilder sb, String s) {
+        if (s == null) {
+            sb.append("null");
+            return;
+        }
+        sb.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                default -> {
+                    if (c < 0x20) sb.append(String.format("\\u%04x", (int) c));
+                    else sb.append(c);
+                }
+            }
+        }
+        sb.append('"');
+    }
+
+    private static void csv(StringBuilder sb, long id, String username, String email, String fullName, String role) {
+        sb.append(id).append(',');
+        csvField(sb, username); sb.append(',');
+        csvField(sb, email); sb.append(',');
+        csvField(sb, fullName); sb.append(',');
+        csvField(sb, role);
+        sb.append('\n');
+    }
+
+    // RFC 4180: ใส่ "..." เมื่อมี , " หรือขึ้นบรรทัดใหม่
+    private static void csvField(StringBuilder sb, String s) {
+        if (s == null) return;
+        boolean quote = false;
+        for (int i = 0; i < s.length() && !quote; i++) {
+            char c = s.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            sb.append(s);
+            return;
+        }
+        sb.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"') sb.append('"');
+            sb.append(c);
+        }
+        sb.append('"');
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.minibank.service;
+
+import com.example.minibank.dto.UserImportReport;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.stereotype.Component;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+
+// โหมด CLI: java -jar minibank.jar --app.import.file=users.ndjson --spring.main.web-application-type=none
+// format เดาจากนามสกุล (.csv = CSV นอกนั้น NDJSON) จบแล้วปิดแอปเอง
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.import.file")
+public class UserImportRunner implements ApplicationRunner {
+
+    private final UserImportService importService;
+    private final ConfigurableApplicationContext context;
+    private final Path file;
+
+    public UserImportRunner(
+            UserImportService importService,
+            ConfigurableApplicationContext context,
+            @Value("${app.import.file}") String file
+    ) {
+        this.importService = importService;
+        this.context = context;
+        this.file = Path.of(file);
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        UserImportService.Format format = file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".csv")
+                ? UserImportService.Format.CSV
+                : UserImportService.Format.NDJSON;
+
+        UserImportReport report;
+        try (InputStream in = Files.newInputStream(file)) {
+            report = importService.importUsers(format, in);
+        }
+
+        log.info("Imported {}: total={} inserted={} rejected={} ({} rows/s)",
+                file, report.getTotal(), report.getInserted(), report.getRejected(), report.getRowsPerSecond());
+        for (UserImportReport.RowError e : report.getErrors()) {
+            log.warn("line {} ({}): {}", e.getLine(), e.getUsername(), e.getReason());
+        }
+
+        // มีงาน @Scheduled อยู่ แอปจะไม่จบเอง
+        System.exit(SpringApplication.exit(context, () -> 0));
+    }
+}
@@ -0,0 +1,303 @@
+package com.example.minibank.service;
+
+import com.example.minibank.dto.UserImportReport;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import tools.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+// นำเข้า user จำนวนมากจากไฟล์ NDJSON/CSV (ต้องมี password hash แบบ BCrypt มาแล้ว ไม่ hash ให้ตอน import)
+// อ่านไฟล์ทีละ batch -> validate หลาย batch พร้อมกัน -> insert ตามลำดับด้วย JDBC batch
+// แถวที่ผิด/ซ้ำถูกรายงานทีละแถว ไม่ทำให้ทั้ง batch ล้ม
+@Slf4j
+@Service
+public class UserImportService {
+
+    public enum Format { NDJSON, CSV }
+
+    private record Row(long line, String username, String email, String fullName, String passwordHash, String role) {}
+
+    private record Validated(List<Row> rows, List<UserImportReport.RowError> errors) {}
+
+    // ซ้ำ (username หรือ lower(email)) = update count 0 ไม่ throw
+    private static final String INSERT_SQL = """
+            INSERT INTO users (username, email, full_name, password_hash, role)
+            VALUES (?, ?, ?, ?, ?)
+            ON CONFLICT DO NOTHING
+            """;
+
+    private static final Pattern BCRYPT_HASH = Pattern.compile("^(\\{bcrypt})?\\$2[aby]?\\$\\d{2}\\$[./A-Za-z0-9]{53}$");
+    private static final Pattern EMAIL = Pattern.compile("^[^@\\s]+@[^@\\s]+\\.[^@\\s]+$");
+
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate tx;
+    private final ObjectMapper objectMapper;
+    private final UserExistenceIndex userIndex;
+
+    private final int batchSize;
+    private final int parallelism;
+    private final int maxReportedErrors;
+    private final ExecutorService validators;
+
+    public UserImportService(
+            JdbcTemplate jdbc,
+            PlatformTransactionManager txManager,
+            ObjectMapper objectMapper,
+            UserExistenceIndex userIndex,
+            @Value("${app.import.batch-size:2000}") int batchSize,
+            @Value("${app.import.threads:0}") int threads,
+            @Value("${app.import.max-reported-errors:1000}") int maxReportedErrors
+    ) {
+        this.jdbc = jdbc;
+        this.tx = new TransactionTemplate(txManager);
+        this.objectMapper = objectMapper;
+        this.userIndex = userIndex;
+        this.batchSize = batchSize;
+        this.parallelism = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.maxReportedErrors = maxReportedErrors;
+
+        AtomicInteger seq = new AtomicInteger();
+        this.validators = Executors.newFixedThreadPool(parallelism, r -> {
+            Thread t = new Thread(r, "user-import-" + seq.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public UserImportReport importUsers(Format format, InputStream in) throws IOException {
+        long start = System.nanoTime();
+        long total = 0;
+        long inserted = 0;
+        long rejected = 0;
+        List<UserImportReport.RowError> errors = new ArrayList<>();
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 64 * 1024);
+        List<String> header = format == Format.CSV ? readCsvHeader(reader) : null;
+
+        // validate ล่วงหน้าได้ไม่เกิน parallelism batch แล้ว insert ตามลำดับไฟล์
+        Deque<CompletableFuture<Validated>> inFlight = new ArrayDeque<>();
+        long[] line = {header == null ? 0 : 1};
+
+        while (true) {
+            List<String[]> raw = readBatch(format, reader, line);
+            if (raw.isEmpty()) break;
+            total += raw.size();
+
+            inFlight.add(CompletableFuture.supplyAsync(() -> validate(format, header, raw), validators));
+            if (inFlight.size() >= parallelism) {
+                long[] counts = insert(inFlight.poll().join(), errors);
+                inserted += counts[0];
+                rejected += counts[1];
+            }
+        }
+        while (!inFlight.isEmpty()) {
+            long[] counts = insert(inFlight.poll().join(), errors);
+            inserted += counts[0];
+            rejected += counts[1];
+        }
+
+        long elapsedMs = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+        log.info("User import: {} rows, {} inserted, {} rejected in {} ms", total, inserted, rejected, elapsedMs);
+        return new UserImportReport(total, inserted, rejected, elapsedMs, total * 1000 / elapsedMs, errors);
+    }
+
+    // คืน {inserted, rejected}
+    private long[] insert(Validated batch, List<UserImportReport.RowError> errors) {
+        long rejected = batch.errors().size();
+        batch.errors().forEach(e -> report(errors, e));
+
+        List<Row> rows = batch.rows();
+        if (rows.isEmpty()) return new long[]{0, rejected};
+
+        int[][] counts = tx.execute(status -> jdbc.batchUpdate(INSERT_SQL, rows, rows.size(), (ps, row) -> {
+            ps.setString(1, row.username());
+            ps.setString(2, row.email());
+            ps.setString(3, row.fullName());
+            ps.setString(4, row.passwordHash());
+            ps.setString(5, row.role());
+        }));
+
+        long inserted = 0;
+        int i = 0;
+        for (int[] chunk : counts) {
+            for (int c : chunk) {
+                Row row = rows.get(i++);
+                if (c == 0) {
+                    rejected++;
+                    report(errors, new UserImportReport.RowError(row.line(), row.username(), "username หรือ email ซ้ำ"));
+                } else {
+                    inserted++;
+                    userIndex.add(row.username(), row.email());
+                }
+            }
+        }
+        return new long[]{inserted, rejected};
+    }
+
+    private void report(List<UserImportReport.RowError> errors, UserImportReport.RowError error) {
+        if (errors.size() < maxReportedErrors) errors.add(error);
+    }
+
+    // ===== validate (รันบน validators pool) =====
+
+    private Validated validate(Format format, List<String> header, List<String[]> raw) {
+        List<Row> rows = new ArrayList<>(raw.size());
+        List<UserImportReport.RowError> errors = new ArrayList<>();
+
+        for (String[] r : raw) {
+            long line = Long.parseLong(r[0]);
+            Map<String, String> fields;
+            try {
+                fields = format == Format.NDJSON ? parseJson(r[1]) : csvFields(header, r[1]);
+            } catch (RuntimeException e) {
+                errors.add(new UserImportReport.RowError(line, null, "อ่านแถวไม่ได้: " + e.getMessage()));
+                continue;
+            }
+
+            String username = trim(fields.get("username"));
+            String email = trim(fields.get("email"));
+            String fullName = trim(fields.getOrDefault("fullName", fields.get("full_name")));
+            String passwordHash = trim(fields.getOrDefault("passwordHash", fields.get("password_hash")));
+            String role = trim(fields.get("role"));
+            role = role.isEmpty() ? "USER" : role.toUpperCase(Locale.ROOT);
+
+            String reason = null;
+            if (username.length() < 3 || username.length() > 30) reason = "username ต้องยาว 3-30 ตัว";
+            else if (email.length() > 255 || !EMAIL.matcher(email).matches()) reason = "email ไม่ถูกต้อง";
+            else if (fullName.length() < 2 || fullName.length() > 100) reason = "fullName ต้องยาว 2-100 ตัว";
+            else if (!BCRYPT_HASH.matcher(passwordHash).matches()) reason = "passwordHash ต้องเป็น BCrypt";
+            else if (!role.equals("USER") && !role.equals("ADMIN")) reason = "role ต้องเป็น USER หรือ ADMIN";
+
+            if (reason != null) {
+                errors.add(new UserImportReport.RowError(line, username.isEmpty() ? null : username, reason));
+            } else {
+                rows.add(new Row(line, username, email, fullName, passwordHash, role));
+            }
+        }
+        return new Validated(rows, errors);
+    }
+
+    private Map<String, String> parseJson(String json) {
+        Map<?, ?> map = objectMapper.readValue(json, Map.class);
+        Map<String, String> fields = new HashMap<>();
+        map.forEach((k, v) -> {
+            if (v != null) fields.put(String.valueOf(k), String.valueOf(v));
+        });
+        return fields;
+    }
+
+    private static Map<String, String> csvFields(List<String> header, String record) {
+        List<String> values = parseCsv(record);
+        if (values.size() != header.size()) {
+            throw new IllegalArgumentException("จำนวนคอลัมน์ " + values.size() + " ไม่ตรงกับ header " + header.size());
+        }
+        Map<String, String> fields = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) fields.put(header.get(i), values.get(i));
+        return fields;
+    }
+
+    private static String trim(String s) {
+        return s == null ? "" : s.trim();
+    }
+
+    // ===== อ่านไฟล์ (thread ของผู้เรียก) =====
+
+    // แต่ละแถว = {เลขบรรทัดแรกของแถว, ข้อความ}
+    private List<String[]> readBatch(Format format, BufferedReader reader, long[] line) throws IOException {
+        List<String[]> batch = new ArrayList<>(batchSize);
+        while (batch.size() < batchSize) {
+            long startLine = line[0] + 1;
+            String record = format == Format.CSV ? readCsvRecord(reader, line) : readLine(reader, line);
+            if (record == null) break;
+            if (record.isBlank()) continue;
+            batch.add(new String[]{String.valueOf(startLine), record});
+        }
+        return batch;
+    }
+
+    private static String readLine(BufferedReader reader, long[] line) throws IOException {
+        String s = reader.readLine();
+        if (s != null) line[0]++;
+        return s;
+    }
+
+    private static List<String> readCsvHeader(BufferedReader reader) throws IOException {
+        String first = reader.readLine();
+        if (first == null) return List.of();
+        return parseCsv(first).stream().map(String::trim).toList();
+    }
+
+    // field ที่อยู่ใน "..." อาจมีขึ้นบรรทัดใหม่ได้ อ่านต่อจนเครื่องหมายคำพูดครบคู่
+    private static String readCsvRecord(BufferedReader reader, long[] line) throws IOException {
+        String record = readLine(reader, line);
+        if (record == null) return null;
+        while (countQuotes(record) % 2 != 0) {
+            String next = readLine(reader, line);
+            if (next == null) break;
+            record = record + "\n" + next;
+        }
+        return record;
+    }
+
+    private static int countQuotes(String s) {
+        int n = 0;
+        for (int i = 0; i < s.length(); i++) if (s.charAt(i) == '"') n++;
+        return n;
+    }
+
+    // RFC 4180 (คู่กับ UserExportService)
+    private static List<String> parseCsv(String record) {
+        List<String> values = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < record.length(); i++) {
+            char c = record.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < record.length() && record.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        values.add(field.toString());
+        return values;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        validators.shutdownNow();
+    }
+}
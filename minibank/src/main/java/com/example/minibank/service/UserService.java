@@ -1,21 +1,32 @@
 package com.example.minibank.service;
 
 import com.example.minibank.dto.CreateUserRequest;
+import com.example.minibank.dto.UserPage;
 import com.example.minibank.dto.UserResponse;
 import com.example.minibank.entity.User;
 import com.example.minibank.repository.UserRepository;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
 import java.util.List;
 
 @Service
 public class UserService {
 
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 200;
+    private static final String CURSOR_PREFIX = "u1:";
+    private static final String USERNAME_CURSOR_PREFIX = "u2:";
+
     private final UserRepository userRepository;
+    private final UserExistenceIndex userIndex;
 
-    public UserService(UserRepository userRepository) {
+    public UserService(UserRepository userRepository, UserExistenceIndex userIndex) {
         this.userRepository = userRepository;
+        this.userIndex = userIndex;
     }
 
     public UserResponse create(CreateUserRequest req) {
@@ -26,6 +37,7 @@ public class UserService {
 
         try {
             User saved = userRepository.save(user);
+            userIndex.add(saved.getUsername(), saved.getEmail());
             return new UserResponse(saved.getId(), saved.getUsername(), saved.getFullName());
         } catch (DataIntegrityViolationException e) {
             
@@ -33,10 +45,81 @@ public class UserService {
         }
     }
 
-    public List<UserResponse> list() {
-        return userRepository.findAll()
+    // ทีละหน้าตาม id (หรือตาม username เมื่อกรอง prefix): หน่วยความจำต่อคำขอไม่เกิน limit แถว ไม่ว่าตารางใหญ่แค่ไหน
+    public UserPage list(String cursor, Integer limitRaw, String usernamePrefixRaw) {
+        int limit = limitRaw == null ? DEFAULT_PAGE_SIZE : Math.max(1, Math.min(limitRaw, MAX_PAGE_SIZE));
+        String prefix = usernamePrefixRaw == null ? "" : usernamePrefixRaw.trim();
+        if (!prefix.isEmpty()) return listByUsernamePrefix(cursor, limit, prefix);
+
+        // ดึงเกินมา 1 แถวเพื่อรู้ว่ายังมีหน้าถัดไปไหม
+        List<UserResponse> rows = userRepository.findPageAfter(decodeCursor(cursor), Limit.of(limit + 1));
+        if (rows.size() <= limit) return new UserPage(rows, null);
+
+        List<UserResponse> page = rows.subList(0, limit);
+        return new UserPage(page, encodeCursor(page.get(limit - 1).getId()));
+    }
+
+    // seek บน (username, id) ในช่วงของ prefix: เวลาต่อหน้าคงที่ ไม่ขึ้นกับว่า prefix เจอผู้ใช้ห่างกันแค่ไหนในลำดับ id
+    private UserPage listByUsernamePrefix(String cursor, int limit, String prefix) {
+        String afterUsername = "";
+        long afterId = 0;
+        if (cursor != null && !cursor.isBlank()) {
+            String[] c = decodeUsernameCursor(cursor);
+            afterUsername = c[0];
+            afterId = Long.parseLong(c[1]);
+        }
+
+        List<UserResponse> rows = userRepository
+                .findPageByUsernamePrefix(escapeLike(prefix) + "%", afterUsername, afterId, limit + 1)
                 .stream()
-                .map(u -> new UserResponse(u.getId(), u.getUsername(), u.getFullName()))
+                .map(v -> new UserResponse(v.getId(), v.getUsername(), v.getFullName()))
                 .toList();
+        if (rows.size() <= limit) return new UserPage(rows, null);
+
+        List<UserResponse> page = rows.subList(0, limit);
+        UserResponse last = page.get(limit - 1);
+        return new UserPage(page, encodeUsernameCursor(last.getUsername(), last.getId()));
+    }
+
+    // cursor = base64url("u1:" + id สุดท้ายของหน้า) ให้ client ถือไว้เฉย ๆ ไม่ต้องแกะ
+    private static String encodeCursor(long lastId) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((CURSOR_PREFIX + lastId).getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static long decodeCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) return 0;
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor.trim()), StandardCharsets.US_ASCII);
+            if (!raw.startsWith(CURSOR_PREFIX)) throw new IllegalArgumentException();
+            return Long.parseLong(raw.substring(CURSOR_PREFIX.length()));
+        } catch (IllegalArgumentException e) {
+            throw new RuntimeException("cursor ไม่ถูกต้อง");
+        }
+    }
+
+    // cursor ตอนกรอง prefix = base64url("u2:" + id + ":" + username) ของแถวสุดท้าย (username อยู่ท้ายสุด มี : ได้)
+    private static String encodeUsernameCursor(String lastUsername, long lastId) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((USERNAME_CURSOR_PREFIX + lastId + ":" + lastUsername).getBytes(StandardCharsets.UTF_8));
+    }
+
+    // คืน {username, id}
+    private static String[] decodeUsernameCursor(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor.trim()), StandardCharsets.UTF_8);
+            if (!raw.startsWith(USERNAME_CURSOR_PREFIX)) throw new IllegalArgumentException();
+            String rest = raw.substring(USERNAME_CURSOR_PREFIX.length());
+            int colon = rest.indexOf(':');
+            if (colon < 0) throw new IllegalArgumentException();
+            String id = String.valueOf(Long.parseLong(rest.substring(0, colon)));
+            return new String[]{rest.substring(colon + 1), id};
+        } catch (IllegalArgumentException e) {
+            throw new RuntimeException("cursor ไม่ถูกต้อง");
+        }
+    }
+
+    private static String escapeLike(String s) {
+        return s.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
     }
 }
@@ -0,0 +1,101 @@
+package com.example.minibank.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+// เปิดเมื่อรันแบบ virtual thread: ฟัง JFR event jdk.VirtualThreadPinned (JDK 21+)
+// นับจำนวน/เวลาที่ carrier thread ถูก pin และ log stack ของแต่ละจุดครั้งแรกที่เจอ
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+public class VirtualThreadPinningMonitor {
+
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+    private static final int MAX_REPORTED_SITES = 200;
+    private static final int LOGGED_FRAMES = 12;
+
+    private final Duration threshold;
+    private final Counter pinned;
+    private final Timer pinnedTime;
+    private final Set<String> reportedSites = ConcurrentHashMap.newKeySet();
+
+    private RecordingStream stream;
+
+    public VirtualThreadPinningMonitor(
+            @Value("${app.vthreads.pinned-threshold-ms:20}") long thresholdMs,
+            MeterRegistry meterRegistry
+    ) {
+        this.threshold = Duration.ofMillis(thresholdMs);
+        this.pinned = Counter.builder("minibank.vthreads.pinned").register(meterRegistry);
+        this.pinnedTime = Timer.builder("minibank.vthreads.pinned.duration").register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (Runtime.version().feature() < 21) {
+            // Spring Boot จะไม่ใช้ virtual thread บน JDK ต่ำกว่า 21 (ตั้ง property ไว้ก็ไม่มีผล)
+            log.warn("spring.threads.virtual.enabled=true but running on Java {}; virtual threads need Java 21+",
+                    Runtime.version().feature());
+            return;
+        }
+
+        stream = new RecordingStream();
+        stream.enable(PINNED_EVENT).withThreshold(threshold).withStackTrace();
+        stream.onEvent(PINNED_EVENT, this::onPinned);
+        stream.startAsync();
+        log.info("Virtual thread pinning monitor started (threshold {} ms)", threshold.toMillis());
+    }
+
+    private void onPinned(RecordedEvent event) {
+        pinned.increment();
+        pinnedTime.record(event.getDuration());
+
+        RecordedStackTrace stack = event.getStackTrace();
+        if (stack == null) return;
+
+        String site = site(stack);
+        if (reportedSites.size() < MAX_REPORTED_SITES && reportedSites.add(site)) {
+            String frames = stack.getFrames().stream()
+                    .limit(LOGGED_FRAMES)
+                    .map(VirtualThreadPinningMonitor::format)
+                    .collect(Collectors.joining("\n\tat ", "\tat ", ""));
+            log.warn("Virtual thread pinned for {} ms at {}\n{}", event.getDuration().toMillis(), site, frames);
+        }
+    }
+
+    // frame แรกที่ไม่ใช่ของ JDK = จุดที่ต้องไปแก้ (เช่น synchronized รอบ I/O ใน driver)
+    private static String site(RecordedStackTrace stack) {
+        return stack.getFrames().stream()
+                .filter(RecordedFrame::isJavaFrame)
+                .map(VirtualThreadPinningMonitor::format)
+                .filter(f -> !f.startsWith("java.") && !f.startsWith("jdk.") && !f.startsWith("sun."))
+                .findFirst()
+                .orElse("<jdk>");
+    }
+
+    private static String format(RecordedFrame frame) {
+        return frame.getMethod().getType().getName() + "." + frame.getMethod().getName() + ":" + frame.getLineNumber();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (stream != null) stream.close();
+    }
+}
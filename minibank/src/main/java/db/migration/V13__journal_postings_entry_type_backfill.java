@@ -0,0 +1,50 @@
+package db.migration;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+// เติม journal_postings.entry_type (V8) ทีละช่วง id และ commit ทีละช่วง
+// ไม่ถือ lock แถวทั้งตารางใน transaction เดียว และ autovacuum เก็บ tuple เก่าได้ระหว่างทาง
+// ช่วงที่เติมแล้วข้ามไป (entry_type IS NULL) ล้มกลางทางรันใหม่ต่อได้
+public class V13__journal_postings_entry_type_backfill extends BaseJavaMigration {
+
+    private static final long BATCH_SIZE = 10_000;
+
+    @Override
+    public boolean canExecuteInTransaction() {
+        return false;
+    }
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        Connection con = context.getConnection();
+
+        long maxId;
+        try (Statement st = con.createStatement();
+             ResultSet rs = st.executeQuery("SELECT COALESCE(max(id), 0) FROM journal_postings")) {
+            rs.next();
+            maxId = rs.getLong(1);
+        }
+
+        boolean autoCommit = con.getAutoCommit();
+        con.setAutoCommit(true);
+        try (PreparedStatement ps = con.prepareStatement("""
+                UPDATE journal_postings p SET entry_type = e.type
+                FROM journal_entries e
+                WHERE e.id = p.entry_id AND p.id > ? AND p.id <= ? AND p.entry_type IS NULL
+                """)) {
+            for (long from = 0; from < maxId; from += BATCH_SIZE) {
+                ps.setLong(1, from);
+                ps.setLong(2, from + BATCH_SIZE);
+                ps.executeUpdate();
+            }
+        } finally {
+            con.setAutoCommit(autoCommit);
+        }
+    }
+}
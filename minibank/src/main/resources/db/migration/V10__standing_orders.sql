@@ -0,0 +1,32 @@
+-- จ่ายบิลล่วงหน้า / จ่ายประจำ: StandingOrderScheduler โหลดเฉพาะรายการที่ถึงกำหนดในช่วงถัดไปเข้า timing wheel
+-- due_date = งวดที่กำลังจะจ่าย (ตาม app.ledger.zone), next_run_at = เวลาที่จะลองจ่ายครั้งถัดไป (งวดนี้หรือ retry ตอนยอดไม่พอ)
+-- frequency: ONCE / WEEKLY / MONTHLY (MONTHLY ใช้ anchor_day ตัดเป็นวันสุดท้ายของเดือนที่สั้นกว่า)
+-- status: ACTIVE / RUNNING (ระหว่างส่งเข้า LedgerEngine) / DONE / FAILED / CANCELLED
+CREATE TABLE standing_orders (
+    id            BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    account_id    BIGINT NOT NULL REFERENCES ledger_accounts (id),
+    user_id       BIGINT NOT NULL REFERENCES users (id),
+    bill          VARCHAR(100) NOT NULL,
+    provider      VARCHAR(100) NOT NULL,
+    reference     VARCHAR(64),
+    amount_minor  BIGINT NOT NULL CHECK (amount_minor > 0),
+    frequency     VARCHAR(16) NOT NULL,
+    anchor_day    INTEGER NOT NULL,
+    due_date      DATE NOT NULL,
+    next_run_at   TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    status        VARCHAR(16) NOT NULL,
+    attempts      INTEGER NOT NULL DEFAULT 0,
+    last_status   VARCHAR(32),
+    last_entry_id BIGINT,
+    last_run_at   TIMESTAMP(6) WITH TIME ZONE,
+    created_at    TIMESTAMP(6) WITH TIME ZONE NOT NULL
+);
+
+-- StandingOrderRepository.findDue / findOverdue: อ่านเฉพาะช่วงเวลาที่ต้องการ ไม่ scan ทั้งตาราง
+CREATE INDEX ix_standing_orders_due ON standing_orders (next_run_at, id) WHERE status = 'ACTIVE';
+
+-- StandingOrderService.list
+CREATE INDEX ix_standing_orders_user ON standing_orders (user_id, id);
+
+-- StandingOrderScheduler.start: รายการที่ค้างตอน process ตายระหว่างส่งเข้า engine
+CREATE INDEX ix_standing_orders_running ON standing_orders (id) WHERE status = 'RUNNING';
@@ -0,0 +1,6 @@
+-- แถว FAILED เก็บเนื้อหาอีเมล (มี OTP / ลิงก์ reset) ไว้ตลอด: ลบเนื้อหาของแถวที่มีอยู่แล้ว
+-- ต่อจากนี้ EmailOutboxDispatcher ลบเนื้อหาตอนล้มเหลวถาวร และ ExpiredOtpPurgeJob ลบแถว FAILED ที่เก่ากว่า retention
+UPDATE email_outbox SET html_content = '' WHERE status = 'FAILED' AND html_content <> '';
+
+-- EmailOutboxRepository.purgeFailed
+CREATE INDEX IF NOT EXISTS ix_email_outbox_failed_created_at ON email_outbox (created_at) WHERE status = 'FAILED';
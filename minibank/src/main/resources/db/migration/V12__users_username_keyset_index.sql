@@ -0,0 +1,5 @@
+-- UserRepository.findPageByUsernamePrefix: ค้น prefix แล้วไล่ต่อด้วย (username, id) บน index เดียว
+-- COLLATE "C" = เรียงตาม byte: LIKE 'abc%' ใช้ index เป็นช่วงได้ และลำดับตรงกับ row comparison ใน query
+-- CONCURRENTLY ไม่ล็อกการเขียน users (Flyway รัน migration นี้นอก transaction)
+-- ถ้าล้มกลางทางจะเหลือ index ที่ INVALID: DROP INDEX ix_users_username_c แล้วรันใหม่
+CREATE INDEX CONCURRENTLY IF NOT EXISTS ix_users_username_c ON users (username COLLATE "C", id);
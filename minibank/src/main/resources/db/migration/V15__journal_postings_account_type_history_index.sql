@@ -0,0 +1,5 @@
+-- LedgerRepository.findHistory (กรองประเภท)
+-- CONCURRENTLY ไม่ล็อกการเขียน journal_postings (Flyway รัน migration นี้นอก transaction)
+-- ถ้าล้มกลางทางจะเหลือ index ที่ INVALID: DROP INDEX ix_journal_postings_account_type_history แล้วรันใหม่
+CREATE INDEX CONCURRENTLY IF NOT EXISTS ix_journal_postings_account_type_history ON journal_postings (account_id, entry_type, created_at, id)
+    INCLUDE (entry_id, amount_minor, balance_after_minor);
@@ -0,0 +1,6 @@
+-- entry_type ต้องไม่ว่าง: CHECK แบบ NOT VALID มีผลกับแถวใหม่ทันที ไม่สแกนแถวเดิม (ล็อกแค่ช่วงสั้น ๆ)
+-- แถวเดิมตรวจใน V17 ด้วย VALIDATE ซึ่งไม่บล็อกการเขียน; ไม่ใช้ SET NOT NULL ที่สแกนทั้งตารางใต้ ACCESS EXCLUSIVE
+SET LOCAL lock_timeout = '5s';
+
+ALTER TABLE journal_postings
+    ADD CONSTRAINT ck_journal_postings_entry_type_not_null CHECK (entry_type IS NOT NULL) NOT VALID;
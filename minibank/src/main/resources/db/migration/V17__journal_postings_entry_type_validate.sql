@@ -0,0 +1,3 @@
+-- สแกนแถวเดิมใต้ SHARE UPDATE EXCLUSIVE (อ่าน/เขียนได้ตามปกติ) แยก migration จาก V16
+-- เพื่อไม่ให้ล็อกของ ADD CONSTRAINT ค้างอยู่ระหว่างสแกน
+ALTER TABLE journal_postings VALIDATE CONSTRAINT ck_journal_postings_entry_type_not_null;
@@ -0,0 +1,3 @@
+-- (account_id, id) ถูกแทนด้วย ix_journal_postings_account_history (V14)
+-- CONCURRENTLY ไม่ล็อกการอ่าน/เขียน journal_postings (Flyway รัน migration นี้นอก transaction)
+DROP INDEX CONCURRENTLY IF EXISTS ix_journal_postings_account;
@@ -0,0 +1,29 @@
+-- POST /api/transfers/batch: เก็บ batch และสถานะรายรายการ (commit พร้อม chunk ที่โอน)
+-- batch_ref = Idempotency-Key ของคำขอ (ไม่ส่งมา = สุ่ม): ส่งซ้ำด้วยคีย์เดิมทำต่อเฉพาะรายการที่ค้าง ไม่โอนซ้ำ
+-- status ของรายการ: PENDING / SUBMITTED (ส่งเข้า LedgerEngine แล้ว รอผล) / POSTED / REJECTED
+CREATE TABLE batch_transfers (
+    id                   BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    payer_user_id        BIGINT NOT NULL REFERENCES users (id),
+    batch_ref            VARCHAR(128) NOT NULL,
+    request_hash         VARCHAR(64) NOT NULL,
+    -- ยอดผู้โอนหลัง chunk สุดท้ายของ batch นี้ (ไม่ใช่ยอดตอนตอบ ที่อาจมีรายการอื่นปนแล้ว)
+    balance_after_minor  BIGINT,
+    created_at           TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    CONSTRAINT uk_batch_transfers_payer_ref UNIQUE (payer_user_id, batch_ref)
+);
+
+CREATE TABLE batch_transfer_items (
+    batch_id         BIGINT NOT NULL REFERENCES batch_transfers (id) ON DELETE CASCADE,
+    item_index       INTEGER NOT NULL,
+    to_account       VARCHAR(255),
+    dest_account_id  BIGINT,
+    amount_minor     BIGINT NOT NULL,
+    note             VARCHAR(255),
+    status           VARCHAR(16) NOT NULL,
+    entry_id         BIGINT,
+    reason           VARCHAR(255),
+    PRIMARY KEY (batch_id, item_index)
+);
+
+-- BatchTransferRepository.purgeCreatedBefore
+CREATE INDEX ix_batch_transfers_created_at ON batch_transfers (created_at);
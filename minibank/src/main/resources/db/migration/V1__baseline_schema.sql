@@ -0,0 +1,56 @@
+-- ตารางตามที่ Hibernate ddl-auto=update เคยสร้าง (IF NOT EXISTS: ฐานข้อมูลเดิมมีอยู่แล้ว)
+
+CREATE TABLE IF NOT EXISTS users (
+    id            BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    username      VARCHAR(255) NOT NULL,
+    email         VARCHAR(255) NOT NULL,
+    full_name     VARCHAR(255) NOT NULL,
+    password_hash VARCHAR(255) NOT NULL,
+    role          VARCHAR(255) NOT NULL,
+    CONSTRAINT uk_users_username UNIQUE (username),
+    CONSTRAINT uk_users_email UNIQUE (email)
+);
+
+CREATE TABLE IF NOT EXISTS pending_registrations (
+    id              BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    username        VARCHAR(255) NOT NULL,
+    full_name       VARCHAR(255) NOT NULL,
+    email           VARCHAR(255) NOT NULL,
+    password_hash   VARCHAR(255) NOT NULL,
+    otp_hash        VARCHAR(255) NOT NULL,
+    expires_at      TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    attempts        INTEGER NOT NULL,
+    resend_count    INTEGER NOT NULL,
+    window_start_at TIMESTAMP(6) WITH TIME ZONE,
+    locked_until    TIMESTAMP(6) WITH TIME ZONE,
+    CONSTRAINT uk_pending_registrations_username UNIQUE (username),
+    CONSTRAINT uk_pending_registrations_email UNIQUE (email)
+);
+
+CREATE TABLE IF NOT EXISTS password_reset_requests (
+    id                VARCHAR(64) PRIMARY KEY,
+    email             VARCHAR(255) NOT NULL,
+    username          VARCHAR(255) NOT NULL,
+    new_password_hash VARCHAR(255) NOT NULL,
+    otp_hash          VARCHAR(255) NOT NULL,
+    otp_expires_at    TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    attempts          INTEGER NOT NULL,
+    resend_count      INTEGER NOT NULL,
+    window_start_at   TIMESTAMP(6) WITH TIME ZONE,
+    locked_until      TIMESTAMP(6) WITH TIME ZONE,
+    last_sent_at      TIMESTAMP(6) WITH TIME ZONE
+);
+
+CREATE TABLE IF NOT EXISTS email_outbox (
+    id              BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    to_email        VARCHAR(255) NOT NULL,
+    subject         VARCHAR(255) NOT NULL,
+    html_content    TEXT NOT NULL,
+    priority        INTEGER NOT NULL,
+    status          VARCHAR(16) NOT NULL,
+    attempts        INTEGER NOT NULL,
+    next_attempt_at TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    created_at      TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    locked_at       TIMESTAMP(6) WITH TIME ZONE,
+    last_error      VARCHAR(1000)
+);
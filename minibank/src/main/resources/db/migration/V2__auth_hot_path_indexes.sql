@@ -0,0 +1,26 @@
+-- index ของ query ใน UserRepository / PendingRegistrationRepository / PasswordResetRequestRepository / EmailOutboxRepository
+-- (แต่ละ method ใน repository มีคอมเมนต์บอกว่าใช้ index ไหน)
+
+-- users.email ไม่สนตัวพิมพ์เล็ก/ใหญ่: findByEmail / existsByEmail ค้นด้วย lower(email)
+-- ถ้ามี email ซ้ำกันแบบต่างแค่ตัวพิมพ์ migration นี้จะล้ม ต้องแก้ข้อมูลก่อน
+CREATE UNIQUE INDEX IF NOT EXISTS ux_users_email_lower ON users (lower(email));
+
+-- PendingRegistrationRepository.purgeExpired
+CREATE INDEX IF NOT EXISTS ix_pending_registrations_expires_at ON pending_registrations (expires_at);
+
+-- PasswordResetRequestRepository.findByEmail คืน Optional = ต้องมีแถวเดียวต่อ email
+-- เก็บแถวล่าสุดของแต่ละ email ไว้ก่อนสร้าง unique index
+DELETE FROM password_reset_requests r
+USING password_reset_requests newer
+WHERE r.email = newer.email
+  AND (COALESCE(r.last_sent_at, 'epoch'), r.id) < (COALESCE(newer.last_sent_at, 'epoch'), newer.id);
+
+CREATE UNIQUE INDEX IF NOT EXISTS ux_password_reset_requests_email ON password_reset_requests (email);
+
+-- PasswordResetRequestRepository.purgeExpired
+CREATE INDEX IF NOT EXISTS ix_password_reset_requests_otp_expires_at ON password_reset_requests (otp_expires_at);
+
+-- EmailOutboxRepository.claimBatch (ORDER BY priority, id) และ oldestCreatedAt
+CREATE INDEX IF NOT EXISTS ix_email_outbox_pending ON email_outbox (priority, id) WHERE status = 'PENDING';
+CREATE INDEX IF NOT EXISTS ix_email_outbox_sending_locked_at ON email_outbox (locked_at) WHERE status = 'SENDING';
+CREATE INDEX IF NOT EXISTS ix_email_outbox_pending_created_at ON email_outbox (created_at) WHERE status = 'PENDING';
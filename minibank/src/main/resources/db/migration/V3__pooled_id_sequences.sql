@@ -0,0 +1,4 @@
+-- ให้ Hibernate ใช้ sequence แบบ pooled (allocationSize = 50) แทน IDENTITY จะได้ batch insert ได้
+-- sequence เดิมของ identity column ยังเป็นตัวเดียวกัน แค่เพิ่มทีละ 50
+ALTER TABLE users ALTER COLUMN id SET INCREMENT BY 50;
+ALTER TABLE pending_registrations ALTER COLUMN id SET INCREMENT BY 50;
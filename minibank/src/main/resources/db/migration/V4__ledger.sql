@@ -0,0 +1,48 @@
+-- ledger แบบ double-entry: ทุก journal entry มี posting รวมกันได้ 0
+-- ยอดเงินเก็บเป็นหน่วยย่อย (สตางค์) แบบ BIGINT
+
+CREATE TABLE ledger_accounts (
+    id             BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    account_no     VARCHAR(20) NOT NULL,
+    owner_user_id  BIGINT REFERENCES users (id),
+    type           VARCHAR(16) NOT NULL,
+    currency       VARCHAR(3) NOT NULL,
+    balance_minor  BIGINT NOT NULL,
+    allow_negative BOOLEAN NOT NULL,
+    created_at     TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    CONSTRAINT uk_ledger_accounts_account_no UNIQUE (account_no),
+    -- กันติดลบซ้ำอีกชั้น (UPDATE แบบมีเงื่อนไขใน LedgerRepository เป็นตัวเช็คหลัก)
+    CONSTRAINT ck_ledger_accounts_overdraft CHECK (allow_negative OR balance_minor >= 0)
+);
+
+-- บัญชีลูกค้า 1 บัญชีต่อ user; LedgerRepository.findCustomerAccount / openCustomerAccount
+CREATE UNIQUE INDEX ux_ledger_accounts_customer_owner ON ledger_accounts (owner_user_id) WHERE type = 'CUSTOMER';
+
+CREATE TABLE journal_entries (
+    id           BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    type         VARCHAR(16) NOT NULL,
+    initiated_by BIGINT REFERENCES users (id),
+    counterparty VARCHAR(255),
+    reference    VARCHAR(64),
+    note         VARCHAR(255),
+    created_at   TIMESTAMP(6) WITH TIME ZONE NOT NULL
+);
+
+CREATE TABLE journal_postings (
+    id                  BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    entry_id            BIGINT NOT NULL REFERENCES journal_entries (id),
+    account_id          BIGINT NOT NULL REFERENCES ledger_accounts (id),
+    amount_minor        BIGINT NOT NULL,
+    balance_after_minor BIGINT NOT NULL,
+    created_at          TIMESTAMP(6) WITH TIME ZONE NOT NULL
+);
+
+-- รายการเดินบัญชีต่อบัญชี (ใหม่ -> เก่า)
+CREATE INDEX ix_journal_postings_account ON journal_postings (account_id, id);
+CREATE INDEX ix_journal_postings_entry ON journal_postings (entry_id);
+
+-- บัญชีระบบ: เงินเข้า/ออกจากนอกธนาคาร (ติดลบได้), เจ้าหนี้ค่าบิล, โอนออกต่างธนาคาร
+INSERT INTO ledger_accounts (account_no, owner_user_id, type, currency, balance_minor, allow_negative, created_at) VALUES
+    ('SYS-CASH', NULL, 'SYSTEM', 'THB', 0, TRUE, now()),
+    ('SYS-BILLERS', NULL, 'SYSTEM', 'THB', 0, FALSE, now()),
+    ('SYS-INTERBANK', NULL, 'SYSTEM', 'THB', 0, FALSE, now());
@@ -0,0 +1,13 @@
+-- บัญชีที่มีรายการเข้าถี่มาก (เช่น SYS-BILLERS) แยกยอดเป็นหลายแถวย่อย ให้ credit พร้อมกันได้โดยไม่แย่ง row lock เดียวกัน
+-- ยอดจริง = ledger_accounts.balance_minor + sum(ledger_account_shards.balance_minor)
+ALTER TABLE ledger_accounts ADD COLUMN shard_count INTEGER NOT NULL DEFAULT 1;
+
+CREATE TABLE ledger_account_shards (
+    account_id    BIGINT NOT NULL REFERENCES ledger_accounts (id),
+    shard_no      INTEGER NOT NULL,
+    balance_minor BIGINT NOT NULL,
+    PRIMARY KEY (account_id, shard_no)
+);
+
+-- posting ที่ลงแถวย่อยไม่มียอดคงเหลือรวม ณ ตอนนั้น
+ALTER TABLE journal_postings ALTER COLUMN balance_after_minor DROP NOT NULL;
@@ -0,0 +1,19 @@
+-- ผลลัพธ์ของ POST ที่ส่ง Idempotency-Key มา ให้คำขอซ้ำได้คำตอบเดิมโดยไม่ทำงานซ้ำ
+-- scope = ผู้เรียก (username หรือ anon) + path; ลบทิ้งเมื่อพ้น expires_at
+CREATE TABLE idempotency_keys (
+    id               BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    scope            VARCHAR(255) NOT NULL,
+    idem_key         VARCHAR(128) NOT NULL,
+    request_hash     VARCHAR(64) NOT NULL,
+    status           VARCHAR(16) NOT NULL,
+    response_status  INTEGER,
+    content_type     VARCHAR(255),
+    response_body    BYTEA,
+    locked_at        TIMESTAMP(6) WITH TIME ZONE,
+    created_at       TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    expires_at       TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    CONSTRAINT uk_idempotency_keys_scope_key UNIQUE (scope, idem_key)
+);
+
+-- IdempotencyKeyRepository.purgeExpired
+CREATE INDEX ix_idempotency_keys_expires_at ON idempotency_keys (expires_at);
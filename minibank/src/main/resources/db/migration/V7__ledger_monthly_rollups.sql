@@ -0,0 +1,12 @@
+-- ยอดรายรับ/รายจ่ายต่อบัญชีลูกค้า ต่อเดือน ต่อประเภทรายการ อัปเดตใน transaction เดียวกับ posting
+-- month = วันแรกของเดือนตามเวลา app.ledger.zone; หน้า dashboard อ่านจากตารางนี้อย่างเดียว
+CREATE TABLE ledger_monthly_rollups (
+    account_id    BIGINT NOT NULL REFERENCES ledger_accounts (id),
+    month         DATE NOT NULL,
+    category      VARCHAR(16) NOT NULL,
+    income_minor  BIGINT NOT NULL,
+    expense_minor BIGINT NOT NULL,
+    income_count  INTEGER NOT NULL,
+    expense_count INTEGER NOT NULL,
+    PRIMARY KEY (account_id, month, category)
+);
@@ -0,0 +1,7 @@
+-- ประวัติรายการต่อบัญชีแบบ seek pagination บน (account_id, created_at, id)
+-- เก็บประเภทรายการซ้ำไว้ที่ posting ด้วย เพื่อกรองตามประเภทจาก index ได้โดยไม่ต้อง join journal_entries ก่อนตัดหน้า
+-- ที่นี่เพิ่มคอลัมน์อย่างเดียว (nullable ไม่มี default = แก้แค่ catalog ไม่เขียนตารางใหม่)
+-- เติมค่า / สร้าง index / บังคับ NOT NULL แยกเป็น V13-V18 ไม่ให้ล็อก journal_postings ทั้งตารางใน transaction เดียว
+SET LOCAL lock_timeout = '5s';
+
+ALTER TABLE journal_postings ADD COLUMN entry_type VARCHAR(16);
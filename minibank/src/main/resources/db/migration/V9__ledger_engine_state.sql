@@ -0,0 +1,10 @@
+-- app.ledger.engine.enabled=true: ยอดเงินอยู่ใน LedgerEngine (journal บนดิสก์) ตารางถูกเขียนตามหลังโดย LedgerReadModelProjector
+-- projected_seq = sequence ล่าสุดของ journal ที่เขียนลงตารางแล้ว (อัปเดตใน transaction เดียวกับแถวที่เขียน)
+-- last_entry_id = journal_entries.id สูงสุดที่มาจาก engine; ถ้าในตารางมี id ที่สูงกว่า แปลว่ามีรายการนอก engine
+CREATE TABLE ledger_engine_state (
+    id            SMALLINT PRIMARY KEY CHECK (id = 1),
+    projected_seq BIGINT NOT NULL,
+    last_entry_id BIGINT NOT NULL
+);
+
+INSERT INTO ledger_engine_state (id, projected_seq, last_entry_id) VALUES (1, 0, 0);
@@ -0,0 +1,141 @@
+package com.example.minibank.audit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AuditLogWriterTest {
+
+	@TempDir
+	Path dir;
+
+	private final List<AuditLogWriter> started = new ArrayList<>();
+
+	@AfterEach
+	void tearDown() {
+		started.forEach(AuditLogWriter::close);
+	}
+
+	@Test
+	void rollsIntoNewSegmentsWithoutLosingRecords() throws IOException {
+		// segment เล็กจนใส่ได้ไม่กี่ record: roll หลายรอบทั้งแบบมี spare และแบบสร้างเอง
+		AuditLogWriter writer = start(128);
+		for (int i = 0; i < 20; i++) append(writer, "user-" + i);
+		writer.close();
+		started.remove(writer);
+
+		assertTrue(AuditLogReader.segments(dir).size() > 5);
+		assertEquals(List.of(), spareFiles());
+		List<String> subjects = subjects();
+		assertEquals(20, subjects.size());
+		for (int i = 0; i < 20; i++) assertEquals("user-" + i, subjects.get(i));
+	}
+
+	@Test
+	void tornTailEndsSegmentAndNextSegmentIsStillRead() throws IOException {
+		AuditLogWriter first = start(1 << 16);
+		append(first, "alice");
+		append(first, "bob");
+		first.close();
+		started.remove(first);
+
+		// record ที่สามเขียน length แล้วแต่ body/crc ยังไม่ครบตอนเครื่องดับ
+		Path segment = AuditLogReader.segments(dir).get(0);
+		int end = endOfRecords(segment);
+		withSegment(segment, buf -> {
+			buf.putInt(end, 40);
+			buf.put(end + 4, (byte) 1);
+		});
+
+		AuditLogWriter second = start(1 << 16);
+		append(second, "carol");
+		second.close();
+		started.remove(second);
+
+		assertEquals(List.of("alice", "bob", "carol"), subjects());
+	}
+
+	@Test
+	void crcMismatchStopsSegmentAtLastGoodRecord() throws IOException {
+		AuditLogWriter first = start(1 << 16);
+		append(first, "alice");
+		append(first, "bob");
+		append(first, "carol");
+		first.close();
+		started.remove(first);
+
+		// พลิก byte ใน body ของ record ที่สอง: record หลังจากนั้นใน segment เดียวกันเชื่อไม่ได้
+		Path segment = AuditLogReader.segments(dir).get(0);
+		withSegment(segment, buf -> {
+			int second = AuditLogWriter.HEADER_BYTES + 4 + buf.getInt(AuditLogWriter.HEADER_BYTES) + 4;
+			buf.put(second + 4 + 8, (byte) (buf.get(second + 4 + 8) ^ 0x7f));
+		});
+
+		AuditLogWriter second = start(1 << 16);
+		append(second, "dave");
+		second.close();
+		started.remove(second);
+
+		assertEquals(List.of("alice", "dave"), subjects());
+	}
+
+	private AuditLogWriter start(int segmentBytes) {
+		AuditLogWriter writer = new AuditLogWriter(dir, segmentBytes, 10, Duration.ofDays(1));
+		writer.start();
+		started.add(writer);
+		return writer;
+	}
+
+	private static void append(AuditLogWriter writer, String subject) {
+		writer.append(Instant.now(), AuditEvent.LOGIN_SUCCEEDED, subject, "127.0.0.1", null);
+	}
+
+	private List<String> subjects() {
+		List<String> subjects = new ArrayList<>();
+		assertEquals(0, new AuditLogReader(dir).read(null, null, r -> subjects.add(r.subject())));
+		return subjects;
+	}
+
+	private List<Path> spareFiles() throws IOException {
+		try (Stream<Path> files = Files.list(dir)) {
+			return files.filter(p -> p.getFileName().toString().endsWith(AuditLogWriter.SPARE_SUFFIX)).toList();
+		}
+	}
+
+	private static int endOfRecords(Path segment) throws IOException {
+		int[] end = new int[1];
+		withSegment(segment, buf -> {
+			int position = AuditLogWriter.HEADER_BYTES;
+			while (buf.getInt(position) > 0) position += 4 + buf.getInt(position) + 4;
+			end[0] = position;
+		});
+		return end[0];
+	}
+
+	private interface SegmentEdit {
+		void apply(MappedByteBuffer buf);
+	}
+
+	private static void withSegment(Path segment, SegmentEdit edit) throws IOException {
+		try (FileChannel ch = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_WRITE, 0, ch.size());
+			edit.apply(buf);
+			buf.force();
+		}
+	}
+}
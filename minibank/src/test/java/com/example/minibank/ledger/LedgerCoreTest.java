@@ -0,0 +1,125 @@
+package com.example.minibank.ledger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class LedgerCoreTest {
+
+	private static final long CASH = 1;
+	private static final long ALICE = 2;
+	private static final long BOB = 3;
+
+	@TempDir
+	Path dir;
+
+	private final List<LedgerCore> started = new ArrayList<>();
+
+	@AfterEach
+	void tearDown() {
+		started.forEach(LedgerCore::close);
+	}
+
+	@Test
+	void rejectsOverdraftAndUnknownAccounts() {
+		LedgerCore core = start(new ArrayList<>(), 0, false);
+
+		LedgerCore.Result ok = post(core, 10, ALICE, BOB, 600);
+		assertEquals(LedgerCore.Status.OK, ok.status());
+		assertEquals(400, ok.debitBalance());
+		assertEquals(600, ok.creditBalance());
+
+		LedgerCore.Result overdraft = post(core, 11, ALICE, BOB, 600);
+		assertEquals(LedgerCore.Status.INSUFFICIENT_FUNDS, overdraft.status());
+		assertEquals(400, overdraft.debitBalance());
+
+		assertEquals(LedgerCore.Status.UNKNOWN_ACCOUNT, post(core, 12, 99, BOB, 1).status());
+
+		// บัญชีระบบติดลบได้
+		assertEquals(-500, post(core, 13, CASH, BOB, 500).debitBalance());
+	}
+
+	@Test
+	void restartReplaysJournalAndUnprojectedEvents() {
+		LedgerCore first = start(new ArrayList<>(), 0, false);
+		for (int i = 0; i < 5; i++) post(first, 100 + i, ALICE, BOB, 100);
+		// เหมือน process ตาย (snapshot ล่าสุดยังเป็นตอนเริ่ม)
+		first.crash();
+		started.remove(first);
+
+		List<LedgerCore.Event> replayed = new ArrayList<>();
+		LedgerCore second = start(replayed, 3, false);
+
+		assertEquals(2, replayed.size());
+		assertEquals(103, replayed.get(0).entryId());
+		LedgerCore.Result next = post(second, 200, ALICE, BOB, 100);
+		assertEquals(6, next.sequence());
+		assertEquals(400, next.debitBalance());
+		assertEquals(600, next.creditBalance());
+	}
+
+	@Test
+	void rebuildRefusesToDropUnprojectedEvents() {
+		LedgerCore first = start(new ArrayList<>(), 0, false);
+		post(first, 100, ALICE, BOB, 100);
+		first.close();
+		started.remove(first);
+
+		LedgerCore second = new LedgerCore(config(), e -> { });
+		assertThrows(IllegalStateException.class, () -> second.start(0, true, this::accounts));
+	}
+
+	@Test
+	void failedBatchIsNotReplayedAfterRestart() {
+		// segment เล็กจน record ที่มี note ยาวเขียนไม่ได้: รายการแรกของ batch append ไปแล้ว รายการที่สองทำ journal ล้ม
+		LedgerCore first = new LedgerCore(new LedgerCore.Config(dir, 64, 16, 256, false, 1_000, 16), e -> { });
+		CompletableFuture<LedgerCore.Result> small = first.post(0, 100, -1, ALICE, BOB, 100, Instant.now(), null, null, null);
+		CompletableFuture<LedgerCore.Result> large = first.post(0, 101, -1, ALICE, BOB, 100, Instant.now(), null, null, "x".repeat(400));
+		// ส่งก่อน start: สองรายการอยู่ใน batch เดียวกันแน่นอน
+		first.start(0, false, this::accounts);
+		started.add(first);
+
+		assertThrows(CompletionException.class, small::join);
+		assertThrows(CompletionException.class, large::join);
+		assertFalse(first.healthy());
+		first.close();
+		started.remove(first);
+
+		LedgerCore second = start(new ArrayList<>(), 0, false);
+		LedgerCore.Result next = post(second, 200, ALICE, BOB, 100);
+		assertEquals(1, next.sequence());
+		assertEquals(900, next.debitBalance());
+	}
+
+	private LedgerCore start(List<LedgerCore.Event> events, long projectedSeq, boolean rebuild) {
+		LedgerCore core = new LedgerCore(config(), events::add);
+		core.start(projectedSeq, rebuild, this::accounts);
+		started.add(core);
+		return core;
+	}
+
+	private void accounts(LedgerCore.AccountSink sink) {
+		sink.account(CASH, 0, true);
+		sink.account(ALICE, 1000, false);
+		sink.account(BOB, 0, false);
+	}
+
+	private LedgerCore.Config config() {
+		return new LedgerCore.Config(dir, 64, 16, 1 << 16, false, 1_000, 16);
+	}
+
+	private static LedgerCore.Result post(LedgerCore core, long entryId, long debit, long credit, long amount) {
+		return core.post(0, entryId, -1, debit, credit, amount, Instant.now(), null, null, null).join();
+	}
+}
@@ -0,0 +1,135 @@
+package com.example.minibank.ledger;
+
+import com.example.minibank.entity.JournalEntry;
+import com.example.minibank.repository.LedgerRepository;
+import com.example.minibank.service.LedgerRollupService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// ไม่ใช้ฐานข้อมูล: LedgerRepository เป็น mock ที่มีสามบัญชี
+class LedgerEngineTest {
+
+	private static final long CASH = 1;
+	private static final long ALICE = 2;
+	private static final long BOB = 3;
+
+	private static final List<LedgerRepository.AccountState> ACCOUNTS = List.of(
+			new LedgerRepository.AccountState(CASH, 0, true),
+			new LedgerRepository.AccountState(ALICE, 1000, false),
+			new LedgerRepository.AccountState(BOB, 0, false));
+
+	@TempDir
+	Path dir;
+
+	private final LedgerRepository ledgerRepo = mock(LedgerRepository.class);
+	private final AtomicLong nextEntryId = new AtomicLong(1);
+	private final CountDownLatch projectorReleased = new CountDownLatch(1);
+
+	private LedgerEngine engine;
+
+	@BeforeEach
+	void setUp() {
+		when(ledgerRepo.findEngineState()).thenReturn(new LedgerRepository.EngineState(0, 0));
+		when(ledgerRepo.findMaxEntryId()).thenReturn(0L);
+		when(ledgerRepo.findHotAccounts()).thenReturn(List.of());
+		doAnswer(inv -> {
+			Consumer<LedgerRepository.AccountState> sink = inv.getArgument(0);
+			ACCOUNTS.forEach(sink);
+			return null;
+		}).when(ledgerRepo).scanAccountStates(any());
+		when(ledgerRepo.findAccountStates(anyCollection())).thenAnswer(inv -> {
+			Collection<Long> ids = inv.getArgument(0);
+			return ACCOUNTS.stream().filter(a -> ids.contains(a.accountId())).toList();
+		});
+		when(ledgerRepo.reserveEntryIds(anyInt())).thenAnswer(inv -> {
+			int n = inv.getArgument(0);
+			long first = nextEntryId.getAndAdd(n);
+			return LongStream.range(first, first + n).toArray();
+		});
+	}
+
+	@AfterEach
+	void tearDown() {
+		projectorReleased.countDown();
+		if (engine != null) engine.stop();
+	}
+
+	@Test
+	void postsAndProjectsInOrder() {
+		engine = start(1024, 100);
+
+		LedgerEngine.Posted ok = engine.post(JournalEntry.Type.TRANSFER, null, ALICE, BOB, 600, null, null, null);
+		assertTrue(ok.ok());
+		assertEquals(400, ok.debitBalance());
+		assertEquals(600, ok.creditBalance());
+
+		LedgerEngine.Posted overdraft = engine.post(JournalEntry.Type.TRANSFER, null, ALICE, BOB, 600, null, null, null);
+		assertEquals(LedgerCore.Status.INSUFFICIENT_FUNDS, overdraft.status());
+		assertEquals(400, overdraft.debitBalance());
+		assertNotEquals(ok.entryId(), overdraft.entryId());
+
+		// รายการที่ถูกปฏิเสธไม่ถูก project: seq 1 คือรายการเดียวใน journal
+		verify(ledgerRepo, timeout(5_000)).saveEngineState(1, ok.entryId());
+	}
+
+	@Test
+	void awaitGivesUpWhenEngineStalls() {
+		// projector ค้างในฐานข้อมูล คิวเต็ม engine thread รอคิว: ผู้ส่งต้องได้ error ภายใน await-timeout ไม่ค้างตลอดไป
+		doAnswer(inv -> {
+			projectorReleased.await();
+			return null;
+		}).when(ledgerRepo).insertEntryRows(anyList());
+		engine = start(1, 1);
+
+		engine.submit(JournalEntry.Type.TRANSFER, null, CASH, BOB, 1, null, null, null);
+		engine.submit(JournalEntry.Type.TRANSFER, null, CASH, BOB, 1, null, null, null);
+		CompletableFuture<LedgerEngine.Posted> stalled = engine.submit(JournalEntry.Type.TRANSFER, null, CASH, BOB, 1,
+				null, null, null);
+
+		IllegalStateException e = assertThrows(IllegalStateException.class, () -> engine.await(stalled));
+		assertEquals("Ledger engine did not confirm the entry in time", e.getMessage());
+
+		// ปล่อยแล้ว projector เขียนครบทั้งสามรายการ (batch ละรายการ)
+		projectorReleased.countDown();
+		verify(ledgerRepo, timeout(5_000).times(3)).saveEngineState(anyLong(), anyLong());
+	}
+
+	private LedgerEngine start(int projectorQueueSize, int projectorBatchSize) {
+		PlatformTransactionManager txManager = mock(PlatformTransactionManager.class);
+		when(txManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+		LedgerEngine e = new LedgerEngine(ledgerRepo, mock(LedgerRollupService.class), txManager,
+				dir.toString(), 64, 16, 1, false, 1_000, 16, 100, 2_000, 200,
+				projectorQueueSize, projectorBatchSize, new SimpleMeterRegistry());
+		e.start();
+		return e;
+	}
+}
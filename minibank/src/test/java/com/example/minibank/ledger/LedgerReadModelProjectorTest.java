@@ -0,0 +1,87 @@
+package com.example.minibank.ledger;
+
+import com.example.minibank.repository.LedgerRepository;
+import com.example.minibank.service.LedgerRollupService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// ไม่ใช้ฐานข้อมูล: ตรวจว่า projector รวม batch ถูกต้อง และไม่ขยับ projected seq จนกว่าจะเขียนสำเร็จ
+class LedgerReadModelProjectorTest {
+
+	private static final long ALICE = 2;
+	private static final long BOB = 3;
+
+	private final LedgerRepository ledgerRepo = mock(LedgerRepository.class);
+	private final LedgerRollupService rollups = mock(LedgerRollupService.class);
+	private final List<Long> projected = new CopyOnWriteArrayList<>();
+
+	private LedgerReadModelProjector projector;
+
+	@AfterEach
+	void tearDown() {
+		if (projector != null) projector.stop();
+	}
+
+	@Test
+	void writesLatestBalancePerAccountAndReportsLastSeq() {
+		projector = projector();
+		// ใส่คิวก่อน start: ได้ batch เดียว
+		projector.enqueue(event(1, 10, 100, 900, 100));
+		projector.enqueue(event(2, 11, 50, 850, 150));
+		projector.start();
+
+		verify(ledgerRepo, timeout(5_000)).saveEngineState(2, 11);
+		projector.stop();
+
+		verify(ledgerRepo).insertEntryRows(argThat(rows -> rows.size() == 2));
+		verify(ledgerRepo).insertPostingRows(argThat(rows -> rows.size() == 4));
+		verify(ledgerRepo).setBalances(Map.of(ALICE, 850L, BOB, 150L));
+		assertEquals(List.of(2L), projected);
+	}
+
+	@Test
+	void retriesFailedBatchBeforeAdvancing() {
+		doThrow(new RuntimeException("database down")).doNothing().when(ledgerRepo).insertEntryRows(anyList());
+		projector = projector();
+		projector.enqueue(event(1, 10, 100, 900, 100));
+		projector.start();
+
+		verify(ledgerRepo, timeout(5_000).times(2)).insertEntryRows(anyList());
+		verify(ledgerRepo, timeout(5_000)).saveEngineState(1, 10);
+		projector.stop();
+
+		verify(ledgerRepo, times(1)).saveEngineState(1, 10);
+		assertEquals(List.of(1L), projected);
+	}
+
+	private LedgerReadModelProjector projector() {
+		PlatformTransactionManager txManager = mock(PlatformTransactionManager.class);
+		when(txManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+		return new LedgerReadModelProjector(ledgerRepo, rollups, new TransactionTemplate(txManager), 16, 100, projected::add);
+	}
+
+	private static LedgerCore.Event event(long seq, long entryId, long amount, long debitBalance, long creditBalance) {
+		return new LedgerCore.Event(seq, 0, entryId, -1, ALICE, BOB, amount, Instant.now(),
+				null, null, null, debitBalance, creditBalance);
+	}
+}
@@ -0,0 +1,71 @@
+package com.example.minibank.service;
+
+import com.example.minibank.exception.MailDeliveryException;
+import com.example.minibank.support.StubBrevoServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BrevoMailTransportTest {
+
+	private StubBrevoServer stub;
+	private BrevoMailTransport transport;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		stub = new StubBrevoServer();
+		transport = new BrevoMailTransport(
+				stub.baseUrl(), "test-key", "noreply@minibank.test",
+				1000, 500, 2, 60,
+				JsonMapper.builder().build(), new SimpleMeterRegistry());
+	}
+
+	@AfterEach
+	void tearDown() {
+		stub.close();
+	}
+
+	@Test
+	void sendsThroughStub() {
+		transport.send("a@minibank.test", "subject", "<p>hi</p>").join();
+
+		assertEquals(1, stub.requestCount());
+		assertTrue(transport.isAvailable());
+	}
+
+	@Test
+	void serverErrorsOpenCircuitAndFailFast() {
+		stub.status(500);
+
+		for (int i = 0; i < 2; i++) {
+			CompletionException e = assertThrows(CompletionException.class,
+					() -> transport.send("a@minibank.test", "subject", "<p>hi</p>").join());
+			assertInstanceOf(MailDeliveryException.class, e.getCause());
+		}
+		assertFalse(transport.isAvailable());
+
+		CompletionException e = assertThrows(CompletionException.class,
+				() -> transport.send("a@minibank.test", "subject", "<p>hi</p>").join());
+		assertTrue(((MailDeliveryException) e.getCause()).isCircuitOpen());
+		assertEquals(2, stub.requestCount());
+	}
+
+	@Test
+	void slowServerTimesOut() {
+		stub.latencyMs(2000);
+
+		CompletionException e = assertThrows(CompletionException.class,
+				() -> transport.send("a@minibank.test", "subject", "<p>hi</p>").join());
+		assertInstanceOf(MailDeliveryException.class, e.getCause());
+	}
+}
@@ -0,0 +1,212 @@
+package com.example.minibank.service;
+
+import com.example.minibank.dto.BillPaymentRequest;
+import com.example.minibank.dto.CashRequest;
+import com.example.minibank.dto.TransferRequest;
+import com.example.minibank.entity.JournalEntry;
+import com.example.minibank.entity.LedgerAccount;
+import com.example.minibank.entity.User;
+import com.example.minibank.repository.LedgerRepository;
+import com.example.minibank.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// ใช้ฐานข้อมูลจริงเหมือน MinibankApplicationTests (ledger engine ปิดเป็นค่าเริ่มต้น = ยอดอยู่ในตาราง)
+@SpringBootTest
+class LedgerServiceTest {
+
+	@Autowired
+	LedgerService ledgerService;
+
+	@Autowired
+	LedgerRepository ledgerRepo;
+
+	@Autowired
+	UserRepository userRepository;
+
+	@Autowired
+	JdbcTemplate jdbc;
+
+	@Test
+	void conditionalDebitNeverOverdraws() {
+		String alice = newUser();
+		LedgerRepository.CustomerAccount account = ledgerService.customerAccount(alice);
+		ledgerService.topUp(alice, cash("100.00"));
+
+		// UPDATE ... WHERE balance_minor >= ? RETURNING: ไม่พอ = ไม่มีแถว และยอดไม่เปลี่ยน
+		assertTrue(ledgerRepo.debit(account.accountId(), 10_001).isEmpty());
+		assertEquals(10_000, balance(account));
+
+		assertEquals(0, ledgerRepo.debit(account.accountId(), 10_000).getAsLong());
+		assertTrue(ledgerRepo.debit(account.accountId(), 1).isEmpty());
+		assertEquals(0, balance(account));
+	}
+
+	@Test
+	void rejectedPostingLeavesNoEntryBehind() {
+		String alice = newUser();
+		LedgerRepository.CustomerAccount account = ledgerService.customerAccount(alice);
+		ledgerService.topUp(alice, cash("50.00"));
+		long postingsBefore = postingCount(account);
+
+		RuntimeException e = assertThrows(RuntimeException.class, () -> ledgerService.withdraw(alice, cash("50.01")));
+		assertEquals("ยอดเงินไม่พอ", e.getMessage());
+
+		assertEquals(5_000, balance(account));
+		assertEquals(postingsBefore, postingCount(account));
+	}
+
+	@Test
+	void everyEntryBalancesToZero() {
+		String alice = newUser();
+		String bob = newUser();
+		ledgerService.topUp(alice, cash("30.00"));
+		long entryId = ledgerService.transfer(alice, transfer(ledgerService.customerAccount(bob).accountNo(), "12.34")).getId();
+
+		Long sum = jdbc.queryForObject("SELECT sum(amount_minor) FROM journal_postings WHERE entry_id = ?", Long.class, entryId);
+		assertEquals(0L, sum);
+		assertEquals(1_766, balance(ledgerService.customerAccount(alice)));
+		assertEquals(1_234, balance(ledgerService.customerAccount(bob)));
+	}
+
+	@Test
+	void concurrentWithdrawalsFromOneAccountStopAtZero() throws Exception {
+		String alice = newUser();
+		LedgerRepository.CustomerAccount account = ledgerService.customerAccount(alice);
+		ledgerService.topUp(alice, cash("100.00"));
+
+		List<Callable<Boolean>> tasks = new ArrayList<>();
+		for (int i = 0; i < 40; i++) {
+			tasks.add(() -> {
+				try {
+					ledgerService.withdraw(alice, cash("10.00"));
+					return true;
+				} catch (LedgerService.InsufficientFundsException e) {
+					return false;
+				}
+			});
+		}
+
+		assertEquals(10, runAll(tasks).stream().filter(ok -> ok).count());
+		assertEquals(0, balance(account));
+		Long sum = jdbc.queryForObject("SELECT sum(amount_minor) FROM journal_postings WHERE account_id = ?",
+				Long.class, account.accountId());
+		assertEquals(0L, sum);
+	}
+
+	@Test
+	void opposingTransfersDoNotDeadlockAndConserveMoney() throws Exception {
+		String alice = newUser();
+		String bob = newUser();
+		LedgerRepository.CustomerAccount a = ledgerService.customerAccount(alice);
+		LedgerRepository.CustomerAccount b = ledgerService.customerAccount(bob);
+		ledgerService.topUp(alice, cash("100.00"));
+		ledgerService.topUp(bob, cash("100.00"));
+
+		// A -> B และ B -> A พร้อมกัน: อัปเดตเรียงตาม account id จึงไม่ล็อกสลับลำดับกัน
+		List<Callable<Boolean>> tasks = new ArrayList<>();
+		for (int i = 0; i < 30; i++) {
+			tasks.add(() -> tryTransfer(alice, b.accountNo(), "7.00"));
+			tasks.add(() -> tryTransfer(bob, a.accountNo(), "7.00"));
+		}
+		runAll(tasks);
+
+		assertEquals(20_000, balance(a) + balance(b));
+		assertFalse(balance(a) < 0 || balance(b) < 0);
+	}
+
+	@Test
+	void hotAccountDebitCountsCreditsStillInShards() {
+		String alice = newUser();
+		LedgerRepository.CustomerAccount account = ledgerService.customerAccount(alice);
+		ledgerService.topUp(alice, cash("25.00"));
+
+		// ค่าบิลเข้า SYS-BILLERS ลงแถวย่อย (ห้ามติดลบ): ตัดยอดทั้งหมดทันทีต้องได้ ไม่ต้องรอ sweep รอบถัดไป
+		BillPaymentRequest bill = new BillPaymentRequest();
+		bill.setProvider("test");
+		bill.setBill("hot-account");
+		bill.setAmount(new BigDecimal("25.00"));
+		ledgerService.payBill(alice, bill);
+
+		long billers = ledgerService.systemAccount(LedgerAccount.SYSTEM_BILLERS);
+		long total = ledgerRepo.findBalance(billers).balanceMinor();
+		ledgerService.post(JournalEntry.Type.TRANSFER, null,
+				List.of(new LedgerService.Leg(billers, -total), new LedgerService.Leg(account.accountId(), total)),
+				"refund", null, null);
+
+		assertEquals(0, ledgerRepo.findBalance(billers).balanceMinor());
+		assertEquals(total, balance(account));
+	}
+
+	private boolean tryTransfer(String from, String to, String amount) {
+		try {
+			ledgerService.transfer(from, transfer(to, amount));
+			return true;
+		} catch (LedgerService.InsufficientFundsException e) {
+			return false;
+		}
+	}
+
+	private static List<Boolean> runAll(List<Callable<Boolean>> tasks) throws Exception {
+		ExecutorService pool = Executors.newFixedThreadPool(16);
+		try {
+			List<Boolean> results = new ArrayList<>();
+			for (Future<Boolean> f : pool.invokeAll(tasks)) results.add(f.get());
+			return results;
+		} finally {
+			pool.shutdown();
+			pool.awaitTermination(30, TimeUnit.SECONDS);
+		}
+	}
+
+	private long balance(LedgerRepository.CustomerAccount account) {
+		return ledgerRepo.findBalance(account.accountId()).balanceMinor();
+	}
+
+	private long postingCount(LedgerRepository.CustomerAccount account) {
+		Long n = jdbc.queryForObject("SELECT count(*) FROM journal_postings WHERE account_id = ?", Long.class, account.accountId());
+		return n == null ? 0 : n;
+	}
+
+	private String newUser() {
+		String username = "ledger-" + UUID.randomUUID().toString().substring(0, 12);
+		userRepository.save(User.builder()
+				.username(username)
+				.email(username + "@minibank.test")
+				.fullName("Ledger Test")
+				.passwordHash("{noop}unused")
+				.build());
+		return username;
+	}
+
+	private static CashRequest cash(String amount) {
+		CashRequest req = new CashRequest();
+		req.setChannel("test");
+		req.setAmount(new BigDecimal(amount));
+		return req;
+	}
+
+	private static TransferRequest transfer(String to, String amount) {
+		TransferRequest req = new TransferRequest();
+		req.setTo(to);
+		req.setAmount(new BigDecimal(amount));
+		return req;
+	}
+}
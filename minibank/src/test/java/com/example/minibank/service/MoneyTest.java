@@ -0,0 +1,48 @@
+package com.example.minibank.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MoneyTest {
+
+	@Test
+	void convertsWithoutRounding() {
+		assertEquals(1234, Money.toMinor(new BigDecimal("12.34")));
+		assertEquals(1230, Money.toMinor(new BigDecimal("12.3")));
+		assertEquals(1200, Money.toMinor(new BigDecimal("12")));
+		// ศูนย์ท้ายเกิน 2 ตำแหน่งไม่ใช่ทศนิยมจริง
+		assertEquals(1234, Money.toMinor(new BigDecimal("12.3400")));
+		assertEquals(1, Money.toMinor(new BigDecimal("0.01")));
+		assertEquals(1200, Money.toMinor(new BigDecimal("1.2E+1")));
+	}
+
+	@Test
+	void rejectsFractionsOfASatang() {
+		// ไม่ปัดเศษ: 0.005 หรือ 10.999 ต้องถูกปฏิเสธ ไม่ใช่กลายเป็น 0.01 / 11.00
+		assertThrows(RuntimeException.class, () -> Money.toMinor(new BigDecimal("0.005")));
+		assertThrows(RuntimeException.class, () -> Money.toMinor(new BigDecimal("10.999")));
+	}
+
+	@Test
+	void rejectsNonPositiveAndOversizedAmounts() {
+		assertThrows(RuntimeException.class, () -> Money.toMinor(null));
+		assertThrows(RuntimeException.class, () -> Money.toMinor(BigDecimal.ZERO));
+		assertThrows(RuntimeException.class, () -> Money.toMinor(new BigDecimal("-1.00")));
+
+		assertEquals(Money.MAX_AMOUNT_MINOR, Money.toMinor(new BigDecimal("10000000.00")));
+		assertThrows(RuntimeException.class, () -> Money.toMinor(new BigDecimal("10000000.01")));
+		assertThrows(RuntimeException.class, () -> Money.toMinor(new BigDecimal("1E+30")));
+	}
+
+	@Test
+	void formatsWithTwoDecimals() {
+		assertEquals(new BigDecimal("12.34"), Money.fromMinor(1234));
+		assertEquals(new BigDecimal("0.05"), Money.fromMinor(5));
+		assertEquals(new BigDecimal("-1.50"), Money.fromMinor(-150));
+		assertEquals("0.00", Money.fromMinor(0).toPlainString());
+	}
+}
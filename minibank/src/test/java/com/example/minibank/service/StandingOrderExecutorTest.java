@@ -0,0 +1,126 @@
+package com.example.minibank.service;
+
+import com.example.minibank.entity.JournalEntry;
+import com.example.minibank.entity.LedgerAccount;
+import com.example.minibank.entity.StandingOrder;
+import com.example.minibank.exception.ServiceBusyException;
+import com.example.minibank.ledger.LedgerCore;
+import com.example.minibank.ledger.LedgerEngine;
+import com.example.minibank.repository.LedgerRepository;
+import com.example.minibank.repository.StandingOrderRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// โหมด engine ไม่ใช้ฐานข้อมูล: ตรวจว่ารายการที่ไม่รู้ผลไม่ถูกคืนเป็น ACTIVE (จ่ายซ้ำ)
+class StandingOrderExecutorTest {
+
+	private static final long BILLERS = 99;
+
+	private final StandingOrderRepository orderRepo = mock(StandingOrderRepository.class);
+	private final LedgerService ledgerService = mock(LedgerService.class);
+	private final LedgerEngine engine = mock(LedgerEngine.class);
+
+	@BeforeEach
+	void setUp() {
+		when(orderRepo.lockDue(any(), any())).thenReturn(List.of(order(1), order(2), order(3)));
+		when(ledgerService.systemAccount(LedgerAccount.SYSTEM_BILLERS)).thenReturn(BILLERS);
+	}
+
+	@Test
+	void unknownOutcomeStaysRunningAndOnlyUnsubmittedOrdersGoBack() {
+		CompletableFuture<LedgerEngine.Posted> paid = CompletableFuture.completedFuture(
+				new LedgerEngine.Posted(LedgerCore.Status.OK, 500, Instant.now(), 0, 100));
+		CompletableFuture<LedgerEngine.Posted> lost = new CompletableFuture<>();
+		when(engine.submit(eq(JournalEntry.Type.BILL_PAYMENT), any(), anyLong(), eq(BILLERS), anyLong(), any(), any(), any()))
+				.thenReturn(paid, lost)
+				.thenThrow(new IllegalStateException("Ledger engine is not running"));
+		when(engine.await(paid)).thenReturn(paid.join());
+		when(engine.await(lost)).thenThrow(new IllegalStateException("Ledger engine did not confirm the entry in time"));
+
+		List<StandingOrderRepository.Due> next = executor().run(List.of(1L, 2L, 3L));
+
+		verify(orderRepo).markRunning(List.of(1L, 2L, 3L));
+		Map<Long, StandingOrderRepository.RunResult> saved = savedResults();
+		// #2 ไม่อยู่ในผล = คง RUNNING ไว้ให้ตรวจกับ journal
+		assertEquals(List.of(1L, 3L), saved.keySet().stream().sorted().toList());
+		assertEquals(StandingOrderExecutor.PAID, saved.get(1L).lastStatus());
+		assertEquals(500L, saved.get(1L).lastEntryId());
+		assertEquals(StandingOrderExecutor.ERROR, saved.get(3L).lastStatus());
+		assertEquals(StandingOrder.Status.ACTIVE, saved.get(3L).status());
+		assertEquals(List.of(1L, 3L), next.stream().map(StandingOrderRepository.Due::id).sorted().toList());
+	}
+
+	@Test
+	void busyEngineReturnsWholeChunkToActive() {
+		when(engine.submit(any(), any(), anyLong(), anyLong(), anyLong(), any(), any(), any()))
+				.thenThrow(new ServiceBusyException("busy", 1));
+
+		List<StandingOrderRepository.Due> next = executor().run(List.of(1L, 2L, 3L));
+
+		verify(engine, times(1)).submit(any(), any(), anyLong(), anyLong(), anyLong(), any(), any(), any());
+		Map<Long, StandingOrderRepository.RunResult> saved = savedResults();
+		assertEquals(3, saved.size());
+		saved.values().forEach(r -> assertEquals(StandingOrder.Status.ACTIVE, r.status()));
+		assertEquals(3, next.size());
+	}
+
+	@SuppressWarnings("unchecked")
+	private Map<Long, StandingOrderRepository.RunResult> savedResults() {
+		ArgumentCaptor<List<StandingOrderRepository.RunResult>> captor = ArgumentCaptor.forClass(List.class);
+		verify(orderRepo).saveResults(captor.capture());
+		return captor.getValue().stream()
+				.collect(Collectors.toMap(StandingOrderRepository.RunResult::id, Function.identity()));
+	}
+
+	@SuppressWarnings("unchecked")
+	private StandingOrderExecutor executor() {
+		PlatformTransactionManager txManager = mock(PlatformTransactionManager.class);
+		when(txManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+		ObjectProvider<LedgerEngine> engines = mock(ObjectProvider.class);
+		when(engines.getIfAvailable()).thenReturn(engine);
+		return new StandingOrderExecutor(orderRepo, mock(LedgerRepository.class), ledgerService,
+				mock(LedgerRollupService.class), engines, txManager, "Asia/Bangkok", "06:00", 3, 60,
+				new SimpleMeterRegistry());
+	}
+
+	private static StandingOrder order(long id) {
+		LocalDate due = LocalDate.now();
+		return StandingOrder.builder()
+				.id(id)
+				.accountId(10 + id)
+				.userId(id)
+				.bill("bill-" + id)
+				.provider("test")
+				.amountMinor(100)
+				.frequency(StandingOrder.Frequency.MONTHLY)
+				.anchorDay(due.getDayOfMonth())
+				.dueDate(due)
+				.nextRunAt(Instant.now())
+				.status(StandingOrder.Status.ACTIVE)
+				.attempts(0)
+				.createdAt(Instant.now())
+				.build();
+	}
+}
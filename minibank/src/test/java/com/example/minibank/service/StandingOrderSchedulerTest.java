@@ -0,0 +1,99 @@
+package com.example.minibank.service;
+
+import com.example.minibank.repository.StandingOrderRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeast;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// ไม่ใช้ฐานข้อมูล: repository / executor เป็น mock, executor ค้างจนกว่าจะปล่อย latch
+class StandingOrderSchedulerTest {
+
+	private static final Instant OVERDUE = Instant.now().minus(Duration.ofDays(1));
+
+	private final StandingOrderRepository orderRepo = mock(StandingOrderRepository.class);
+	private final StandingOrderExecutor executor = mock(StandingOrderExecutor.class);
+	private final CountDownLatch release = new CountDownLatch(1);
+
+	private StandingOrderScheduler scheduler;
+
+	@AfterEach
+	void tearDown() {
+		release.countDown();
+		if (scheduler != null) scheduler.stop();
+	}
+
+	@Test
+	void backlogWaitsForWorkersInsteadOfQueueingEverything() throws InterruptedException {
+		List<StandingOrderRepository.Due> backlog = LongStream.rangeClosed(1, 50)
+				.mapToObj(id -> new StandingOrderRepository.Due(id, OVERDUE))
+				.toList();
+		when(orderRepo.findDue(any(), anyLong(), any(), anyInt(), anyInt(), anyInt()))
+				.thenReturn(backlog)
+				.thenReturn(List.of());
+		when(executor.run(anyList())).thenAnswer(inv -> {
+			release.await();
+			return List.of();
+		});
+
+		// chunk ละ 1 รายการ, worker 1 thread, คิว 2 chunk
+		scheduler = start(1, 1, 2, 60, 1, 0);
+
+		// worker ถือ 1 chunk, คิว 2 chunk, thread ของ wheel จ่ายเองอีก 1 แล้วหยุดโหลดต่อ
+		verify(executor, timeout(5_000).times(2)).run(anyList());
+		Thread.sleep(200);
+		assertEquals(4, scheduler.inFlight());
+		verify(executor, times(2)).run(anyList());
+
+		release.countDown();
+		verify(executor, timeout(5_000).times(50)).run(anyList());
+	}
+
+	@Test
+	void sweepRunsWhileChunksAreInFlightAndSkipsThem() {
+		// โหลดเฉพาะ partition ของตัวเอง (id % 2 = 1); sweep อ่านทุก partition
+		when(orderRepo.findDue(any(), anyLong(), any(), anyInt(), eq(2), eq(1)))
+				.thenReturn(List.of(new StandingOrderRepository.Due(1, OVERDUE)));
+		when(orderRepo.findDue(any(), anyLong(), any(), anyInt(), eq(1), eq(0)))
+				.thenReturn(List.of(new StandingOrderRepository.Due(1, OVERDUE), new StandingOrderRepository.Due(2, OVERDUE)));
+		when(executor.run(anyList())).thenAnswer(inv -> {
+			List<Long> ids = inv.getArgument(0);
+			if (ids.contains(1L)) release.await();
+			return List.of();
+		});
+
+		// sweep-minutes 0 = sweep ทุก tick
+		scheduler = start(10, 2, 4, 0, 2, 1);
+
+		verify(executor, timeout(5_000).atLeast(2)).run(List.of(2L));
+		verify(executor, times(1)).run(List.of(1L));
+		verify(orderRepo, atLeastOnce()).findDue(any(), anyLong(), any(), anyInt(), eq(2), eq(1));
+	}
+
+	private StandingOrderScheduler start(int batchSize, int threads, int queueChunks, long sweepMinutes,
+										 int partitions, int partition) {
+		StandingOrderScheduler s = new StandingOrderScheduler(orderRepo, executor, 60, sweepMinutes, batchSize, 1_000,
+				threads, queueChunks, partitions, partition, new SimpleMeterRegistry());
+		s.start();
+		return s;
+	}
+}
@@ -0,0 +1,63 @@
+package com.example.minibank.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TimingWheelTest {
+
+	private static final long START = 1_700_000_000_000L;
+
+	@Test
+	void expiresOverdueImmediatelyAndRejectsBeyondSpan() {
+		TimingWheel wheel = new TimingWheel(1000, 4, 3, START);
+		List<Long> expired = new ArrayList<>();
+
+		wheel.schedule(1, START - 60_000, expired::add);
+		wheel.schedule(2, START, expired::add);
+		assertEquals(List.of(1L, 2L), expired);
+		assertEquals(0, wheel.size());
+
+		assertThrows(IllegalArgumentException.class,
+				() -> wheel.schedule(3, START + wheel.spanMillis() + 1000, expired::add));
+	}
+
+	@Test
+	void cascadesFromUpperLevelsWithoutFiringEarly() {
+		TimingWheel wheel = new TimingWheel(1000, 4, 3, START);
+		Map<Long, Long> due = new HashMap<>();
+		Map<Long, Long> firedAt = new HashMap<>();
+		Random random = new Random(42);
+
+		long now = START;
+		for (long id = 0; id < 2000; id++) {
+			long at = START + 1000 + (long) (random.nextDouble() * (wheel.spanMillis() - 1000));
+			due.put(id, at);
+			wheel.schedule(id, at, x -> firedAt.put(x, START));
+		}
+		assertEquals(2000, wheel.size());
+
+		while (now < START + wheel.spanMillis()) {
+			now += 1 + random.nextInt(2500);
+			long tickNow = now;
+			wheel.advance(now, id -> firedAt.put(id, tickNow));
+			for (Map.Entry<Long, Long> e : firedAt.entrySet()) {
+				// ยิงได้ในวินาทีเดียวกับกำหนด หรือหลังจากนั้น ไม่ก่อน
+				assertFalse(e.getValue() / 1000 < due.get(e.getKey()) / 1000, "fired early: " + e.getKey());
+			}
+		}
+
+		assertEquals(due.keySet(), firedAt.keySet());
+		assertEquals(0, wheel.size());
+		assertTrue(wheel.currentMillis() <= now);
+	}
+}
@@ -0,0 +1,134 @@
+package com.example.minibank.support;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// load test แบบ closed-loop สำหรับเทียบ platform thread กับ virtual thread (profile vthreads)
+// ยิงแอปที่รันอยู่แล้ว โดยปิด rate limit (APP_RATELIMIT_ENABLED=false) และชี้ Brevo ไปที่ StubBrevoServer
+//
+//   java AuthLoadBenchmark <baseUrl> <login|request-otp> <concurrency> <seconds> [username] [password]
+//
+// login ต้องมี user ที่สมัครไว้แล้ว, request-otp ใช้ username/email ใหม่ทุกครั้ง
+public class AuthLoadBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 4) {
+            System.err.println("usage: AuthLoadBenchmark <baseUrl> <login|request-otp> <concurrency> <seconds> [username] [password]");
+            System.exit(2);
+        }
+
+        String baseUrl = args[0].replaceAll("/+$", "");
+        String mode = args[1];
+        int concurrency = Integer.parseInt(args[2]);
+        Duration duration = Duration.ofSeconds(Long.parseLong(args[3]));
+        String username = args.length > 4 ? args[4] : "bench";
+        String password = args.length > 5 ? args[5] : "bench-password";
+
+        String path = switch (mode) {
+            case "login" -> "/auth/login";
+            case "request-otp" -> "/auth/register/request-otp";
+            default -> throw new IllegalArgumentException("unknown mode " + mode);
+        };
+
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+        URI uri = URI.create(baseUrl + path);
+        String runId = Long.toString(System.currentTimeMillis(), 36);
+
+        AtomicInteger seq = new AtomicInteger();
+        AtomicLong errors = new AtomicLong();
+        Map<Integer, AtomicLong> statuses = new ConcurrentHashMap<>();
+        long[][] latencies = new long[concurrency][];
+        int[] counts = new int[concurrency];
+
+        long deadline = System.nanoTime() + duration.toNanos();
+        ExecutorService workers = Executors.newFixedThreadPool(concurrency);
+        for (int w = 0; w < concurrency; w++) {
+            int worker = w;
+            latencies[w] = new long[1024];
+            workers.submit(() -> {
+                while (System.nanoTime() < deadline) {
+                    String body = mode.equals("login")
+                            ? json(Map.of("username", username, "password", password))
+                            : newRegistration(runId, seq.incrementAndGet());
+
+                    HttpRequest request = HttpRequest.newBuilder(uri)
+                            .timeout(Duration.ofSeconds(30))
+                            .header("Content-Type", "application/json")
+                            .POST(HttpRequest.BodyPublishers.ofString(body))
+                            .build();
+
+                    long start = System.nanoTime();
+                    try {
+                        HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                        statuses.computeIfAbsent(response.statusCode(), k -> new AtomicLong()).incrementAndGet();
+                    } catch (Exception e) {
+                        errors.incrementAndGet();
+                        continue;
+                    }
+                    long elapsed = System.nanoTime() - start;
+
+                    if (counts[worker] == latencies[worker].length) {
+                        latencies[worker] = Arrays.copyOf(latencies[worker], counts[worker] * 2);
+                    }
+                    latencies[worker][counts[worker]++] = elapsed;
+                }
+            });
+        }
+        workers.shutdown();
+        workers.awaitTermination(duration.toSeconds() + 60, TimeUnit.SECONDS);
+
+        int total = Arrays.stream(counts).sum();
+        long[] all = new long[total];
+        int offset = 0;
+        for (int w = 0; w < concurrency; w++) {
+            System.arraycopy(latencies[w], 0, all, offset, counts[w]);
+            offset += counts[w];
+        }
+        Arrays.sort(all);
+
+        System.out.printf("%s %s concurrency=%d duration=%ds%n", mode, uri, concurrency, duration.toSeconds());
+        System.out.printf("requests=%d errors=%d throughput=%.1f req/s%n",
+                total, errors.get(), total / (double) duration.toSeconds());
+        System.out.printf("latency ms p50=%.1f p90=%.1f p99=%.1f max=%.1f%n",
+                percentile(all, 0.50), percentile(all, 0.90), percentile(all, 0.99), percentile(all, 1.0));
+        System.out.println("status " + new TreeMap<>(statuses));
+    }
+
+    private static String newRegistration(String runId, int n) {
+        String username = "bench_" + runId + "_" + n;
+        return json(Map.of(
+                "username", username,
+                "fullName", "Bench User",
+                "email", username + "@bench.minibank.test",
+                "password", "bench-password"
+        ));
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0) return 0;
+        int i = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(i, sorted.length - 1))] / 1_000_000.0;
+    }
+
+    // ค่าใน benchmark ไม่มีอักขระพิเศษ ต่อ JSON เองได้
+    private static String json(Map<String, String> fields) {
+        StringBuilder sb = new StringBuilder("{");
+        fields.forEach((k, v) -> {
+            if (sb.length() > 1) sb.append(',');
+            sb.append('"').append(k).append("\":\"").append(v).append('"');
+        });
+        return sb.append('}').toString();
+    }
+}
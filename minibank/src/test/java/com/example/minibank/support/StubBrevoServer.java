@@ -0,0 +1,76 @@
+package com.example.minibank.support;
+
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Brevo ปลอมสำหรับ test/benchmark: ตอบ POST /v3/smtp/email ด้วย status และ latency ที่ตั้งได้
+public class StubBrevoServer implements AutoCloseable {
+
+    private final HttpServer server;
+    private final ExecutorService workers = Executors.newCachedThreadPool();
+    private final AtomicInteger requests = new AtomicInteger();
+
+    private volatile int status = 201;
+    private volatile long latencyMs;
+
+    public StubBrevoServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(workers);
+        server.createContext("/v3/smtp/email", exchange -> {
+            requests.incrementAndGet();
+            exchange.getRequestBody().readAllBytes();
+            try {
+                if (latencyMs > 0) Thread.sleep(latencyMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] body = (status < 300 ? "{\"messageId\":\"stub\"}" : "{\"message\":\"stub error\"}")
+                    .getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(status, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+    }
+
+    public String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    public StubBrevoServer status(int status) {
+        this.status = status;
+        return this;
+    }
+
+    public StubBrevoServer latencyMs(long latencyMs) {
+        this.latencyMs = latencyMs;
+        return this;
+    }
+
+    public int requestCount() {
+        return requests.get();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        workers.shutdownNow();
+    }
+
+    // รันแยกไว้ยิง load test: java StubBrevoServer [latencyMs]
+    public static void main(String[] args) throws Exception {
+        StubBrevoServer stub = new StubBrevoServer();
+        if (args.length > 0) stub.latencyMs(Long.parseLong(args[0]));
+        System.out.println("Stub Brevo listening on " + stub.baseUrl());
+        Thread.currentThread().join();
+    }
+}